@@ -19,6 +19,7 @@
 import net.rptools.clientserver.simple.client.SocketClientConnection;
 import net.rptools.clientserver.simple.client.WebRTCClientConnection;
 import net.rptools.clientserver.simple.server.HandshakeProvider;
+import net.rptools.clientserver.simple.server.NioServerConnection;
 import net.rptools.clientserver.simple.server.ServerConnection;
 import net.rptools.clientserver.simple.server.SocketServerConnection;
 import net.rptools.clientserver.simple.server.WebRTCServerConnection;
@@ -41,8 +42,12 @@ public ClientConnection createClientConnection(String id, ServerConfig config)
 
   public ServerConnection createServerConnection(ServerConfig config, HandshakeProvider handshake)
       throws IOException {
-    if (!config.getUseWebRTC() || config.isPersonalServer())
+    if (!config.getUseWebRTC() || config.isPersonalServer()) {
+      if (config.getUseNioTransport()) {
+        return new NioServerConnection(config.getPort(), handshake);
+      }
       return new SocketServerConnection(config.getPort(), handshake);
+    }
 
     return new WebRTCServerConnection(config, handshake);
   }
@@ -16,18 +16,14 @@
 
 import java.io.*;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import net.rptools.clientserver.ActivityListener;
 import net.rptools.clientserver.ActivityListener.Direction;
 import net.rptools.clientserver.ActivityListener.State;
-import org.apache.commons.compress.compressors.lzma.LZMACompressorInputStream;
-import org.apache.commons.compress.compressors.lzma.LZMACompressorOutputStream;
+import net.rptools.clientserver.simple.codec.MessageCodec;
+import net.rptools.clientserver.simple.codec.MessageCodecStatistics;
+import net.rptools.clientserver.simple.codec.MessageCodecs;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -37,16 +33,18 @@
  *     Java - Code Style - Code Templates
  */
 public abstract class AbstractConnection implements Connection {
-  // We don't need to make each list synchronized since the class is synchronized
-
   private static final Logger log = LogManager.getLogger(AbstractConnection.class);
-  protected Map<Object, List<byte[]>> outQueueMap = new HashMap<Object, List<byte[]>>();
-  protected List<List<byte[]>> outQueueList = new LinkedList<List<byte[]>>();
+  private final OutboundMessageQueue outQueue = new OutboundMessageQueue();
   protected List<MessageHandler> messageHandlers = new CopyOnWriteArrayList<MessageHandler>();
   protected List<ActivityListener> listeners = new CopyOnWriteArrayList<ActivityListener>();
   protected List<DisconnectHandler> disconnectHandlers =
       new CopyOnWriteArrayList<DisconnectHandler>();
 
+  /** The codec used to compress outgoing messages, negotiated during the handshake. */
+  private volatile MessageCodec codec = MessageCodecs.getDefaultCodec();
+
+  private final MessageCodecStatistics codecStatistics = new MessageCodecStatistics();
+
   public final void addMessageHandler(MessageHandler handler) {
     messageHandlers.add(handler);
   }
@@ -70,75 +68,82 @@ public final void dispatchMessage(String id, byte[] message) {
     }
   }
 
-  public synchronized void addMessage(byte[] message) {
+  public void addMessage(byte[] message) {
     addMessage(null, message);
   }
 
-  public synchronized void addMessage(Object channel, byte[] message) {
-    List<byte[]> queue = getOutQueue(channel);
-    queue.add(compress(message));
-    // Queue up for sending
-    outQueueList.add(queue);
+  public void addMessage(Object channel, byte[] message) {
+    addCompressedMessage(channel, null, compress(message));
   }
 
-  private byte[] compress(byte[] message) {
-    try {
-      ByteArrayOutputStream baos = new ByteArrayOutputStream(message.length);
-      OutputStream ios = new LZMACompressorOutputStream(baos);
-      ios.write(message);
-      ios.close();
+  public void addCompressedMessage(Object channel, byte[] compressedMessage) {
+    addCompressedMessage(channel, null, compressedMessage);
+  }
 
-      var compressedMessage = baos.toByteArray();
-      return compressedMessage;
+  /**
+   * Queues a message that has already been compressed with {@link #compress(byte[])} or {@link
+   * MessageCodecs#encode}. This allows the same compressed payload to be shared between several
+   * connections, e.g. when broadcasting.
+   *
+   * @param channel the channel to queue the message on.
+   * @param coalesceKey the key of messages that supersede each other, or {@code null} if the
+   *     message should never be dropped. See {@link OutboundMessageQueue}.
+   * @param compressedMessage the compressed message.
+   */
+  public void addCompressedMessage(Object channel, Object coalesceKey, byte[] compressedMessage) {
+    outQueue.add(channel, coalesceKey, compressedMessage);
+  }
+
+  /**
+   * Compresses a message into the frame that is written to the wire using the codec of this
+   * connection.
+   *
+   * @param message the message to compress.
+   * @return the compressed message.
+   */
+  protected byte[] compress(byte[] message) {
+    try {
+      return MessageCodecs.encode(codec, message, codecStatistics);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
   private byte[] inflate(byte[] compressedMessage) {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream(compressedMessage.length);
-    InputStream bytesIn = new ByteArrayInputStream(compressedMessage);
     try {
-      InputStream ios = new LZMACompressorInputStream(bytesIn);
-      var decompressed = ios.readAllBytes();
-      ios.close();
-      return decompressed;
+      return MessageCodecs.decode(compressedMessage, codecStatistics);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
-  protected List<byte[]> getOutQueue(Object channel) {
-    // Ordinarily I would synchronize this method, but I imagine the channels will be initialized
-    // once
-    // at the beginning of execution.  Thus get(channel) will only return once right at the
-    // beginning
-    // no sense incurring the cost of synchronizing the method on the class for that.
-    List<byte[]> queue = outQueueMap.get(channel);
-    if (queue == null) {
-      queue = Collections.synchronizedList(new ArrayList<byte[]>());
-      outQueueMap.put(channel, queue);
-    }
-    return queue;
+  public MessageCodec getCodec() {
+    return codec;
   }
 
-  public synchronized boolean hasMoreMessages() {
-    return !outQueueList.isEmpty();
+  public void setCodec(MessageCodec codec) {
+    log.debug("Switching to codec " + codec.getName());
+    this.codec = codec;
   }
 
-  public synchronized byte[] nextMessage() {
-    if (!hasMoreMessages()) {
-      return null;
-    }
-    List<byte[]> queue = outQueueList.remove(0);
+  public MessageCodecStatistics getCodecStatistics() {
+    return codecStatistics;
+  }
 
-    if (queue.isEmpty()) return null;
+  public boolean hasMoreMessages() {
+    return outQueue.hasMoreMessages();
+  }
 
-    byte[] message = queue.remove(0);
-    if (!queue.isEmpty()) {
-      outQueueList.add(queue);
-    }
-    return message;
+  public byte[] nextMessage() {
+    return outQueue.nextMessage();
+  }
+
+  public int getQueueDepth(MessagePriority priority) {
+    return outQueue.getDepth(priority);
+  }
+
+  public long getCoalescedMessageCount() {
+    return outQueue.getCoalescedCount();
   }
 
   public final void fireDisconnect() {
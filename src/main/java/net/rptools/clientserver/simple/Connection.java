@@ -16,6 +16,8 @@
 
 import java.io.IOException;
 import net.rptools.clientserver.ActivityListener;
+import net.rptools.clientserver.simple.codec.MessageCodec;
+import net.rptools.clientserver.simple.codec.MessageCodecStatistics;
 
 public interface Connection {
   void addMessageHandler(MessageHandler handler);
@@ -28,6 +30,22 @@ public interface Connection {
 
   byte[] nextMessage();
 
+  /**
+   * Returns the number of messages with the specified priority waiting to be sent.
+   *
+   * @param priority the priority of the messages.
+   * @return the number of messages waiting to be sent.
+   */
+  int getQueueDepth(MessagePriority priority);
+
+  /**
+   * Returns the number of queued messages that were dropped because a newer message superseded
+   * them before they were sent.
+   *
+   * @return the number of coalesced messages.
+   */
+  long getCoalescedMessageCount();
+
   void fireDisconnect();
 
   void addActivityListener(ActivityListener listener);
@@ -38,6 +56,28 @@ public interface Connection {
 
   void removeDisconnectHandler(DisconnectHandler handler);
 
+  /**
+   * Returns the codec used to compress messages sent over this connection.
+   *
+   * @return the codec used for outgoing messages.
+   */
+  MessageCodec getCodec();
+
+  /**
+   * Sets the codec used to compress messages sent over this connection. Incoming messages are
+   * always decoded with the codec they were encoded with.
+   *
+   * @param codec the codec to use for outgoing messages.
+   */
+  void setCodec(MessageCodec codec);
+
+  /**
+   * Returns the byte and latency counters for the codecs used by this connection.
+   *
+   * @return the codec statistics.
+   */
+  MessageCodecStatistics getCodecStatistics();
+
   void open() throws IOException;
 
   void close();
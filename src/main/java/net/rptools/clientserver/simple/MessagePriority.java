@@ -0,0 +1,46 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple;
+
+/**
+ * The priority of the messages sent on a channel. Queued messages are always sent in strict
+ * priority order, so a backlog of asset chunks never delays interactive messages.
+ */
+public enum MessagePriority {
+  /** Messages that a player is waiting on such as token moves and chat. */
+  INTERACTIVE,
+  /** Asset transfers. */
+  ASSET,
+  /** Everything else. */
+  BULK;
+
+  /**
+   * Returns the priority for the messages sent on the specified channel. The default channel
+   * ({@code null}) is interactive, channels implementing {@link PrioritizedChannel} provide their
+   * own priority and any other channel is bulk.
+   *
+   * @param channel the channel.
+   * @return the priority of the channel.
+   */
+  public static MessagePriority forChannel(Object channel) {
+    if (channel == null) {
+      return INTERACTIVE;
+    }
+    if (channel instanceof PrioritizedChannel prioritizedChannel) {
+      return prioritizedChannel.getPriority();
+    }
+    return BULK;
+  }
+}
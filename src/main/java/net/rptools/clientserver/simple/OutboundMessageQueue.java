@@ -0,0 +1,191 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The queue of messages waiting to be sent on a connection.
+ *
+ * <p>Each channel has its own lock free queue that any number of threads can add to. Messages are
+ * taken in strict {@link MessagePriority} order, and channels of the same priority take turns.
+ * There is expected to be a single thread taking messages from the queue.
+ *
+ * <p>Messages may be added with a coalesce key. If a message with the same key is still waiting
+ * to be sent when a new one is added, the old message is dropped as it has been superseded. The
+ * new message is added to the end of the queue so the order relative to other messages is kept.
+ */
+public class OutboundMessageQueue {
+
+  /** Key used for the default channel as the concurrent maps don't allow {@code null}. */
+  private static final Object DEFAULT_CHANNEL = new Object();
+
+  /** A queued message, the payload is cleared once it has been taken or superseded. */
+  private static class Entry {
+    private final MessagePriority priority;
+    private final Object coalesceKey;
+    private final AtomicReference<byte[]> payload;
+
+    private Entry(MessagePriority priority, Object coalesceKey, byte[] payload) {
+      this.priority = priority;
+      this.coalesceKey = coalesceKey;
+      this.payload = new AtomicReference<>(payload);
+    }
+  }
+
+  private static class ChannelQueue {
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+  }
+
+  private final Map<Object, ChannelQueue> channelQueues = new ConcurrentHashMap<>();
+  private final Map<MessagePriority, List<ChannelQueue>> queuesByPriority =
+      new EnumMap<>(MessagePriority.class);
+  private final Map<MessagePriority, AtomicInteger> depths = new EnumMap<>(MessagePriority.class);
+  private final Map<MessagePriority, AtomicInteger> nextQueueIndex =
+      new EnumMap<>(MessagePriority.class);
+  private final Map<Object, Entry> coalescingEntries = new ConcurrentHashMap<>();
+  private final AtomicInteger totalDepth = new AtomicInteger();
+  private final LongAdder coalescedCount = new LongAdder();
+
+  public OutboundMessageQueue() {
+    // The enum maps are fully populated here and never structurally modified afterwards, which
+    // makes them safe to read from any thread.
+    for (MessagePriority priority : MessagePriority.values()) {
+      queuesByPriority.put(priority, new CopyOnWriteArrayList<>());
+      depths.put(priority, new AtomicInteger());
+      nextQueueIndex.put(priority, new AtomicInteger());
+    }
+  }
+
+  /**
+   * Adds a message to the queue.
+   *
+   * @param channel the channel to send the message on.
+   * @param coalesceKey the key identifying messages that supersede each other, or {@code null} if
+   *     the message should never be dropped.
+   * @param message the message.
+   */
+  public void add(Object channel, Object coalesceKey, byte[] message) {
+    MessagePriority priority = MessagePriority.forChannel(channel);
+    ChannelQueue queue =
+        channelQueues.computeIfAbsent(
+            channel == null ? DEFAULT_CHANNEL : channel,
+            c -> {
+              var q = new ChannelQueue();
+              queuesByPriority.get(priority).add(q);
+              return q;
+            });
+
+    Entry entry = new Entry(priority, coalesceKey, message);
+    if (coalesceKey != null) {
+      Entry superseded = coalescingEntries.put(coalesceKey, entry);
+      if (superseded != null && superseded.payload.getAndSet(null) != null) {
+        coalescedCount.increment();
+        // The key may have been used on a channel of another priority.
+        depths.get(superseded.priority).decrementAndGet();
+        totalDepth.decrementAndGet();
+      }
+    }
+    depths.get(priority).incrementAndGet();
+    totalDepth.incrementAndGet();
+    queue.entries.add(entry);
+  }
+
+  /**
+   * Returns if there are messages waiting to be sent.
+   *
+   * @return {@code true} if there are messages waiting to be sent.
+   */
+  public boolean hasMoreMessages() {
+    return totalDepth.get() > 0;
+  }
+
+  /**
+   * Takes the next message to send.
+   *
+   * @return the next message, or {@code null} if there are none.
+   */
+  public byte[] nextMessage() {
+    for (MessagePriority priority : MessagePriority.values()) {
+      if (depths.get(priority).get() <= 0) {
+        continue;
+      }
+      List<ChannelQueue> queues = queuesByPriority.get(priority);
+      int size = queues.size();
+      int start = Math.floorMod(nextQueueIndex.get(priority).getAndIncrement(), size);
+      for (int i = 0; i < size; i++) {
+        byte[] message = poll(queues.get((start + i) % size), priority);
+        if (message != null) {
+          return message;
+        }
+      }
+    }
+    return null;
+  }
+
+  private byte[] poll(ChannelQueue queue, MessagePriority priority) {
+    Entry entry;
+    while ((entry = queue.entries.poll()) != null) {
+      byte[] message = entry.payload.getAndSet(null);
+      if (entry.coalesceKey != null) {
+        coalescingEntries.remove(entry.coalesceKey, entry);
+      }
+      if (message != null) {
+        depths.get(priority).decrementAndGet();
+        totalDepth.decrementAndGet();
+        return message;
+      }
+      // otherwise it was superseded by a newer message, so skip it.
+    }
+    return null;
+  }
+
+  /**
+   * Returns the number of messages waiting to be sent with the specified priority.
+   *
+   * @param priority the priority.
+   * @return the number of messages waiting to be sent.
+   */
+  public int getDepth(MessagePriority priority) {
+    return depths.get(priority).get();
+  }
+
+  /**
+   * Returns the number of messages waiting to be sent.
+   *
+   * @return the number of messages waiting to be sent.
+   */
+  public int getDepth() {
+    return totalDepth.get();
+  }
+
+  /**
+   * Returns the number of messages that were dropped because a newer message superseded them.
+   *
+   * @return the number of coalesced messages.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
+  }
+}
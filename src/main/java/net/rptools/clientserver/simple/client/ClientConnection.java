@@ -21,6 +21,17 @@ public interface ClientConnection extends Connection {
 
   void sendMessage(Object channel, byte[] message);
 
+  /**
+   * Sends a message that has already been compressed for the wire. The same array may be shared
+   * between several connections so it must not be modified after it has been passed in.
+   *
+   * @param channel the channel to send the message on.
+   * @param coalesceKey the key of messages that supersede each other, or {@code null} if the
+   *     message should never be dropped.
+   * @param compressedMessage the compressed message.
+   */
+  void sendCompressedMessage(Object channel, Object coalesceKey, byte[] compressedMessage);
+
   boolean isAlive();
 
   String getId();
@@ -78,6 +78,15 @@ public void sendMessage(Object channel, byte[] message) {
     }
   }
 
+  @Override
+  public void sendCompressedMessage(
+      Object channel, Object coalesceKey, byte[] compressedMessage) {
+    addCompressedMessage(channel, coalesceKey, compressedMessage);
+    synchronized (send) {
+      send.notify();
+    }
+  }
+
   protected boolean isStopRequested() {
     return send.stopRequested;
   }
@@ -143,7 +152,9 @@ public void run() {
               }
             }
             synchronized (this) {
-              if (!stopRequested) {
+              // Check again while holding the lock, sendMessage() notifies while holding it too so
+              // a message added since the loop above can't be missed.
+              if (!stopRequested && !conn.hasMoreMessages()) {
                 this.wait();
               }
             }
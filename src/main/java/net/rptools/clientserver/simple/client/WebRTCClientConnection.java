@@ -205,6 +205,18 @@ public void sendMessage(byte[] message) {
   public void sendMessage(Object channel, byte[] message) {
     log.debug(prefix() + "added message");
     addMessage(channel, message);
+    notifySendThread();
+  }
+
+  @Override
+  public void sendCompressedMessage(
+      Object channel, Object coalesceKey, byte[] compressedMessage) {
+    log.debug(prefix() + "added compressed message");
+    addCompressedMessage(channel, coalesceKey, compressedMessage);
+    notifySendThread();
+  }
+
+  private void notifySendThread() {
     if (peerConnection != null
         && peerConnection.getConnectionState() == RTCPeerConnectionState.CONNECTED) {
       synchronized (sendThread) {
@@ -0,0 +1,77 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/** Codec that compresses messages using deflate at its fastest compression level. */
+public class DeflateMessageCodec implements MessageCodec {
+  /** The name of the codec. */
+  public static final String NAME = "deflate";
+
+  @Override
+  public byte getId() {
+    return 1;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public byte[] encode(byte[] message) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(message);
+      deflater.finish();
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(message.length / 2 + 16);
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        int len = deflater.deflate(buffer);
+        baos.write(buffer, 0, len);
+      }
+      return baos.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  @Override
+  public byte[] decode(byte[] encoded) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(encoded);
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(encoded.length * 2);
+      byte[] buffer = new byte[8192];
+      while (!inflater.finished()) {
+        int len = inflater.inflate(buffer);
+        if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Truncated deflate message");
+        }
+        baos.write(buffer, 0, len);
+      }
+      return baos.toByteArray();
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorOutputStream;
+
+/**
+ * Codec that compresses messages using the LZ4 block format. This trades compression ratio for
+ * speed which makes it a good fit for the small interactive messages that make up most of the
+ * traffic.
+ */
+public class Lz4MessageCodec implements MessageCodec {
+  /** The name of the codec. */
+  public static final String NAME = "lz4";
+
+  @Override
+  public byte getId() {
+    return 2;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public byte[] encode(byte[] message) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(message.length / 2 + 16);
+    try (OutputStream out = new BlockLZ4CompressorOutputStream(baos)) {
+      out.write(message);
+    }
+    return baos.toByteArray();
+  }
+
+  @Override
+  public byte[] decode(byte[] encoded) throws IOException {
+    try (InputStream in = new BlockLZ4CompressorInputStream(new ByteArrayInputStream(encoded))) {
+      return in.readAllBytes();
+    }
+  }
+}
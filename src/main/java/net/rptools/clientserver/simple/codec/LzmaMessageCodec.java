@@ -0,0 +1,58 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.apache.commons.compress.compressors.lzma.LZMACompressorInputStream;
+import org.apache.commons.compress.compressors.lzma.LZMACompressorOutputStream;
+
+/**
+ * Codec that compresses messages using LZMA. This gives the best compression ratio but is by far
+ * the slowest of the codecs, so it is only preferred for low bandwidth connections.
+ */
+public class LzmaMessageCodec implements MessageCodec {
+  /** The name of the codec. */
+  public static final String NAME = "lzma";
+
+  @Override
+  public byte getId() {
+    return 3;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public byte[] encode(byte[] message) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(message.length);
+    try (OutputStream out = new LZMACompressorOutputStream(baos)) {
+      out.write(message);
+    }
+    return baos.toByteArray();
+  }
+
+  @Override
+  public byte[] decode(byte[] encoded) throws IOException {
+    try (InputStream in = new LZMACompressorInputStream(new ByteArrayInputStream(encoded))) {
+      return in.readAllBytes();
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.codec;
+
+import java.io.IOException;
+
+/**
+ * Compression codec used for messages sent between the client and the server. Codecs are looked
+ * up via {@link MessageCodecs} and the codec used for a connection is negotiated during the
+ * handshake.
+ */
+public interface MessageCodec {
+
+  /**
+   * Returns the id of the codec which is written in front of every encoded frame so that the
+   * receiving side can decode the frame without knowing which codec the sender is using.
+   *
+   * @return the id of the codec.
+   */
+  byte getId();
+
+  /**
+   * Returns the name of the codec used during the handshake negotiation.
+   *
+   * @return the name of the codec.
+   */
+  String getName();
+
+  /**
+   * Encodes (compresses) the message.
+   *
+   * @param message the message to encode.
+   * @return the encoded message.
+   * @throws IOException if an error occurs encoding the message.
+   */
+  byte[] encode(byte[] message) throws IOException;
+
+  /**
+   * Decodes (decompresses) the message.
+   *
+   * @param encoded the encoded message.
+   * @return the decoded message.
+   * @throws IOException if an error occurs decoding the message.
+   */
+  byte[] decode(byte[] encoded) throws IOException;
+}
@@ -0,0 +1,131 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.codec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Byte and latency counters for each {@link MessageCodec} used by a connection. */
+public class MessageCodecStatistics {
+
+  /** The counters for a single codec. */
+  public static class Counters {
+    private final LongAdder encodedMessages = new LongAdder();
+    private final LongAdder encodeInputBytes = new LongAdder();
+    private final LongAdder encodeOutputBytes = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final LongAdder decodedMessages = new LongAdder();
+    private final LongAdder decodeInputBytes = new LongAdder();
+    private final LongAdder decodeOutputBytes = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+
+    /** @return the number of messages encoded. */
+    public long getEncodedMessages() {
+      return encodedMessages.sum();
+    }
+
+    /** @return the number of bytes before encoding. */
+    public long getEncodeInputBytes() {
+      return encodeInputBytes.sum();
+    }
+
+    /** @return the number of bytes after encoding, including the frame header. */
+    public long getEncodeOutputBytes() {
+      return encodeOutputBytes.sum();
+    }
+
+    /** @return the total time spent encoding in nanoseconds. */
+    public long getEncodeNanos() {
+      return encodeNanos.sum();
+    }
+
+    /** @return the number of messages decoded. */
+    public long getDecodedMessages() {
+      return decodedMessages.sum();
+    }
+
+    /** @return the number of bytes before decoding, including the frame header. */
+    public long getDecodeInputBytes() {
+      return decodeInputBytes.sum();
+    }
+
+    /** @return the number of bytes after decoding. */
+    public long getDecodeOutputBytes() {
+      return decodeOutputBytes.sum();
+    }
+
+    /** @return the total time spent decoding in nanoseconds. */
+    public long getDecodeNanos() {
+      return decodeNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "encoded %d msgs %d -> %d bytes in %d us, decoded %d msgs %d -> %d bytes in %d us",
+          getEncodedMessages(),
+          getEncodeInputBytes(),
+          getEncodeOutputBytes(),
+          getEncodeNanos() / 1000,
+          getDecodedMessages(),
+          getDecodeInputBytes(),
+          getDecodeOutputBytes(),
+          getDecodeNanos() / 1000);
+    }
+  }
+
+  private final Map<String, Counters> countersMap = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the counters for the codec with the specified name.
+   *
+   * @param codecName the name of the codec.
+   * @return the counters for the codec.
+   */
+  public Counters getCounters(String codecName) {
+    return countersMap.computeIfAbsent(codecName, n -> new Counters());
+  }
+
+  /**
+   * Returns the counters for all codecs that have been used.
+   *
+   * @return the counters keyed by codec name.
+   */
+  public Map<String, Counters> getAllCounters() {
+    return Map.copyOf(countersMap);
+  }
+
+  void recordEncode(MessageCodec codec, int inputBytes, int outputBytes, long nanos) {
+    Counters counters = getCounters(codec.getName());
+    counters.encodedMessages.increment();
+    counters.encodeInputBytes.add(inputBytes);
+    counters.encodeOutputBytes.add(outputBytes);
+    counters.encodeNanos.add(nanos);
+  }
+
+  void recordDecode(MessageCodec codec, int inputBytes, int outputBytes, long nanos) {
+    Counters counters = getCounters(codec.getName());
+    counters.decodedMessages.increment();
+    counters.decodeInputBytes.add(inputBytes);
+    counters.decodeOutputBytes.add(outputBytes);
+    counters.decodeNanos.add(nanos);
+  }
+
+  @Override
+  public String toString() {
+    return countersMap.toString();
+  }
+}
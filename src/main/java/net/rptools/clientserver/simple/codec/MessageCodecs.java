@@ -0,0 +1,155 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.codec;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Registry of the available {@link MessageCodec}s and the helper methods used to frame messages.
+ *
+ * <p>Every encoded frame starts with a single byte containing the id of the codec used to encode
+ * it, so the receiving side can always decode a frame regardless of which codec the sender has
+ * switched to. Messages smaller than {@link #COMPRESSION_THRESHOLD} are sent uncompressed as
+ * compressing them costs more time than it saves on the wire.
+ *
+ * <p>Until a codec has been negotiated messages are sent in the legacy encoding, plain LZMA without
+ * a codec id, which is all that older versions understand. This lets an older peer read the
+ * handshake and report a version mismatch. Legacy frames start with the LZMA properties byte, which
+ * is never a codec id, so they are told apart from framed messages by their first byte.
+ */
+public final class MessageCodecs {
+  /** Messages smaller than this (in bytes) are not compressed. */
+  public static final int COMPRESSION_THRESHOLD = 256;
+
+  private static final MessageCodec NONE = new NoneMessageCodec();
+
+  /** The unframed LZMA encoding used before a codec has been negotiated. */
+  private static final MessageCodec LEGACY = new LzmaMessageCodec();
+
+  /** The supported codecs in order of preference. */
+  private static final List<MessageCodec> CODECS =
+      List.of(new Lz4MessageCodec(), new DeflateMessageCodec(), new LzmaMessageCodec(), NONE);
+
+  /** Codecs indexed by their id. */
+  private static final MessageCodec[] CODECS_BY_ID = new MessageCodec[256];
+
+  static {
+    for (MessageCodec codec : CODECS) {
+      CODECS_BY_ID[codec.getId() & 0xff] = codec;
+    }
+  }
+
+  private MessageCodecs() {}
+
+  /**
+   * Returns the codec used before one has been negotiated during the handshake. Messages encoded
+   * with it are written in the legacy encoding, without a codec id.
+   *
+   * @return the default codec.
+   */
+  public static MessageCodec getDefaultCodec() {
+    return LEGACY;
+  }
+
+  /**
+   * Returns the names of the supported codecs in order of preference.
+   *
+   * @return the names of the supported codecs.
+   */
+  public static List<String> getSupportedCodecNames() {
+    return CODECS.stream().map(MessageCodec::getName).toList();
+  }
+
+  /**
+   * Returns the codec with the specified name.
+   *
+   * @param name the name of the codec.
+   * @return the codec, or empty if there is no codec with that name.
+   */
+  public static Optional<MessageCodec> forName(String name) {
+    return CODECS.stream().filter(c -> c.getName().equals(name)).findFirst();
+  }
+
+  /**
+   * Selects the most preferred codec that is also supported by the other side of the connection.
+   *
+   * @param offered the names of the codecs supported by the other side.
+   * @return the selected codec, or the default codec if none of the offered codecs are supported.
+   */
+  public static MessageCodec negotiate(Collection<String> offered) {
+    return CODECS.stream()
+        .filter(c -> offered.contains(c.getName()))
+        .findFirst()
+        .orElse(getDefaultCodec());
+  }
+
+  /**
+   * Encodes a message into a frame.
+   *
+   * @param codec the codec to encode the message with.
+   * @param message the message to encode.
+   * @param statistics the statistics to update.
+   * @return the encoded frame.
+   * @throws IOException if an error occurs encoding the message.
+   */
+  public static byte[] encode(MessageCodec codec, byte[] message, MessageCodecStatistics statistics)
+      throws IOException {
+    long start = System.nanoTime();
+    if (codec == LEGACY) {
+      byte[] frame = codec.encode(message);
+      statistics.recordEncode(codec, message.length, frame.length, System.nanoTime() - start);
+      return frame;
+    }
+    if (message.length < COMPRESSION_THRESHOLD) {
+      codec = NONE;
+    }
+    byte[] encoded = codec.encode(message);
+    byte[] frame = new byte[encoded.length + 1];
+    frame[0] = codec.getId();
+    System.arraycopy(encoded, 0, frame, 1, encoded.length);
+    statistics.recordEncode(codec, message.length, frame.length, System.nanoTime() - start);
+    return frame;
+  }
+
+  /**
+   * Decodes a frame into a message.
+   *
+   * @param frame the frame to decode.
+   * @param statistics the statistics to update.
+   * @return the decoded message.
+   * @throws IOException if an error occurs decoding the frame.
+   */
+  public static byte[] decode(byte[] frame, MessageCodecStatistics statistics) throws IOException {
+    if (frame.length == 0) {
+      throw new IOException("Empty message frame");
+    }
+    MessageCodec codec = CODECS_BY_ID[frame[0] & 0xff];
+    long start = System.nanoTime();
+    byte[] message;
+    if (codec == null) {
+      // Not a codec id, so a legacy frame from the handshake or an older version
+      codec = LEGACY;
+      message = codec.decode(frame);
+    } else {
+      message = codec.decode(Arrays.copyOfRange(frame, 1, frame.length));
+    }
+    statistics.recordDecode(codec, frame.length, message.length, System.nanoTime() - start);
+    return message;
+  }
+}
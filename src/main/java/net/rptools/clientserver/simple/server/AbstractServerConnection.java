@@ -14,12 +14,15 @@
  */
 package net.rptools.clientserver.simple.server;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import net.rptools.clientserver.simple.AbstractConnection;
 import net.rptools.clientserver.simple.DisconnectHandler;
 import net.rptools.clientserver.simple.MessageHandler;
 import net.rptools.clientserver.simple.client.ClientConnection;
+import net.rptools.clientserver.simple.codec.MessageCodec;
+import net.rptools.clientserver.simple.codec.MessageCodecs;
 import net.rptools.maptool.server.Handshake;
 import net.rptools.maptool.server.HandshakeObserver;
 import org.apache.logging.log4j.LogManager;
@@ -54,26 +57,70 @@ public void handleMessage(String id, byte[] message) {
     dispatchMessage(id, message);
   }
 
+  /**
+   * Sends a message to all connected clients. The message is compressed once per codec in use and
+   * the resulting payload is shared between the outbound queues of all clients.
+   *
+   * @param message the message to send.
+   */
   public void broadcastMessage(byte[] message) {
-    synchronized (clients) {
-      for (ClientConnection conn : clients.values()) {
-        conn.sendMessage(message);
-      }
-    }
+    broadcastMessage(new String[0], message);
   }
 
+  /**
+   * Sends a message to all connected clients except the excluded ones. The message is compressed
+   * once per codec in use and the resulting payload is shared between the outbound queues of all
+   * clients. The codec statistics for broadcasts are recorded on the server connection.
+   *
+   * @param exclude the ids of the clients that should not receive the message.
+   * @param message the message to send.
+   */
   public void broadcastMessage(String[] exclude, byte[] message) {
+    broadcastMessage(exclude, null, message);
+  }
+
+  /**
+   * Sends a message to all connected clients except the excluded ones. If a message with the same
+   * coalesce key is still waiting to be sent to a client it is dropped in favour of this one.
+   *
+   * @param exclude the ids of the clients that should not receive the message.
+   * @param coalesceKey the key of messages that supersede each other, or {@code null} if the
+   *     message should never be dropped.
+   * @param message the message to send.
+   */
+  public void broadcastMessage(String[] exclude, Object coalesceKey, byte[] message) {
     Set<String> excludeSet = new HashSet<String>();
     for (String e : exclude) {
       excludeSet.add(e);
     }
+    List<ClientConnection> recipients = new ArrayList<>();
     synchronized (clients) {
       for (Map.Entry<String, ClientConnection> entry : clients.entrySet()) {
         if (!excludeSet.contains(entry.getKey())) {
-          entry.getValue().sendMessage(message);
+          recipients.add(entry.getValue());
         }
       }
     }
+    if (recipients.isEmpty()) {
+      return;
+    }
+
+    // Compress outside the lock so that slow compression doesn't hold up (dis)connecting clients.
+    // Clients may have negotiated different codecs so compress once per codec.
+    Map<MessageCodec, byte[]> compressedMessages = new HashMap<>();
+    for (ClientConnection conn : recipients) {
+      byte[] compressedMessage =
+          compressedMessages.computeIfAbsent(conn.getCodec(), c -> compress(c, message));
+      conn.sendCompressedMessage(null, coalesceKey, compressedMessage);
+    }
+  }
+
+  private byte[] compress(MessageCodec codec, byte[] message) {
+    try {
+      return MessageCodecs.encode(codec, message, getCodecStatistics());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
   }
 
   public void sendMessage(String id, byte[] message) {
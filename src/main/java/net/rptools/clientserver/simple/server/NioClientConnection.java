@@ -0,0 +1,252 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import net.rptools.clientserver.ActivityListener.Direction;
+import net.rptools.clientserver.ActivityListener.State;
+import net.rptools.clientserver.simple.AbstractConnection;
+import net.rptools.clientserver.simple.client.ClientConnection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The server side of a client connected to a {@link NioServerConnection}. All reads and writes
+ * happen on the selector thread of the server, everything else may be called from any thread.
+ */
+public class NioClientConnection extends AbstractConnection implements ClientConnection {
+  /** Instance used for log messages. */
+  private static final Logger log = LogManager.getLogger(NioClientConnection.class);
+
+  /** The maximum number of messages written with a single gathering write. */
+  private static final int MAX_BATCH_SIZE = 64;
+
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The largest message accepted from a client. The length comes straight from the wire, so without
+   * a limit any client could make the server allocate up to 2GB.
+   */
+  static final int MAX_MESSAGE_LENGTH = 256 * 1024 * 1024;
+
+  private final String id;
+  private final SocketChannel channel;
+  private final NioServerConnection server;
+  private final Executor dispatchExecutor;
+  private SelectionKey key;
+  private volatile boolean closed = false;
+
+  // Read state, only accessed from the selector thread.
+  private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+  private byte[] incoming;
+  private int incomingPosition;
+
+  // Write state, only accessed from the selector thread.
+  private final ByteBuffer headerBuffer = ByteBuffer.allocateDirect(4 * MAX_BATCH_SIZE);
+  private final ByteBuffer[] writeBatch = new ByteBuffer[2 * MAX_BATCH_SIZE];
+  private final int[] writeBatchMessageLengths = new int[MAX_BATCH_SIZE];
+  private int writeBatchOffset;
+  private int writeBatchLength;
+
+  NioClientConnection(String id, SocketChannel channel, NioServerConnection server) {
+    this.id = id;
+    this.channel = channel;
+    this.server = server;
+    this.dispatchExecutor = server.createDispatchExecutor();
+  }
+
+  void register(Selector selector) throws IOException {
+    key = channel.register(selector, SelectionKey.OP_READ, this);
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public void open() {
+    // The channel has already been accepted by the server.
+  }
+
+  @Override
+  public void sendMessage(byte[] message) {
+    sendMessage(null, message);
+  }
+
+  @Override
+  public void sendMessage(Object channel, byte[] message) {
+    addMessage(channel, message);
+    server.requestWrite(this);
+  }
+
+  @Override
+  public void sendCompressedMessage(
+      Object channel, Object coalesceKey, byte[] compressedMessage) {
+    addCompressedMessage(channel, coalesceKey, compressedMessage);
+    server.requestWrite(this);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (key != null) {
+      key.cancel();
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      log.warn(e.toString());
+    }
+  }
+
+  @Override
+  public boolean isAlive() {
+    return !closed && channel.isOpen();
+  }
+
+  @Override
+  public String getError() {
+    return null;
+  }
+
+  private void disconnect(IOException e) {
+    if (closed) {
+      return;
+    }
+    if (e != null) {
+      log.error(e);
+    }
+    close();
+    fireDisconnect();
+  }
+
+  /** Reads whatever is available from the channel and dispatches any completed messages. */
+  void read() {
+    try {
+      if (channel.read(readBuffer) < 0) {
+        disconnect(null);
+        return;
+      }
+    } catch (IOException e) {
+      disconnect(e);
+      return;
+    }
+
+    readBuffer.flip();
+    while (readBuffer.hasRemaining()) {
+      if (incoming == null) {
+        if (readBuffer.remaining() < 4) {
+          break;
+        }
+        int length = readBuffer.getInt();
+        if (length < 0 || length > MAX_MESSAGE_LENGTH) {
+          disconnect(new IOException("Invalid message length " + length));
+          return;
+        }
+        incoming = new byte[length];
+        incomingPosition = 0;
+        notifyListeners(Direction.Inbound, State.Start, length, 0);
+      }
+
+      int length = Math.min(readBuffer.remaining(), incoming.length - incomingPosition);
+      readBuffer.get(incoming, incomingPosition, length);
+      incomingPosition += length;
+      if (incomingPosition == incoming.length) {
+        byte[] message = incoming;
+        incoming = null;
+        notifyListeners(Direction.Inbound, State.Complete, message.length, message.length);
+        dispatchExecutor.execute(() -> dispatch(message));
+      } else {
+        notifyListeners(Direction.Inbound, State.Progress, incoming.length, incomingPosition);
+      }
+    }
+    readBuffer.compact();
+  }
+
+  private void dispatch(byte[] message) {
+    try {
+      dispatchCompressedMessage(id, message);
+    } catch (Throwable t) {
+      // don't let a bad message stop the following ones from being dispatched
+      log.error(t.getMessage(), t);
+    }
+  }
+
+  /**
+   * Writes as many queued messages as the channel accepts without blocking, batching up to {@link
+   * #MAX_BATCH_SIZE} messages into a single gathering write. Write interest is only registered
+   * while there is data that could not be written.
+   */
+  void write() {
+    if (!isAlive()) {
+      return;
+    }
+    try {
+      while (true) {
+        if (writeBatchOffset == writeBatchLength && !fillWriteBatch()) {
+          key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+          return;
+        }
+
+        channel.write(writeBatch, writeBatchOffset, writeBatchLength - writeBatchOffset);
+        while (writeBatchOffset < writeBatchLength
+            && !writeBatch[writeBatchOffset].hasRemaining()) {
+          writeBatch[writeBatchOffset++] = null;
+        }
+
+        if (writeBatchOffset < writeBatchLength) {
+          // The socket buffer is full, continue when the channel becomes writable again.
+          key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+          return;
+        }
+
+        for (int i = 0; i < writeBatchLength / 2; i++) {
+          int length = writeBatchMessageLengths[i];
+          notifyListeners(Direction.Outbound, State.Complete, length, length);
+        }
+      }
+    } catch (IOException e) {
+      disconnect(e);
+    }
+  }
+
+  private boolean fillWriteBatch() {
+    writeBatchOffset = 0;
+    writeBatchLength = 0;
+    int count = 0;
+    while (count < MAX_BATCH_SIZE && hasMoreMessages()) {
+      byte[] message = nextMessage();
+      if (message == null) {
+        continue;
+      }
+      ByteBuffer header = headerBuffer.slice(count * 4, 4);
+      header.putInt(0, message.length);
+      writeBatch[writeBatchLength++] = header;
+      writeBatch[writeBatchLength++] = ByteBuffer.wrap(message);
+      writeBatchMessageLengths[count++] = message.length;
+      notifyListeners(Direction.Outbound, State.Start, message.length, 0);
+    }
+    return writeBatchLength > 0;
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.server;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Server connection that services all clients from a single selector thread using non-blocking
+ * channels, instead of the two threads per client used by {@link SocketServerConnection}. The wire
+ * format is the same so clients still connect with a {@link
+ * net.rptools.clientserver.simple.client.SocketClientConnection}.
+ *
+ * <p>Received messages are dispatched on a shared thread pool, one message at a time per client so
+ * that the message order is preserved, so slow message handlers do not stall the selector.
+ */
+public class NioServerConnection extends AbstractServerConnection {
+
+  private static final Logger log = LogManager.getLogger(NioServerConnection.class);
+  private final int port;
+  private ServerSocketChannel serverChannel;
+  private Selector selector;
+  private SelectorThread selectorThread;
+
+  /** Connections that have new messages queued and need their write interest updated. */
+  private final Queue<NioClientConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+  /** Thread pool used for dispatching received messages. */
+  private final ExecutorService dispatchThreadPool =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setNameFormat("NioServerConnection.DispatchThread-%d")
+              .setDaemon(true)
+              .build());
+
+  private int nextConnectionId = 0;
+
+  public NioServerConnection(int port, HandshakeProvider handshake) {
+    super(handshake);
+    this.port = port;
+  }
+
+  @Override
+  public void open() throws IOException {
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress(port));
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    selectorThread = new SelectorThread();
+    selectorThread.start();
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    log.debug("Server closing down");
+
+    selectorThread.requestStop();
+    selector.wakeup();
+    log.debug("Server stopping selector thread");
+    try {
+      selectorThread.join();
+    } catch (InterruptedException e) {
+      log.error(e.getMessage(), e);
+    }
+
+    try {
+      serverChannel.close();
+      selector.close();
+    } catch (IOException e) {
+      log.warn(e.toString());
+    }
+    dispatchThreadPool.shutdown();
+  }
+
+  @Override
+  public String getError() {
+    return null;
+  }
+
+  /**
+   * Returns the port the server is listening on, which is useful when the server was opened with
+   * port 0.
+   *
+   * @return the local port of the server.
+   */
+  public int getLocalPort() {
+    return serverChannel.socket().getLocalPort();
+  }
+
+  /**
+   * Creates the executor used to dispatch the messages received from a single client.
+   *
+   * @return an executor that runs the submitted tasks one after the other.
+   */
+  Executor createDispatchExecutor() {
+    return MoreExecutors.newSequentialExecutor(dispatchThreadPool);
+  }
+
+  /**
+   * Asks the selector thread to start writing the queued messages of a connection.
+   *
+   * @param conn the connection with queued messages.
+   */
+  void requestWrite(NioClientConnection conn) {
+    pendingWrites.add(conn);
+    selector.wakeup();
+  }
+
+  private String nextClientId(SocketChannel channel) throws IOException {
+    var address = (InetSocketAddress) channel.getRemoteAddress();
+    return address.getAddress().getHostAddress() + "-" + (nextConnectionId++);
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+    log.debug("Client connecting ...");
+    channel.configureBlocking(false);
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+    var conn = new NioClientConnection(nextClientId(channel), channel, this);
+    conn.register(selector);
+    try {
+      handleConnection(conn);
+    } catch (ExecutionException | InterruptedException e) {
+      log.error(e.getMessage(), e);
+      conn.close();
+    }
+  }
+
+  ////
+  // Threads
+  private class SelectorThread extends Thread {
+    private volatile boolean stopRequested = false;
+
+    public SelectorThread() {
+      setName("NioServerConnection.SelectorThread");
+    }
+
+    public void requestStop() {
+      stopRequested = true;
+    }
+
+    @Override
+    public void run() {
+      while (!stopRequested) {
+        try {
+          selector.select();
+
+          NioClientConnection pending;
+          while ((pending = pendingWrites.poll()) != null) {
+            pending.write();
+          }
+
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+              continue;
+            }
+            if (key.isAcceptable()) {
+              accept();
+              continue;
+            }
+            var conn = (NioClientConnection) key.attachment();
+            if (key.isReadable()) {
+              conn.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+              conn.write();
+            }
+          }
+        } catch (ClosedSelectorException e) {
+          break;
+        } catch (IOException e) {
+          if (!stopRequested) {
+            log.error(e.getMessage(), e);
+          }
+        } catch (Throwable t) {
+          // don't let anything kill this thread via exception
+          log.error(t.getMessage(), t);
+        }
+      }
+    }
+  }
+}
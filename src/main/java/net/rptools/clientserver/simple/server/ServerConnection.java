@@ -30,6 +30,8 @@ public interface ServerConnection extends Connection {
 
   void broadcastMessage(String[] exclude, byte[] message);
 
+  void broadcastMessage(String[] exclude, Object coalesceKey, byte[] message);
+
   void sendMessage(String id, byte[] message);
 
   void sendMessage(String id, Object channel, byte[] message);
@@ -14,17 +14,22 @@
  */
 package net.rptools.lib;
 
+import java.awt.Shape;
 import java.awt.geom.Area;
+import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import org.locationtech.jts.awt.ShapeReader;
+import org.locationtech.jts.awt.ShapeWriter;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.PrecisionModel;
 import org.locationtech.jts.operation.polygonize.Polygonizer;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
 
 public class GeometryUtil {
   private static final PrecisionModel precisionModel = new PrecisionModel(1_000_000.0);
@@ -61,6 +66,77 @@ public static GeometryFactory getGeometryFactory() {
     return geometryFactory;
   }
 
+  /**
+   * Union a collection of areas as a cascade of pairwise unions.
+   *
+   * <p>Adding areas to one accumulator one by one makes every step pay for the ever growing result.
+   * Merging neighbours pairwise keeps the operands of each step similar in size.
+   *
+   * @param areas the areas to union. They are not modified.
+   * @return a new area holding the union.
+   */
+  public static Area union(Collection<Area> areas) {
+    List<Area> level = new ArrayList<>(areas.size());
+    for (final var area : areas) {
+      if (!area.isEmpty()) {
+        level.add(area);
+      }
+    }
+    if (level.isEmpty()) {
+      return new Area();
+    }
+    // Copy the first level so that the areas of the caller are never modified.
+    for (int i = 0; i < level.size(); i++) {
+      level.set(i, new Area(level.get(i)));
+    }
+    while (level.size() > 1) {
+      final var next = new ArrayList<Area>((level.size() + 1) / 2);
+      for (int i = 0; i < level.size(); i += 2) {
+        final var merged = level.get(i);
+        if (i + 1 < level.size()) {
+          merged.add(level.get(i + 1));
+        }
+        next.add(merged);
+      }
+      level = next;
+    }
+    return level.get(0);
+  }
+
+  /**
+   * Count the line and curve segments making up the outline of a shape.
+   *
+   * @param shape the shape.
+   * @return the number of segments, not counting the moves that start each subpath.
+   */
+  public static int countSegments(Shape shape) {
+    final var coords = new double[6];
+    int count = 0;
+    for (var it = shape.getPathIterator(null); !it.isDone(); it.next()) {
+      if (it.currentSegment(coords) != PathIterator.SEG_MOVETO) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Simplify an area so that no point of its outline moves further than {@code tolerance}.
+   *
+   * <p>Holes and separate parts are kept, but vertices that barely change the outline are dropped.
+   *
+   * @param area the area to simplify. It is not modified.
+   * @param tolerance the largest distance the outline may move.
+   * @return a new, simplified area.
+   */
+  public static Area simplify(Area area, double tolerance) {
+    if (area.isEmpty()) {
+      return new Area();
+    }
+    final var simplified = TopologyPreservingSimplifier.simplify(toJts(area), tolerance);
+    return new Area(new ShapeWriter().toShape(simplified));
+  }
+
   public static Geometry toJts(Area area) {
     final var pathIterator = area.getPathIterator(null);
     final var polygonizer = new Polygonizer(true);
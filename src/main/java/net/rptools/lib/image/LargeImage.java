@@ -14,331 +14,447 @@
  */
 package net.rptools.lib.image;
 
-import java.awt.BorderLayout;
-import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.Graphics;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.Transparency;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
-import java.awt.event.MouseMotionAdapter;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.imageio.ImageIO;
-import javax.swing.JFrame;
-import javax.swing.JPanel;
-import javax.swing.SwingUtilities;
-import net.rptools.lib.MD5Key;
-import net.rptools.maptool.client.swing.SwingUtil;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
- * Mechanism to view very, very large images in memory without taking up the memory. Works by
- * precomputing chunks of the image at various zoom levels. These are then stored in a cache
- * directory, specified during creation.
+ * Mechanism to view very, very large images without keeping the full image in memory. Works by
+ * precomputing a pyramid of tiles of the image: level 0 holds the image at full size, and every
+ * following level halves the previous one until the whole image fits into a single tile. The tiles
+ * are stored as PNG files in a cache directory specified during creation, so they only have to be
+ * built once per image.
  *
- * <p>Then entire image has to be in memory at some point in order to chunk it, but once it's been
- * processed it can identify the cache via the image bytes (perhaps loaded from disk)
+ * <p>The entire image has to be in memory at some point in order to build the tiles, but once that
+ * has been done only the tiles that are visible at the current zoom level are loaded, in the
+ * background, and kept in a bounded cache. The tiles of the least recently opened images are
+ * deleted once the tiles of all images use more than {@link #MAX_CACHE_BYTES} on disk.
  *
  * @author trevor
  */
 public class LargeImage {
 
-  private static final int CHUNK_SIZE = 250;
+  private static final Logger log = LogManager.getLogger(LargeImage.class);
 
-  // Can scale in such that there are this many extra chunks in view
-  private static final int SCALE_CHUNK_INTERVAL = 4;
+  /** The width and height of a tile, in pixels. */
+  public static final int TILE_SIZE = 256;
 
-  private double scale;
-  private Rectangle currentView;
-  private BufferedImage currentViewBuffer;
+  /** The maximum number of tiles, over all large images, that are kept in memory. */
+  private static final int MAX_LOADED_TILES = 512;
 
-  private ImageInfo info;
+  /** The maximum number of bytes that the tiles of all large images may use on disk. */
+  static final long MAX_CACHE_BYTES = 1024L * 1024 * 1024;
 
-  private File cacheDir;
+  private static final String INFO_FILE = "tiles.properties";
 
-  private double[] scaleArray;
+  private static final ExecutorService tileBuilder =
+      Executors.newFixedThreadPool(
+          1, new ThreadFactoryBuilder().setNameFormat("tile-builder-%d").setDaemon(true).build());
+  private static final ExecutorService tileLoader =
+      Executors.newFixedThreadPool(
+          1, new ThreadFactoryBuilder().setNameFormat("tile-loader-%d").setDaemon(true).build());
 
-  private final Map<Integer, BufferedImage> loadedChunkMap = new HashMap<Integer, BufferedImage>();
-  List<Integer> usedChunkList = new ArrayList<Integer>();
-
-  public LargeImage(byte[] image, File cacheDir) {}
-
-  public LargeImage(BufferedImage image, File cacheDir) throws IOException {
-    info = loadInfo();
-    if (info == null) {
-      info = new ImageInfo(image.getWidth(), image.getHeight());
-    }
-    this.cacheDir = new File(cacheDir.getAbsolutePath(), getId(image));
-    this.cacheDir.mkdirs();
-    chunkize(image);
-  }
-
-  private ImageInfo loadInfo() {
-    return null;
-  }
-
-  private BufferedImage getImageView(Rectangle view, double scale) {
-    if (currentView != null
-        && currentView.equals(view)
-        && currentViewBuffer != null
-        && this.scale == scale) {
-      return currentViewBuffer;
-    }
-    if (currentViewBuffer == null
-        || currentViewBuffer.getWidth() != view.width
-        || currentViewBuffer.getHeight() != view.height) {
-      currentViewBuffer = new BufferedImage(view.width, view.height, Transparency.OPAQUE);
-    }
-    Graphics2D g = currentViewBuffer.createGraphics();
-
-    // Background
-    g.setColor(Color.black);
-    g.fillRect(0, 0, view.width, view.height);
-
-    double xOffset = (view.x % CHUNK_SIZE) * scale;
-    double yOffset = (view.y % CHUNK_SIZE) * scale;
-
-    int visibleXChunks = (int) Math.ceil((view.width + xOffset) / (CHUNK_SIZE * scale));
-    int visibleYChunks = (int) Math.ceil((view.height + yOffset) / (CHUNK_SIZE * scale));
-
-    for (int row = 0; row < visibleYChunks; row++) {
-      for (int col = 0; col < visibleXChunks; col++) {
-        int chunkX = view.x / CHUNK_SIZE + col;
-        int chunkY = view.y / CHUNK_SIZE + row;
-
-        BufferedImage chunk = getChunk(chunkX, chunkY, scale);
-        if (chunk == null) {
-          continue;
-        }
-        int x = (int) (col * CHUNK_SIZE * scale - xOffset);
-        int y = (int) (row * CHUNK_SIZE * scale - yOffset);
-        g.drawImage(
-            chunk,
-            x,
-            y,
-            (int) Math.ceil(CHUNK_SIZE * scale),
-            (int) Math.ceil(CHUNK_SIZE * scale),
-            null);
-      }
-    }
-    flushChunkCache();
-    g.dispose();
-    return currentViewBuffer;
-  }
+  /** Shared LRU cache of loaded tiles, so that several large images share the same budget. */
+  private static final Map<String, BufferedImage> loadedTileMap =
+      Collections.synchronizedMap(
+          new LinkedHashMap<>(MAX_LOADED_TILES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+              return size() > MAX_LOADED_TILES;
+            }
+          });
 
-  private void flushChunkCache() {
-    Set<Integer> keySet = new HashSet<Integer>(loadedChunkMap.keySet());
-    for (Integer num : keySet) {
-      if (!usedChunkList.contains(num)) {
-        loadedChunkMap.remove(num);
-      }
+  private final File cacheDir;
+  private final int width;
+  private final int height;
+  private final int levelCount;
+  private final Runnable tileLoadedCallback;
+  private final Set<String> pendingTileSet = Collections.synchronizedSet(new HashSet<>());
+
+  /** Tiles that could not be read. They are drawn from coarser tiles until they are rebuilt. */
+  private final Set<String> failedTileSet = Collections.synchronizedSet(new HashSet<>());
+
+  /** The single tile of the coarsest level, kept as fallback while finer tiles are loading. */
+  private volatile BufferedImage coarsestTile;
+
+  private volatile boolean ready;
+
+  /**
+   * Creates a large image backed by the tiles in {@code cacheDir}. If the directory does not hold
+   * the tiles of an image of the same size yet, they are built in the background from {@code
+   * image}.
+   *
+   * @param image the full image, only used if the tiles still have to be built.
+   * @param cacheDir the directory the tiles are stored in, unique to the image.
+   * @param tileLoadedCallback called from a background thread whenever new tiles become available.
+   */
+  public LargeImage(BufferedImage image, File cacheDir, Runnable tileLoadedCallback) {
+    this.cacheDir = cacheDir;
+    this.width = image.getWidth();
+    this.height = image.getHeight();
+    this.levelCount = getLevelCount(width, height);
+    this.tileLoadedCallback = tileLoadedCallback;
+
+    if (hasTiles()) {
+      tileBuilder.execute(
+          () -> {
+            if (!loadCoarsestTile()) {
+              buildTiles(image);
+            }
+          });
+    } else {
+      tileBuilder.execute(() -> buildTiles(image));
     }
-
-    usedChunkList.clear();
   }
 
-  private BufferedImage getChunk(int col, int row, double scale) {
-    int scaleIndex = getScaleIndex(scale);
-    int chunkId = getChunkId(col, row, scaleIndex);
-
-    if (col >= getChunkCountX(scaleIndex)
-        || row >= getChunkCountY(scaleIndex)
-        || col < 0
-        || row < 0) {
-      return null;
+  /**
+   * Returns the number of levels needed so that the whole image fits into a single tile on the
+   * coarsest level.
+   *
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @return the number of levels.
+   */
+  static int getLevelCount(int width, int height) {
+    int levels = 1;
+    int size = Math.max(width, height);
+    while (size > TILE_SIZE) {
+      size = (size + 1) / 2;
+      levels++;
     }
-    usedChunkList.add(chunkId);
-
-    BufferedImage chunk = loadedChunkMap.get(chunkId);
-    if (chunk != null) {
-      return chunk;
-    }
-    try {
-      chunk = ImageIO.read(getChunkFilename(col, row, scaleIndex));
-      loadedChunkMap.put(chunkId, chunk);
-    } catch (IOException ioe) {
-      ioe.printStackTrace();
-    }
-    return chunk;
+    return levels;
   }
 
-  private int getScaleIndex(double scale) {
-    // Pick the highest (Biggest) scale that is closest to the target scale
-    for (int i = 0; i < getScaleArray().length - 1; i++) {
-      if (scale > scaleArray[i + 1]) {
-        return i;
-      }
+  /**
+   * Returns the level whose tiles are best drawn at the given scale, i.e. the coarsest level that
+   * still has at least one tile pixel for every screen pixel.
+   *
+   * @param scale the scale the image is drawn at.
+   * @param levelCount the number of levels of the image.
+   * @return the level, between 0 and {@code levelCount - 1}.
+   */
+  static int getLevel(double scale, int levelCount) {
+    int level = 0;
+    while (level < levelCount - 1 && scale <= 1.0 / (1 << (level + 1))) {
+      level++;
     }
-    return getScaleArray().length - 1;
+    return level;
   }
 
-  private double[] getScaleArray() {
-    if (scaleArray == null) {
-      scaleArray = new double[getScaleCount()];
-
-      scaleArray[0] = 1; // 0 is always 1:1
-      for (int i = 1; i < scaleArray.length; i++) {
-        scaleArray[i] = (double) (info.width - i * CHUNK_SIZE * SCALE_CHUNK_INTERVAL) / info.width;
-      }
+  /**
+   * Returns the size of the image on a level, rounding up so that no pixel of the image is lost.
+   *
+   * @param size the size of the image on level 0.
+   * @param level the level.
+   * @return the size on the level.
+   */
+  static int getLevelSize(int size, int level) {
+    for (int i = 0; i < level; i++) {
+      size = (size + 1) / 2;
     }
-    return scaleArray;
-  }
-
-  private int getChunkId(int col, int row, int scaleIndex) {
-    return (scaleIndex * getChunkCountX(0) * getChunkCountY(0))
-        + row * getChunkCountX(scaleIndex)
-        + col;
+    return size;
   }
 
-  private int getChunkCountX(int scaleIndex) {
-    return (int) Math.ceil((info.width * getScaleArray()[scaleIndex]) / CHUNK_SIZE);
+  /** @return true once all tiles have been built and the image can be drawn. */
+  public boolean isReady() {
+    return ready;
   }
 
-  private int getChunkCountY(int scaleIndex) {
-    return (int) Math.ceil((info.width * getScaleArray()[scaleIndex]) / CHUNK_SIZE);
+  public int getWidth() {
+    return width;
   }
 
-  private int getScaleCount() {
-    return (int)
-        Math.max(
-            Math.ceil(info.width / (CHUNK_SIZE * SCALE_CHUNK_INTERVAL)),
-            Math.ceil(info.height / (CHUNK_SIZE * SCALE_CHUNK_INTERVAL)));
+  public int getHeight() {
+    return height;
   }
 
-  private void chunkize(BufferedImage image) throws IOException {
-    for (int scaleIndex = 0; scaleIndex < getScaleCount(); scaleIndex++) {
-      int chunksX = getChunkCountX(scaleIndex);
-      int chunksY = getChunkCountY(scaleIndex);
-
-      double scaledChunkSize = CHUNK_SIZE / getScaleArray()[scaleIndex];
-
-      BufferedImage tmpImage = new BufferedImage(CHUNK_SIZE, CHUNK_SIZE, Transparency.OPAQUE);
-      for (int row = 0; row < chunksY; row++) {
-        for (int col = 0; col < chunksX; col++) {
-          // Don't bother if it's already been created
-          File filename = getChunkFilename(col, row, scaleIndex);
-          if (filename.exists()) {
-            continue;
+  /**
+   * Draws the tiles of the image that intersect the clip of {@code g}. Tiles that are not loaded
+   * yet are requested in the background and replaced by the matching part of a coarser tile in the
+   * meantime.
+   *
+   * @param g the graphics to draw on.
+   * @param x the x coordinate of the top left corner of the image on {@code g}.
+   * @param y the y coordinate of the top left corner of the image on {@code g}.
+   * @param scale the scale to draw the image at.
+   */
+  public void draw(Graphics2D g, double x, double y, double scale) {
+    if (!ready) {
+      return;
+    }
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = new Rectangle(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+    int level = getLevel(scale, levelCount);
+    int levelWidth = getLevelSize(width, level);
+    int levelHeight = getLevelSize(height, level);
+    // Screen pixels per pixel of a tile on this level
+    double tileScale = scale * (1 << level);
+    double tileExtent = TILE_SIZE * tileScale;
+
+    int firstColumn = Math.max(0, (int) Math.floor((clip.x - x) / tileExtent));
+    int firstRow = Math.max(0, (int) Math.floor((clip.y - y) / tileExtent));
+    int lastColumn =
+        Math.min((levelWidth - 1) / TILE_SIZE, (int) Math.floor((clip.getMaxX() - x) / tileExtent));
+    int lastRow =
+        Math.min(
+            (levelHeight - 1) / TILE_SIZE, (int) Math.floor((clip.getMaxY() - y) / tileExtent));
+
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        int tileX = column * TILE_SIZE;
+        int tileY = row * TILE_SIZE;
+        int tileWidth = Math.min(TILE_SIZE, levelWidth - tileX);
+        int tileHeight = Math.min(TILE_SIZE, levelHeight - tileY);
+        // Round the edges rather than the sizes so that neighbouring tiles never leave a gap
+        int dx1 = (int) Math.floor(x + tileX * tileScale);
+        int dy1 = (int) Math.floor(y + tileY * tileScale);
+        int dx2 = (int) Math.floor(x + (tileX + tileWidth) * tileScale);
+        int dy2 = (int) Math.floor(y + (tileY + tileHeight) * tileScale);
+
+        BufferedImage tile = getTile(level, column, row);
+        if (tile != null) {
+          g.drawImage(tile, dx1, dy1, dx2, dy2, 0, 0, tileWidth, tileHeight, null);
+          continue;
+        }
+        // Fall back to the part of the closest coarser tile that is loaded
+        for (int coarser = level + 1; coarser < levelCount; coarser++) {
+          int shift = coarser - level;
+          BufferedImage fallback =
+              coarser == levelCount - 1
+                  ? coarsestTile
+                  : loadedTileMap.get(getTileKey(coarser, column >> shift, row >> shift));
+          if (fallback != null) {
+            int sx1 = (tileX >> shift) % TILE_SIZE;
+            int sy1 = (tileY >> shift) % TILE_SIZE;
+            int sx2 = sx1 + Math.max(1, tileWidth >> shift);
+            int sy2 = sy1 + Math.max(1, tileHeight >> shift);
+            g.drawImage(fallback, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null);
+            break;
           }
-          int width = (int) Math.min(scaledChunkSize, image.getWidth() - col * scaledChunkSize);
-          int height = (int) Math.min(scaledChunkSize, image.getHeight() - row * scaledChunkSize);
-
-          BufferedImage chunkImage =
-              image.getSubimage(
-                  (int) (col * scaledChunkSize), (int) (row * scaledChunkSize), width, height);
-
-          Graphics2D g = tmpImage.createGraphics();
-          g.drawImage(chunkImage, 0, 0, CHUNK_SIZE, CHUNK_SIZE, null);
-          g.dispose();
-
-          ImageIO.write(tmpImage, "jpg", filename);
         }
       }
     }
   }
 
-  private File getChunkFilename(int col, int row, int scaleIndex) {
-    return new File(
-        cacheDir.getAbsolutePath() + File.separator + scaleIndex + "-" + col + "-" + row + ".jpg");
+  /**
+   * Returns a loaded tile, or requests it to be loaded in the background if it isn't.
+   *
+   * @return the tile, or null if it is not loaded yet.
+   */
+  private BufferedImage getTile(int level, int column, int row) {
+    if (level == levelCount - 1) {
+      return coarsestTile;
+    }
+    String key = getTileKey(level, column, row);
+    BufferedImage tile = loadedTileMap.get(key);
+    if (tile == null && !failedTileSet.contains(key) && pendingTileSet.add(key)) {
+      tileLoader.execute(
+          () -> {
+            try {
+              BufferedImage loaded = ImageIO.read(getTileFile(level, column, row));
+              if (loaded == null) {
+                throw new IOException("Unknown image format");
+              }
+              loadedTileMap.put(key, loaded);
+              tileLoadedCallback.run();
+            } catch (IOException e) {
+              log.error("Could not load tile " + key, e);
+              // Don't retry on every paint, and build the tiles again the next time
+              failedTileSet.add(key);
+              new File(cacheDir, INFO_FILE).delete();
+            } finally {
+              pendingTileSet.remove(key);
+            }
+          });
+    }
+    return tile;
   }
 
-  private String getId(BufferedImage image) throws IOException {
-    return getId(ImageUtil.imageToBytes(image));
+  private String getTileKey(int level, int column, int row) {
+    return cacheDir.getName() + "/" + level + "/" + column + "_" + row;
   }
 
-  private String getId(byte[] image) {
-    return new MD5Key(image).toString();
+  private File getTileFile(int level, int column, int row) {
+    return new File(cacheDir, level + File.separator + column + "_" + row + ".png");
   }
 
-  @SuppressWarnings("serial")
-  public static class LoaderFrame extends JFrame {
-    public LoaderFrame(LargeImage image) {
-      setDefaultCloseOperation(EXIT_ON_CLOSE);
-      setLayout(new BorderLayout());
-
-      setBounds(200, 200, 200, 200);
-      add(BorderLayout.CENTER, new LoaderViewPanel(image));
+  /**
+   * Checks if the cache directory holds the complete tiles of an image of this size, and marks
+   * them as recently used so that they are the last to be pruned.
+   *
+   * @return true if the tiles are complete.
+   */
+  private boolean hasTiles() {
+    File infoFile = new File(cacheDir, INFO_FILE);
+    if (!infoFile.exists()) {
+      return false;
+    }
+    Properties info = new Properties();
+    try (Reader reader = new FileReader(infoFile)) {
+      info.load(reader);
+    } catch (IOException e) {
+      return false;
     }
+    if (String.valueOf(width).equals(info.getProperty("width"))
+        && String.valueOf(height).equals(info.getProperty("height"))
+        && String.valueOf(TILE_SIZE).equals(info.getProperty("tileSize"))) {
+      infoFile.setLastModified(System.currentTimeMillis());
+      return true;
+    }
+    return false;
   }
 
-  @SuppressWarnings("serial")
-  public static class LoaderViewPanel extends JPanel {
-    LargeImage image;
-    Rectangle view = new Rectangle();
-    double scale = 1;
-
-    int dragX, dragY;
-
-    public LoaderViewPanel(LargeImage image) {
-      this.image = image;
-
-      addMouseListener(
-          new MouseAdapter() {
-            @Override
-            public void mousePressed(MouseEvent e) {
-              dragX = e.getX();
-              dragY = e.getY();
+  /**
+   * Loads the tile of the coarsest level, which makes the image ready to be drawn.
+   *
+   * @return true if the tile could be loaded, false if the tiles have to be built again.
+   */
+  private boolean loadCoarsestTile() {
+    try {
+      coarsestTile = ImageIO.read(getTileFile(levelCount - 1, 0, 0));
+    } catch (IOException e) {
+      log.error("Could not load tiles from " + cacheDir, e);
+    }
+    if (coarsestTile == null) {
+      log.warn("Building the tiles in " + cacheDir + " again");
+      return false;
+    }
+    ready = true;
+    tileLoadedCallback.run();
+    return true;
+  }
 
-              if (!SwingUtilities.isLeftMouseButton(e)) {
-                scale += SwingUtil.isShiftDown(e) ? .01 : -.01;
-                repaint();
-              }
+  /**
+   * Writes the tiles of all levels. Level 0 is cut from the image, every following level is
+   * downscaled from the four tiles of the previous level that it covers, so that no more than the
+   * image itself and a few tiles are in memory at any time.
+   */
+  private void buildTiles(BufferedImage image) {
+    int type =
+        image.getTransparency() == Transparency.OPAQUE
+            ? BufferedImage.TYPE_INT_RGB
+            : BufferedImage.TYPE_INT_ARGB;
+    try {
+      for (int level = 0; level < levelCount; level++) {
+        int levelWidth = getLevelSize(width, level);
+        int levelHeight = getLevelSize(height, level);
+        File levelDir = new File(cacheDir, String.valueOf(level));
+        if (!levelDir.isDirectory() && !levelDir.mkdirs()) {
+          throw new IOException("Could not create " + levelDir);
+        }
+        for (int row = 0; row * TILE_SIZE < levelHeight; row++) {
+          for (int column = 0; column * TILE_SIZE < levelWidth; column++) {
+            int tileWidth = Math.min(TILE_SIZE, levelWidth - column * TILE_SIZE);
+            int tileHeight = Math.min(TILE_SIZE, levelHeight - row * TILE_SIZE);
+            BufferedImage tile = new BufferedImage(tileWidth, tileHeight, type);
+            Graphics2D g = tile.createGraphics();
+            if (level == 0) {
+              g.drawImage(
+                  image.getSubimage(column * TILE_SIZE, row * TILE_SIZE, tileWidth, tileHeight),
+                  0,
+                  0,
+                  null);
+            } else {
+              g.setRenderingHint(
+                  RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+              g.scale(0.5, 0.5);
+              drawFinerTiles(g, level - 1, column, row);
             }
-          });
-      addMouseMotionListener(
-          new MouseMotionAdapter() {
-            @Override
-            public void mouseDragged(MouseEvent e) {
-              if (SwingUtilities.isLeftMouseButton(e)) {
-                view.x -= e.getX() - dragX;
-                view.y -= e.getY() - dragY;
-
-                dragX = e.getX();
-                dragY = e.getY();
-
-                repaint();
-              }
+            g.dispose();
+            ImageIO.write(tile, "png", getTileFile(level, column, row));
+            if (level == levelCount - 1) {
+              coarsestTile = tile;
             }
-          });
-    }
-
-    @Override
-    protected void paintComponent(Graphics g) {
-      Dimension size = getSize();
-      view.setBounds(view.x, view.y, size.width, size.height);
-
-      BufferedImage imageView = image.getImageView(view, scale);
+          }
+        }
+      }
 
-      g.drawImage(imageView, 0, 0, this);
+      Properties info = new Properties();
+      info.setProperty("width", String.valueOf(width));
+      info.setProperty("height", String.valueOf(height));
+      info.setProperty("tileSize", String.valueOf(TILE_SIZE));
+      try (Writer writer = new FileWriter(new File(cacheDir, INFO_FILE))) {
+        info.store(writer, null);
+      }
+      failedTileSet.clear();
+      ready = true;
+      tileLoadedCallback.run();
+    } catch (IOException | RuntimeException e) {
+      log.error("Could not build tiles in " + cacheDir, e);
     }
+    pruneCache(cacheDir.getParentFile(), cacheDir, MAX_CACHE_BYTES);
   }
 
-  private static class ImageInfo {
-    int width;
-    int height;
+  /**
+   * Deletes the tiles of the least recently opened images until the tiles of all images use no
+   * more than {@code maxBytes}. Directories without complete tiles, e.g. from an interrupted build,
+   * are deleted first. This runs on the tile builder, so no other tiles are being built meanwhile.
+   *
+   * @param rootDir the directory holding the cache directories of all images.
+   * @param keepDir the cache directory that is never deleted, as its tiles are in use.
+   * @param maxBytes the maximum number of bytes the tiles may use.
+   */
+  static void pruneCache(File rootDir, File keepDir, long maxBytes) {
+    File[] dirs = rootDir == null ? null : rootDir.listFiles(File::isDirectory);
+    if (dirs == null) {
+      return;
+    }
+    List<File> dirList = new ArrayList<>(Arrays.asList(dirs));
+    dirList.sort(Comparator.comparingLong(dir -> new File(dir, INFO_FILE).lastModified()));
 
-    public ImageInfo(int width, int height) {
-      this.width = width;
-      this.height = height;
+    long usedBytes = 0;
+    for (File dir : dirList) {
+      usedBytes += FileUtils.sizeOfDirectory(dir);
+    }
+    for (File dir : dirList) {
+      if (usedBytes <= maxBytes) {
+        break;
+      }
+      if (!dir.equals(keepDir)) {
+        long size = FileUtils.sizeOfDirectory(dir);
+        FileUtils.deleteQuietly(dir);
+        usedBytes -= size;
+      }
     }
   }
 
-  public static void main(String[] args) throws Exception {
-    ImageIO.setUseCache(false);
-
-    LargeImage image = new LargeImage(ImageIO.read(new File("map.jpg")), new File("images"));
-    System.out.println(
-        "START: " + (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()));
-
-    new LoaderFrame(image).setVisible(true);
+  /** Draws the up to four tiles of {@code level} covered by a tile of the next coarser level. */
+  private void drawFinerTiles(Graphics2D g, int level, int coarseColumn, int coarseRow)
+      throws IOException {
+    for (int dy = 0; dy < 2; dy++) {
+      for (int dx = 0; dx < 2; dx++) {
+        File file = getTileFile(level, coarseColumn * 2 + dx, coarseRow * 2 + dy);
+        if (file.exists()) {
+          g.drawImage(ImageIO.read(file), dx * TILE_SIZE, dy * TILE_SIZE, null);
+        }
+      }
+    }
   }
 }
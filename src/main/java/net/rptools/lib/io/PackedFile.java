@@ -17,7 +17,6 @@
 import com.google.common.io.CharStreams;
 import com.thoughtworks.xstream.XStream;
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -26,26 +25,32 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.LineNumberReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -55,6 +60,10 @@
 import net.rptools.maptool.model.Asset;
 import net.rptools.maptool.model.AssetManager;
 import net.rptools.maptool.model.GUID;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -108,6 +117,11 @@ public class PackedFile implements AutoCloseable {
   private static final String PROPERTY_FILE = "properties.xml";
   private static final String CONTENT_FILE = "content.xml";
 
+  /** Extensions of the files that are stored without compressing them again. */
+  private static final Set<String> COMPRESSED_MEDIA_EXTENSIONS =
+      Set.of(
+          "png", "jpg", "jpeg", "gif", "webp", "mp3", "ogg", "m4a", "mp4", "webm", "zip", "mtlib");
+
   private static final Logger log = LogManager.getLogger(PackedFile.class);
 
   private static File tmpDir =
@@ -294,74 +308,81 @@ public void save() throws IOException {
 
     // Create the new file
     File newFile = new File(tmpDir, new GUID() + ".pak");
-    ZipOutputStream zout =
-        new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(newFile)));
-    zout.setLevel(Deflater.BEST_COMPRESSION); // fast compression
+    ExecutorService compressExecutor =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    ParallelScatterZipCreator compressor =
+        new ParallelScatterZipCreator(
+            compressExecutor,
+            () ->
+                new FileBasedScatterGatherBackingStore(
+                    File.createTempFile("scatter", ".tmp", tmpDir)),
+            Deflater.BEST_COMPRESSION);
+    ZipArchiveOutputStream zout = new ZipArchiveOutputStream(newFile);
     try {
-      saveTimer.start(CONTENT_FILE);
-      if (hasFile(CONTENT_FILE)) {
-        saveEntry(zout, CONTENT_FILE);
-      }
-      saveTimer.stop(CONTENT_FILE);
-
+      // Text entries are compressed on the worker threads while the rest is written
       saveTimer.start(PROPERTY_FILE);
       if (getPropertyMap().isEmpty()) {
         removeFile(PROPERTY_FILE);
       } else {
-        zout.putNextEntry(new ZipEntry(PROPERTY_FILE));
-        xstream.toXML(getPropertyMap(), zout);
-        zout.closeEntry();
+        byte[] properties = xstream.toXML(getPropertyMap()).getBytes(StandardCharsets.UTF_8);
+        compressor.addArchiveEntry(
+            createEntry(PROPERTY_FILE, ZipEntry.DEFLATED),
+            () -> new ByteArrayInputStream(properties));
       }
       saveTimer.stop(PROPERTY_FILE);
 
-      // Now put each file
+      // Now put each file, media is already compressed so it is stored as is
       saveTimer.start("addFiles");
-      addedFileSet.remove(CONTENT_FILE);
       for (String path : addedFileSet) {
-        saveEntry(zout, path);
+        File explodedFile = getExplodedFile(path);
+        if (isCompressedMedia(path)) {
+          zout.putArchiveEntry(createEntry(path, ZipEntry.STORED));
+          try (InputStream is = FileUtil.getFileAsInputStream(explodedFile)) {
+            IOUtils.copy(is, zout);
+          }
+          zout.closeArchiveEntry();
+        } else {
+          compressor.addArchiveEntry(
+              createEntry(path, ZipEntry.DEFLATED), () -> openExplodedFile(explodedFile));
+        }
       }
       saveTimer.stop("addFiles");
 
-      // Copy the rest of the zip entries over
+      // Copy the rest of the zip entries over without inflating and deflating them again
       saveTimer.start("copyFiles");
-      if (file.exists()) {
-        Enumeration<? extends ZipEntry> entries = zFile.entries();
-        while (entries.hasMoreElements()) {
-          ZipEntry entry = entries.nextElement();
-          if (!entry.isDirectory()
-              && !addedFileSet.contains(entry.getName())
-              && !removedFileSet.contains(entry.getName())
-              && !CONTENT_FILE.equals(entry.getName())
-              && !PROPERTY_FILE.equals(entry.getName())) {
-            // if (entry.getName().endsWith(".png") ||
-            // entry.getName().endsWith(".gif") ||
-            // entry.getName().endsWith(".jpeg"))
-            // zout.setLevel(Deflater.NO_COMPRESSION); // none needed for images as they are already
-            // compressed
-            // else
-            // zout.setLevel(Deflater.BEST_COMPRESSION); // fast compression
-            zout.putNextEntry(entry);
-            try (InputStream is = getFileAsInputStream(entry.getName())) {
-              // When copying, always use an InputStream
-              IOUtils.copy(is, zout);
-            }
-            zout.closeEntry();
-          } else if (entry.isDirectory()) {
-            zout.putNextEntry(entry);
-            zout.closeEntry();
-          }
-        }
-      }
       try {
         if (zFile != null) zFile.close();
       } catch (IOException e) {
         // ignore close exception
       }
       zFile = null;
+      if (file.exists()) {
+        try (org.apache.commons.compress.archivers.zip.ZipFile zipFile =
+            new org.apache.commons.compress.archivers.zip.ZipFile(file)) {
+          for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+            if (!addedFileSet.contains(entry.getName())
+                && !removedFileSet.contains(entry.getName())
+                && !PROPERTY_FILE.equals(entry.getName())) {
+              zout.addRawArchiveEntry(entry, zipFile.getRawInputStream(entry));
+            }
+          }
+        }
+      }
       saveTimer.stop("copyFiles");
 
+      saveTimer.start("compressFiles");
+      try {
+        compressor.writeTo(zout);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while compressing " + file);
+      } catch (ExecutionException e) {
+        throw new IOException("Could not compress the entries of " + file, e.getCause());
+      }
+      saveTimer.stop("compressFiles");
+
       saveTimer.start("close");
-      IOUtils.closeQuietly(zout);
+      zout.close();
       zout = null;
       saveTimer.stop("close");
 
@@ -393,13 +414,14 @@ public void save() throws IOException {
       dirty = false;
     } finally {
       saveTimer.start("cleanup");
+      compressExecutor.shutdownNow();
       try {
         if (zFile != null) zFile.close();
       } catch (IOException e) {
         // ignore close exception
       }
-      if (newFile.exists()) newFile.delete();
       IOUtils.closeQuietly(zout);
+      if (newFile.exists()) newFile.delete();
       saveTimer.stop("cleanup");
 
       if (log.isDebugEnabled()) log.debug(saveTimer);
@@ -407,13 +429,32 @@ public void save() throws IOException {
     }
   }
 
-  private void saveEntry(ZipOutputStream zout, String path) throws IOException {
-    zout.putNextEntry(new ZipEntry(path));
-    try (InputStream is = getFileAsInputStream(path)) {
-      // When copying, always use an InputStream
-      IOUtils.copy(is, zout);
+  private static ZipArchiveEntry createEntry(String path, int method) {
+    ZipArchiveEntry entry = new ZipArchiveEntry(path);
+    entry.setMethod(method);
+    return entry;
+  }
+
+  /**
+   * Opens an added file for one of the compressing threads, which can't throw checked exceptions.
+   */
+  private static InputStream openExplodedFile(File explodedFile) {
+    try {
+      return FileUtil.getFileAsInputStream(explodedFile);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
-    zout.closeEntry();
+  }
+
+  /**
+   * @param path zip file archive path entry
+   * @return true if the file is in a format that is compressed already, so deflating it would only
+   *     cost time.
+   */
+  static boolean isCompressedMedia(String path) {
+    int dot = path.lastIndexOf('.');
+    return dot >= 0
+        && COMPRESSED_MEDIA_EXTENSIONS.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
   }
 
   /**
@@ -534,7 +575,7 @@ public boolean hasFile(String path) throws IOException {
 
   private ZipFile zFile = null;
 
-  private ZipFile getZipFile() throws IOException {
+  private synchronized ZipFile getZipFile() throws IOException {
     if (zFile == null) zFile = new ZipFile(file);
     return zFile;
   }
@@ -784,6 +825,26 @@ public Set<String> getPaths() throws IOException {
     return paths;
   }
 
+  /**
+   * Returns the uncompressed size of a file.
+   *
+   * @param path zip file archive path entry
+   * @return the size in bytes, or 0 if the file does not exist or its size is unknown.
+   * @throws IOException Problem with the zip file.
+   */
+  public long getFileSize(String path) throws IOException {
+    if (removedFileSet.contains(path)) return 0;
+
+    File explodedFile = getExplodedFile(path);
+    if (explodedFile.exists()) return explodedFile.length();
+
+    if (file.exists()) {
+      ZipEntry entry = getZipFile().getEntry(path);
+      if (entry != null) return Math.max(0, entry.getSize());
+    }
+    return 0;
+  }
+
   /** @return Getter for file */
   public File getPackedFile() {
     return file;
@@ -2244,6 +2244,7 @@ protected void executeAction() {
                         "localhost",
                         serverProps.getUseEasyConnect(),
                         serverProps.getUseWebRtc());
+                config.setUseNioTransport(serverProps.getUseNioTransport());
 
                 // Use the existing campaign
                 Campaign campaign = MapTool.getCampaign();
@@ -2613,7 +2614,19 @@ protected PersistedCampaign doInBackground() throws Exception {
           MapTool.getBackupManager().backup(campaignFile);
         }
         // Load
-        return PersistenceUtil.loadCampaign(campaignFile);
+        PersistedCampaign persistedCampaign =
+            PersistenceUtil.loadCampaign(
+                campaignFile,
+                (loaded, total) ->
+                    publish(
+                        I18N.getText(
+                            "msg.info.campaignLoadingAssets",
+                            loaded / (1024 * 1024),
+                            total / (1024 * 1024))));
+        if (persistedCampaign != null && campaignFile.equals(AutoSaveManager.AUTOSAVE_FILE)) {
+          MapTool.getAutoSaveManager().replayJournal(persistedCampaign.campaign);
+        }
+        return persistedCampaign;
       } finally {
         AppState.releaseBackgroundTaskLock();
       }
@@ -53,6 +53,9 @@ public class AppPreferences {
   private static final String KEY_SAVE_REMINDER = "autoSaveReminder";
   private static final boolean DEFAULT_SAVE_REMINDER = true;
 
+  private static final String KEY_SAVE_BINARY_CAMPAIGN_CONTENT = "saveBinaryCampaignContent";
+  private static final boolean DEFAULT_SAVE_BINARY_CAMPAIGN_CONTENT = false;
+
   private static final String KEY_TOKEN_NUMBER_DISPLAY = "tokenNumberDisplayg";
   private static final String DEFAULT_TOKEN_NUMBER_DISPLAY = Token.NUM_ON_NAME;
 
@@ -238,6 +241,15 @@ public static boolean getSaveReminder() {
   // return prefs.getBoolean(KEY_ENABLE_MAP_EXPORT_IMPORT, DEFAULT_ENABLE_MAP_EXPORT_IMPORT);
   // }
 
+  public static void setSaveBinaryCampaignContent(boolean binary) {
+    prefs.putBoolean(KEY_SAVE_BINARY_CAMPAIGN_CONTENT, binary);
+  }
+
+  public static boolean getSaveBinaryCampaignContent() {
+    return prefs.getBoolean(
+        KEY_SAVE_BINARY_CAMPAIGN_CONTENT, DEFAULT_SAVE_BINARY_CAMPAIGN_CONTENT);
+  }
+
   public static void setAutoSaveIncrement(int increment) {
     prefs.putInt(KEY_AUTO_SAVE_INCREMENT, increment);
   }
@@ -487,6 +499,15 @@ public static int getHaloLineWidth() {
   private static final String KEY_FRAME_RATE_CAP = "frameRateCap";
   private static final int DEFAULT_FRAME_RATE_CAP = 60;
 
+  private static final String KEY_PARALLEL_VISION = "parallelVision";
+  private static final boolean DEFAULT_PARALLEL_VISION = true;
+
+  private static final String KEY_RASTER_FOG = "rasterFog";
+  private static final boolean DEFAULT_RASTER_FOG = false;
+
+  private static final String KEY_RASTER_FOG_SUBDIVISIONS = "rasterFogSubdivisions";
+  private static final int DEFAULT_RASTER_FOG_SUBDIVISIONS = 4;
+
   private static final String KEY_UPNP_DISCOVERY_TIMEOUT = "upnpDiscoveryTimeout";
   private static final int DEFAULT_UPNP_DISCOVERY_TIMEOUT = 5000;
 
@@ -1034,6 +1055,46 @@ public static int getFrameRateCap() {
     return prefs.getInt(KEY_FRAME_RATE_CAP, DEFAULT_FRAME_RATE_CAP);
   }
 
+  public static void setParallelVision(boolean parallel) {
+    prefs.putBoolean(KEY_PARALLEL_VISION, parallel);
+  }
+
+  /**
+   * Whether vision and lights of several tokens are calculated in parallel.
+   *
+   * @return true if vision is calculated in parallel.
+   */
+  public static boolean getParallelVision() {
+    return prefs.getBoolean(KEY_PARALLEL_VISION, DEFAULT_PARALLEL_VISION);
+  }
+
+  public static void setRasterFog(boolean raster) {
+    prefs.putBoolean(KEY_RASTER_FOG, raster);
+  }
+
+  /**
+   * Whether fog checks and fog rendering use the rasterized exposure masks instead of the exposed
+   * areas.
+   *
+   * @return true if the exposure masks are used.
+   */
+  public static boolean getRasterFog() {
+    return prefs.getBoolean(KEY_RASTER_FOG, DEFAULT_RASTER_FOG);
+  }
+
+  public static void setRasterFogSubdivisions(int subdivisions) {
+    prefs.putInt(KEY_RASTER_FOG_SUBDIVISIONS, subdivisions);
+  }
+
+  /**
+   * The number of squares along each side of a grid cell in the rasterized exposure masks.
+   *
+   * @return the number of subdivisions, at least 1.
+   */
+  public static int getRasterFogSubdivisions() {
+    return Math.max(1, prefs.getInt(KEY_RASTER_FOG_SUBDIVISIONS, DEFAULT_RASTER_FOG_SUBDIVISIONS));
+  }
+
   public static void setUpnpDiscoveryTimeout(int timeout) {
     prefs.putInt(KEY_UPNP_DISCOVERY_TIMEOUT, timeout);
   }
@@ -16,6 +16,8 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.model.Asset;
 import net.rptools.maptool.model.AssetManager;
@@ -28,6 +30,9 @@
  * @author trevor
  */
 public class AssetTransferHandler implements ConsumerListener {
+  /** The assets that have been downloaded again after their data did not match their id. */
+  private final Set<MD5Key> retriedIdSet = ConcurrentHashMap.newKeySet();
+
   public void assetComplete(MD5Key id, String name, File data) {
     byte[] assetData = null;
     try {
@@ -35,7 +40,13 @@ public void assetComplete(MD5Key id, String name, File data) {
 
       Asset asset = Asset.createAssetDetectType(name, assetData, data);
       if (!asset.getMD5Key().equals(id)) {
-        MapTool.showError("Received an invalid image: " + id);
+        // A transfer resumed from an inconsistent partial file, discard it and start over once
+        data.delete();
+        if (retriedIdSet.add(id)) {
+          MapTool.serverCommand().getAsset(id);
+        } else {
+          MapTool.showError("Received an invalid image: " + id);
+        }
         return;
       }
       // Install it into our system
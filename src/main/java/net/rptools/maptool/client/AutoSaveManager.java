@@ -14,10 +14,28 @@
  */
 package net.rptools.maptool.client;
 
+import com.google.common.eventbus.Subscribe;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.swing.*;
+import net.rptools.lib.MD5Key;
+import net.rptools.maptool.events.MapToolEventBus;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.Campaign;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.drawing.DrawableTexturePaint;
+import net.rptools.maptool.model.drawing.DrawnElement;
+import net.rptools.maptool.model.zones.*;
+import net.rptools.maptool.util.CampaignJournal;
 import net.rptools.maptool.util.PersistenceUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -25,11 +43,21 @@
 /**
  * @author tylere
  *     <p>Attempts to recover campaigns when the application crashes.
+ *     <p>The campaign is only saved in full from time to time. In between, the tokens, drawables,
+ *     fog and topology that changed since the previous autosave are appended to a {@link
+ *     CampaignJournal}, which is replayed when the autosaved campaign is recovered. Other changes
+ *     to a zone journal the whole zone.
  */
 public class AutoSaveManager {
 
   private static final Logger log = LogManager.getLogger(AutoSaveManager.class);
 
+  /** Number of autosaves that only append to the journal before the campaign is saved in full. */
+  private static final int MAX_JOURNALED_SAVES = 10;
+
+  /** Size of the journal in bytes above which the campaign is saved in full. */
+  private static final long MAX_JOURNAL_LENGTH = 64L * 1024 * 1024;
+
   private Timer autoSaveTimer;
   private long lastAutoSave = -1;
 
@@ -38,6 +66,42 @@ public class AutoSaveManager {
           AppUtil.getAppHome("autosave"), // $NON-NLS-1$
           "AutoSave" + AppConstants.CAMPAIGN_FILE_EXTENSION);
 
+  public static final File JOURNAL_FILE =
+      new File(AppUtil.getAppHome("autosave"), "AutoSave.journal"); // $NON-NLS-1$
+
+  private final CampaignJournal journal = new CampaignJournal(JOURNAL_FILE);
+
+  /** Guards the change tracking below, events can be posted from the network threads. */
+  private final Object changeLock = new Object();
+
+  /** Ids of the tokens changed since the last autosave, by id of their zone. */
+  private final Map<GUID, Set<GUID>> changedTokenMap = new HashMap<>();
+
+  /** The drawables changed since the last autosave in the order of the changes, by zone id. */
+  private final Map<GUID, Map<GUID, DrawnElement>> changedDrawableMap = new HashMap<>();
+
+  private final Set<GUID> changedFogSet = new HashSet<>();
+  private final Set<GUID> changedTopologySet = new HashSet<>();
+  private final Set<GUID> changedZoneSet = new HashSet<>();
+
+  /** Set by changes that can't be journaled, e.g. to labels. */
+  private boolean fullSaveRequired;
+
+  /** The campaign the autosave file and journal were written for. */
+  private Campaign savedCampaign;
+
+  /** Last modified time of the autosave file the journal belongs to. */
+  private volatile long savedCampaignVersion;
+
+  /** Assets stored in the autosave file, journaled changes must not refer to any other. */
+  private volatile Set<MD5Key> savedAssetIds = Set.of();
+
+  private int journaledSaves;
+
+  public AutoSaveManager() {
+    new MapToolEventBus().getMainEventBus().register(this);
+  }
+
   /**
    * Queries the auto-save increment from {@link AppPreferences} and starts a new timer.
    *
@@ -88,8 +152,39 @@ private boolean executeAndContinue() {
       return true;
     }
 
+    Campaign current = MapTool.getCampaign();
+    List<CampaignJournal.Entry> entries = null;
+    synchronized (changeLock) {
+      boolean fullSave =
+          fullSaveRequired
+              || current != savedCampaign
+              || !AUTOSAVE_FILE.exists()
+              || journaledSaves >= MAX_JOURNALED_SAVES
+              || journal.length() > MAX_JOURNAL_LENGTH;
+      if (!fullSave) {
+        entries = getJournalEntries(current);
+        if (entries != null && entries.isEmpty()) {
+          log.debug("Skipping autosave because nothing changed"); // $NON-NLS-1$
+          lastAutoSave = System.currentTimeMillis();
+          return true;
+        }
+      }
+      changedTokenMap.clear();
+      changedDrawableMap.clear();
+      changedFogSet.clear();
+      changedTopologySet.clear();
+      changedZoneSet.clear();
+      fullSaveRequired = false;
+    }
+
     MapTool.getFrame().setStatusMessage(I18N.getString("AutoSaveManager.status.autoSaving"));
 
+    if (entries != null) {
+      journaledSaves++;
+      new SaveWorker(null, entries).execute();
+      return false;
+    }
+
     long startCopy = System.currentTimeMillis();
     // This occurs on the event dispatch thread, so it's ok to mess with the models.  (XXX Is this
     // true?  What about
@@ -103,18 +198,253 @@ private boolean executeAndContinue() {
     log.info(
         "Time to copy Campaign object (ms): "
             + (System.currentTimeMillis() - startCopy)); // $NON-NLS-1$
+    savedCampaign = current;
+    journaledSaves = 0;
 
-    new SaveWorker(campaign).execute();
+    new SaveWorker(campaign, null).execute();
 
     return false;
   }
 
+  /**
+   * Creates the journal entries for the changes since the last autosave. Must be called on the
+   * thread that owns the campaign, as the entries are snapshots of the current tokens and zones.
+   *
+   * @param campaign the current campaign.
+   * @return the entries, or null if a change refers to an asset that is not in the autosave file
+   *     or can't be journaled, so the campaign has to be saved in full.
+   */
+  private List<CampaignJournal.Entry> getJournalEntries(Campaign campaign) {
+    List<CampaignJournal.Entry> entries = new ArrayList<>();
+    for (GUID zoneId : changedZoneSet) {
+      Zone zone = campaign.getZone(zoneId);
+      if (zone == null) {
+        entries.add(CampaignJournal.Entry.removeZone(zoneId));
+      } else if (savedAssetIds.containsAll(zone.getAllAssetIds())) {
+        entries.add(CampaignJournal.Entry.putZone(zone));
+      } else {
+        return null;
+      }
+    }
+    for (Map.Entry<GUID, Set<GUID>> changed : changedTokenMap.entrySet()) {
+      Zone zone = campaign.getZone(changed.getKey());
+      // Journaling the zone already covers its tokens
+      if (zone == null || changedZoneSet.contains(zone.getId())) {
+        continue;
+      }
+      for (GUID tokenId : changed.getValue()) {
+        Token token = zone.getToken(tokenId);
+        if (token == null) {
+          entries.add(CampaignJournal.Entry.removeToken(zone, tokenId));
+        } else if (savedAssetIds.containsAll(token.getAllImageAssets())) {
+          entries.add(CampaignJournal.Entry.putToken(zone, token));
+        } else {
+          return null;
+        }
+      }
+    }
+    for (GUID zoneId : changedFogSet) {
+      Zone zone = campaign.getZone(zoneId);
+      if (zone != null && !changedZoneSet.contains(zoneId)) {
+        entries.add(CampaignJournal.Entry.putFog(zone));
+      }
+    }
+    for (GUID zoneId : changedTopologySet) {
+      Zone zone = campaign.getZone(zoneId);
+      if (zone != null && !changedZoneSet.contains(zoneId)) {
+        entries.add(CampaignJournal.Entry.putTopology(zone));
+      }
+    }
+    for (Map.Entry<GUID, Map<GUID, DrawnElement>> changed : changedDrawableMap.entrySet()) {
+      Zone zone = campaign.getZone(changed.getKey());
+      if (zone == null || changedZoneSet.contains(zone.getId())) {
+        continue;
+      }
+      for (Map.Entry<GUID, DrawnElement> drawable : changed.getValue().entrySet()) {
+        DrawnElement element = drawable.getValue();
+        List<DrawnElement> layer = zone.getDrawnElements(element.getDrawable().getLayer());
+        if (layer.contains(element)) {
+          if (!savedAssetIds.containsAll(getPaintAssetIds(element))) {
+            return null;
+          }
+          entries.add(CampaignJournal.Entry.putDrawable(zone, element, layer.get(0) == element));
+        } else if (zone.getDrawnElement(drawable.getKey()) == null) {
+          entries.add(CampaignJournal.Entry.removeDrawable(zone, drawable.getKey()));
+        } else {
+          // Drawables inside of groups are only journaled with their zone
+          return null;
+        }
+      }
+    }
+    return entries;
+  }
+
+  /** @return the assets of the textures the drawable is painted with */
+  private static Set<MD5Key> getPaintAssetIds(DrawnElement element) {
+    Set<MD5Key> assetIds = new HashSet<>();
+    if (element.getPen().getPaint() instanceof DrawableTexturePaint texture) {
+      assetIds.add(texture.getAssetId());
+    }
+    if (element.getPen().getBackgroundPaint() instanceof DrawableTexturePaint texture) {
+      assetIds.add(texture.getAssetId());
+    }
+    assetIds.remove(null);
+    return assetIds;
+  }
+
+  private void tokensChanged(Zone zone, List<Token> tokens) {
+    synchronized (changeLock) {
+      Set<GUID> tokenIds = changedTokenMap.computeIfAbsent(zone.getId(), id -> new HashSet<>());
+      for (Token token : tokens) {
+        tokenIds.add(token.getId());
+      }
+    }
+  }
+
+  private void zoneChanged(Zone zone) {
+    synchronized (changeLock) {
+      changedZoneSet.add(zone.getId());
+    }
+  }
+
+  private void drawableChanged(Zone zone, DrawnElement element) {
+    synchronized (changeLock) {
+      Map<GUID, DrawnElement> drawables =
+          changedDrawableMap.computeIfAbsent(zone.getId(), id -> new LinkedHashMap<>());
+      drawables.put(element.getDrawable().getId(), element);
+    }
+  }
+
+  @Subscribe
+  private void onTokensAdded(TokensAdded event) {
+    tokensChanged(event.zone(), event.tokens());
+  }
+
+  @Subscribe
+  private void onTokensChanged(TokensChanged event) {
+    tokensChanged(event.zone(), event.tokens());
+  }
+
+  @Subscribe
+  private void onTokensRemoved(TokensRemoved event) {
+    tokensChanged(event.zone(), event.tokens());
+  }
+
+  @Subscribe
+  private void onTokenEdited(TokenEdited event) {
+    tokensChanged(event.zone(), List.of(event.token()));
+  }
+
+  @Subscribe
+  private void onZoneAdded(ZoneAdded event) {
+    zoneChanged(event.zone());
+  }
+
+  @Subscribe
+  private void onZoneRemoved(ZoneRemoved event) {
+    zoneChanged(event.zone());
+  }
+
+  @Subscribe
+  private void onBoardChanged(BoardChanged event) {
+    zoneChanged(event.zone());
+  }
+
+  @Subscribe
+  private void onGridChanged(GridChanged event) {
+    zoneChanged(event.zone());
+  }
+
+  @Subscribe
+  private void onZoneSettingsChanged(ZoneSettingsChanged event) {
+    zoneChanged(event.zone());
+  }
+
+  @Subscribe
+  private void onFogChanged(FogChanged event) {
+    synchronized (changeLock) {
+      changedFogSet.add(event.zone().getId());
+    }
+  }
+
+  @Subscribe
+  private void onTopologyChanged(TopologyChanged event) {
+    synchronized (changeLock) {
+      changedTopologySet.add(event.zone().getId());
+    }
+  }
+
+  @Subscribe
+  private void onDrawableAdded(DrawableAdded event) {
+    drawableChanged(event.zone(), event.drawnElement());
+  }
+
+  @Subscribe
+  private void onDrawableChanged(DrawableChanged event) {
+    drawableChanged(event.zone(), event.drawnElement());
+  }
+
+  @Subscribe
+  private void onDrawableRemoved(DrawableRemoved event) {
+    drawableChanged(event.zone(), event.drawnElement());
+  }
+
+  @Subscribe
+  private void onInitiativeListChanged(InitiativeListChanged event) {
+    Zone zone = event.initiativeList().getZone();
+    if (zone != null) {
+      zoneChanged(zone);
+    }
+  }
+
+  @Subscribe
+  private void onLabelAdded(LabelAdded event) {
+    labelChanged();
+  }
+
+  @Subscribe
+  private void onLabelChanged(LabelChanged event) {
+    labelChanged();
+  }
+
+  @Subscribe
+  private void onLabelRemoved(LabelRemoved event) {
+    labelChanged();
+  }
+
+  /** Label events don't tell which zone the label belongs to. */
+  private void labelChanged() {
+    synchronized (changeLock) {
+      fullSaveRequired = true;
+    }
+  }
+
+  /**
+   * Applies the journal to a campaign loaded from {@link #AUTOSAVE_FILE}.
+   *
+   * @param campaign the campaign loaded from the autosave file.
+   */
+  public void replayJournal(Campaign campaign) {
+    try {
+      int applied = journal.replay(campaign, AUTOSAVE_FILE.lastModified());
+      log.info("Applied " + applied + " journaled changes to the autosaved campaign");
+    } catch (IOException | RuntimeException e) {
+      log.error("Could not apply the autosave journal", e);
+    }
+  }
+
   private class SaveWorker extends SwingWorker<String, String> {
 
-    private Campaign campaign;
+    private final Campaign campaign;
+    private final List<CampaignJournal.Entry> entries;
 
-    private SaveWorker(Campaign campaign) {
+    /**
+     * @param campaign the copy of the campaign to save in full, or null to append to the journal.
+     * @param entries the entries to append to the journal if the campaign is not saved in full.
+     */
+    private SaveWorker(Campaign campaign, List<CampaignJournal.Entry> entries) {
       this.campaign = campaign;
+      this.entries = entries;
     }
 
     @Override
@@ -125,7 +455,14 @@ protected String doInBackground() throws Exception {
       try {
         long startSave = System.currentTimeMillis();
         log.info("Starting autosave..."); // $NON-NLS-1$
-        PersistenceUtil.saveCampaign(campaign, AUTOSAVE_FILE, null);
+        if (campaign != null) {
+          PersistenceUtil.saveCampaign(campaign, AUTOSAVE_FILE, null);
+          journal.delete();
+          savedCampaignVersion = AUTOSAVE_FILE.lastModified();
+          savedAssetIds = campaign.getAllAssetIds();
+        } else {
+          journal.append(savedCampaignVersion, entries);
+        }
         String msg =
             I18N.getText(
                 "AutoSaveManager.status.autoSaveComplete", System.currentTimeMillis() - startSave);
@@ -143,6 +480,10 @@ protected void done() {
       try {
         MapTool.getFrame().setStatusMessage(get());
       } catch (Throwable t) {
+        // The changes of this autosave are lost to the journal, so the next one has to be in full
+        synchronized (changeLock) {
+          fullSaveRequired = true;
+        }
         log.debug("Throwable during autosave: " + t.getCause());
         if (t.getCause() instanceof AppState.FailedToAcquireLockException)
           MapTool.getFrame().setStatusMessage(I18N.getText("AutoSaveManager.status.lockFailed"));
@@ -158,6 +499,7 @@ public void purge() {
     if (AUTOSAVE_FILE.exists()) {
       AUTOSAVE_FILE.delete();
     }
+    journal.delete();
   }
 
   /** Removes the campaignFile if it's from Autosave, forcing to save as new */
@@ -67,6 +67,7 @@
 import net.rptools.maptool.server.Mapper;
 import net.rptools.maptool.server.ServerMessageHandler;
 import net.rptools.maptool.server.ServerPolicy;
+import net.rptools.maptool.server.TokenDelta;
 import net.rptools.maptool.server.proto.*;
 import net.rptools.maptool.transfer.AssetConsumer;
 import net.rptools.maptool.transfer.AssetHeader;
@@ -90,6 +91,7 @@ public void handleMessage(String id, byte[] message) {
       var msg = Message.parseFrom(message);
       var msgType = msg.getMessageTypeCase();
       log.info(id + " got: " + msgType);
+      ServerCommandClientImpl.messageReceived(msg);
 
       switch (msgType) {
         case ADD_TOPOLOGY_MSG -> handle(msg.getAddTopologyMsg());
@@ -184,8 +186,16 @@ private void handle(UpdateExposedAreaMetaMsg msg) {
         () -> {
           var zoneGUID = GUID.valueOf(msg.getZoneGuid());
           var tokenGUID = msg.hasTokenGuid() ? GUID.valueOf(msg.getTokenGuid().getValue()) : null;
-          ExposedAreaMetaData meta = new ExposedAreaMetaData(Mapper.map(msg.getArea()));
           var zone = MapTool.getCampaign().getZone(zoneGUID);
+          ExposedAreaMetaData meta;
+          if (msg.hasAddedArea()) {
+            meta =
+                zone.getExposedAreaMetaData()
+                    .computeIfAbsent(tokenGUID, g -> new ExposedAreaMetaData());
+            meta.addToExposedAreaHistory(Mapper.map(msg.getAddedArea()));
+          } else {
+            meta = new ExposedAreaMetaData(Mapper.map(msg.getArea()));
+          }
           zone.setExposedAreaMetaData(tokenGUID, meta);
         });
   }
@@ -909,7 +919,15 @@ private void handle(PutTokenMsg putTokenMsg) {
         () -> {
           var zoneGUID = GUID.valueOf(putTokenMsg.getZoneGuid());
           var zone = MapTool.getCampaign().getZone(zoneGUID);
-          var token = Token.fromDto(putTokenMsg.getToken());
+          var token =
+              putTokenMsg.hasTokenDelta()
+                  ? TokenDelta.apply(zone, putTokenMsg.getTokenDelta())
+                  : Token.fromDto(putTokenMsg.getToken());
+          if (token == null) {
+            log.warn(
+                "Ignoring changes to unknown token " + putTokenMsg.getTokenDelta().getTokenGuid());
+            return;
+          }
           zone.putToken(token);
           MapTool.getFrame().refresh();
         });
@@ -920,7 +938,15 @@ private void handle(EditTokenMsg editTokenMsg) {
         () -> {
           var zoneGUID = GUID.valueOf(editTokenMsg.getZoneGuid());
           var zone = MapTool.getCampaign().getZone(zoneGUID);
-          var token = Token.fromDto(editTokenMsg.getToken());
+          var token =
+              editTokenMsg.hasTokenDelta()
+                  ? TokenDelta.apply(zone, editTokenMsg.getTokenDelta())
+                  : Token.fromDto(editTokenMsg.getToken());
+          if (token == null) {
+            log.warn(
+                "Ignoring changes to unknown token " + editTokenMsg.getTokenDelta().getTokenGuid());
+            return;
+          }
           zone.editToken(token);
           MapTool.getFrame().refresh();
         });
@@ -1258,6 +1258,8 @@ public static void disconnect() {
       // This isn't critical, we're closing it anyway
       log.debug("While closing connection", ioe);
     }
+    // Forget the transfers in progress, what was received stays on disk to resume on reconnect
+    assetTransferManager.flush();
 
     new MapToolEventBus().getMainEventBus().post(new ServerStopped());
     playerList.clear();
@@ -14,6 +14,8 @@
  */
 package net.rptools.maptool.client;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import java.math.BigDecimal;
@@ -51,6 +53,20 @@ public class MapToolLineParser {
   /** Name of macro to divert calls to unknown macros on a lib macro to. */
   public static final String UNKNOWN_LIB_MACRO = "!!unknown-macro!!";
 
+  /** The maximum number of macro texts whose inline roll positions are cached. */
+  private static final int INLINE_ROLL_CACHE_SIZE = 1000;
+
+  /** The maximum number of compiled branch regular expressions that are cached. */
+  private static final int PATTERN_CACHE_SIZE = 500;
+
+  /** The inline rolls located in each macro text, so repeated macros are only scanned once. */
+  private static final Cache<String, List<InlineRollMatch>> INLINE_ROLL_CACHE =
+      CacheBuilder.newBuilder().maximumSize(INLINE_ROLL_CACHE_SIZE).softValues().build();
+
+  /** The compiled regular expressions used to extract the branches of rolls. */
+  private static final Cache<String, Pattern> PATTERN_CACHE =
+      CacheBuilder.newBuilder().maximumSize(PATTERN_CACHE_SIZE).build();
+
   /** Stack that holds our contexts. */
   private final Stack<MapToolMacroContext> contextStack = new Stack<MapToolMacroContext>();
 
@@ -717,7 +733,7 @@ public String parseLine(
                 {
                   // There's only one branch, so our regex is very simple
                   String testRegex = String.format("^\\s*%s\\s*$", branchRegex);
-                  Matcher testMatcher = Pattern.compile(testRegex).matcher(roll);
+                  Matcher testMatcher = compilePattern(testRegex).matcher(roll);
                   if (testMatcher.find()) {
                     rollBranch = testMatcher.group(1);
                   } else {
@@ -743,7 +759,7 @@ public String parseLine(
                       String.format(
                           "^\\s*%s\\s*(?:%s\\s*%s\\s*%s)?\\s*$",
                           branchRegex, branchSepRegex, branchRegex, branchLastSepRegex);
-                  Matcher testMatcher = Pattern.compile(testRegex).matcher(roll);
+                  Matcher testMatcher = compilePattern(testRegex).matcher(roll);
                   if (testMatcher.find()) { // verifies that roll body is well-formed
                     rollBranch = testMatcher.group(1 + whichBranch);
                     if (rollBranch == null) {
@@ -771,11 +787,11 @@ public String parseLine(
                       String.format(
                           "^(?:\\s*%s\\s*%s\\s*)*\\s*%s\\s*%s\\s*$",
                           branchRegex, branchSepRegex, branchRegex, branchLastSepRegex);
-                  Matcher testMatcher = Pattern.compile(testRegex).matcher(roll);
+                  Matcher testMatcher = compilePattern(testRegex).matcher(roll);
                   if (testMatcher.find()) { // verifies that roll body is well-formed
                     String scanRegex =
                         String.format("\\s*%s\\s*(?:%s)?", branchRegex, branchSepRegex);
-                    Matcher scanMatcher = Pattern.compile(scanRegex).matcher(roll);
+                    Matcher scanMatcher = compilePattern(scanRegex).matcher(roll);
                     boolean foundMatch = false;
                     while (!foundMatch && scanMatcher.find()) {
                       String caseLabel = scanMatcher.group(1); // "case (xxx):"
@@ -786,7 +802,8 @@ public String parseLine(
                         foundMatch = true;
                         ;
                       }
-                      if (caseLabel != null && caseLabel.matches(caseTarget)) {
+                      if (caseLabel != null
+                          && compilePattern(caseTarget).matcher(caseLabel).matches()) {
                         rollBranch = branch.trim();
                         foundMatch = true;
                       }
@@ -1353,36 +1370,8 @@ String runMacroBlock(
    *     the caller doesn't have access to the token.
    */
   public Token getTokenMacroLib(String location) throws ParserException {
-    if (location == null) {
-      return null;
-    }
-    if (!location.matches("(?i)^lib:.*")) {
-      throw new ParserException(I18N.getText("lineParser.notALibToken"));
-    }
-    final String libTokenName = location;
-    Token libToken = null;
-    if (libTokenName.length() > 0) {
-      List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
-      for (ZoneRenderer zr : zrenderers) {
-        List<Token> tokenList =
-            zr.getZone().getTokensFiltered(t -> t.getName().equalsIgnoreCase(libTokenName));
-
-        for (Token token : tokenList) {
-          // If we are not the GM and the token is not visible to players then we don't
-          // let them get functions from it.
-          if (!MapTool.getPlayer().isGM() && !token.isVisible()) {
-            throw new ParserException(I18N.getText("lineParser.libUnableToExec", libTokenName));
-          }
-          if (libToken != null) {
-            throw new ParserException(I18N.getText("lineParser.duplicateLibTokens", libTokenName));
-          }
-
-          libToken = token;
-        }
-      }
-      return libToken;
-    }
-    return null;
+    LibTokenLocation libTokenLocation = findTokenMacroLib(location);
+    return libTokenLocation == null ? null : libTokenLocation.token();
   }
 
   /**
@@ -1394,37 +1383,47 @@ public Token getTokenMacroLib(String location) throws ParserException {
    *     the caller doesn't have access to the token.
    */
   public Zone getTokenMacroLibZone(String location) throws ParserException {
+    LibTokenLocation libTokenLocation = findTokenMacroLib(location);
+    return libTokenLocation == null ? null : libTokenLocation.zone();
+  }
+
+  /** A lib: token and the zone it is in. */
+  private record LibTokenLocation(Token token, Zone zone) {}
+
+  /**
+   * Searches all maps for a lib: token using the token name index of each zone, which is kept up
+   * to date as tokens are added, renamed and removed. Visibility is checked on every call.
+   *
+   * @param location the location of the library macro.
+   * @return The token and its zone, or {@code null} if there is no such token.
+   * @throws ParserException if the token name is illegal, the token appears multiple times, or if
+   *     the caller doesn't have access to the token.
+   */
+  private LibTokenLocation findTokenMacroLib(String location) throws ParserException {
     if (location == null) {
       return null;
     }
-    if (!location.matches("(?i)^lib:.*")) {
+    if (!location.regionMatches(true, 0, "lib:", 0, 4)) {
       throw new ParserException(I18N.getText("lineParser.notALibToken"));
     }
     final String libTokenName = location;
-    Zone libTokenZone = null;
-    if (libTokenName.length() > 0) {
-      List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
-      for (ZoneRenderer zr : zrenderers) {
-        List<Token> tokenList =
-            zr.getZone().getTokensFiltered(t -> t.getName().equalsIgnoreCase(libTokenName));
-
-        for (Token token : tokenList) {
-          // If we are not the GM and the token is not visible to players then we don't
-          // let them get functions from it.
-          if (!MapTool.getPlayer().isGM() && !token.isVisible()) {
-            throw new ParserException(I18N.getText("lineParser.libUnableToExec", libTokenName));
-          }
-
-          if (libTokenZone != null) {
-            throw new ParserException(I18N.getText("lineParser.duplicateLibTokens", libTokenName));
-          }
-
-          libTokenZone = zr.getZone();
+    LibTokenLocation libTokenLocation = null;
+    List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
+    for (ZoneRenderer zr : zrenderers) {
+      for (Token token : zr.getZone().getTokensByName(libTokenName)) {
+        // If we are not the GM and the token is not visible to players then we don't
+        // let them get functions from it.
+        if (!MapTool.getPlayer().isGM() && !token.isVisible()) {
+          throw new ParserException(I18N.getText("lineParser.libUnableToExec", libTokenName));
+        }
+        if (libTokenLocation != null) {
+          throw new ParserException(I18N.getText("lineParser.duplicateLibTokens", libTokenName));
         }
+
+        libTokenLocation = new LibTokenLocation(token, zr.getZone());
       }
-      return libTokenZone;
     }
-    return null;
+    return libTokenLocation;
   }
 
   /**
@@ -1602,12 +1601,44 @@ public boolean isMacroTrusted() {
   }
 
   /**
-   * Locate the inline rolls within the input line.
+   * Compiles a regular expression, reusing the compiled pattern if the same expression was
+   * compiled before.
+   *
+   * @param regex The regular expression.
+   * @return The compiled pattern.
+   */
+  private static Pattern compilePattern(String regex) {
+    Pattern pattern = PATTERN_CACHE.getIfPresent(regex);
+    if (pattern == null) {
+      pattern = Pattern.compile(regex);
+      PATTERN_CACHE.put(regex, pattern);
+    }
+    return pattern;
+  }
+
+  /**
+   * Locate the inline rolls within the input line. The result is cached by the text of the line,
+   * so macros that are run repeatedly are only scanned once.
    *
    * @param line The line to search for the rolls in.
-   * @return A list of the rolls.
+   * @return An unmodifiable list of the rolls.
    */
   private List<InlineRollMatch> locateInlineRolls(String line) {
+    List<InlineRollMatch> matches = INLINE_ROLL_CACHE.getIfPresent(line);
+    if (matches == null) {
+      matches = List.copyOf(scanInlineRolls(line));
+      INLINE_ROLL_CACHE.put(line, matches);
+    }
+    return matches;
+  }
+
+  /**
+   * Scans the input line for inline rolls.
+   *
+   * @param line The line to search for the rolls in.
+   * @return A list of the rolls.
+   */
+  private static List<InlineRollMatch> scanInlineRolls(String line) {
     List<InlineRollMatch> matches = new ArrayList<InlineRollMatch>();
     ScanState scanState = ScanState.SEARCHING_FOR_ROLL;
     int startMatch = 0;
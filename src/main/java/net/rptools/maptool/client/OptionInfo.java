@@ -203,8 +203,11 @@ public OptionInfo(String optionString, int start) throws RollOptionException {
     parseOptionString(optionString, start);
   }
 
+  /** The maximum number of option strings whose parsed options are cached. */
+  private static final int OPTION_INFO_CACHE_SIZE = 1000;
+
   private static final Cache<String, List<OptionInfo>> OPTION_INFO_CACHE =
-      CacheBuilder.newBuilder().softValues().build();
+      CacheBuilder.newBuilder().maximumSize(OPTION_INFO_CACHE_SIZE).softValues().build();
 
   /**
    * Scans a string of options and builds OptionInfo objects for each option found.
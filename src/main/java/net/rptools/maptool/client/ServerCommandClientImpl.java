@@ -19,7 +19,9 @@
 import java.awt.geom.Area;
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.stream.Collectors;
@@ -41,6 +43,7 @@
 import net.rptools.maptool.server.ServerPolicy;
 import net.rptools.maptool.server.proto.*;
 import net.rptools.maptool.server.proto.drawing.IntPointDto;
+import net.rptools.maptool.transfer.AssetConsumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -55,6 +58,15 @@ public class ServerCommandClientImpl implements ServerCommand {
   private final LinkedBlockingQueue<MD5Key> assetRetrieveQueue = new LinkedBlockingQueue<MD5Key>();
   private static final Logger log = LogManager.getLogger(ServerCommandClientImpl.class);
 
+  /** The versions of the tokens the server is known to have, to send token changes as deltas. */
+  private static final TokenDeltaTracker tokenDeltaTracker = new TokenDeltaTracker();
+
+  /** Number of exposed area deltas sent between full snapshots of an exposed area history. */
+  private static final int EXPOSED_AREA_SNAPSHOT_INTERVAL = 16;
+
+  /** Deltas sent since the last full snapshot, per exposed area GUID. */
+  private final Map<GUID, Integer> exposedAreaDeltaCounts = new HashMap<>();
+
   public ServerCommandClientImpl() {
     movementUpdateQueue.start();
     // new AssetRetrievalThread().start();
@@ -138,7 +150,15 @@ public void putAsset(Asset asset) {
   }
 
   public void getAsset(MD5Key assetID) {
-    var msg = GetAssetMsg.newBuilder().setAssetId(assetID.toString());
+    if (MapTool.getAssetTransferManager().hasConsumer(assetID)) {
+      // Already on its way, possibly behind a batch of pushed assets, so only move it ahead
+      var msg = GetAssetMsg.newBuilder().setAssetId(assetID.toString()).setPriorityOnly(true);
+      makeServerCall(Message.newBuilder().setGetAssetMsg(msg).build());
+      return;
+    }
+    // Resume from whatever was received before the last disconnect
+    long offset = AssetConsumer.getPartFile(AppUtil.getTmpDir(), assetID).length();
+    var msg = GetAssetMsg.newBuilder().setAssetId(assetID.toString()).setOffset(offset);
     makeServerCall(Message.newBuilder().setGetAssetMsg(msg).build());
   }
 
@@ -166,8 +186,17 @@ public void restoreZoneView(GUID zoneGUID) {
 
   public void editToken(GUID zoneGUID, Token token) {
     MapTool.getCampaign().getZone(zoneGUID).editToken(token);
-    var msg = EditTokenMsg.newBuilder().setZoneGuid(zoneGUID.toString()).setToken(token.toDto());
-    makeServerCall(Message.newBuilder().setEditTokenMsg(msg).build());
+    var msg = EditTokenMsg.newBuilder().setZoneGuid(zoneGUID.toString());
+    var dto = token.toDto();
+    synchronized (tokenDeltaTracker) {
+      var delta = tokenDeltaTracker.getDelta(msg.getZoneGuid(), dto);
+      if (delta != null) {
+        msg.setTokenDelta(delta);
+      } else {
+        msg.setToken(dto);
+      }
+      makeServerCall(Message.newBuilder().setEditTokenMsg(msg).build());
+    }
   }
 
   public void putToken(GUID zoneGUID, Token token) {
@@ -175,8 +204,18 @@ public void putToken(GUID zoneGUID, Token token) {
     // after changing the token. But they don't tell the zone about it so classes
     // waiting for the zone change event don't get it.
     MapTool.getCampaign().getZone(zoneGUID).putToken(token);
-    var msg = PutTokenMsg.newBuilder().setZoneGuid(zoneGUID.toString()).setToken(token.toDto());
-    makeServerCall(Message.newBuilder().setPutTokenMsg(msg).build());
+    var msg = PutTokenMsg.newBuilder().setZoneGuid(zoneGUID.toString());
+    var dto = token.toDto();
+    // Only send the changes if the server is known to have the previous version of the token.
+    synchronized (tokenDeltaTracker) {
+      var delta = tokenDeltaTracker.getDelta(msg.getZoneGuid(), dto);
+      if (delta != null) {
+        msg.setTokenDelta(delta);
+      } else {
+        msg.setToken(dto);
+      }
+      makeServerCall(Message.newBuilder().setPutTokenMsg(msg).build());
+    }
   }
 
   @Override
@@ -519,10 +558,20 @@ public void clearExposedArea(GUID zoneGUID, boolean globalOnly) {
 
   private static void makeServerCall(Message msg) {
     if (MapTool.getConnection() != null) {
+      tokenDeltaTracker.messageSeen(msg);
       MapTool.getConnection().sendMessage(msg);
     }
   }
 
+  /**
+   * Update the versions of the tokens known to the server for a message received from it.
+   *
+   * @param msg the message received.
+   */
+  static void messageReceived(Message msg) {
+    tokenDeltaTracker.messageSeen(msg);
+  }
+
   public void setBoard(GUID zoneGUID, MD5Key mapAssetId, int x, int y) {
     // First, ensure that the possibly new map texture is available on the client
     // note: This may not be the optimal solution... can't tell from available documentation.
@@ -546,6 +595,9 @@ public void setBoard(GUID zoneGUID, MD5Key mapAssetId, int x, int y) {
    */
   public void updateExposedAreaMeta(
       GUID zoneGUID, GUID tokenExposedAreaGUID, ExposedAreaMetaData meta) {
+    synchronized (exposedAreaDeltaCounts) {
+      exposedAreaDeltaCounts.remove(tokenExposedAreaGUID);
+    }
     var msg =
         UpdateExposedAreaMetaMsg.newBuilder()
             .setZoneGuid(zoneGUID.toString())
@@ -556,6 +608,37 @@ public void updateExposedAreaMeta(
     makeServerCall(Message.newBuilder().setUpdateExposedAreaMetaMsg(msg).build());
   }
 
+  /**
+   * Sends only the newly exposed area, which the receivers add to their copy of the history. Every
+   * {@link #EXPOSED_AREA_SNAPSHOT_INTERVAL} deltas the compacted history is sent in full instead,
+   * so that copies which simplified differently converge again.
+   */
+  @Override
+  public void addExposedAreaMeta(
+      GUID zoneGUID, GUID tokenExposedAreaGUID, ExposedAreaMetaData meta, Area addedArea) {
+    if (addedArea == null || addedArea.isEmpty()) {
+      return;
+    }
+    boolean sendSnapshot;
+    synchronized (exposedAreaDeltaCounts) {
+      int count = exposedAreaDeltaCounts.merge(tokenExposedAreaGUID, 1, Integer::sum);
+      sendSnapshot = count > EXPOSED_AREA_SNAPSHOT_INTERVAL;
+    }
+    if (sendSnapshot) {
+      meta.compact();
+      updateExposedAreaMeta(zoneGUID, tokenExposedAreaGUID, meta);
+      return;
+    }
+    var msg =
+        UpdateExposedAreaMetaMsg.newBuilder()
+            .setZoneGuid(zoneGUID.toString())
+            .setAddedArea(Mapper.map(addedArea));
+    if (tokenExposedAreaGUID != null) {
+      msg.setTokenGuid(StringValue.of(tokenExposedAreaGUID.toString()));
+    }
+    makeServerCall(Message.newBuilder().setUpdateExposedAreaMetaMsg(msg).build());
+  }
+
   @Override
   public void addAddOnLibrary(List<TransferableAddOnLibrary> addOnLibraries) {
     var msg =
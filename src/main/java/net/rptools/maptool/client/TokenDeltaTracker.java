@@ -0,0 +1,197 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import net.rptools.maptool.server.TokenDelta;
+import net.rptools.maptool.server.proto.Message;
+import net.rptools.maptool.server.proto.TokenDeltaDto;
+import net.rptools.maptool.server.proto.TokenDto;
+
+/**
+ * Tracks the version of each token that the server and the other clients are known to have, so
+ * that a changed token can be sent as a {@link TokenDeltaDto} instead of a whole {@link TokenDto}.
+ *
+ * <p>The version of a token is known once it has been sent or received as a whole, and is kept up
+ * to date by later deltas. Any other message that may change the token forgets its version, so the
+ * next change is sent as a whole again. Messages that are not known to leave tokens alone forget
+ * all versions.
+ */
+class TokenDeltaTracker {
+  /** The maximum number of token versions kept. The least recently used are forgotten first. */
+  private static final int MAX_TOKENS = 512;
+
+  /** The messages that never change a token. */
+  private static final Set<Message.MessageTypeCase> NEUTRAL_MESSAGES =
+      EnumSet.of(
+          Message.MessageTypeCase.ADD_TOPOLOGY_MSG,
+          Message.MessageTypeCase.BOOT_PLAYER_MSG,
+          Message.MessageTypeCase.CHANGE_ZONE_DISPLAY_NAME_MSG,
+          Message.MessageTypeCase.CLEAR_ALL_DRAWINGS_MSG,
+          Message.MessageTypeCase.CLEAR_EXPOSED_AREA_MSG,
+          Message.MessageTypeCase.DRAW_MSG,
+          Message.MessageTypeCase.ENFORCE_NOTIFICATION_MSG,
+          Message.MessageTypeCase.ENFORCE_ZONE_MSG,
+          Message.MessageTypeCase.ENFORCE_ZONE_VIEW_MSG,
+          Message.MessageTypeCase.EXEC_FUNCTION_MSG,
+          Message.MessageTypeCase.EXEC_LINK_MSG,
+          Message.MessageTypeCase.EXPOSE_FOW_MSG,
+          Message.MessageTypeCase.EXPOSE_PC_AREA_MSG,
+          Message.MessageTypeCase.GET_ASSET_MSG,
+          Message.MessageTypeCase.GET_ZONE_MSG,
+          Message.MessageTypeCase.HEARTBEAT_MSG,
+          Message.MessageTypeCase.HIDE_FOW_MSG,
+          Message.MessageTypeCase.HIDE_POINTER_MSG,
+          Message.MessageTypeCase.MESSAGE_MSG,
+          Message.MessageTypeCase.MOVE_POINTER_MSG,
+          Message.MessageTypeCase.PLAYER_CONNECTED_MSG,
+          Message.MessageTypeCase.PLAYER_DISCONNECTED_MSG,
+          Message.MessageTypeCase.PUT_ASSET_MSG,
+          Message.MessageTypeCase.PUT_LABEL_MSG,
+          Message.MessageTypeCase.REMOVE_ASSET_MSG,
+          Message.MessageTypeCase.REMOVE_LABEL_MSG,
+          Message.MessageTypeCase.REMOVE_TOPOLOGY_MSG,
+          Message.MessageTypeCase.RENAME_ZONE_MSG,
+          Message.MessageTypeCase.RESTORE_ZONE_VIEW_MSG,
+          Message.MessageTypeCase.SET_BOARD_MSG,
+          Message.MessageTypeCase.SET_CAMPAIGN_NAME_MSG,
+          Message.MessageTypeCase.SET_FOW_MSG,
+          Message.MessageTypeCase.SET_LIVE_TYPING_LABEL_MSG,
+          Message.MessageTypeCase.SET_SERVER_POLICY_MSG,
+          Message.MessageTypeCase.SET_VISION_TYPE_MSG,
+          Message.MessageTypeCase.SET_ZONE_GRID_SIZE_MSG,
+          Message.MessageTypeCase.SET_ZONE_HAS_FOW_MSG,
+          Message.MessageTypeCase.SET_ZONE_VISIBILITY_MSG,
+          Message.MessageTypeCase.SHOW_POINTER_MSG,
+          Message.MessageTypeCase.START_ASSET_TRANSFER_MSG,
+          Message.MessageTypeCase.START_TOKEN_MOVE_MSG,
+          Message.MessageTypeCase.STOP_TOKEN_MOVE_MSG,
+          Message.MessageTypeCase.TOGGLE_TOKEN_MOVE_WAYPOINT_MSG,
+          Message.MessageTypeCase.UNDO_DRAW_MSG,
+          Message.MessageTypeCase.UPDATE_ASSET_TRANSFER_MSG,
+          Message.MessageTypeCase.UPDATE_CAMPAIGN_MSG,
+          Message.MessageTypeCase.UPDATE_CAMPAIGN_MACROS_MSG,
+          Message.MessageTypeCase.UPDATE_DRAWING_MSG,
+          Message.MessageTypeCase.UPDATE_EXPOSED_AREA_META_MSG,
+          Message.MessageTypeCase.UPDATE_GM_MACROS_MSG,
+          Message.MessageTypeCase.UPDATE_INITIATIVE_MSG,
+          Message.MessageTypeCase.UPDATE_TOKEN_INITIATIVE_MSG,
+          Message.MessageTypeCase.UPDATE_TOKEN_MOVE_MSG,
+          Message.MessageTypeCase.REMOVE_ADD_ON_LIBRARY_MSG,
+          Message.MessageTypeCase.REMOVE_ALL_ADD_ON_LIBRARIES_MSG,
+          Message.MessageTypeCase.ADD_ADD_ON_LIBRARY_MSG,
+          Message.MessageTypeCase.UPDATE_DATA_STORE_MSG,
+          Message.MessageTypeCase.UPDATE_DATA_MSG,
+          Message.MessageTypeCase.UPDATE_DATA_NAMESPACE_MSG,
+          Message.MessageTypeCase.REMOVE_DATA_STORE_MSG,
+          Message.MessageTypeCase.REMOVE_DATA_NAMESPACE_MSG,
+          Message.MessageTypeCase.REMOVE_DATA_MSG);
+
+  private record Key(String zoneGuid, String tokenGuid) {}
+
+  private final Map<Key, TokenDto> versions =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, TokenDto> eldest) {
+          return size() > MAX_TOKENS;
+        }
+      };
+
+  /**
+   * Get the delta of a token against the version the others are known to have.
+   *
+   * @param zoneGuid the id of the zone of the token.
+   * @param token the new version of the token.
+   * @return the delta, or {@code null} if the version is not known or the delta is not smaller than
+   *     the token.
+   */
+  synchronized @Nullable TokenDeltaDto getDelta(String zoneGuid, TokenDto token) {
+    var base = versions.get(new Key(zoneGuid, token.getId()));
+    if (base == null) {
+      return null;
+    }
+    var delta = TokenDelta.diff(base, token);
+    return delta.getSerializedSize() < token.getSerializedSize() ? delta : null;
+  }
+
+  /**
+   * Update the known versions for a message sent to or received from the server.
+   *
+   * @param message the message.
+   */
+  synchronized void messageSeen(Message message) {
+    switch (message.getMessageTypeCase()) {
+      case PUT_TOKEN_MSG -> {
+        var msg = message.getPutTokenMsg();
+        tokenSeen(msg.getZoneGuid(), msg.hasTokenDelta(), msg.getToken(), msg.getTokenDelta());
+      }
+      case EDIT_TOKEN_MSG -> {
+        var msg = message.getEditTokenMsg();
+        tokenSeen(msg.getZoneGuid(), msg.hasTokenDelta(), msg.getToken(), msg.getTokenDelta());
+      }
+      case REMOVE_TOKEN_MSG -> {
+        var msg = message.getRemoveTokenMsg();
+        versions.remove(new Key(msg.getZoneGuid(), msg.getTokenGuid()));
+      }
+      case REMOVE_TOKENS_MSG -> {
+        var msg = message.getRemoveTokensMsg();
+        for (var tokenGuid : msg.getTokenGuidList()) {
+          versions.remove(new Key(msg.getZoneGuid(), tokenGuid));
+        }
+      }
+      case BRING_TOKENS_TO_FRONT_MSG -> {
+        var msg = message.getBringTokensToFrontMsg();
+        for (var tokenGuid : msg.getTokenGuidsList()) {
+          versions.remove(new Key(msg.getZoneGuid(), tokenGuid));
+        }
+      }
+      case SEND_TOKENS_TO_BACK_MSG -> {
+        var msg = message.getSendTokensToBackMsg();
+        for (var tokenGuid : msg.getTokenGuidsList()) {
+          versions.remove(new Key(msg.getZoneGuid(), tokenGuid));
+        }
+      }
+      case SET_TOKEN_LOCATION_MSG -> {
+        var msg = message.getSetTokenLocationMsg();
+        versions.remove(new Key(msg.getZoneGuid(), msg.getTokenGuid()));
+      }
+      case UPDATE_TOKEN_PROPERTY_MSG -> {
+        var msg = message.getUpdateTokenPropertyMsg();
+        versions.remove(new Key(msg.getZoneGuid(), msg.getTokenGuid()));
+      }
+      default -> {
+        if (!NEUTRAL_MESSAGES.contains(message.getMessageTypeCase())) {
+          versions.clear();
+        }
+      }
+    }
+  }
+
+  private void tokenSeen(String zoneGuid, boolean isDelta, TokenDto token, TokenDeltaDto delta) {
+    if (!isDelta) {
+      versions.put(new Key(zoneGuid, token.getId()), token);
+      return;
+    }
+    var key = new Key(zoneGuid, delta.getTokenGuid());
+    var base = versions.get(key);
+    if (base != null) {
+      versions.put(key, TokenDelta.apply(base, delta));
+    }
+  }
+}
@@ -459,6 +459,9 @@ protected void setPen(String functionName, Zone map, GUID guid, Object pen)
     DrawnElement de = findDrawnElement(drawableList, guid);
     if (de != null) {
       de.setPen(p);
+      // The pen size changes the drawn bounds, so the renderers have to re-index the drawing
+      map.updateDrawable(de, p);
+      MapTool.serverCommand().updateDrawing(map.getId(), p, de);
       return;
     }
     throw new ParserException(
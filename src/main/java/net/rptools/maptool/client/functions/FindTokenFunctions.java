@@ -486,6 +486,20 @@ private static Object getTokenList(
           types.add(json.getAsString());
         }
         tokenList = getTokensFiltered(new PropertyTypeFilter(types), tokenList);
+      } else if ("property".equalsIgnoreCase(searchType)) {
+        // Keep only the tokens whose stored properties have the given values.
+        JsonElement json = jobj.get(searchType);
+        if (!json.isJsonObject()) {
+          throw new ParserException(
+              I18N.getText("macro.function.json.onlyObject", json.toString(), "property"));
+        }
+        for (var entry : json.getAsJsonObject().entrySet()) {
+          JsonElement value = entry.getValue();
+          String stringValue = value.isJsonPrimitive() ? value.getAsString() : value.toString();
+          Set<Token> matches =
+              new HashSet<>(zone.getTokensWithProperty(entry.getKey(), stringValue));
+          tokenList.removeIf(t -> !matches.contains(t));
+        }
       } else if ("light".equalsIgnoreCase(searchType)) {
         String type, name;
         JsonElement json = jobj.get(searchType);
@@ -597,7 +611,11 @@ private static Object getTokenList(
         metric = range.get("metric").getAsString();
       }
       List<Token> inrange = new LinkedList<Token>();
+      Set<Token> inReach = getTokensInReach(zone, token, upto, useDistancePerCell);
       for (Token targetToken : tokenList) {
+        if (inReach != null && !inReach.contains(targetToken)) {
+          continue;
+        }
         double distance = instance.getDistance(token, targetToken, useDistancePerCell, metric);
         if (distance <= upto && distance >= from && token != targetToken) {
           inrange.add(targetToken);
@@ -682,6 +700,47 @@ private static Object getTokenList(
     }
   }
 
+  /**
+   * Finds the tokens that could be within a range of a token, using the token index of the zone so
+   * that the exact distance only has to be calculated for those.
+   *
+   * <p>Every metric counts at least one cell for each cell moved, and moving one cell moves at most
+   * one cell width or height, so a token within range must overlap the bounds of the source token
+   * grown by that many cells.
+   *
+   * @param zone the zone of the tokens
+   * @param token the token the range is measured from
+   * @param upto the largest distance in range
+   * @param useDistancePerCell whether {@code upto} is in map units rather than cells
+   * @return the tokens that could be in range, or {@code null} if any token could be
+   */
+  private static Set<Token> getTokensInReach(
+      Zone zone, Token token, int upto, boolean useDistancePerCell) {
+    if (upto == Integer.MAX_VALUE || upto < 0) {
+      return null;
+    }
+    double cells = upto;
+    if (useDistancePerCell) {
+      if (zone.getUnitsPerCell() <= 0) {
+        return null;
+      }
+      cells = upto / zone.getUnitsPerCell();
+    }
+    Grid grid = zone.getGrid();
+    double cellSize = Math.max(grid.getSize(), Math.max(grid.getCellWidth(), grid.getCellHeight()));
+    double reach = (Math.ceil(cells) + 1) * cellSize;
+    if (reach > Integer.MAX_VALUE / 4.0) {
+      return null;
+    }
+    Rectangle bounds = token.getBounds(zone);
+    bounds.add(
+        token
+            .getFootprint(grid)
+            .getBounds(grid, grid.convert(new ZonePoint(token.getX(), token.getY()))));
+    bounds.grow((int) Math.ceil(reach), (int) Math.ceil(reach));
+    return new HashSet<>(zone.getTokensInBounds(null, bounds));
+  }
+
   private static boolean booleanCheck(JsonObject jobj, String searchType) {
     JsonElement jel = jobj.get(searchType);
     if (jel.isJsonPrimitive()) {
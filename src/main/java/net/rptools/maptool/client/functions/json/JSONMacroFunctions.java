@@ -841,23 +841,6 @@ private Object handleJsonPathFunctions(String functionName, List<Object> paramet
     }
   }
 
-  /**
-   * Returns a shallow copy of the passed in {@link JsonElement}. If the value is immutable then
-   * this method may just return the value itself without making a copy.
-   *
-   * @param jsonElement The {@link JsonElement} to copy.
-   * @return The resulting json data.
-   */
-  private JsonElement shallowCopy(JsonElement jsonElement) {
-    if (jsonElement.isJsonObject()) {
-      return jsonObjectFunctions.shallowCopy(jsonElement.getAsJsonObject());
-    } else if (jsonElement.isJsonArray()) {
-      return jsonArrayFunctions.shallowCopy(jsonElement.getAsJsonArray());
-    } else {
-      return jsonElement; // Is immutable so no need to return copy,
-    }
-  }
-
   /**
    * Returns a copy of the passed in json with the specified path removed.
    *
@@ -866,7 +849,10 @@ private JsonElement shallowCopy(JsonElement jsonElement) {
    * @return The resulting json data.
    */
   private JsonElement jsonPathDelete(JsonElement json, String path) {
-    return JsonPath.using(jaywayConfig).parse(shallowCopy(json)).delete(path).json();
+    return JsonPath.using(jaywayConfig)
+        .parse(typeConversion.asClonedJsonElement(json))
+        .delete(path)
+        .json();
   }
 
   /**
@@ -881,7 +867,10 @@ private JsonElement jsonPathDelete(JsonElement json, String path) {
   private JsonElement jsonPathPut(JsonElement json, String path, String key, Object info) {
     Object value = asJsonElement(info);
 
-    return JsonPath.using(jaywayConfig).parse(shallowCopy(json)).put(path, key, value).json();
+    return JsonPath.using(jaywayConfig)
+        .parse(typeConversion.asClonedJsonElement(json))
+        .put(path, key, value)
+        .json();
   }
 
   /**
@@ -895,7 +884,10 @@ private JsonElement jsonPathPut(JsonElement json, String path, String key, Objec
   private JsonElement jsonPathSet(JsonElement json, String path, Object info) {
     Object value = asJsonElement(info);
 
-    return JsonPath.using(jaywayConfig).parse(shallowCopy(json)).set(path, value).json();
+    return JsonPath.using(jaywayConfig)
+        .parse(typeConversion.asClonedJsonElement(json))
+        .set(path, value)
+        .json();
   }
 
   /**
@@ -17,8 +17,8 @@
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSyntaxException;
 import java.math.BigDecimal;
+import java.util.Optional;
 
 /** Class used to convert between json and MT Script types. */
 class JsonMTSTypeConversion {
@@ -88,7 +88,9 @@ public String jsonToScriptString(JsonElement element) {
   }
 
   /**
-   * Returns a {@link JsonElement} version of the passed in object.
+   * Returns a {@link JsonElement} version of the passed in object. Strings are parsed through the
+   * {@link JsonParseCache}, so the returned value may be shared and must not be modified; use
+   * {@link #asClonedJsonElement(Object)} to get a value that can be modified.
    *
    * @param o the object tp convert to a {@link JsonElement}.
    * @return a {@link JsonElement} version of the object.
@@ -102,11 +104,11 @@ JsonElement asJsonElement(Object o) {
       String s = o.toString();
       if (s.startsWith("[") || s.startsWith("{")) {
         // if it could be a json object try parse it, if we want to try convert strings to numbers
-        // parsing it will do this
-        try {
-          return JsonParser.parseString(o.toString());
-        } catch (JsonSyntaxException e) {
-          // Do nothing as we will return a JsonPrimitive of the string
+        // parsing it will do this. If it is not valid json we will return a JsonPrimitive of the
+        // string
+        Optional<JsonElement> json = JsonParseCache.parse(s);
+        if (json.isPresent()) {
+          return json.get();
         }
       }
       return new JsonPrimitive(s);
@@ -119,9 +121,9 @@ JsonElement asJsonElement(Object o) {
   }
 
   /**
-   * Returns a {@link JsonElement} version of the passed in object. If the object is already a
-   * {@link JsonElement} then it will return a cloned copy. As {@link JsonPrimitive}s are immutable
-   * they may not be cloned.
+   * Returns a {@link JsonElement} version of the passed in object that can be modified. If the
+   * object is already a {@link JsonElement}, or is a string parsed through the cache, then it will
+   * return a cloned copy. As {@link JsonPrimitive}s are immutable they may not be cloned.
    *
    * @param json the object tp convert to a {@link JsonElement}.
    * @return a {@link JsonElement} version of the object.
@@ -131,7 +133,7 @@ JsonElement asClonedJsonElement(Object json) {
       JsonElement jsonElement = (JsonElement) json;
       return jsonElement.deepCopy();
     } else {
-      return asJsonElement(json);
+      return asJsonElement(json).deepCopy();
     }
   }
 
@@ -0,0 +1,109 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.functions.json;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Optional;
+
+/**
+ * Cache of parsed JSON strings. MTScript passes JSON around as strings, so the same string is
+ * often parsed over and over, for example when a loop reads values from a large object.
+ *
+ * <p>The parsed values are shared between all callers and must not be modified; copy them first,
+ * as {@link JsonMTSTypeConversion#asClonedJsonElement(Object)} does. Strings are looked up by
+ * content, and since a {@link String} caches its hash code and compares equal to itself without
+ * looking at its characters, passing the same string instance again is the cheapest lookup.
+ */
+public final class JsonParseCache {
+
+  /** The maximum total length of the cached strings. */
+  private static final long MAX_CACHED_CHARACTERS = 4L * 1024 * 1024;
+
+  /** the only way to make Gson apply strict evaluation to JsonObjects, apparently. see #2396 */
+  private static final TypeAdapter<JsonObject> strictGsonObjectAdapter =
+      new Gson().getAdapter(JsonObject.class);
+
+  /** Results of lenient parsing, empty if the string is not valid JSON. */
+  private static final Cache<String, Optional<JsonElement>> LENIENT_CACHE =
+      CacheBuilder.newBuilder()
+          .maximumWeight(MAX_CACHED_CHARACTERS)
+          .weigher((String key, Optional<JsonElement> value) -> key.length())
+          .build();
+
+  /** Results of strict parsing, empty if the string is not a strictly valid JSON object. */
+  private static final Cache<String, Optional<JsonObject>> STRICT_OBJECT_CACHE =
+      CacheBuilder.newBuilder()
+          .maximumWeight(MAX_CACHED_CHARACTERS)
+          .weigher((String key, Optional<JsonObject> value) -> key.length())
+          .build();
+
+  private JsonParseCache() {}
+
+  /**
+   * Parses a string leniently as JSON.
+   *
+   * @param json the string to parse.
+   * @return the shared parsed value, or empty if the string is not valid JSON.
+   */
+  public static Optional<JsonElement> parse(String json) {
+    Optional<JsonElement> result = LENIENT_CACHE.getIfPresent(json);
+    if (result == null) {
+      try {
+        result = Optional.of(JsonParser.parseString(json));
+      } catch (JsonSyntaxException e) {
+        result = Optional.empty();
+      }
+      LENIENT_CACHE.put(json, result);
+    }
+    return result;
+  }
+
+  /**
+   * Parses a string strictly as a single JSON object.
+   *
+   * @param json the string to parse.
+   * @return the shared parsed object, or empty if the string is not a strictly valid JSON object.
+   */
+  public static Optional<JsonObject> parseStrictObject(String json) {
+    Optional<JsonObject> result = STRICT_OBJECT_CACHE.getIfPresent(json);
+    if (result == null) {
+      result = Optional.empty();
+      try (JsonReader reader = new JsonReader(new StringReader(json))) {
+        JsonObject object = strictGsonObjectAdapter.read(reader);
+        // in case of a situation like {"a": 1}{"b": 2}, the above would have stopped at the first
+        // complete object.  This next line will throw an exception on finding another top-level
+        // object, allowing us to move on with other evaluation.
+        reader.hasNext();
+        if (object != null && object.isJsonObject()) {
+          result = Optional.of(object);
+        }
+      } catch (IOException e) {
+        // deliberately ignored - not a strict object
+      }
+      STRICT_OBJECT_CACHE.put(json, result);
+    }
+    return result;
+  }
+}
@@ -24,6 +24,8 @@
 import net.rptools.maptool.client.ui.theme.Icons;
 import net.rptools.maptool.client.ui.theme.RessourceManager;
 import net.rptools.maptool.language.I18N;
+import net.rptools.maptool.util.ImageCache;
+import net.rptools.maptool.util.ImageManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -32,6 +34,7 @@ public class ImageCacheStatusBar extends JLabel {
   private static final Logger LOGGER = LogManager.getLogger(ImageCacheStatusBar.class);
   private static final File CACHE_DIR = AppUtil.getAppHome("imageThumbs");
   private static final long POLLING_INTERVAL = 60000;
+  private static final long MEGABYTE = 1024 * 1024;
   private static Icon imageCacheIcon;
 
   static {
@@ -40,7 +43,6 @@ public class ImageCacheStatusBar extends JLabel {
 
   public ImageCacheStatusBar() {
     setIcon(imageCacheIcon);
-    setToolTipText(I18N.getString("ImageCacheStatusBar.toolTip"));
     update();
 
     addMouseListener(
@@ -66,6 +68,21 @@ public void clear() {
 
   public void update() {
     setText(AppUtil.getDiskSpaceUsed(CACHE_DIR));
+
+    ImageCache.Stats stats = ImageManager.getCacheStats();
+    setToolTipText(
+        "<html>"
+            + I18N.getString("ImageCacheStatusBar.toolTip")
+            + "<br>"
+            + I18N.getText(
+                "ImageCacheStatusBar.toolTip.memory",
+                stats.usedBytes() / MEGABYTE,
+                stats.budgetBytes() / MEGABYTE,
+                stats.pinnedBytes() / MEGABYTE,
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount())
+            + "</html>");
     LOGGER.debug("ImageCacheStatusBar updated...");
   }
 }
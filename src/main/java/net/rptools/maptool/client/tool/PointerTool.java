@@ -936,25 +936,17 @@ private boolean validateMove(
       // has
       // limited vision...
       // Or if ANY token in group can move, finish move?
+      boolean useMask = AppPreferences.getRasterFog();
       for (Iterator<GUID> iter = tokenSet.iterator(); !isBlocked && iter.hasNext(); ) {
-        Area tokenFog = new Area(zoneFog);
         GUID tokenGUID = iter.next();
         Token token = zone.getToken(tokenGUID);
         if (token == null) {
           continue;
         }
-
-        // Rolled back change from commit 3d5f619 because of reported bug by dorpond
-        // https://github.com/JamzTheMan/maptool/commit/3d5f619dff6e61c605ee532ac3c86a3860e91864
-        if (useTokenExposedArea) {
-          ExposedAreaMetaData meta = zone.getExposedAreaMetaData(token.getExposedAreaGUID());
-          tokenFog.add(meta.getExposedAreaHistory());
-
-          // Jamz: Allow a token without site to move within the current PlayerView
-          if (!token.getHasSight()) {
-            tokenFog.add(renderer.getZoneView().getVisibleArea(new PlayerView(Role.PLAYER)));
-          }
-        }
+        ExposedRegion tokenFog =
+            useMask
+                ? getTokenFogMask(zone, token, useTokenExposedArea)
+                : getTokenFogArea(zone, token, zoneFog, useTokenExposedArea);
 
         Rectangle tokenSize = token.getBounds(zone);
         Rectangle destination =
@@ -966,6 +958,38 @@ private boolean validateMove(
     return !isBlocked;
   }
 
+  private ExposedRegion getTokenFogArea(
+      Zone zone, Token token, Area zoneFog, boolean useTokenExposedArea) {
+    Area tokenFog = new Area(zoneFog);
+    // Rolled back change from commit 3d5f619 because of reported bug by dorpond
+    // https://github.com/JamzTheMan/maptool/commit/3d5f619dff6e61c605ee532ac3c86a3860e91864
+    if (useTokenExposedArea) {
+      ExposedAreaMetaData meta = zone.getExposedAreaMetaData(token.getExposedAreaGUID());
+      tokenFog.add(meta.getExposedAreaHistory());
+
+      // Jamz: Allow a token without site to move within the current PlayerView
+      if (!token.getHasSight()) {
+        tokenFog.add(renderer.getZoneView().getVisibleArea(new PlayerView(Role.PLAYER)));
+      }
+    }
+    return ExposedRegion.of(tokenFog);
+  }
+
+  /** Same as {@link #getTokenFogArea} but combines the rasterized exposure masks instead. */
+  private ExposedRegion getTokenFogMask(Zone zone, Token token, boolean useTokenExposedArea) {
+    ExposureMask zoneMask = zone.getExposedAreaMask();
+    if (!useTokenExposedArea) {
+      return zoneMask;
+    }
+    ExposureMask tokenFog = new ExposureMask(zoneMask);
+    ExposedAreaMetaData meta = zone.getExposedAreaMetaData(token.getExposedAreaGUID());
+    tokenFog.add(meta.getExposureMask(zoneMask.getResolution()));
+    if (!token.getHasSight()) {
+      tokenFog.add(renderer.getZoneView().getVisibleArea(new PlayerView(Role.PLAYER)));
+    }
+    return tokenFog;
+  }
+
   private boolean validateMove_legacy(Token leadToken, Set<GUID> tokenSet, ZonePoint point) {
     Zone zone = renderer.getZone();
     if (MapTool.getPlayer().isGM()) {
@@ -1521,9 +1521,9 @@ private void stopTokenDrag() {
    * @param renderer the ZoneRenderer
    */
   public void setCurrentZoneRenderer(ZoneRenderer renderer) {
-    // Flush first so that the new zone renderer can inject the newly needed images
+    // Pin first so that the images of the new zone are not evicted while it is shown
     if (renderer != null) {
-      ImageManager.flush(renderer.getZone().getAllAssetIds());
+      ImageManager.pinImages(renderer.getZone().getAllAssetIds());
     } else {
       ImageManager.flush();
       // zoneRendererList.remove(currentRenderer);
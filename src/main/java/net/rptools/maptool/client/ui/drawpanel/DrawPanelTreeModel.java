@@ -35,6 +35,7 @@
 import net.rptools.maptool.model.drawing.DrawablesGroup;
 import net.rptools.maptool.model.drawing.DrawnElement;
 import net.rptools.maptool.model.zones.DrawableAdded;
+import net.rptools.maptool.model.zones.DrawableChanged;
 import net.rptools.maptool.model.zones.DrawableRemoved;
 
 public class DrawPanelTreeModel implements TreeModel {
@@ -92,6 +93,14 @@ private void onDrawableRemoved(DrawableRemoved event) {
     update();
   }
 
+  @Subscribe
+  private void onDrawableChanged(DrawableChanged event) {
+    if (event.zone() != this.zone) {
+      return;
+    }
+    update();
+  }
+
   @Override
   public Object getRoot() {
     return root;
@@ -49,6 +49,7 @@
 import net.rptools.maptool.client.ui.theme.RessourceManager;
 import net.rptools.maptool.client.ui.theme.ThemeSupport;
 import net.rptools.maptool.client.ui.theme.ThemeSupport.ThemeDetails;
+import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.client.walker.WalkerMetric;
 import net.rptools.maptool.events.MapToolEventBus;
 import net.rptools.maptool.language.I18N;
@@ -131,6 +132,7 @@ public class PreferencesDialog extends JDialog {
   private final JTextField statsheetPortraitSize;
   private final JSpinner autoSaveSpinner;
   private final JCheckBox saveReminderCheckBox;
+  private final JCheckBox saveBinaryCampaignCheckBox;
   private final JCheckBox showDialogOnNewToken;
   // Accessibility
   private final JTextField fontSizeTextField;
@@ -141,6 +143,9 @@ public class PreferencesDialog extends JDialog {
   private final JCheckBox fillSelectionCheckBox;
   private final JTextField frameRateCapTextField;
   private final JComboBox<LocalizedComboItem> renderPerformanceComboBox;
+  private final JCheckBox rasterFogCheckBox;
+  private final JSpinner rasterFogSubdivisionsSpinner;
+  private final JCheckBox parallelVisionCheckBox;
   private final JTextField defaultUsername;
 
   // private final JCheckBox initEnableServerSyncCheckBox;
@@ -298,9 +303,13 @@ public PreferencesDialog() {
     showStatSheetModifierCheckBox = panel.getCheckBox("showStatSheetModifier");
     showNumberingCombo = panel.getComboBox("showNumberingCombo");
     saveReminderCheckBox = panel.getCheckBox("saveReminderCheckBox");
+    saveBinaryCampaignCheckBox = panel.getCheckBox("saveBinaryCampaignCheckBox");
     fillSelectionCheckBox = panel.getCheckBox("fillSelectionCheckBox");
     frameRateCapTextField = panel.getTextField("frameRateCapTextField");
     renderPerformanceComboBox = panel.getComboBox("renderPerformanceComboBox");
+    rasterFogCheckBox = panel.getCheckBox("rasterFogCheckBox");
+    rasterFogSubdivisionsSpinner = panel.getSpinner("rasterFogSubdivisionsSpinner");
+    parallelVisionCheckBox = panel.getCheckBox("parallelVisionCheckBox");
 
     defaultUsername = panel.getTextField("defaultUsername");
     // initEnableServerSyncCheckBox = panel.getCheckBox("initEnableServerSyncCheckBox");
@@ -536,6 +545,9 @@ public void focusLost(FocusEvent e) {
         e -> AppPreferences.setShowAvatarInChat(showAvatarInChat.isSelected()));
     saveReminderCheckBox.addActionListener(
         e -> AppPreferences.setSaveReminder(saveReminderCheckBox.isSelected()));
+    saveBinaryCampaignCheckBox.addActionListener(
+        e ->
+            AppPreferences.setSaveBinaryCampaignContent(saveBinaryCampaignCheckBox.isSelected()));
     fillSelectionCheckBox.addActionListener(
         e -> AppPreferences.setFillSelectionBox(fillSelectionCheckBox.isSelected()));
     frameRateCapTextField
@@ -561,6 +573,20 @@ protected Integer convertString(String value) throws ParseException {
               RenderQuality.valueOf(
                   ((LocalizedComboItem) renderPerformanceComboBox.getSelectedItem()).getValue()));
         });
+    rasterFogCheckBox.addActionListener(
+        e -> {
+          AppPreferences.setRasterFog(rasterFogCheckBox.isSelected());
+          rasterFogSubdivisionsSpinner.setEnabled(rasterFogCheckBox.isSelected());
+          flushFog();
+        });
+    rasterFogSubdivisionsSpinner.addChangeListener(
+        ce -> {
+          AppPreferences.setRasterFogSubdivisions(
+              (Integer) rasterFogSubdivisionsSpinner.getValue());
+          flushFog();
+        });
+    parallelVisionCheckBox.addActionListener(
+        e -> AppPreferences.setParallelVision(parallelVisionCheckBox.isSelected()));
 
     defaultUsername.addFocusListener(
         new FocusAdapter() {
@@ -1037,6 +1063,14 @@ public void setVisible(boolean b) {
    * share facings but it doesn't hurt anything and avoids having to track what grid types are being
    * used.
    */
+  /** Redraws the fog of the current map, e.g. after the way it is rendered changed. */
+  private static void flushFog() {
+    ZoneRenderer renderer = MapTool.getFrame().getCurrentZoneRenderer();
+    if (renderer != null) {
+      renderer.flushFog();
+    }
+  }
+
   private void updateFacings() {
     // List<Zone> zlist = MapTool.getServer().getCampaign().getZones(); // generated NPE
     // http://forums.rptools.net/viewtopic.php?f=3&t=17334
@@ -1052,8 +1086,14 @@ private void updateFacings() {
   private void setInitialState() {
     showDialogOnNewToken.setSelected(AppPreferences.getShowDialogOnNewToken());
     saveReminderCheckBox.setSelected(AppPreferences.getSaveReminder());
+    saveBinaryCampaignCheckBox.setSelected(AppPreferences.getSaveBinaryCampaignContent());
     fillSelectionCheckBox.setSelected(AppPreferences.getFillSelectionBox());
     frameRateCapTextField.setText(Integer.toString(AppPreferences.getFrameRateCap()));
+    rasterFogCheckBox.setSelected(AppPreferences.getRasterFog());
+    rasterFogSubdivisionsSpinner.setModel(
+        new SpinnerNumberModel(AppPreferences.getRasterFogSubdivisions(), 1, 16, 1));
+    rasterFogSubdivisionsSpinner.setEnabled(AppPreferences.getRasterFog());
+    parallelVisionCheckBox.setSelected(AppPreferences.getParallelVision());
     defaultUsername.setText(AppPreferences.getDefaultUserName());
     // initEnableServerSyncCheckBox.setSelected(AppPreferences.getInitEnableServerSync());
     autoSaveSpinner.setValue(AppPreferences.getAutoSaveIncrement());
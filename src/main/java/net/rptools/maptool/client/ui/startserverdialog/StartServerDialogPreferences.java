@@ -53,6 +53,7 @@ public class StartServerDialogPreferences {
   private static final String KEY_LOCK_PLAYER_LIBRARY = "lockPlayerLibrary";
 
   private static final String KEY_USE_WEBRTC = "useWebRTC";
+  private static final String KEY_USE_NIO_TRANSPORT = "useNioTransport";
 
   private static Boolean useToolTipsForUnformattedRolls = null;
 
@@ -269,4 +270,12 @@ public boolean getUseWebRtc() {
   public void setKeyUseWebrtc(boolean flag) {
     prefs.putBoolean(KEY_USE_WEBRTC, flag);
   }
+
+  public boolean getUseNioTransport() {
+    return prefs.getBoolean(KEY_USE_NIO_TRANSPORT, false);
+  }
+
+  public void setUseNioTransport(boolean flag) {
+    prefs.putBoolean(KEY_USE_NIO_TRANSPORT, flag);
+  }
 }
@@ -240,6 +240,11 @@ public class StartServerDialogView {
         this.$$$loadButtonText$$$(checkBox17, this.$$$getMessageFromBundle$$$("net/rptools/maptool/language/i18n", "ServerDialog.label.usePasswordFile"));
         checkBox17.setToolTipText(this.$$$getMessageFromBundle$$$("net/rptools/maptool/language/i18n", "ServerDialog.tooltip.usePasswordFile"));
         mainPanel.add(checkBox17, new GridConstraints(5, 1, 1, 1, GridConstraints.ANCHOR_WEST, GridConstraints.FILL_NONE, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, null, null, null, 0, false));
+        final JCheckBox checkBox18 = new JCheckBox();
+        checkBox18.setName("@useNioTransport");
+        this.$$$loadButtonText$$$(checkBox18, this.$$$getMessageFromBundle$$$("net/rptools/maptool/language/i18n", "ServerDialog.label.useNioTransport"));
+        checkBox18.setToolTipText(this.$$$getMessageFromBundle$$$("net/rptools/maptool/language/i18n", "ServerDialog.tooltip.useNioTransport"));
+        mainPanel.add(checkBox18, new GridConstraints(1, 2, 1, 1, GridConstraints.ANCHOR_WEST, GridConstraints.FILL_NONE, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, null, null, null, 0, false));
         final Spacer spacer3 = new Spacer();
         mainPanel.add(spacer3, new GridConstraints(6, 3, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_VERTICAL, 1, GridConstraints.SIZEPOLICY_WANT_GROW, null, null, null, 0, false));
         final JTextField textField5 = new JTextField();
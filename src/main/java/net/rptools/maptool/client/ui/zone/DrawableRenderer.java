@@ -25,7 +25,55 @@ public interface DrawableRenderer {
   public void renderDrawables(
       Graphics g, List<DrawnElement> drawableList, Rectangle viewport, double scale);
 
+  /**
+   * Renders the drawables, optionally progressively. A progressive render may leave out drawables
+   * that are not ready yet, the renderer arranges for another render when they are. Renders for
+   * anything other than the screen should not be progressive.
+   *
+   * @param g the graphics to render to.
+   * @param drawableList the drawables of the layer.
+   * @param viewport the viewport.
+   * @param scale the scale of the map.
+   * @param progressive whether the render may be progressive.
+   */
+  public default void renderDrawables(
+      Graphics g,
+      List<DrawnElement> drawableList,
+      Rectangle viewport,
+      double scale,
+      boolean progressive) {
+    renderDrawables(g, drawableList, viewport, scale);
+  }
+
   public void flush();
 
   public void setDirty();
+
+  /**
+   * Notifies the renderer that a drawable was added to the layer it renders.
+   *
+   * @param element the drawable.
+   * @param atBack {@code true} if the drawable was added behind all other drawables.
+   */
+  public default void drawableAdded(DrawnElement element, boolean atBack) {
+    setDirty();
+  }
+
+  /**
+   * Notifies the renderer that a drawable was removed from the layer it renders.
+   *
+   * @param element the drawable.
+   */
+  public default void drawableRemoved(DrawnElement element) {
+    setDirty();
+  }
+
+  /**
+   * Notifies the renderer that a drawable on the layer it renders changed.
+   *
+   * @param element the drawable.
+   */
+  public default void drawableChanged(DrawnElement element) {
+    setDirty();
+  }
 }
@@ -0,0 +1,235 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.drawing.Drawable;
+import net.rptools.maptool.model.drawing.DrawnElement;
+import net.rptools.maptool.model.drawing.Pen;
+
+/**
+ * A uniform grid over the drawables of a layer, so the drawables that intersect an area can be
+ * found without testing every drawable on the layer. Drawables are indexed by their bounds grown by
+ * the size of their pen, and are returned in the order they are drawn.
+ */
+public class DrawableSpatialIndex {
+  /** The size of a grid cell in map units. */
+  static final int CELL_SIZE = 512;
+
+  /** Drawables covering more cells than this are kept out of the grid and always tested. */
+  static final int MAX_CELLS_PER_DRAWABLE = 1024;
+
+  private final Map<Long, List<Entry>> cellMap = new HashMap<>();
+  private final Map<GUID, Entry> entryMap = new HashMap<>();
+  private final Set<Entry> oversizedSet = new HashSet<>();
+
+  /** The draw order given to the next drawable added to the front or back of the layer. */
+  private long frontOrder = 0;
+
+  private long backOrder = -1;
+
+  private static class Entry {
+    private final DrawnElement element;
+    private final long order;
+    private Rectangle bounds;
+
+    private Entry(DrawnElement element, long order) {
+      this.element = element;
+      this.order = order;
+    }
+  }
+
+  /**
+   * Returns the bounds of a drawable including the size of its pen.
+   *
+   * @param element the drawable.
+   * @return the bounds in map units, or {@code null} if the drawable has no bounds.
+   */
+  public static Rectangle getDrawnBounds(DrawnElement element) {
+    Drawable drawable = element.getDrawable();
+    if (drawable.getBounds() == null) {
+      return null;
+    }
+    Rectangle drawnBounds = new Rectangle(drawable.getBounds());
+    Pen pen = element.getPen();
+    int penSize = (int) (pen.getThickness() / 2 + 1);
+    drawnBounds.setRect(
+        drawnBounds.getX() - penSize,
+        drawnBounds.getY() - penSize,
+        drawnBounds.getWidth() + pen.getThickness(),
+        drawnBounds.getHeight() + pen.getThickness());
+    return drawnBounds;
+  }
+
+  /**
+   * Replaces the contents of the index with the drawables of a layer.
+   *
+   * @param drawableList the drawables of the layer, in draw order.
+   */
+  public synchronized void rebuild(List<DrawnElement> drawableList) {
+    cellMap.clear();
+    entryMap.clear();
+    oversizedSet.clear();
+    frontOrder = 0;
+    backOrder = -1;
+    for (DrawnElement element : drawableList) {
+      add(element, false);
+    }
+  }
+
+  /** @return the number of drawables in the index */
+  public synchronized int size() {
+    return entryMap.size();
+  }
+
+  /**
+   * Adds a drawable to the index.
+   *
+   * @param element the drawable.
+   * @param atBack {@code true} if the drawable is drawn before all others, {@code false} if it is
+   *     drawn after all others.
+   */
+  public synchronized void add(DrawnElement element, boolean atBack) {
+    remove(element);
+    var entry = new Entry(element, atBack ? backOrder-- : frontOrder++);
+    entryMap.put(element.getDrawable().getId(), entry);
+    insert(entry);
+  }
+
+  /**
+   * Removes a drawable from the index.
+   *
+   * @param element the drawable.
+   */
+  public synchronized void remove(DrawnElement element) {
+    var entry = entryMap.remove(element.getDrawable().getId());
+    if (entry != null) {
+      detach(entry);
+    }
+  }
+
+  /**
+   * Updates the position of a drawable in the index after its bounds or pen changed. Its place in
+   * the draw order is kept.
+   *
+   * @param element the drawable.
+   */
+  public synchronized void update(DrawnElement element) {
+    var entry = entryMap.get(element.getDrawable().getId());
+    if (entry == null) {
+      return;
+    }
+    detach(entry);
+    insert(entry);
+  }
+
+  /**
+   * Returns the drawables whose drawn bounds intersect an area.
+   *
+   * @param area the area in map units.
+   * @return the intersecting drawables in draw order.
+   */
+  public synchronized List<DrawnElement> query(Rectangle2D area) {
+    Set<Entry> found = new HashSet<>();
+    for (Entry entry : oversizedSet) {
+      if (entry.bounds.intersects(area)) {
+        found.add(entry);
+      }
+    }
+    int minCol = cell(area.getMinX());
+    int maxCol = cell(area.getMaxX());
+    int minRow = cell(area.getMinY());
+    int maxRow = cell(area.getMaxY());
+    for (int row = minRow; row <= maxRow; row++) {
+      for (int col = minCol; col <= maxCol; col++) {
+        List<Entry> entries = cellMap.get(key(col, row));
+        if (entries == null) {
+          continue;
+        }
+        for (Entry entry : entries) {
+          if (entry.bounds.intersects(area)) {
+            found.add(entry);
+          }
+        }
+      }
+    }
+    List<Entry> sorted = new ArrayList<>(found);
+    sorted.sort(Comparator.comparingLong(e -> e.order));
+    List<DrawnElement> result = new ArrayList<>(sorted.size());
+    for (Entry entry : sorted) {
+      result.add(entry.element);
+    }
+    return result;
+  }
+
+  private void insert(Entry entry) {
+    entry.bounds = getDrawnBounds(entry.element);
+    if (entry.bounds == null) {
+      return;
+    }
+    int minCol = cell(entry.bounds.getMinX());
+    int maxCol = cell(entry.bounds.getMaxX());
+    int minRow = cell(entry.bounds.getMinY());
+    int maxRow = cell(entry.bounds.getMaxY());
+    if ((long) (maxCol - minCol + 1) * (maxRow - minRow + 1) > MAX_CELLS_PER_DRAWABLE) {
+      oversizedSet.add(entry);
+      return;
+    }
+    for (int row = minRow; row <= maxRow; row++) {
+      for (int col = minCol; col <= maxCol; col++) {
+        cellMap.computeIfAbsent(key(col, row), k -> new ArrayList<>()).add(entry);
+      }
+    }
+  }
+
+  private void detach(Entry entry) {
+    if (entry.bounds == null || oversizedSet.remove(entry)) {
+      return;
+    }
+    int minCol = cell(entry.bounds.getMinX());
+    int maxCol = cell(entry.bounds.getMaxX());
+    int minRow = cell(entry.bounds.getMinY());
+    int maxRow = cell(entry.bounds.getMaxY());
+    for (int row = minRow; row <= maxRow; row++) {
+      for (int col = minCol; col <= maxCol; col++) {
+        long key = key(col, row);
+        List<Entry> entries = cellMap.get(key);
+        if (entries != null) {
+          entries.remove(entry);
+          if (entries.isEmpty()) {
+            cellMap.remove(key);
+          }
+        }
+      }
+    }
+  }
+
+  private static int cell(double coordinate) {
+    return (int) Math.floor(coordinate / CELL_SIZE);
+  }
+
+  private static long key(int col, int row) {
+    return ((long) col << 32) | (row & 0xffffffffL);
+  }
+}
@@ -570,7 +570,7 @@ public static void exposeLastPath(final ZoneRenderer renderer, final Set<GUID> t
       filteredToks.add(token.getId());
       zone.putToken(token);
       MapTool.serverCommand().exposeFoW(zone.getId(), visionArea, filteredToks);
-      MapTool.serverCommand().updateExposedAreaMeta(zone.getId(), exposedGUID, meta);
+      MapTool.serverCommand().addExposedAreaMeta(zone.getId(), exposedGUID, meta, visionArea);
     }
 
     String results = timer.toString();
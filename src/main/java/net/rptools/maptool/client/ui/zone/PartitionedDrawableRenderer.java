@@ -14,6 +14,7 @@
  */
 package net.rptools.maptool.client.ui.zone;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Composite;
@@ -26,8 +27,14 @@
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import net.rptools.lib.CodeTimer;
 import net.rptools.lib.image.ImageUtil;
+import net.rptools.maptool.model.drawing.AbstractTemplate;
 import net.rptools.maptool.model.drawing.Drawable;
 import net.rptools.maptool.model.drawing.DrawablesGroup;
 import net.rptools.maptool.model.drawing.DrawnElement;
@@ -35,122 +42,238 @@
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-/** */
+/**
+ * Renders the drawables of a layer as tiles of {@link #CHUNK_SIZE} pixels that are cached between
+ * frames.
+ *
+ * <p>When rendering progressively the missing tiles are rasterized by a pool of worker threads and
+ * drawn as they complete. Until then whatever was shown before is drawn in their place: the out of
+ * date tile if the drawables changed, or the tiles of the previous scale if the map was zoomed. The
+ * workers draw copies of the drawables made on the event dispatch thread, never the drawables of
+ * the zone, and tiles with templates are drawn on the event dispatch thread as templates look up
+ * their zone through the client.
+ *
+ * <p>The tiles are kept in a least recently used cache bounded by the memory their images use.
+ * Apart from the change notifications and {@link #flush()}, the methods must be called on the event
+ * dispatch thread.
+ */
 public class PartitionedDrawableRenderer implements DrawableRenderer {
   private static Logger log = LogManager.getLogger(PartitionedDrawableRenderer.class);
   private static boolean messageLogged = false;
 
   private static final int CHUNK_SIZE = 256;
-  private static List<BufferedImage> unusedChunkList = new LinkedList<BufferedImage>();
 
-  private final Set<String> noImageSet = new HashSet<String>();
-  private final List<Tuple> chunkList = new LinkedList<Tuple>();
-  private int maxChunks;
+  /** The memory used by the image of a tile. */
+  private static final long CHUNK_BYTES = (long) CHUNK_SIZE * CHUNK_SIZE * 4;
+
+  /** The memory the tiles of a renderer may use, unless more are needed to cover the view. */
+  private static final long TILE_CACHE_BUDGET = 32L * 1024 * 1024;
+
+  /** What a tile without any drawables counts as, so the number of empty tiles is bounded too. */
+  private static final long EMPTY_TILE_BYTES = 64;
+
+  /** The number of scale buckets in the tile keys per doubling of the scale. */
+  private static final int SCALE_BUCKETS_PER_DOUBLING = 64;
+
+  /** The maximum number of tile images kept for reuse. */
+  private static final int MAX_UNUSED_CHUNKS = 64;
+
+  private static final List<BufferedImage> unusedChunkList = new LinkedList<BufferedImage>();
+
+  private static final ExecutorService rasterizer =
+      Executors.newFixedThreadPool(
+          Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+          new ThreadFactoryBuilder()
+              .setNameFormat("drawable-rasterizer-%d")
+              .setDaemon(true)
+              .setPriority(Thread.NORM_PRIORITY - 1)
+              .build());
+
+  /** Called when a tile has been rasterized in the background. */
+  private final Runnable tileListener;
 
-  private double lastScale;
-  private Rectangle lastViewport;
+  /** The cached tiles in least recently used order. */
+  private final LinkedHashMap<Long, Tile> tileCache = new LinkedHashMap<>(64, 0.75f, true);
 
-  private int horizontalChunkCount;
-  private int verticalChunkCount;
+  private long tileCacheBytes;
 
-  private boolean dirty = false;
+  /** The tiles being rasterized, and the generation they are being rasterized for. */
+  private final Map<Long, Integer> pendingMap = new HashMap<>();
+
+  /** The tiles rasterized in the background that have not been added to the cache yet. */
+  private final Queue<Completion> completedQueue = new ConcurrentLinkedQueue<>();
+
+  /** The tiles in the current view, tiles that have left the view are not rasterized. */
+  private volatile Set<Long> visibleSet = Set.of();
+
+  /** Incremented each time the drawables change, tiles of older generations are out of date. */
+  private final AtomicInteger generation = new AtomicInteger();
+
+  private volatile boolean flushRequested = false;
+
+  /** The last scale that all visible tiles were available for. */
+  private double completeScale;
+
+  /** The spatial index of the drawables of the layer, and the list it was built from. */
+  private final DrawableSpatialIndex drawableIndex = new DrawableSpatialIndex();
+
+  private List<DrawnElement> indexedList;
+
+  /** The copies of the drawables handed to the workers, dropped when the drawable changes. */
+  private final Map<DrawnElement, DrawnElement> snapshotMap = new ConcurrentHashMap<>();
 
   private CodeTimer timer;
 
-  public void flush() {
-    int unusedSize = unusedChunkList.size();
-    for (Tuple tuple : chunkList) {
-      // Reuse the images
-      if (unusedSize < maxChunks && tuple != null) {
-        unusedChunkList.add(tuple.image);
-        unusedSize++;
-      }
+  /** A rasterized tile, the image is {@code null} if there are no drawables in the tile. */
+  private static class Tile {
+    private final long key;
+    private final double scale;
+    private final int generation;
+    private final BufferedImage image;
+
+    private Tile(long key, double scale, int generation, BufferedImage image) {
+      this.key = key;
+      this.scale = scale;
+      this.generation = generation;
+      this.image = image;
     }
-    chunkList.clear();
-    noImageSet.clear();
-    dirty = false;
+
+    private long getBytes() {
+      return image == null ? EMPTY_TILE_BYTES : CHUNK_BYTES;
+    }
+  }
+
+  /** The result of a background request, the tile is {@code null} if the request was skipped. */
+  private record Completion(long key, int generation, Tile tile) {}
+
+  /** A tile to rasterize in the background, with the copies of the drawables in it. */
+  private record Request(long key, int cellX, int cellY, List<DrawnElement> drawables) {}
+
+  /** Creates a renderer that only renders synchronously. */
+  public PartitionedDrawableRenderer() {
+    this(() -> {});
+  }
+
+  /**
+   * Creates a renderer.
+   *
+   * @param tileListener called from a worker thread when a tile rasterized in the background is
+   *     ready to be drawn, typically to repaint the component.
+   */
+  public PartitionedDrawableRenderer(Runnable tileListener) {
+    this.tileListener = tileListener;
+  }
+
+  public void flush() {
+    generation.incrementAndGet();
+    snapshotMap.clear();
+    flushRequested = true;
   }
 
   public void setDirty() {
-    dirty = true;
+    generation.incrementAndGet();
+  }
+
+  @Override
+  public void drawableAdded(DrawnElement element, boolean atBack) {
+    drawableIndex.add(element, atBack);
+    snapshotMap.remove(element);
+    setDirty();
+  }
+
+  @Override
+  public void drawableRemoved(DrawnElement element) {
+    drawableIndex.remove(element);
+    snapshotMap.remove(element);
+    setDirty();
+  }
+
+  @Override
+  public void drawableChanged(DrawnElement element) {
+    drawableIndex.update(element);
+    snapshotMap.remove(element);
+    setDirty();
   }
 
   public void renderDrawables(
       Graphics g, List<DrawnElement> drawableList, Rectangle viewport, double scale) {
+    renderDrawables(g, drawableList, viewport, scale, false);
+  }
+
+  @Override
+  public void renderDrawables(
+      Graphics g,
+      List<DrawnElement> drawableList,
+      Rectangle viewport,
+      double scale,
+      boolean progressive) {
     timer = new CodeTimer("Renderer");
     timer.setThreshold(10);
     timer.setEnabled(false);
 
+    if (flushRequested) {
+      flushRequested = false;
+      clearTiles();
+    }
+    addCompletedTiles();
+
     // NOTHING TO DO
     if (drawableList == null || drawableList.isEmpty()) {
-      if (dirty) flush();
       return;
     }
-    // View changed ?
-    if (dirty || lastScale != scale) {
-      flush();
+    // The index follows the drawables through the change events, rebuild it if it has missed any
+    if (drawableList != indexedList || drawableIndex.size() != drawableList.size()) {
+      drawableIndex.rebuild(drawableList);
+      snapshotMap.clear();
+      indexedList = drawableList;
     }
-    if (lastViewport == null
-        || viewport.width != lastViewport.width
-        || viewport.height != lastViewport.height) {
-      horizontalChunkCount = (int) Math.ceil(viewport.width / (double) CHUNK_SIZE) + 1;
-      verticalChunkCount = (int) Math.ceil(viewport.height / (double) CHUNK_SIZE) + 1;
 
-      maxChunks = (horizontalChunkCount * verticalChunkCount * 2);
-    }
-    // Compute grid
-    int gridx = (int) Math.floor(-viewport.x / (double) CHUNK_SIZE);
-    int gridy = (int) Math.floor(-viewport.y / (double) CHUNK_SIZE);
-
-    // OK, weirdest hack ever. Basically, when the viewport.x is exactly divisible by the chunk
-    // size, the gridx decrements
-    // too early, creating a visual jump in the drawables. I don't know the exact cause, but this
-    // seems to account for it
-    // note that it only happens in the negative space. Weird.
-    gridx += (viewport.x > CHUNK_SIZE && (viewport.x % CHUNK_SIZE == 0) ? -1 : 0);
-    gridy += (viewport.y > CHUNK_SIZE && (viewport.y % CHUNK_SIZE == 0) ? -1 : 0);
+    int horizontalChunkCount = (int) Math.ceil(viewport.width / (double) CHUNK_SIZE) + 1;
+    int verticalChunkCount = (int) Math.ceil(viewport.height / (double) CHUNK_SIZE) + 1;
 
+    // The first visible column and row, the tile at column 0 starts at the origin of the map
+    int gridx = Math.floorDiv(-viewport.x, CHUNK_SIZE);
+    int gridy = Math.floorDiv(-viewport.y, CHUNK_SIZE);
+
+    int currentGeneration = generation.get();
+    Set<Long> visible = new HashSet<>();
+    List<Rectangle> missingList = new ArrayList<>();
+    List<Request> requestList = new ArrayList<>();
     for (int row = 0; row < verticalChunkCount; row++) {
       for (int col = 0; col < horizontalChunkCount; col++) {
         int cellX = gridx + col;
         int cellY = gridy + row;
+        long key = getKey(cellX, cellY, scale);
+        visible.add(key);
 
-        String key = getKey(cellX, cellY);
-        if (noImageSet.contains(key)) {
-          continue;
+        Tile tile = tileCache.get(key);
+        if (tile != null && tile.scale != scale) {
+          // A different scale in the same bucket
+          tile = null;
         }
-        Tuple chunk = findChunk(chunkList, key);
-        if (chunk == null) {
-          chunk = new Tuple(key, createChunk(drawableList, cellX, cellY, scale));
-
-          if (chunk.image == null) {
-            noImageSet.add(key);
-            continue;
+        if (tile == null || tile.generation != currentGeneration) {
+          if (!progressive || !isPending(key, currentGeneration)) {
+            List<DrawnElement> drawables = drawableIndex.query(getChunkBounds(cellX, cellY, scale));
+            if (progressive && isWorkerSafe(drawables)) {
+              requestList.add(new Request(key, cellX, cellY, getSnapshots(drawables)));
+            } else {
+              tile = createTile(key, drawables, cellX, cellY, scale, currentGeneration);
+              putTile(tile);
+            }
           }
         }
-        // Most recently used is at the front
-        chunkList.add(0, chunk);
-
-        // Trim to the right size
-        if (chunkList.size() > maxChunks) {
-          int chunkSize = chunkList.size();
-          // chunkList.subList(maxChunks, chunkSize).clear();
-          while (chunkSize > maxChunks) {
-            chunkList.remove(--chunkSize);
-          }
+
+        int x = cellX * CHUNK_SIZE + viewport.x;
+        int y = cellY * CHUNK_SIZE + viewport.y;
+        if (tile == null) {
+          missingList.add(new Rectangle(x, y, CHUNK_SIZE, CHUNK_SIZE));
+          continue;
+        }
+        if (tile.image != null) {
+          timer.start("render:DrawImage");
+          g.drawImage(tile.image, x, y, null);
+          timer.stop("render:DrawImage");
         }
-        int x =
-            col * CHUNK_SIZE
-                - ((CHUNK_SIZE - viewport.x)) % CHUNK_SIZE
-                - (gridx < -1 ? CHUNK_SIZE : 0);
-        int y =
-            row * CHUNK_SIZE
-                - ((CHUNK_SIZE - viewport.y)) % CHUNK_SIZE
-                - (gridy < -1 ? CHUNK_SIZE : 0);
-
-        timer.start("render:DrawImage");
-        g.drawImage(chunk.image, x, y, null);
-        timer.stop("render:DrawImage");
 
         // DEBUG: Partition boundaries
         if (log.isDebugEnabled()) { // Show partition boundaries
@@ -175,13 +298,21 @@ public void renderDrawables(
             }
           }
           g.drawRect(x, y, CHUNK_SIZE - 1, CHUNK_SIZE - 1);
-          g.drawString(key, x + CHUNK_SIZE / 2, y + CHUNK_SIZE / 2);
+          g.drawString(cellX + "." + cellY, x + CHUNK_SIZE / 2, y + CHUNK_SIZE / 2);
         }
       }
     }
-    // REMEMBER
-    lastViewport = viewport;
-    lastScale = scale;
+    visibleSet = visible;
+    trimTiles(visible.size());
+
+    for (Request request : requestList) {
+      requestTile(request, scale, currentGeneration);
+    }
+    if (missingList.isEmpty()) {
+      completeScale = scale;
+    } else {
+      renderPreviousScale(g, missingList, viewport, scale);
+    }
 
     if (timer.isEnabled()) {
       // System.out.println(timer);
@@ -189,24 +320,211 @@ public void renderDrawables(
   }
 
   /**
-   * Given a List and a String key, find the element in the list that matches the key.
-   *
-   * @param list
-   * @param key
-   * @return
+   * Fills in the tiles that are not available yet with the tiles of the last scale that was
+   * completely rendered, so that zooming doesn't leave holes while the tiles are rasterized.
    */
-  private Tuple findChunk(List<Tuple> list, String key) {
-    ListIterator<Tuple> iter = list.listIterator();
-    while (iter.hasNext()) {
-      Tuple tuple = iter.next();
-      if (tuple.key.equals(key)) {
-        iter.remove();
-        return tuple;
+  private void renderPreviousScale(
+      Graphics g, List<Rectangle> missingList, Rectangle viewport, double scale) {
+    if (completeScale <= 0 || completeScale == scale) {
+      return;
+    }
+    double ratio = scale / completeScale;
+    double size = CHUNK_SIZE * ratio;
+    for (Rectangle missing : missingList) {
+      Graphics2D g2 = (Graphics2D) g.create();
+      g2.clip(missing);
+      int minCol = (int) Math.floor((missing.getMinX() - viewport.x) / size);
+      int maxCol = (int) Math.floor((missing.getMaxX() - viewport.x) / size);
+      int minRow = (int) Math.floor((missing.getMinY() - viewport.y) / size);
+      int maxRow = (int) Math.floor((missing.getMaxY() - viewport.y) / size);
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int col = minCol; col <= maxCol; col++) {
+          Tile tile = tileCache.get(getKey(col, row, completeScale));
+          if (tile == null || tile.scale != completeScale || tile.image == null) {
+            continue;
+          }
+          int x = (int) Math.floor(col * size + viewport.x);
+          int y = (int) Math.floor(row * size + viewport.y);
+          int width = (int) Math.floor((col + 1) * size + viewport.x) - x;
+          int height = (int) Math.floor((row + 1) * size + viewport.y) - y;
+          g2.drawImage(tile.image, x, y, width, height, null);
+        }
       }
+      g2.dispose();
     }
-    return null;
   }
 
+  /** @return true if the tile is already being rasterized for the generation. */
+  private boolean isPending(long key, int tileGeneration) {
+    Integer pendingGeneration = pendingMap.get(key);
+    return pendingGeneration != null && pendingGeneration == tileGeneration;
+  }
+
+  /**
+   * Returns whether the drawables can be drawn by a worker. Templates can't, as they look up their
+   * zone and grid through the client while computing their bounds and drawing.
+   */
+  static boolean isWorkerSafe(List<DrawnElement> drawables) {
+    for (DrawnElement element : drawables) {
+      Drawable drawable = element.getDrawable();
+      if (drawable instanceof AbstractTemplate) {
+        return false;
+      }
+      if (drawable instanceof DrawablesGroup group && !isWorkerSafe(group.getDrawableList())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns copies of the drawables for a worker to draw, so that it never sees a drawable while it
+   * is being changed. The copies are kept until the drawable changes, so each drawable is copied
+   * once rather than for every tile it covers.
+   */
+  private List<DrawnElement> getSnapshots(List<DrawnElement> drawables) {
+    List<DrawnElement> snapshots = new ArrayList<>(drawables.size());
+    for (DrawnElement element : drawables) {
+      snapshots.add(snapshotMap.computeIfAbsent(element, e -> DrawnElement.fromDto(e.toDto())));
+    }
+    return snapshots;
+  }
+
+  /**
+   * Queues a tile to be rasterized in the background. The tile is skipped if it is no longer
+   * visible by the time a worker gets to it.
+   */
+  private void requestTile(Request request, double scale, int tileGeneration) {
+    long key = request.key();
+    pendingMap.put(key, tileGeneration);
+    rasterizer.execute(
+        () -> {
+          Tile tile = null;
+          try {
+            if (visibleSet.contains(key)) {
+              List<DrawnElement> drawables = request.drawables();
+              BufferedImage image =
+                  drawables.isEmpty()
+                      ? null
+                      : createChunk(drawables, request.cellX(), request.cellY(), scale);
+              tile = new Tile(key, scale, tileGeneration, image);
+            }
+          } catch (Throwable t) {
+            log.error("Error rasterizing drawables", t);
+          }
+          // Skipped requests are reported too so the tile can be requested again
+          completedQueue.add(new Completion(key, tileGeneration, tile));
+          tileListener.run();
+        });
+  }
+
+  private Tile createTile(
+      long key,
+      List<DrawnElement> drawables,
+      int cellX,
+      int cellY,
+      double scale,
+      int tileGeneration) {
+    BufferedImage image = drawables.isEmpty() ? null : createChunk(drawables, cellX, cellY, scale);
+    return new Tile(key, scale, tileGeneration, image);
+  }
+
+  /** Moves the tiles rasterized in the background into the cache. */
+  private void addCompletedTiles() {
+    Completion completion;
+    while ((completion = completedQueue.poll()) != null) {
+      Integer pendingGeneration = pendingMap.get(completion.key());
+      if (pendingGeneration != null && pendingGeneration == completion.generation()) {
+        pendingMap.remove(completion.key());
+      }
+      Tile tile = completion.tile();
+      if (tile == null) {
+        continue;
+      }
+      Tile cached = tileCache.get(tile.key);
+      if (cached != null && cached.scale == tile.scale && cached.generation > tile.generation) {
+        // Finished after a newer version of the tile
+        recycleChunk(tile.image);
+        continue;
+      }
+      putTile(tile);
+    }
+  }
+
+  private void putTile(Tile tile) {
+    Tile old = tileCache.put(tile.key, tile);
+    if (old != null) {
+      tileCacheBytes -= old.getBytes();
+      if (old.image != tile.image) {
+        recycleChunk(old.image);
+      }
+    }
+    tileCacheBytes += tile.getBytes();
+  }
+
+  /**
+   * Evicts the least recently used tiles until the cache is within its budget. The budget is raised
+   * to twice the visible tiles so that the tiles of the view are never evicted while drawing it.
+   *
+   * @param visibleCount the number of visible tiles.
+   */
+  private void trimTiles(int visibleCount) {
+    long budget = Math.max(TILE_CACHE_BUDGET, 2 * visibleCount * CHUNK_BYTES);
+    Iterator<Tile> iterator = tileCache.values().iterator();
+    while (tileCacheBytes > budget && iterator.hasNext()) {
+      Tile tile = iterator.next();
+      iterator.remove();
+      tileCacheBytes -= tile.getBytes();
+      recycleChunk(tile.image);
+    }
+  }
+
+  private void clearTiles() {
+    for (Tile tile : tileCache.values()) {
+      recycleChunk(tile.image);
+    }
+    tileCache.clear();
+    tileCacheBytes = 0;
+    completeScale = 0;
+  }
+
+  /**
+   * Returns the key of a tile. The column and row are packed into 24 bits each and the scale into a
+   * 16 bit bucket, tiles of different scales in the same bucket are told apart by their scale.
+   *
+   * @param col the column of the tile.
+   * @param row the row of the tile.
+   * @param scale the scale the tile is rendered at.
+   * @return the key of the tile.
+   */
+  static long getKey(int col, int row, double scale) {
+    long bucket =
+        Math.round(Math.log(scale) / Math.log(2) * SCALE_BUCKETS_PER_DOUBLING) & 0xffffL;
+    return ((col & 0xffffffL) << 40) | ((row & 0xffffffL) << 16) | bucket;
+  }
+
+  /**
+   * Returns the area of the map covered by a chunk.
+   *
+   * @param gridx the column of the chunk.
+   * @param gridy the row of the chunk.
+   * @param scale the scale the map is rendered at.
+   * @return the bounds of the chunk in map units.
+   */
+  private static Rectangle2D getChunkBounds(int gridx, int gridy, double scale) {
+    return new Rectangle(
+        (int) (gridx * (CHUNK_SIZE / scale)),
+        (int) (gridy * (CHUNK_SIZE / scale)),
+        (int) (CHUNK_SIZE / scale),
+        (int) (CHUNK_SIZE / scale));
+  }
+
+  /**
+   * Rasterizes the drawables that intersect a chunk. Called from the worker threads, so it must not
+   * touch the state of the renderer.
+   *
+   * @return the image of the chunk, or {@code null} if no drawables intersect it.
+   */
   private BufferedImage createChunk(
       List<DrawnElement> drawableList, int gridx, int gridy, double scale) {
     int x = gridx * CHUNK_SIZE;
@@ -215,41 +533,17 @@ private BufferedImage createChunk(
     BufferedImage image = null;
     Composite oldComposite = null;
     Graphics2D g = null;
+    Rectangle2D chunkBounds = getChunkBounds(gridx, gridy, scale);
 
     for (DrawnElement element : drawableList) {
-      timer.start("createChunk:calculate");
       Drawable drawable = element.getDrawable();
-      if (drawable.getBounds() == null) {
-        timer.stop("createChunk:calculate");
-        continue;
-      }
-
-      Rectangle2D drawnBounds = new Rectangle(drawable.getBounds());
-      Rectangle2D chunkBounds =
-          new Rectangle(
-              (int) (gridx * (CHUNK_SIZE / scale)),
-              (int) (gridy * (CHUNK_SIZE / scale)),
-              (int) (CHUNK_SIZE / scale),
-              (int) (CHUNK_SIZE / scale));
-
       // Handle pen size
-      Pen pen = element.getPen();
-      int penSize = (int) (pen.getThickness() / 2 + 1);
-      drawnBounds.setRect(
-          drawnBounds.getX() - penSize,
-          drawnBounds.getY() - penSize,
-          drawnBounds.getWidth() + pen.getThickness(),
-          drawnBounds.getHeight() + pen.getThickness());
-      timer.stop("createChunk:calculate");
-
-      timer.start("createChunk:BoundsCheck");
-      if (!drawnBounds.intersects(chunkBounds)) {
-        timer.stop("createChunk:BoundsCheck");
+      Rectangle2D drawnBounds = DrawableSpatialIndex.getDrawnBounds(element);
+      if (drawnBounds == null || !drawnBounds.intersects(chunkBounds)) {
         continue;
       }
-      timer.stop("createChunk:BoundsCheck");
+      Pen pen = element.getPen();
 
-      timer.start("createChunk:CreateChunk");
       if (image == null) {
         image = getNewChunk();
         g = image.createGraphics();
@@ -263,7 +557,6 @@ private BufferedImage createChunk(
         af.scale(scale, scale);
         g.setTransform(af);
       }
-      timer.stop("createChunk:CreateChunk");
 
       if (pen.getOpacity() != 1 && pen.getOpacity() != 0 /*
 																 * handle legacy pens, besides, it doesn't make sense to have a non visible pen
@@ -274,16 +567,17 @@ private BufferedImage createChunk(
       // g.setColor(Color.red);
       // g.draw(drawnBounds);
 
-      timer.start("createChunk:Draw");
       if (drawable instanceof DrawablesGroup) {
         DrawablesGroup dg = (DrawablesGroup) drawable;
         BufferedImage groupImage = createChunk(dg.getDrawableList(), gridx, gridy, scale);
-        Graphics2D g2 = image.createGraphics();
-        g2.drawImage(groupImage, 0, 0, CHUNK_SIZE, CHUNK_SIZE, null);
-        g2.dispose();
+        if (groupImage != null) {
+          Graphics2D g2 = image.createGraphics();
+          g2.drawImage(groupImage, 0, 0, CHUNK_SIZE, CHUNK_SIZE, null);
+          g2.dispose();
+          recycleChunk(groupImage);
+        }
       } else drawable.draw(g, pen);
       g.setComposite(oldComposite);
-      timer.stop("createChunk:Draw");
     }
     if (g != null) {
       g.dispose();
@@ -291,10 +585,14 @@ private BufferedImage createChunk(
     return image;
   }
 
-  private BufferedImage getNewChunk() {
+  private static BufferedImage getNewChunk() {
     BufferedImage image = null;
-    if (unusedChunkList.size() > 0) {
-      image = unusedChunkList.remove(0);
+    synchronized (unusedChunkList) {
+      if (unusedChunkList.size() > 0) {
+        image = unusedChunkList.remove(0);
+      }
+    }
+    if (image != null) {
       ImageUtil.clearImage(image);
     } else {
       image = new BufferedImage(CHUNK_SIZE, CHUNK_SIZE, Transparency.BITMASK);
@@ -303,30 +601,14 @@ private BufferedImage getNewChunk() {
     return image;
   }
 
-  private String getKey(int col, int row) {
-    return col + "." + row;
-  }
-
-  private static class Tuple {
-    String key;
-    BufferedImage image;
-
-    public Tuple(String key, BufferedImage image) {
-      this.key = key;
-      this.image = image;
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) return true;
-      if (o == null || getClass() != o.getClass()) return false;
-      Tuple tuple = (Tuple) o;
-      return Objects.equals(key, tuple.key);
+  private static void recycleChunk(BufferedImage image) {
+    if (image == null) {
+      return;
     }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(key);
+    synchronized (unusedChunkList) {
+      if (unusedChunkList.size() < MAX_UNUSED_CHUNKS) {
+        unusedChunkList.add(image);
+      }
     }
   }
 }
@@ -28,6 +28,7 @@
 import java.awt.font.TextLayout;
 import java.awt.geom.*;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.List;
@@ -39,6 +40,7 @@
 import javax.swing.*;
 import net.rptools.lib.CodeTimer;
 import net.rptools.lib.MD5Key;
+import net.rptools.lib.image.LargeImage;
 import net.rptools.maptool.client.*;
 import net.rptools.maptool.client.functions.TokenMoveFunctions;
 import net.rptools.maptool.client.swing.ImageBorder;
@@ -100,6 +102,10 @@ public class ZoneRenderer extends JComponent
   private boolean bgTextureNoiseFilterOn = false;
 
   public static final int MIN_GRID_SIZE = 10;
+
+  /** Map images with a side longer than this are drawn from tiles rather than from the image. */
+  private static final int BOARD_TILING_THRESHOLD = 4096;
+
   private static LightSourceIconOverlay lightSourceIconOverlay = new LightSourceIconOverlay();
   /** The zone the ZoneRenderer was built from. */
   protected final Zone zone;
@@ -108,10 +114,17 @@ public class ZoneRenderer extends JComponent
   private final ZoneView zoneView;
 
   private Scale zoneScale;
-  private final DrawableRenderer backgroundDrawableRenderer = new PartitionedDrawableRenderer();
-  private final DrawableRenderer objectDrawableRenderer = new PartitionedDrawableRenderer();
-  private final DrawableRenderer tokenDrawableRenderer = new PartitionedDrawableRenderer();
-  private final DrawableRenderer gmDrawableRenderer = new PartitionedDrawableRenderer();
+  private final DrawableRenderer backgroundDrawableRenderer =
+      new PartitionedDrawableRenderer(this::repaint);
+  private final DrawableRenderer objectDrawableRenderer =
+      new PartitionedDrawableRenderer(this::repaint);
+  private final DrawableRenderer tokenDrawableRenderer =
+      new PartitionedDrawableRenderer(this::repaint);
+  private final DrawableRenderer gmDrawableRenderer =
+      new PartitionedDrawableRenderer(this::repaint);
+
+  /** Whether the zone is being rendered to the screen, which allows progressive rendering. */
+  private boolean renderingToScreen = false;
   private final List<ZoneOverlay> overlayList = new ArrayList<ZoneOverlay>();
   private final Map<Zone.Layer, List<TokenLocation>> tokenLocationMap =
       new HashMap<Zone.Layer, List<TokenLocation>>();
@@ -146,6 +159,8 @@ public class ZoneRenderer extends JComponent
   private BufferedImage miniImage;
   private BufferedImage backbuffer;
   private boolean drawBackground = true;
+  private LargeImage boardTiles;
+  private MD5Key boardTilesAssetId;
   private int lastX;
   private int lastY;
   private double lastScale;
@@ -851,7 +866,12 @@ public void paintComponent(Graphics g) {
       PlayerView pl = getPlayerView();
       timer.stop("paintComponent:createView");
 
-      renderZone(bufferG2d, pl);
+      renderingToScreen = true;
+      try {
+        renderZone(bufferG2d, pl);
+      } finally {
+        renderingToScreen = false;
+      }
       int noteVPos = 20;
       if (MapTool.getFrame().areFullScreenToolsShown()) noteVPos += 40;
 
@@ -1200,7 +1220,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
       renderDrawableOverlay(g2d, backgroundDrawableRenderer, view, drawables);
       timer.stop("drawableBackground");
       // }
-      List<Token> background = zone.getBackgroundStamps(false);
+      List<Token> background = getStampsInView(Zone.Layer.BACKGROUND);
       if (!background.isEmpty()) {
         timer.start("tokensBackground");
         renderTokens(g2d, background, view);
@@ -1222,7 +1242,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
 
     if (Zone.Layer.OBJECT.isEnabled()) {
       // ... Images on the object layer are always ABOVE the grid.
-      List<Token> stamps = zone.getStampTokens(false);
+      List<Token> stamps = getStampsInView(Zone.Layer.OBJECT);
       if (!stamps.isEmpty()) {
         timer.start("tokensStamp");
         renderTokens(g2d, stamps, view);
@@ -1275,7 +1295,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
         renderDrawableOverlay(g2d, gmDrawableRenderer, view, drawables);
         timer.stop("drawableGM");
         // }
-        List<Token> stamps = zone.getGMStamps(false);
+        List<Token> stamps = getStampsInView(Zone.Layer.GM);
         if (!stamps.isEmpty()) {
           timer.start("tokensGM");
           renderTokens(g2d, stamps, view);
@@ -1776,13 +1796,22 @@ private void renderFog(Graphics2D g, PlayerView view) {
       if (timer.isEnabled()) {
         msg = "renderFog-combined(" + (view.isUsingTokenView() ? view.getTokens().size() : 0) + ")";
       }
-      timer.start(msg);
-      Area combined = zoneView.getExposedArea(view);
-      timer.stop(msg);
+      if (AppPreferences.getRasterFog()) {
+        timer.start(msg);
+        ExposureMask combined = zoneView.getExposureMask(view);
+        timer.stop(msg);
+
+        timer.start("renderFogArea");
+        renderFogMask(buffG, combined, visibleArea);
+      } else {
+        timer.start(msg);
+        Area combined = zoneView.getExposedArea(view);
+        timer.stop(msg);
 
-      timer.start("renderFogArea");
-      buffG.fill(combined);
-      renderFogArea(buffG, view, combined, visibleArea);
+        timer.start("renderFogArea");
+        buffG.fill(combined);
+        renderFogArea(buffG, view, combined, visibleArea);
+      }
       renderFogOutline(buffG, view, visibleArea);
       timer.stop("renderFogArea");
 
@@ -1819,6 +1848,30 @@ private void renderFogArea(
     }
   }
 
+  /**
+   * Cuts the exposed area out of the fog and shades it like {@link #renderFogArea}, but by blitting
+   * the tiles of an exposure mask instead of filling an area.
+   */
+  private void renderFogMask(final Graphics2D buffG, ExposureMask softFog, Area visibleArea) {
+    buffG.setComposite(AlphaComposite.DstOut);
+    softFog.paint(buffG);
+    if (zoneView.isUsingVision()) {
+      // The tiles are opaque black, so painting them translucently gives the overlay color.
+      buffG.setComposite(
+          AlphaComposite.getInstance(
+              AlphaComposite.SRC_OVER, AppPreferences.getFogOverlayOpacity() / 255f));
+      softFog.paint(buffG);
+
+      if (visibleArea != null && !visibleArea.isEmpty()) {
+        Shape oldClip = buffG.getClip();
+        buffG.clip(visibleArea);
+        buffG.setComposite(AlphaComposite.DstOut);
+        softFog.paint(buffG);
+        buffG.setClip(oldClip);
+      }
+    }
+  }
+
   private void renderFogOutline(final Graphics2D buffG, PlayerView view, Area visibleArea) {
     // If there is no visible area, there is no outline that needs rendering.
     if (zoneView.isUsingVision() && visibleArea != null && !visibleArea.isEmpty()) {
@@ -1888,7 +1941,7 @@ protected void renderDrawableOverlay(
     // List<DrawnElement> list = new ArrayList<DrawnElement>();
     // list.addAll(drawnElements);
 
-    renderer.renderDrawables(g, drawnElements, viewport, getScale());
+    renderer.renderDrawables(g, drawnElements, viewport, getScale(), renderingToScreen);
   }
 
   protected void renderBoard(Graphics2D g, PlayerView view) {
@@ -1927,15 +1980,30 @@ protected void renderBoard(Graphics2D g, PlayerView view) {
 
       // Map
       if (zone.getMapAssetId() != null) {
-        BufferedImage mapImage = ImageManager.getImage(zone.getMapAssetId(), this);
         double scaleFactor = getScale();
-        bbg.drawImage(
-            mapImage,
-            getViewOffsetX() + (int) (zone.getBoardX() * scaleFactor),
-            getViewOffsetY() + (int) (zone.getBoardY() * scaleFactor),
-            (int) (mapImage.getWidth() * scaleFactor),
-            (int) (mapImage.getHeight() * scaleFactor),
-            null);
+        int mapX = getViewOffsetX() + (int) (zone.getBoardX() * scaleFactor);
+        int mapY = getViewOffsetY() + (int) (zone.getBoardY() * scaleFactor);
+        // Once the tiles are ready the full map image is no longer needed
+        BufferedImage mapImage = null;
+        LargeImage tiles = boardTiles;
+        if (tiles == null || !tiles.isReady() || !zone.getMapAssetId().equals(boardTilesAssetId)) {
+          mapImage = ImageManager.getImage(zone.getMapAssetId(), this);
+          tiles = getBoardTiles(mapImage);
+        }
+        if (tiles != null && tiles.isReady()) {
+          // Let the full map image age out of the image cache
+          ImageManager.unpinImage(zone.getMapAssetId());
+          bbg.setClip(0, 0, size.width, size.height);
+          tiles.draw(bbg, mapX, mapY, scaleFactor);
+        } else {
+          bbg.drawImage(
+              mapImage,
+              mapX,
+              mapY,
+              (int) (mapImage.getWidth() * scaleFactor),
+              (int) (mapImage.getHeight() * scaleFactor),
+              null);
+        }
       }
       bbg.dispose();
       drawBackground = false;
@@ -1947,6 +2015,38 @@ protected void renderBoard(Graphics2D g, PlayerView view) {
     g.drawImage(backbuffer, 0, 0, this);
   }
 
+  /**
+   * Returns the tiles of the map image if it is large enough to be drawn from tiles, creating them
+   * if the map image changed. The tiles are built in the background, the map image is drawn as a
+   * whole until they are ready.
+   *
+   * @param mapImage the map image of the zone.
+   * @return the tiles of the map image, or null if it is drawn as a whole.
+   */
+  private LargeImage getBoardTiles(BufferedImage mapImage) {
+    if (mapImage == ImageManager.TRANSFERING_IMAGE
+        || mapImage == ImageManager.BROKEN_IMAGE
+        || Math.max(mapImage.getWidth(), mapImage.getHeight()) <= BOARD_TILING_THRESHOLD) {
+      return null;
+    }
+    MD5Key assetId = zone.getMapAssetId();
+    if (boardTiles == null || !assetId.equals(boardTilesAssetId)) {
+      File cacheDir = new File(AppUtil.getAppHome("tilecache"), assetId.toString());
+      boardTiles =
+          new LargeImage(
+              mapImage,
+              cacheDir,
+              () ->
+                  SwingUtilities.invokeLater(
+                      () -> {
+                        drawBackground = true;
+                        repaintDebouncer.dispatch();
+                      }));
+      boardTilesAssetId = assetId;
+    }
+    return boardTiles;
+  }
+
   protected void renderGrid(Graphics2D g, PlayerView view) {
     int gridSize = (int) (zone.getGrid().getSize() * getScale());
     if (!AppState.isShowGrid() || gridSize < MIN_GRID_SIZE) {
@@ -2785,6 +2885,27 @@ protected Shape getSquareFacingArrow(int angle, int size) {
     return gp.createTransformedShape(AffineTransform.getScaleInstance(getScale(), getScale()));
   }
 
+  /**
+   * Returns the stamps of a layer that may show in the view, except those that are always visible.
+   * Stamp layers can hold thousands of tokens, so they are culled through the token index of the
+   * zone instead of having their screen location checked one by one.
+   *
+   * @param layer the stamp layer
+   * @return the stamps in z-order
+   */
+  private List<Token> getStampsInView(Zone.Layer layer) {
+    ZonePoint topLeft = ScreenPoint.convertToZone(this, 0, 0);
+    ZonePoint bottomRight = ScreenPoint.convertToZone(this, getSize().width, getSize().height);
+    var viewBounds = new Rectangle(topLeft.x, topLeft.y, 0, 0);
+    viewBounds.add(bottomRight.x, bottomRight.y);
+    int margin = zone.getGrid().getSize();
+    viewBounds.grow(margin, margin);
+
+    List<Token> stamps = new ArrayList<>(zone.getTokensInBounds(layer, viewBounds));
+    stamps.removeIf(Token::isAlwaysVisible);
+    return stamps;
+  }
+
   protected void renderTokens(Graphics2D g, List<Token> tokenList, PlayerView view) {
     renderTokens(g, tokenList, view, false);
   }
@@ -3911,21 +4032,17 @@ public Rectangle getLabelBounds(Label label) {
    * @return the token
    */
   public Token getTokenAt(int x, int y) {
-    List<TokenLocation> locationList =
-        new ArrayList<TokenLocation>(getTokenLocations(getActiveLayer()));
-    Collections.reverse(locationList);
-    for (TokenLocation location : locationList) {
-      if (location.bounds.contains(x, y)) {
-        return location.token;
-      }
-    }
-    return null;
+    return getTopmostTokenAt(getTokenLocations(getActiveLayer()), x, y);
   }
 
   public Token getMarkerAt(int x, int y) {
-    List<TokenLocation> locationList = new ArrayList<TokenLocation>(markerLocationList);
-    Collections.reverse(locationList);
-    for (TokenLocation location : locationList) {
+    return getTopmostTokenAt(markerLocationList, x, y);
+  }
+
+  /** Walks the locations from the last drawn to the first, without copying the list. */
+  private static Token getTopmostTokenAt(List<TokenLocation> locationList, int x, int y) {
+    for (var iter = locationList.listIterator(locationList.size()); iter.hasPrevious(); ) {
+      TokenLocation location = iter.previous();
       if (location.bounds.contains(x, y)) {
         return location.token;
       }
@@ -3952,9 +4069,9 @@ public List<Token> getTokenStackAt(int x, int y) {
    * @return the Label
    */
   public Label getLabelAt(int x, int y) {
-    List<LabelLocation> labelList = new ArrayList<LabelLocation>(labelLocationList);
-    Collections.reverse(labelList);
-    for (LabelLocation location : labelList) {
+    for (var iter = labelLocationList.listIterator(labelLocationList.size());
+        iter.hasPrevious(); ) {
+      LabelLocation location = iter.previous();
       if (location.bounds.contains(x, y)) {
         return location.label;
       }
@@ -4716,19 +4833,21 @@ private void onTopologyChanged(TopologyChanged event) {
       return;
     }
 
+    // The zone view invalidates its own vision caches for the changed region.
     flushFog();
-    flushLight();
+    drawableLights = null;
+    drawableAuras = null;
     MapTool.getFrame().updateTokenTree(); // for any event
     repaintDebouncer.dispatch();
   }
 
-  private void markDrawableLayerDirty(Layer layer) {
-    switch (layer) {
-      case TOKEN -> tokenDrawableRenderer.setDirty();
-      case GM -> gmDrawableRenderer.setDirty();
-      case OBJECT -> objectDrawableRenderer.setDirty();
-      case BACKGROUND -> backgroundDrawableRenderer.setDirty();
-    }
+  private DrawableRenderer getDrawableRenderer(Layer layer) {
+    return switch (layer) {
+      case TOKEN -> tokenDrawableRenderer;
+      case GM -> gmDrawableRenderer;
+      case OBJECT -> objectDrawableRenderer;
+      case BACKGROUND -> backgroundDrawableRenderer;
+    };
   }
 
   @Subscribe
@@ -4736,7 +4855,11 @@ private void onDrawableAdded(DrawableAdded event) {
     if (event.zone() != this.zone) {
       return;
     }
-    markDrawableLayerDirty(event.drawnElement().getDrawable().getLayer());
+    var element = event.drawnElement();
+    var layer = element.getDrawable().getLayer();
+    var drawnElements = zone.getDrawnElements(layer);
+    boolean atBack = !drawnElements.isEmpty() && drawnElements.get(0) == element;
+    getDrawableRenderer(layer).drawableAdded(element, atBack);
     MapTool.getFrame().updateTokenTree(); // for any event
     repaintDebouncer.dispatch();
   }
@@ -4746,7 +4869,19 @@ private void onDrawableRemoved(DrawableRemoved event) {
     if (event.zone() != this.zone) {
       return;
     }
-    markDrawableLayerDirty(event.drawnElement().getDrawable().getLayer());
+    var element = event.drawnElement();
+    getDrawableRenderer(element.getDrawable().getLayer()).drawableRemoved(element);
+    MapTool.getFrame().updateTokenTree(); // for any event
+    repaintDebouncer.dispatch();
+  }
+
+  @Subscribe
+  private void onDrawableChanged(DrawableChanged event) {
+    if (event.zone() != this.zone) {
+      return;
+    }
+    var element = event.drawnElement();
+    getDrawableRenderer(element.getDrawable().getLayer()).drawableChanged(element);
     MapTool.getFrame().updateTokenTree(); // for any event
     repaintDebouncer.dispatch();
   }
@@ -14,17 +14,25 @@
  */
 package net.rptools.maptool.client.ui.zone;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.eventbus.Subscribe;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import net.rptools.lib.GeometryUtil;
+import net.rptools.maptool.client.AppPreferences;
 import net.rptools.maptool.client.AppUtil;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.ui.zone.Illumination.LumensLevel;
@@ -66,6 +74,40 @@ public static ContributedLight forDaylight(Area visibleArea) {
    */
   private record LightInfo(LightSource lightSource, Light light) {}
 
+  /**
+   * The vision blocking topology trees used for visibility calculations.
+   *
+   * <p>The trees are not modified once built, so they can be shared between threads.
+   */
+  private record TopologyTrees(AreaTree wallVbl, AreaTree hillVbl, AreaTree pitVbl) {
+    public Area calculateVisibility(Point origin, Area vision) {
+      return FogUtil.calculateVisibility(origin, vision, wallVbl, hillVbl, pitVbl);
+    }
+  }
+
+  /**
+   * Everything needed to calculate the lit areas of a light source.
+   *
+   * <p>The inputs are gathered from the token and the campaign on the calling thread, after which
+   * the lit areas can be calculated on any thread.
+   *
+   * @param lightSource the light source.
+   * @param origin the center of the light source.
+   * @param lightSourceArea the transformed area of the light source as a whole.
+   * @param lights the lights of the light source that have an area.
+   * @param lightAreas the untransformed areas of {@code lights}.
+   * @param multiplier the sight multiplier applied to the lights.
+   * @param topologyTrees the topology blocking the light.
+   */
+  private record LightSourceInputs(
+      LightSource lightSource,
+      Point origin,
+      Area lightSourceArea,
+      List<Light> lights,
+      List<Area> lightAreas,
+      double multiplier,
+      TopologyTrees topologyTrees) {}
+
   /**
    * Represents the important aspects of a sight for the purposes of calculating illumination.
    *
@@ -74,8 +116,34 @@ private record LightInfo(LightSource lightSource, Light light) {}
    */
   public record IlluminationKey(double multiplier) {}
 
+  /**
+   * Hit and miss counts of the token vision caches.
+   *
+   * @param hits the number of lookups answered from a cache.
+   * @param misses the number of lookups that had to calculate the vision.
+   * @param invalidations the number of cached token results discarded by partial invalidation.
+   */
+  public record VisionCacheStatistics(long hits, long misses, long invalidations) {
+    public double hitRate() {
+      long total = hits + misses;
+      return total == 0 ? 0 : (double) hits / total;
+    }
+  }
+
   private static final Logger log = LogManager.getLogger(ZoneView.class);
 
+  /** The pool on which the visibility of several tokens and lights is calculated. */
+  private static final ForkJoinPool visionPool =
+      new ForkJoinPool(
+          Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+          pool -> {
+            final var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("vision-" + thread.getPoolIndex());
+            return thread;
+          },
+          null,
+          false);
+
   /** The zone of the ZoneView. */
   private final Zone zone;
 
@@ -110,6 +178,19 @@ public record IlluminationKey(double multiplier) {}
    */
   private final Map<GUID, Area> tokenVisibleAreaCache = new HashMap<>();
 
+  /**
+   * Map each token to the envelope of everything cached for it.
+   *
+   * <p>This is the union of the bounds of the token's vision shape and of the shapes of its lights,
+   * before they are clipped by topology. A change of topology or light outside the envelope cannot
+   * affect the cached results of the token.
+   */
+  private final Map<GUID, Rectangle2D> tokenEnvelopes = new HashMap<>();
+
+  private long visionCacheHits;
+  private long visionCacheMisses;
+  private long visionCacheInvalidations;
+
   // endregion
 
   // region These fields cache information that is specific to certain illumination parameters. They
@@ -152,6 +233,9 @@ public record IlluminationKey(double multiplier) {}
   /** Map the PlayerView to its exposed area. */
   private final Map<PlayerView, Area> exposedAreaMap = new HashMap<>();
 
+  /** Map the PlayerView to its rasterized exposed area, see {@link #getExposureMask}. */
+  private final Map<PlayerView, ExposureMask> exposureMaskMap = new HashMap<>();
+
   /** Map the PlayerView to its visible area. */
   private final Map<PlayerView, VisibleAreaMeta> visibleAreaMap = new HashMap<>();
 
@@ -210,6 +294,43 @@ public Area getExposedArea(PlayerView view) {
     return exposed;
   }
 
+  /**
+   * Return the exposed area of the view rasterized at the resolution of {@link
+   * Zone#getExposureMaskResolution()}, cached in exposureMaskMap.
+   *
+   * @param view the PlayerView
+   * @return the exposure mask. It must not be modified.
+   */
+  public ExposureMask getExposureMask(PlayerView view) {
+    ExposureMask exposed = exposureMaskMap.get(view);
+
+    if (exposed == null) {
+      boolean combinedView =
+          !isUsingVision()
+              || MapTool.isPersonalServer()
+              || !MapTool.getServerPolicy().isUseIndividualFOW()
+              || view.isGMView();
+
+      if (view.isUsingTokenView() || combinedView) {
+        exposed = zone.getExposedAreaMask(view);
+      } else {
+        // Same as getExposedArea(): combine the masks of all owned tokens.
+        int resolution = zone.getExposureMaskResolution();
+        exposed = new ExposureMask(resolution);
+        for (Token tok : zone.getTokens()) {
+          if (!AppUtil.playerOwns(tok)) {
+            continue;
+          }
+          ExposedAreaMetaData meta = zone.getExposedAreaMetaData(tok.getExposedAreaGUID());
+          exposed.add(meta.getExposureMask(resolution));
+        }
+      }
+
+      exposureMaskMap.put(view, exposed);
+    }
+    return exposed;
+  }
+
   /**
    * Calculate the visible area of the view, cache it in visibleAreaMap, and return it
    *
@@ -287,6 +408,29 @@ private synchronized AreaTree getTopologyTree(Zone.TopologyType topologyType) {
     return topologyTree;
   }
 
+  private TopologyTrees getTopologyTrees() {
+    return new TopologyTrees(
+        getTopologyTree(Zone.TopologyType.WALL_VBL),
+        getTopologyTree(Zone.TopologyType.HILL_VBL),
+        getTopologyTree(Zone.TopologyType.PIT_VBL));
+  }
+
+  /**
+   * Run independent calculations, in parallel on {@link #visionPool} if there are several of them
+   * and parallel vision is enabled.
+   *
+   * @param tasks the calculations. They must not touch any state of the zone view.
+   * @return the results, in the order of the tasks.
+   */
+  private static <T> List<T> computeAll(List<Supplier<T>> tasks) {
+    if (tasks.size() < 2 || !AppPreferences.getParallelVision()) {
+      return tasks.stream().map(Supplier::get).toList();
+    }
+    final var futures =
+        tasks.stream().map(task -> CompletableFuture.supplyAsync(task, visionPool)).toList();
+    return futures.stream().map(CompletableFuture::join).toList();
+  }
+
   private Illuminator getUpToDateIlluminator(IlluminationKey illuminationKey) {
     final var illuminator = illuminators.computeIfAbsent(illuminationKey, key -> new Illuminator());
     final var contributingTokens =
@@ -305,13 +449,32 @@ private Illuminator getUpToDateIlluminator(IlluminationKey illuminationKey) {
             .filter(Objects::nonNull)
             .collect(Collectors.toUnmodifiableSet());
 
-    // For each light source, extract all normal and darkness lights.
+    // For each light source, extract all normal and darkness lights. The inputs are gathered
+    // first so that the visibility of all the lights can be calculated at once.
+    final var lightSourceTokenIds = new ArrayList<GUID>();
+    final var tasks = new ArrayList<Supplier<List<ContributedLight>>>();
     for (final var lightSourceToken : lightSourceTokens) {
-      final var litAreas = calculateLitAreas(lightSourceToken, illuminationKey.multiplier());
-      for (final var litArea : litAreas) {
+      for (final var attachedLightSource : lightSourceToken.getLightSources()) {
+        LightSource lightSource =
+            MapTool.getCampaign().getLightSource(attachedLightSource.getLightSourceId());
+        if (lightSource == null) {
+          continue;
+        }
+        final var inputs =
+            prepareLitAreas(lightSourceToken, illuminationKey.multiplier(), lightSource);
+        if (inputs != null) {
+          lightSourceTokenIds.add(lightSourceToken.getId());
+          tasks.add(() -> computeLitAreas(inputs));
+        }
+      }
+    }
+
+    final var results = computeAll(tasks);
+    for (int i = 0; i < results.size(); i++) {
+      for (final var litArea : results.get(i)) {
         illuminator.add(litArea.litArea());
         contributingTokens
-            .computeIfAbsent(lightSourceToken.getId(), id -> new ArrayList<>())
+            .computeIfAbsent(lightSourceTokenIds.get(i), id -> new ArrayList<>())
             .add(litArea);
       }
     }
@@ -339,9 +502,26 @@ private List<ContributedLight> calculateLitAreas(Token lightSourceToken, double
 
   private List<ContributedLight> calculateLitAreaForLightSource(
       @Nonnull Token lightSourceToken, double multiplier, @Nonnull LightSource lightSource) {
-    if (lightSource.getType() != LightSource.Type.NORMAL) {
+    final var inputs = prepareLitAreas(lightSourceToken, multiplier, lightSource);
+    if (inputs == null) {
       return Collections.emptyList();
     }
+    return computeLitAreas(inputs);
+  }
+
+  /**
+   * Gather the inputs for the lit areas of a light source attached to a token.
+   *
+   * @param lightSourceToken the token the light source is attached to.
+   * @param multiplier the sight multiplier to apply to the lights.
+   * @param lightSource the light source.
+   * @return the inputs, or {@code null} if the light source is not a normal light.
+   */
+  private @Nullable LightSourceInputs prepareLitAreas(
+      @Nonnull Token lightSourceToken, double multiplier, @Nonnull LightSource lightSource) {
+    if (lightSource.getType() != LightSource.Type.NORMAL) {
+      return null;
+    }
 
     final var p = FogUtil.calculateVisionCenter(lightSourceToken, zone);
     final var translateTransform = AffineTransform.getTranslateInstance(p.x, p.y);
@@ -354,19 +534,45 @@ private List<ContributedLight> calculateLitAreaForLightSource(
       lightSourceArea.transform(magnifyTransform);
     }
     lightSourceArea.transform(translateTransform);
+    addEnvelope(lightSourceToken.getId(), lightSourceArea.getBounds2D());
+
+    final var lights = new ArrayList<Light>();
+    final var lightAreas = new ArrayList<Area>();
+    for (final var light : lightSource.getLightList()) {
+      final var notScaledLightArea =
+          light.getArea(lightSourceToken, zone, lightSource.isScaleWithToken());
+      if (notScaledLightArea == null) {
+        continue;
+      }
+      lights.add(light);
+      lightAreas.add(notScaledLightArea);
+    }
+
+    return new LightSourceInputs(
+        lightSource, p, lightSourceArea, lights, lightAreas, multiplier, getTopologyTrees());
+  }
+
+  /**
+   * Calculate the lit areas of a light source. This only depends on its inputs, so it can be called
+   * on any thread.
+   *
+   * @param inputs the inputs gathered by {@link #prepareLitAreas(Token, double, LightSource)}.
+   * @return the lit areas of each light of the light source.
+   */
+  private static List<ContributedLight> computeLitAreas(LightSourceInputs inputs) {
+    final var p = inputs.origin();
+    final var translateTransform = AffineTransform.getTranslateInstance(p.x, p.y);
+    final var magnifyTransform =
+        AffineTransform.getScaleInstance(inputs.multiplier(), inputs.multiplier());
 
     final var lightSourceVisibleArea =
-        FogUtil.calculateVisibility(
-            p,
-            lightSourceArea,
-            getTopologyTree(Zone.TopologyType.WALL_VBL),
-            getTopologyTree(Zone.TopologyType.HILL_VBL),
-            getTopologyTree(Zone.TopologyType.PIT_VBL));
+        inputs.topologyTrees().calculateVisibility(p, inputs.lightSourceArea());
     if (lightSourceVisibleArea == null) {
       // Nothing illuminated for this source.
       return Collections.emptyList();
     }
 
+    final var lightSource = inputs.lightSource();
     final var litAreas = new ArrayList<ContributedLight>();
     var lumens = lightSource.getLumens();
     if (lumens == 0) {
@@ -376,16 +582,13 @@ private List<ContributedLight> calculateLitAreaForLightSource(
     // Tracks the cummulative inner ranges of light sources so that we can cut them out of the
     // outer ranges and end up with disjoint sets, even when magnifying.
     final var cummulativeNotTransformedArea = new Area();
-    for (final var light : lightSource.getLightList()) {
-      final var notScaledLightArea =
-          light.getArea(lightSourceToken, zone, lightSource.isScaleWithToken());
-      if (notScaledLightArea == null) {
-        continue;
-      }
+    for (int i = 0; i < inputs.lights().size(); i++) {
+      final var light = inputs.lights().get(i);
+      final var notScaledLightArea = inputs.lightAreas().get(i);
       final var lightArea = new Area(notScaledLightArea);
       lightArea.subtract(cummulativeNotTransformedArea);
 
-      if (lightSource.getType() == LightSource.Type.NORMAL && multiplier != 1) {
+      if (lightSource.getType() == LightSource.Type.NORMAL && inputs.multiplier() != 1) {
         lightArea.transform(magnifyTransform);
       }
       lightArea.transform(translateTransform);
@@ -516,13 +719,17 @@ private Illumination getIllumination(PlayerView view) {
       final var illuminationKey = illuminationKeyFromView(view);
       final var baseIllumination = getIllumination(illuminationKey);
 
+      final var tokens = getTokensForView(view).toList();
+      calculateTokenVisibleAreas(
+          tokens.stream()
+              .filter(token -> !contributedPersonalLightsByToken.containsKey(token.getId()))
+              .toList());
+
       final var extraLights = new ArrayList<ContributedLight>();
-      getTokensForView(view)
-          .forEach(
-              token -> {
-                final var personalLights = getPersonalTokenContributions(token);
-                extraLights.addAll(personalLights);
-              });
+      for (final var token : tokens) {
+        final var personalLights = getPersonalTokenContributions(token);
+        extraLights.addAll(personalLights);
+      }
 
       // Now fold the extra lights into the lumens levels.
       final var lumensLevels =
@@ -535,6 +742,9 @@ private Illumination getIllumination(PlayerView view) {
                               new Area(ll.lightArea()),
                               new Area(ll.darknessArea())))
                   .toList());
+      // Group the extra areas by the area of the level they are added to, so that each group can
+      // be unioned as a cascade rather than one area at a time.
+      final var extraAreas = new IdentityHashMap<Area, List<Area>>();
       for (final var extraLitArea : extraLights) {
         final var isDarkness = extraLitArea.litArea().lumens() < 0;
         final var lumensStrength = Math.abs(extraLitArea.litArea().lumens());
@@ -552,7 +762,20 @@ private Illumination getIllumination(PlayerView view) {
           level = new LumensLevel(lumensStrength, new Area(), new Area());
           lumensLevels.add(insertionPoint, level);
         }
-        (isDarkness ? level.darknessArea() : level.lightArea()).add(area);
+        extraAreas
+            .computeIfAbsent(
+                isDarkness ? level.darknessArea() : level.lightArea(), a -> new ArrayList<>())
+            .add(area);
+      }
+
+      final var targets = new ArrayList<>(extraAreas.keySet());
+      final var unions =
+          computeAll(
+              targets.stream()
+                  .map(target -> (Supplier<Area>) () -> GeometryUtil.union(extraAreas.get(target)))
+                  .toList());
+      for (int i = 0; i < targets.size(); i++) {
+        targets.get(i).add(unions.get(i));
       }
 
       illumination = new Illumination(lumensLevels);
@@ -597,23 +820,53 @@ private Area getTokenVisibleArea(@Nonnull Token token) {
 
     if (tokenVisibleArea == null) {
       // Not cached yet.
+      calculateTokenVisibleAreas(Collections.singletonList(token));
+      tokenVisibleArea = tokenVisibleAreaCache.get(token.getId());
+    } else {
+      visionCacheHits++;
+    }
+
+    // TODO Instead of a defensive copy, we could include a very stern warning to not modify.
+    return new Area(tokenVisibleArea);
+  }
+
+  /**
+   * Calculate the area visible to each token that is not in {@link #tokenVisibleAreaCache} yet and
+   * cache it. The visibility of the tokens is calculated in parallel.
+   *
+   * @param tokens the tokens.
+   */
+  private void calculateTokenVisibleAreas(List<Token> tokens) {
+    final var tokenIds = new ArrayList<GUID>();
+    final var tasks = new ArrayList<Supplier<Area>>();
+    for (final var token : tokens) {
+      if (!token.getHasSight() || tokenVisibleAreaCache.containsKey(token.getId())) {
+        continue;
+      }
+      SightType sight = MapTool.getCampaign().getSightType(token.getSightType());
+      if (sight == null) {
+        continue;
+      }
+
       Point p = FogUtil.calculateVisionCenter(token, zone);
       Area visibleArea = sight.getVisionShape(token, zone);
       visibleArea.transform(AffineTransform.getTranslateInstance(p.x, p.y));
-      tokenVisibleArea =
-          FogUtil.calculateVisibility(
-              p,
-              visibleArea,
-              getTopologyTree(Zone.TopologyType.WALL_VBL),
-              getTopologyTree(Zone.TopologyType.HILL_VBL),
-              getTopologyTree(Zone.TopologyType.PIT_VBL));
+      addEnvelope(token.getId(), visibleArea.getBounds2D());
+
+      final var topologyTrees = getTopologyTrees();
+      tokenIds.add(token.getId());
       // Can be null if no visibility.
-      tokenVisibleArea = Objects.requireNonNullElse(tokenVisibleArea, new Area());
-      tokenVisibleAreaCache.put(token.getId(), tokenVisibleArea);
+      tasks.add(
+          () ->
+              Objects.requireNonNullElse(
+                  topologyTrees.calculateVisibility(p, visibleArea), new Area()));
     }
 
-    // TODO Instead of a defensive copy, we could include a very stern warning to not modify.
-    return new Area(tokenVisibleArea);
+    final var results = computeAll(tasks);
+    for (int i = 0; i < results.size(); i++) {
+      tokenVisibleAreaCache.put(tokenIds.get(i), results.get(i));
+    }
+    visionCacheMisses += results.size();
   }
 
   /**
@@ -633,8 +886,10 @@ public Area getVisibleArea(Token token, PlayerView view) {
         tokenVisionCachePerView.computeIfAbsent(view, v -> new HashMap<>());
     Area tokenVisibleArea = tokenVisionCache.get(token.getId());
     if (tokenVisibleArea != null) {
+      visionCacheHits++;
       return tokenVisibleArea;
     }
+    visionCacheMisses++;
 
     // Not cached, so need to calculate the area.
     tokenVisibleArea = getTokenVisibleArea(token);
@@ -812,17 +1067,169 @@ public void flush() {
     contributedLightsByToken.clear();
     contributedPersonalLightsByToken.clear();
     tokenVisibleAreaCache.clear();
+    tokenEnvelopes.clear();
     illuminators.clear();
 
     tokenVisionCachePerView.clear();
     illuminationsPerView.clear();
     exposedAreaMap.clear();
+    exposureMaskMap.clear();
     visibleAreaMap.clear();
     illuminationCache.clear();
   }
 
   public void flushFog() {
     exposedAreaMap.clear();
+    exposureMaskMap.clear();
+  }
+
+  /**
+   * Get the hit and miss counts of the token vision caches since the zone view was created.
+   *
+   * @return the cache statistics.
+   */
+  public VisionCacheStatistics getVisionCacheStatistics() {
+    return new VisionCacheStatistics(visionCacheHits, visionCacheMisses, visionCacheInvalidations);
+  }
+
+  /**
+   * Grow the envelope of a token by the bounds of a shape its cached results were calculated from.
+   *
+   * @param tokenId the id of the token.
+   * @param bounds the bounds of the shape.
+   */
+  @VisibleForTesting
+  void addEnvelope(GUID tokenId, Rectangle2D bounds) {
+    tokenEnvelopes.merge(
+        tokenId,
+        bounds,
+        (envelope, added) -> {
+          envelope.add(added);
+          return envelope;
+        });
+  }
+
+  /**
+   * Get the area the lights of a token can reach from its current position, without considering
+   * topology. Light shapes are magnified by the largest sight multiplier of the campaign.
+   *
+   * @param token the token.
+   * @return the envelope of the lights, or {@code null} if the token has none.
+   */
+  @VisibleForTesting
+  Rectangle2D getLightEnvelope(Token token) {
+    final var campaign = MapTool.getCampaign();
+    final var multiplier =
+        Math.max(
+            1.0,
+            campaign.getSightTypeMap().values().stream()
+                .mapToDouble(SightType::getMultiplier)
+                .max()
+                .orElse(1.0));
+    final var p = FogUtil.calculateVisionCenter(token, zone);
+
+    Rectangle2D envelope = null;
+    for (AttachedLightSource als : token.getLightSources()) {
+      LightSource lightSource = campaign.getLightSource(als.getLightSourceId());
+      if (lightSource == null) {
+        continue;
+      }
+      final var bounds = lightSource.getArea(token, zone).getBounds2D();
+      final var magnified =
+          new Rectangle2D.Double(
+              p.x + bounds.getX() * multiplier,
+              p.y + bounds.getY() * multiplier,
+              bounds.getWidth() * multiplier,
+              bounds.getHeight() * multiplier);
+      if (envelope == null) {
+        envelope = magnified;
+      } else {
+        envelope.add(magnified);
+      }
+    }
+    return envelope;
+  }
+
+  /**
+   * Remove the normal lights contributed by a token from the illuminators.
+   *
+   * @param tokenId the id of the token.
+   */
+  private void removeContributedLights(GUID tokenId) {
+    for (final var entry : contributedLightsByToken.entrySet()) {
+      final var illuminator = illuminators.get(entry.getKey());
+      if (illuminator == null) {
+        continue;
+      }
+      for (final var litArea : entry.getValue().getOrDefault(tokenId, Collections.emptyList())) {
+        illuminator.remove(litArea.litArea());
+      }
+      entry.getValue().remove(tokenId);
+    }
+  }
+
+  /**
+   * Remove the per-view vision of the tokens whose envelope intersects the region. Tokens without a
+   * known envelope are removed as well.
+   *
+   * @param region the region where the illumination changed.
+   */
+  private void invalidateTokenVision(Rectangle2D region) {
+    for (final var cache : tokenVisionCachePerView.values()) {
+      cache
+          .keySet()
+          .removeIf(
+              id -> {
+                final var envelope = tokenEnvelopes.get(id);
+                return envelope == null || envelope.intersects(region);
+              });
+    }
+  }
+
+  /**
+   * Discard only the cached vision and lights that can be affected by a change within a region.
+   *
+   * <p>The cached results of a token are discarded if its envelope intersects the region. Since the
+   * lights of those tokens are recalculated, the per-view vision of every token whose envelope
+   * intersects one of theirs is discarded as well.
+   *
+   * @param region the changed region.
+   */
+  private void invalidate(Rectangle2D region) {
+    final var dirty = new Rectangle2D.Double();
+    dirty.setRect(region);
+
+    final var affected = new ArrayList<GUID>();
+    for (final var entry : tokenEnvelopes.entrySet()) {
+      if (entry.getValue().intersects(region)) {
+        affected.add(entry.getKey());
+        dirty.add(entry.getValue());
+      }
+    }
+    if (affected.isEmpty()) {
+      return;
+    }
+
+    for (final var tokenId : affected) {
+      tokenVisibleAreaCache.remove(tokenId);
+      contributedPersonalLightsByToken.remove(tokenId);
+      removeContributedLights(tokenId);
+    }
+    invalidateTokenVision(dirty);
+    tokenEnvelopes.keySet().removeAll(affected);
+    visionCacheInvalidations += affected.size();
+
+    illuminationsPerView.clear();
+    exposedAreaMap.clear();
+    exposureMaskMap.clear();
+    visibleAreaMap.clear();
+    illuminationCache.clear();
+
+    log.debug(
+        "Invalidated vision of {} tokens in {}, cache statistics {}",
+        affected.size(),
+        region,
+        getVisionCacheStatistics());
   }
 
   /**
@@ -838,28 +1245,30 @@ public void flush(Token token) {
       cache.remove(token.getId());
     }
     tokenVisibleAreaCache.remove(token.getId());
+    final var oldEnvelope = tokenEnvelopes.remove(token.getId());
 
     // TODO Split logic for light and sight, since the sight portion is entirely duplicated.
     var hadLightSource =
         contributedLightsByToken.values().stream().anyMatch(map -> map.containsKey(token.getId()));
     if (hadLightSource || token.hasLightSources()) {
-      // Have to recalculate all token vision
+      // Have to recalculate the vision of tokens that can see where the light was or now is.
       contributedPersonalLightsByToken.remove(token.getId());
-      for (final var entry : contributedLightsByToken.entrySet()) {
-        final var illuminator = illuminators.get(entry.getKey());
-        if (illuminator == null) {
-          continue;
-        }
-        for (final var litArea :
-            entry.getValue().getOrDefault(token.getId(), Collections.emptyList())) {
-          illuminator.remove(litArea.litArea());
+      removeContributedLights(token.getId());
+
+      final var newEnvelope = getLightEnvelope(token);
+      if (hadLightSource && oldEnvelope == null) {
+        tokenVisionCachePerView.clear();
+      } else if (oldEnvelope != null || newEnvelope != null) {
+        final var dirty = new Rectangle2D.Double();
+        dirty.setRect(oldEnvelope != null ? oldEnvelope : newEnvelope);
+        if (newEnvelope != null) {
+          dirty.add(newEnvelope);
         }
-        entry.getValue().remove(token.getId());
+        invalidateTokenVision(dirty);
       }
-
-      tokenVisionCachePerView.clear();
       illuminationsPerView.clear();
       exposedAreaMap.clear();
+      exposureMaskMap.clear();
       visibleAreaMap.clear();
       illuminationCache.clear();
     } else if (token.getHasSight()) {
@@ -867,6 +1276,7 @@ public void flush(Token token) {
       // TODO Could we instead only clear those views that include the token?
       illuminationsPerView.clear();
       exposedAreaMap.clear();
+      exposureMaskMap.clear();
       visibleAreaMap.clear();
       illuminationCache.clear();
     }
@@ -896,7 +1306,11 @@ private void onTopologyChanged(TopologyChanged event) {
       return;
     }
 
-    flush();
+    if (event.bounds() == null) {
+      flush();
+    } else {
+      invalidate(event.bounds());
+    }
     topologyAreas.clear();
     topologyTrees.clear();
   }
@@ -1017,6 +1431,7 @@ private boolean processTokenAddChangeEvent(List<Token> tokens) {
 
     if (hasSight) {
       exposedAreaMap.clear();
+      exposureMaskMap.clear();
       visibleAreaMap.clear();
       // Not sure, let's do it for now.
       illuminationCache.clear();
@@ -14,8 +14,22 @@
  */
 package net.rptools.maptool.common;
 
+import net.rptools.clientserver.simple.MessagePriority;
+import net.rptools.clientserver.simple.PrioritizedChannel;
+
 public class MapToolConstants {
-  public enum Channel {
-    IMAGE
+  public enum Channel implements PrioritizedChannel {
+    IMAGE(MessagePriority.ASSET);
+
+    private final MessagePriority priority;
+
+    Channel(MessagePriority priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public MessagePriority getPriority() {
+      return priority;
+    }
   }
 }
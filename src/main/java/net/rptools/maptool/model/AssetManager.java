@@ -28,6 +28,7 @@
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -397,6 +398,32 @@ public static void removeAsset(MD5Key id) {
     }
   }
 
+  /**
+   * Returns the ids of the most recently used assets in the persistent cache.
+   *
+   * @param maxCount the maximum number of ids to return.
+   * @return the ids of the cached assets, empty if the persistent cache is not used.
+   */
+  public static Set<MD5Key> getCachedAssetIds(int maxCount) {
+    Set<MD5Key> idSet = new HashSet<>();
+    File[] files = usePersistentCache ? cacheDir.listFiles() : null;
+    if (files == null) {
+      return idSet;
+    }
+    List<File> assetFiles = new ArrayList<>();
+    for (File file : files) {
+      String name = file.getName();
+      if (name.length() == 32 && name.indexOf('.') < 0 && file.length() > 0) {
+        assetFiles.add(file);
+      }
+    }
+    assetFiles.sort(Comparator.comparingLong(File::lastModified).reversed());
+    for (File file : assetFiles.subList(0, Math.min(maxCount, assetFiles.size()))) {
+      idSet.add(new MD5Key(file.getName()));
+    }
+    return idSet;
+  }
+
   /**
    * Enable the use of the persistent asset cache.
    *
@@ -479,6 +506,8 @@ private static Asset getFromPersistentCache(MD5Key id) {
         assetFile.delete();
         return null;
       }
+      // Mark it as recently used, see getCachedAssetIds()
+      assetFile.setLastModified(System.currentTimeMillis());
 
       synchronized (assetMap) {
         var oldAsset = assetMap.get(id);
@@ -629,11 +629,24 @@ public void deleteGmMacroButton(MacroButtonProperties properties) {
    * @return a set of MD5 keys
    */
   public Set<MD5Key> getAllAssetIds() {
+    return getAllAssetIds(true);
+  }
+
+  /**
+   * Returns the keys of the assets used by the campaign, optionally leaving out those only used by
+   * Zones that are hidden from players.
+   *
+   * @param includeHiddenZones whether to include the assets of hidden Zones.
+   * @return a set of MD5 keys
+   */
+  public Set<MD5Key> getAllAssetIds(boolean includeHiddenZones) {
 
     // Maps (tokens are implicit)
     Set<MD5Key> assetSet = new HashSet<MD5Key>();
     for (Zone zone : getZones()) {
-      assetSet.addAll(zone.getAllAssetIds());
+      if (includeHiddenZones || zone.isVisible()) {
+        assetSet.addAll(zone.getAllAssetIds());
+      }
     }
 
     // States
@@ -755,6 +768,22 @@ public static Campaign fromDto(CampaignDto dto) {
   }
 
   public CampaignDto toDto() {
+    return toDtoBuilder()
+        .addAllZones(zones.values().stream().map(Zone::toDto).collect(Collectors.toList()))
+        .build();
+  }
+
+  /**
+   * Converts the campaign without its zones, for callers that convert the zones one at a time to
+   * limit the memory needed.
+   *
+   * @return the campaign without zones.
+   */
+  public CampaignDto toDtoWithoutZones() {
+    return toDtoBuilder().build();
+  }
+
+  private CampaignDto.Builder toDtoBuilder() {
     var dto = CampaignDto.newBuilder();
     dto.setId(id.toString());
     dto.setName(name);
@@ -772,7 +801,6 @@ public CampaignDto toDto() {
         macroButtonProperties.stream()
             .map(MacroButtonProperties::toDto)
             .collect(Collectors.toList()));
-    dto.addAllZones(zones.values().stream().map(Zone::toDto).collect(Collectors.toList()));
     // gmMacroButtonProperties is null if you are loading an old campaign file < 1.5.6
     if (gmMacroButtonProperties != null) {
       dto.addAllGmMacroButtonProperties(
@@ -780,6 +808,6 @@ public CampaignDto toDto() {
               .map(MacroButtonProperties::toDto)
               .collect(Collectors.toList()));
     }
-    return dto.build();
+    return dto;
   }
 }
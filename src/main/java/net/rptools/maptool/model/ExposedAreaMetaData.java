@@ -15,12 +15,34 @@
 package net.rptools.maptool.model;
 
 import java.awt.geom.Area;
+import net.rptools.lib.GeometryUtil;
 
-/** Stores the exposed area of a token. */
+/**
+ * Stores the exposed area of a token.
+ *
+ * <p>The history only grows while a token moves around, so once it holds more than {@link
+ * #MAX_SEGMENTS} segments it is simplified, moving its outline by at most {@link
+ * #SIMPLIFY_TOLERANCE} map units.
+ */
 public class ExposedAreaMetaData {
+  /** Number of segments above which the history is simplified. */
+  public static final int MAX_SEGMENTS = 2000;
+
+  /** Largest distance, in map units, that simplifying may move the outline of the history. */
+  public static final double SIMPLIFY_TOLERANCE = 1.0;
+
   /** Area exposed so far. */
   private Area exposedAreaHistory;
 
+  /**
+   * Segment count that triggers the next simplification. Raised when simplifying could not get
+   * below {@link #MAX_SEGMENTS}, so that complex histories are not simplified on every add.
+   */
+  private transient int compactThreshold;
+
+  /** Rasterized copy of the history, created on demand and kept up to date afterwards. */
+  private transient ExposureMask exposureMask;
+
   public ExposedAreaMetaData() {
     exposedAreaHistory = new Area();
   }
@@ -39,16 +61,54 @@ public Area getExposedAreaHistory() {
   public void addToExposedAreaHistory(Area newArea) {
     if (newArea != null && !newArea.isEmpty()) {
       exposedAreaHistory.add(newArea);
+      if (exposureMask != null) {
+        exposureMask.add(newArea);
+      }
+      if (GeometryUtil.countSegments(exposedAreaHistory) > getCompactThreshold()) {
+        compact();
+      }
+    }
+  }
+
+  /**
+   * Simplify the history so that it stays within {@link #MAX_SEGMENTS} segments where possible.
+   */
+  public void compact() {
+    exposedAreaHistory = GeometryUtil.simplify(exposedAreaHistory, SIMPLIFY_TOLERANCE);
+    compactThreshold = Math.max(MAX_SEGMENTS, 2 * GeometryUtil.countSegments(exposedAreaHistory));
+  }
+
+  /**
+   * Returns the history rasterized at the given resolution. The mask is built from the history the
+   * first time and then updated along with it.
+   *
+   * @param resolution the side of the square covered by one bit, in map units.
+   * @return the mask of the history. It must not be modified.
+   */
+  public ExposureMask getExposureMask(int resolution) {
+    if (exposureMask == null || exposureMask.getResolution() != resolution) {
+      exposureMask = ExposureMask.fromArea(exposedAreaHistory, resolution);
     }
+    return exposureMask;
+  }
+
+  private int getCompactThreshold() {
+    return Math.max(MAX_SEGMENTS, compactThreshold);
   }
 
   public void removeExposedAreaHistory(Area newArea) {
     if (newArea != null && !newArea.isEmpty()) {
       exposedAreaHistory.subtract(newArea);
+      if (exposureMask != null) {
+        exposureMask.subtract(newArea);
+      }
     }
   }
 
   public void clearExposedAreaHistory() {
     exposedAreaHistory = new Area();
+    if (exposureMask != null) {
+      exposureMask.clear();
+    }
   }
 }
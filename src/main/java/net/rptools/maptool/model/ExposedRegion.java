@@ -0,0 +1,67 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * The part of a map where fog has been cleared away, as queried by {@link Grid} when validating
+ * token movement. Implemented by {@link ExposureMask} and, through {@link #of(Area)}, by exposed
+ * areas.
+ */
+public interface ExposedRegion {
+  boolean contains(double x, double y);
+
+  boolean contains(Rectangle2D rectangle);
+
+  boolean intersects(Rectangle2D rectangle);
+
+  boolean contains(Shape shape);
+
+  /**
+   * Wraps an exposed area.
+   *
+   * @param area the area in which fog has been cleared away. It is not copied.
+   * @return a region backed by the area.
+   */
+  static ExposedRegion of(Area area) {
+    return new ExposedRegion() {
+      @Override
+      public boolean contains(double x, double y) {
+        return area.contains(x, y);
+      }
+
+      @Override
+      public boolean contains(Rectangle2D rectangle) {
+        return area.contains(rectangle);
+      }
+
+      @Override
+      public boolean intersects(Rectangle2D rectangle) {
+        return area.intersects(rectangle);
+      }
+
+      @Override
+      public boolean contains(Shape shape) {
+        Area shapeArea = new Area(shape);
+        Area covered = new Area(shapeArea);
+        covered.intersect(area);
+        return covered.equals(shapeArea);
+      }
+    };
+  }
+}
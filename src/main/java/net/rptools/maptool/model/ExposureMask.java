@@ -0,0 +1,395 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A rasterized exposed area, stored as a sparse set of square tiles of bits.
+ *
+ * <p>Each bit covers a {@code resolution} by {@code resolution} square of the map and is set when
+ * the center of that square is exposed. Testing a rectangle only probes the bits it covers, so the
+ * cost does not grow with the complexity of the exposed area the way {@link Area#contains} does.
+ */
+public class ExposureMask implements ExposedRegion {
+  /** Number of bits along each side of a tile. Each row of a tile is stored as one long. */
+  private static final int TILE_SIZE = 64;
+
+  /** Color model of the painted tiles: transparent where unexposed and opaque where exposed. */
+  private static final IndexColorModel TILE_COLOR_MODEL =
+      new IndexColorModel(
+          1, 2, new byte[] {0, 0}, new byte[] {0, 0}, new byte[] {0, 0}, new byte[] {0, -1});
+
+  /** Side of the square of the map covered by one bit, in map units. */
+  private final int resolution;
+
+  /** The tiles holding at least one set bit, keyed by {@link #getKey(int, int)}. */
+  private final Map<Long, long[]> tiles = new HashMap<>();
+
+  /** Images of the tiles for {@link #paint(Graphics2D)}, dropped when a tile changes. */
+  private final Map<Long, BufferedImage> tileImages = new HashMap<>();
+
+  /**
+   * Creates an empty mask.
+   *
+   * @param resolution the side of the square covered by one bit, in map units.
+   */
+  public ExposureMask(int resolution) {
+    if (resolution < 1) {
+      throw new IllegalArgumentException("Resolution must be positive: " + resolution);
+    }
+    this.resolution = resolution;
+  }
+
+  /**
+   * Creates a copy of another mask.
+   *
+   * @param other the mask to copy.
+   */
+  public ExposureMask(ExposureMask other) {
+    this(other.resolution);
+    other.tiles.forEach((key, tile) -> tiles.put(key, tile.clone()));
+  }
+
+  /**
+   * Rasterizes an area.
+   *
+   * @param area the area to rasterize.
+   * @param resolution the side of the square covered by one bit, in map units.
+   * @return a new mask with the bits inside {@code area} set.
+   */
+  public static ExposureMask fromArea(Area area, int resolution) {
+    var mask = new ExposureMask(resolution);
+    mask.add(area);
+    return mask;
+  }
+
+  public int getResolution() {
+    return resolution;
+  }
+
+  public boolean isEmpty() {
+    return tiles.isEmpty();
+  }
+
+  /**
+   * Sets the bits whose squares have their center inside the shape.
+   *
+   * @param shape the shape to expose.
+   */
+  public void add(Shape shape) {
+    rasterize(
+        shape,
+        (key, rows) -> {
+          long[] tile = tiles.computeIfAbsent(key, k -> new long[TILE_SIZE]);
+          for (int row = 0; row < TILE_SIZE; ++row) {
+            tile[row] |= rows[row];
+          }
+          tileImages.remove(key);
+          return true;
+        });
+  }
+
+  /**
+   * Clears the bits whose squares have their center inside the shape.
+   *
+   * @param shape the shape to hide.
+   */
+  public void subtract(Shape shape) {
+    rasterize(
+        shape,
+        (key, rows) -> {
+          long[] tile = tiles.get(key);
+          if (tile != null) {
+            boolean empty = true;
+            for (int row = 0; row < TILE_SIZE; ++row) {
+              tile[row] &= ~rows[row];
+              empty &= tile[row] == 0;
+            }
+            if (empty) {
+              tiles.remove(key);
+            }
+            tileImages.remove(key);
+          }
+          return true;
+        });
+  }
+
+  /**
+   * Sets every bit that is set in another mask.
+   *
+   * @param other the mask to add. It must have the same resolution.
+   */
+  public void add(ExposureMask other) {
+    if (other.resolution != resolution) {
+      throw new IllegalArgumentException(
+          "Resolution " + other.resolution + " does not match " + resolution);
+    }
+    other.tiles.forEach(
+        (key, otherTile) -> {
+          long[] tile = tiles.computeIfAbsent(key, k -> new long[TILE_SIZE]);
+          for (int row = 0; row < TILE_SIZE; ++row) {
+            tile[row] |= otherTile[row];
+          }
+          tileImages.remove(key);
+        });
+  }
+
+  public void clear() {
+    tiles.clear();
+    tileImages.clear();
+  }
+
+  /**
+   * Checks whether the square containing a point is exposed.
+   *
+   * @param x the x coordinate of the point, in map units.
+   * @param y the y coordinate of the point, in map units.
+   * @return true if the bit covering the point is set.
+   */
+  @Override
+  public boolean contains(double x, double y) {
+    int bitX = Math.floorDiv((int) Math.floor(x), resolution);
+    int bitY = Math.floorDiv((int) Math.floor(y), resolution);
+    long[] tile = tiles.get(getKey(Math.floorDiv(bitX, TILE_SIZE), Math.floorDiv(bitY, TILE_SIZE)));
+    return tile != null
+        && (tile[Math.floorMod(bitY, TILE_SIZE)] & (1L << Math.floorMod(bitX, TILE_SIZE))) != 0;
+  }
+
+  /**
+   * Checks whether every square overlapped by a rectangle is exposed.
+   *
+   * @param rectangle the rectangle, in map units.
+   * @return true if all bits the rectangle overlaps are set, false if any is clear or the rectangle
+   *     is empty.
+   */
+  @Override
+  public boolean contains(Rectangle2D rectangle) {
+    return probe(rectangle, true);
+  }
+
+  /**
+   * Checks whether any square overlapped by a rectangle is exposed.
+   *
+   * @param rectangle the rectangle, in map units.
+   * @return true if any bit the rectangle overlaps is set.
+   */
+  @Override
+  public boolean intersects(Rectangle2D rectangle) {
+    return probe(rectangle, false);
+  }
+
+  /**
+   * Checks whether a shape lies within the exposed squares.
+   *
+   * @param shape the shape, in map units.
+   * @return true if every bit that the shape would set is already set.
+   */
+  @Override
+  public boolean contains(Shape shape) {
+    return rasterize(
+        shape,
+        (key, rows) -> {
+          long[] tile = tiles.get(key);
+          for (int row = 0; row < TILE_SIZE; ++row) {
+            long present = tile == null ? 0 : tile[row];
+            if ((present & rows[row]) != rows[row]) {
+              return false;
+            }
+          }
+          return true;
+        });
+  }
+
+  /**
+   * Converts the mask back to an area made of the exposed squares.
+   *
+   * @return a new area covering every set bit.
+   */
+  public Area toArea() {
+    var path = new Path2D.Double();
+    tiles.forEach(
+        (key, tile) -> {
+          long originX = (long) getTileX(key) * TILE_SIZE;
+          long originY = (long) getTileY(key) * TILE_SIZE;
+          for (int row = 0; row < TILE_SIZE; ++row) {
+            long bits = tile[row];
+            while (bits != 0) {
+              int start = Long.numberOfTrailingZeros(bits);
+              int length = Long.numberOfTrailingZeros(~(bits >>> start));
+              path.append(
+                  new Rectangle2D.Double(
+                      (originX + start) * resolution,
+                      (originY + row) * resolution,
+                      (double) length * resolution,
+                      resolution),
+                  false);
+              bits &= length == TILE_SIZE ? 0 : ~(((1L << length) - 1) << start);
+            }
+          }
+        });
+    return new Area(path);
+  }
+
+  /**
+   * Paints the exposed squares as an opaque alpha mask, one image per tile. The graphics must be
+   * transformed to map units. Combine with a composite such as {@link
+   * java.awt.AlphaComposite#DST_OUT} to cut the exposed area out of a fog layer.
+   *
+   * @param g the graphics to paint on.
+   */
+  public void paint(Graphics2D g) {
+    int tileSpan = TILE_SIZE * resolution;
+    Rectangle clip = g.getClipBounds();
+    tiles.forEach(
+        (key, tile) -> {
+          int x = getTileX(key) * tileSpan;
+          int y = getTileY(key) * tileSpan;
+          if (clip != null && !clip.intersects(x, y, tileSpan, tileSpan)) {
+            return;
+          }
+          BufferedImage image = tileImages.computeIfAbsent(key, k -> createTileImage(tile));
+          g.drawImage(image, x, y, tileSpan, tileSpan, null);
+        });
+  }
+
+  private static BufferedImage createTileImage(long[] tile) {
+    var image =
+        new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_BYTE_BINARY, TILE_COLOR_MODEL);
+    byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    for (int row = 0; row < TILE_SIZE; ++row) {
+      long bits = Long.reverse(tile[row]);
+      for (int i = 7; i >= 0; --i) {
+        data[row * 8 + i] = (byte) bits;
+        bits >>>= 8;
+      }
+    }
+    return image;
+  }
+
+  private boolean probe(Rectangle2D rectangle, boolean all) {
+    if (rectangle.isEmpty()) {
+      return false;
+    }
+    int minBitX = Math.floorDiv((int) Math.floor(rectangle.getMinX()), resolution);
+    int minBitY = Math.floorDiv((int) Math.floor(rectangle.getMinY()), resolution);
+    int maxBitX = Math.floorDiv((int) Math.ceil(rectangle.getMaxX()) - 1, resolution);
+    int maxBitY = Math.floorDiv((int) Math.ceil(rectangle.getMaxY()) - 1, resolution);
+
+    for (int bitY = minBitY; bitY <= maxBitY; ++bitY) {
+      int tileY = Math.floorDiv(bitY, TILE_SIZE);
+      int row = Math.floorMod(bitY, TILE_SIZE);
+      for (int tileX = Math.floorDiv(minBitX, TILE_SIZE);
+          tileX <= Math.floorDiv(maxBitX, TILE_SIZE);
+          ++tileX) {
+        int from = Math.max(minBitX - tileX * TILE_SIZE, 0);
+        int to = Math.min(maxBitX - tileX * TILE_SIZE, TILE_SIZE - 1);
+        long wanted = (to == TILE_SIZE - 1 ? -1L : (1L << (to + 1)) - 1) & (-1L << from);
+        long[] tile = tiles.get(getKey(tileX, tileY));
+        long present = tile == null ? 0 : tile[row] & wanted;
+        if (all && present != wanted) {
+          return false;
+        }
+        if (!all && present != 0) {
+          return true;
+        }
+      }
+    }
+    return all;
+  }
+
+  /** Receives the bits rasterized for one tile. Returning false stops the rasterization. */
+  private interface TileVisitor {
+    boolean visit(long key, long[] rows);
+  }
+
+  /**
+   * Rasterizes a shape one tile at a time, passing each tile holding at least one bit to the
+   * visitor.
+   *
+   * @return false if the visitor stopped the rasterization.
+   */
+  private boolean rasterize(Shape shape, TileVisitor visitor) {
+    Rectangle2D bounds = shape.getBounds2D();
+    if (bounds.isEmpty()) {
+      return true;
+    }
+    int tileSpan = TILE_SIZE * resolution;
+    int minTileX = Math.floorDiv((int) Math.floor(bounds.getMinX()), tileSpan);
+    int minTileY = Math.floorDiv((int) Math.floor(bounds.getMinY()), tileSpan);
+    int maxTileX = Math.floorDiv((int) Math.ceil(bounds.getMaxX()), tileSpan);
+    int maxTileY = Math.floorDiv((int) Math.ceil(bounds.getMaxY()), tileSpan);
+
+    var image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_BYTE_BINARY);
+    byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    Graphics2D g = image.createGraphics();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+      g.setColor(Color.WHITE);
+      for (int tileY = minTileY; tileY <= maxTileY; ++tileY) {
+        for (int tileX = minTileX; tileX <= maxTileX; ++tileX) {
+          Arrays.fill(data, (byte) 0);
+          var transform = AffineTransform.getScaleInstance(1.0 / resolution, 1.0 / resolution);
+          transform.translate(-(double) tileX * tileSpan, -(double) tileY * tileSpan);
+          g.setTransform(transform);
+          g.fill(shape);
+
+          long[] rows = new long[TILE_SIZE];
+          boolean any = false;
+          for (int row = 0; row < TILE_SIZE; ++row) {
+            long bits = 0;
+            for (int i = 0; i < 8; ++i) {
+              bits = (bits << 8) | (data[row * 8 + i] & 0xff);
+            }
+            rows[row] = Long.reverse(bits);
+            any |= bits != 0;
+          }
+          if (any && !visitor.visit(getKey(tileX, tileY), rows)) {
+            return false;
+          }
+        }
+      }
+    } finally {
+      g.dispose();
+    }
+    return true;
+  }
+
+  private static long getKey(int tileX, int tileY) {
+    return ((long) tileY << 32) | (tileX & 0xffffffffL);
+  }
+
+  private static int getTileX(long key) {
+    return (int) key;
+  }
+
+  private static int getTileY(long key) {
+    return (int) (key >> 32);
+  }
+}
@@ -582,6 +582,22 @@ public void setSecondDimension(double length) {}
    */
   public boolean validateMove(
       Token token, Rectangle areaToCheck, int dirx, int diry, Area exposedFog) {
+    return validateMove(token, areaToCheck, dirx, diry, ExposedRegion.of(exposedFog));
+  }
+
+  /**
+   * Checks whether a token may move into an area, as {@link #validateMove(Token, Rectangle, int,
+   * int, Area)} does, against any exposed region such as an {@link ExposureMask}.
+   *
+   * @param token token whose movement is being validated; passed in case token state is needed
+   * @param areaToCheck destination area to check, measured in ZonePoint units
+   * @param dirx direction token is traveling along the X axis
+   * @param diry direction token is traveling along the Y axis
+   * @param exposedFog region in which fog has been cleared away
+   * @return true or false whether the token may move into the area
+   */
+  public boolean validateMove(
+      Token token, Rectangle areaToCheck, int dirx, int diry, ExposedRegion exposedFog) {
     int direction = calculator.getDirection(dirx, diry);
 
     Rectangle bounds = new Rectangle();
@@ -634,6 +650,17 @@ public Area getTokenCellArea(Area bounds) {
    * @return {@code true} if at least 6 regions are open.
    */
   public boolean checkCenterRegion(Rectangle regionToCheck, Area fog) {
+    return checkCenterRegion(regionToCheck, ExposedRegion.of(fog));
+  }
+
+  /**
+   * Check the middle region by subdividing into 3x3 and checking to see if at least 6 are open.
+   *
+   * @param regionToCheck rectangular region to check for hard fog
+   * @param fog region in which fog has been cleared away
+   * @return {@code true} if at least 6 regions are open.
+   */
+  public boolean checkCenterRegion(Rectangle regionToCheck, ExposedRegion fog) {
     Rectangle center = new Rectangle();
     Rectangle bounds = new Rectangle();
     oneThird(regionToCheck, 1, 1, center); // selects the CENTER piece
@@ -676,6 +703,19 @@ public boolean checkCenterRegion(Rectangle regionToCheck, Area fog) {
    * @return {code true} if there are at least {@code tolerance} open regions.
    */
   public boolean checkRegion(Rectangle regionToCheck, Area fog, int tolerance) {
+    return checkRegion(regionToCheck, ExposedRegion.of(fog), tolerance);
+  }
+
+  /**
+   * Check the region by subdividing into 3x3 and checking to see if at least {@code tolerance} are
+   * open.
+   *
+   * @param regionToCheck rectangular region to check for hard fog
+   * @param fog region in which fog has been cleared away
+   * @param tolerance the number of open regions to check for.
+   * @return {code true} if there are at least {@code tolerance} open regions.
+   */
+  public boolean checkRegion(Rectangle regionToCheck, ExposedRegion fog, int tolerance) {
     Rectangle bounds = new Rectangle();
 
     int closedSpace = 0;
@@ -290,7 +290,7 @@ private GeneralPath createHalfShape(
 
   @Override
   public boolean validateMove(
-      Token token, Rectangle areaToCheck, int dirx, int diry, Area exposedFog) {
+      Token token, Rectangle areaToCheck, int dirx, int diry, ExposedRegion exposedFog) {
     // For a hex grid, we calculate the center of the areaToCheck and use that to calculate the
     // CellPoint.
     ZonePoint actual =
@@ -351,7 +351,7 @@ public boolean validateMove(
    * @see net.rptools.maptool.model.Grid#validateMove(java.awt.Rectangle, int, int, java.awt.geom.Area)
    */
 
-  private boolean checkOneSlice(ZonePoint zp, int dir, Area exposedFog) {
+  private boolean checkOneSlice(ZonePoint zp, int dir, ExposedRegion exposedFog) {
     Shape s = calculator.getFogAreaToCheck(dir);
 
     // The resulting Shape is 4x larger than it should be. Use a transform to correct it.
@@ -360,14 +360,9 @@ private boolean checkOneSlice(ZonePoint zp, int dir, Area exposedFog) {
     af.scale(minorRadius / 100, minorRadius / 100);
     Area transformed = new Area(af.createTransformedShape(s));
 
-    // Create an Area based on the pie slice, then calculate the intersection with the exposed area.
-    // If the result
-    // is exactly the same as the original pie slice, then the entire slice must have been contained
-    // with the
-    // exposed area. That means it's fine for a token to move into the grid cell. Whew. ;-)
-    Area a = new Area(transformed);
-    a.intersect(exposedFog);
-    return a.equals(transformed);
+    // If the entire pie slice is contained within the exposed area, it's fine for a token to move
+    // into the grid cell. Whew. ;-)
+    return exposedFog.contains(transformed);
   }
 
   /**
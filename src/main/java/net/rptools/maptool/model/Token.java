@@ -14,11 +14,8 @@
  */
 package net.rptools.maptool.model;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.TypeAdapter;
-import com.google.gson.stream.JsonReader;
 import com.google.protobuf.Int32Value;
 import com.google.protobuf.StringValue;
 import java.awt.Color;
@@ -34,9 +31,9 @@
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.Serializable;
-import java.io.StringReader;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.swing.Icon;
@@ -49,6 +46,7 @@
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.MapToolVariableResolver;
 import net.rptools.maptool.client.functions.json.JSONMacroFunctions;
+import net.rptools.maptool.client.functions.json.JsonParseCache;
 import net.rptools.maptool.client.swing.SwingUtil;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer.SelectionSet;
@@ -95,10 +93,6 @@ public class Token implements Cloneable {
   private boolean beingImpersonated = false;
   private GUID exposedAreaGUID = new GUID();
 
-  /** the only way to make Gson apply strict evaluation to JsonObjects, apparently. see #2396 */
-  private static final TypeAdapter<JsonObject> strictGsonObjectAdapter =
-      new Gson().getAdapter(JsonObject.class);
-
   public boolean getAllowURIAccess() {
     if (allowURIAccess && !isLibToken()) {
       allowURIAccess = false;
@@ -279,6 +273,15 @@ public enum Update {
   private String layer = Zone.Layer.TOKEN.toString();
   private transient Zone.Layer actualLayer;
 
+  /**
+   * The values of properties that need no evaluation, keyed by lower case property name. An entry
+   * is only valid while the raw value it was classified from is still the value of the property.
+   */
+  private transient Map<String, ConstantProperty> constantPropertyMap;
+
+  /** A raw property value and the value it evaluates to without running the parser. */
+  private record ConstantProperty(Object rawValue, Object value) {}
+
   private String propertyType = Campaign.DEFAULT_TOKEN_PROPERTY_TYPE;
 
   private Integer facing = null;
@@ -1797,34 +1800,18 @@ public Object getEvaluatedProperty(MapToolVariableResolver resolver, String key)
     if (val == null) {
       return "";
     }
-    if (val.toString().trim().startsWith("{")) {
-      /*
-       * The normal Gson evaluator was too lenient in identifying JSON objects, so we had to move
-       * that lower (see #1560). But we would really like to avoid the performance cost of
-       * attempting to parse anything that actually is a proper JSON, so let's try a stricter
-       * evaluation process here first (see #2396).
-       */
-      try {
-        try (JsonReader reader = new JsonReader(new StringReader(val.toString()))) {
-          JsonObject result = strictGsonObjectAdapter.read(reader);
-          // in case of a situation like {"a": 1}{"b": 2}, the above would have stopped at the first
-          // complete object.  This next line will throw an exception on finding another top-level
-          // object, allowing us to move on with other evaluation.
-          reader.hasNext();
-          if (result.isJsonObject()) {
-            return result;
-          }
-        }
-      } catch (IOException e) {
-        // deliberately ignored - continue parsing
-      }
+    if (constantPropertyMap == null) {
+      constantPropertyMap = new ConcurrentHashMap<>();
     }
-    // try to convert it to a JSON array. Fixes #2057.
-    if (val.toString().trim().startsWith("[")) {
-      JsonElement json = JSONMacroFunctions.getInstance().asJsonElement(val.toString());
-      if (json.isJsonArray()) {
-        return json;
-      }
+    String cacheKey = key.toLowerCase();
+    ConstantProperty constant = constantPropertyMap.get(cacheKey);
+    if (constant != null && constant.rawValue() == val) {
+      return constant.value();
+    }
+    Object constantValue = getConstantPropertyValue(val);
+    if (constantValue != null) {
+      constantPropertyMap.put(cacheKey, new ConstantProperty(val, constantValue));
+      return constantValue;
     }
     try {
       if (log.isDebugEnabled()) {
@@ -1856,6 +1843,41 @@ public Object getEvaluatedProperty(MapToolVariableResolver resolver, String key)
     return val;
   }
 
+  /**
+   * Returns the value of a raw property value if it can be known without running the parser,
+   * which is the case for JSON objects and arrays and for values without inline rolls.
+   *
+   * @param val the raw property value
+   * @return the value, or {@code null} if the raw value has to be evaluated
+   */
+  private static Object getConstantPropertyValue(Object val) {
+    String raw = val.toString();
+    if (raw.trim().startsWith("{")) {
+      /*
+       * The normal Gson evaluator was too lenient in identifying JSON objects, so we had to move
+       * that lower (see #1560). But we would really like to avoid the performance cost of
+       * attempting to parse anything that actually is a proper JSON, so let's try a stricter
+       * evaluation process here first (see #2396).
+       */
+      Optional<JsonObject> result = JsonParseCache.parseStrictObject(raw);
+      if (result.isPresent()) {
+        return result.get();
+      }
+    }
+    // try to convert it to a JSON array. Fixes #2057.
+    if (raw.trim().startsWith("[")) {
+      JsonElement json = JSONMacroFunctions.getInstance().asJsonElement(raw);
+      if (json.isJsonArray()) {
+        return json;
+      }
+    }
+    // Without inline rolls the parser would only trim the value.
+    if (raw.indexOf('[') < 0 && raw.indexOf('{') < 0) {
+      return raw.trim();
+    }
+    return null;
+  }
+
   /** @return all property names, all in lowercase. */
   public Set<String> getPropertyNames() {
     return getPropertyMap().keySet();
@@ -0,0 +1,123 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A hash index of the tokens of a zone by a string key such as the token name, so lookups by that
+ * key do not have to test every token. Tokens whose key is {@code null} or empty are not indexed.
+ * The key of a token is read when it is put, so tokens must be put again after the key changes.
+ */
+public class TokenLookupIndex {
+  private final Function<Token, String> keyFunction;
+  private final Map<String, List<Token>> tokenMap = new HashMap<>();
+  private final Map<GUID, String> keyMap = new HashMap<>();
+
+  /**
+   * Creates a new index.
+   *
+   * @param keyFunction the function returning the key of a token.
+   */
+  public TokenLookupIndex(Function<Token, String> keyFunction) {
+    this.keyFunction = keyFunction;
+  }
+
+  /**
+   * Folds the case of a string so that two strings that are equal ignoring case have the same
+   * folded form, matching {@link String#equalsIgnoreCase(String)}.
+   *
+   * @param value the string, can be {@code null}.
+   * @return the folded string, or {@code null} if the string is {@code null}.
+   */
+  public static String foldCase(String value) {
+    if (value == null) {
+      return null;
+    }
+    var sb = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      sb.append(Character.toLowerCase(Character.toUpperCase(value.charAt(i))));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns the key the index currently computes for a token.
+   *
+   * @param token the token.
+   * @return the key, or {@code null} if the token would not be indexed.
+   */
+  public String getKey(Token token) {
+    String key = keyFunction.apply(token);
+    return key == null || key.isEmpty() ? null : key;
+  }
+
+  /**
+   * Adds a token to the index, or re-indexes it if it is already indexed.
+   *
+   * @param token the token.
+   */
+  public synchronized void put(Token token) {
+    remove(token);
+    String key = getKey(token);
+    if (key != null) {
+      keyMap.put(token.getId(), key);
+      tokenMap.computeIfAbsent(key, k -> new ArrayList<>(1)).add(token);
+    }
+  }
+
+  /**
+   * Removes a token from the index.
+   *
+   * @param token the token.
+   */
+  public synchronized void remove(Token token) {
+    String key = keyMap.remove(token.getId());
+    if (key == null) {
+      return;
+    }
+    List<Token> tokens = tokenMap.get(key);
+    tokens.removeIf(t -> t.getId().equals(token.getId()));
+    if (tokens.isEmpty()) {
+      tokenMap.remove(key);
+    }
+  }
+
+  public synchronized void clear() {
+    tokenMap.clear();
+    keyMap.clear();
+  }
+
+  /** @return the number of tokens in the index */
+  public synchronized int size() {
+    return keyMap.size();
+  }
+
+  /**
+   * Returns the tokens indexed under a key.
+   *
+   * @param key the key.
+   * @return the tokens, in no particular order.
+   */
+  public synchronized List<Token> get(String key) {
+    List<Token> tokens = tokenMap.get(key);
+    return tokens == null ? Collections.emptyList() : new ArrayList<>(tokens);
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A uniform grid over the tokens of each layer of a zone, so the tokens that intersect an area or
+ * contain a point can be found without testing every token of the zone. Tokens are indexed by the
+ * bounds given when they are put, and results are returned in no particular order.
+ */
+public class TokenSpatialIndex {
+  /** The size of a grid cell in map units. */
+  static final int CELL_SIZE = 512;
+
+  /** Tokens covering more cells than this are kept out of the grid and always tested. */
+  static final int MAX_CELLS_PER_TOKEN = 1024;
+
+  private final Map<Zone.Layer, LayerIndex> layerMap = new EnumMap<>(Zone.Layer.class);
+  private final Map<GUID, Entry> entryMap = new HashMap<>();
+
+  private static class Entry {
+    private final Token token;
+    private final Zone.Layer layer;
+    private final Rectangle bounds;
+
+    private Entry(Token token, Zone.Layer layer, Rectangle bounds) {
+      this.token = token;
+      this.layer = layer;
+      this.bounds = bounds;
+    }
+  }
+
+  private static class LayerIndex {
+    private final Map<Long, List<Entry>> cellMap = new HashMap<>();
+    private final Set<Entry> oversizedSet = new HashSet<>();
+  }
+
+  /** @return the number of tokens in the index */
+  public synchronized int size() {
+    return entryMap.size();
+  }
+
+  public synchronized void clear() {
+    layerMap.clear();
+    entryMap.clear();
+  }
+
+  /**
+   * Adds a token to the index, or moves it if it is already indexed.
+   *
+   * @param token the token. Its layer is read now, so put it again after it changes layers.
+   * @param bounds the bounds of the token in map units.
+   */
+  public synchronized void put(Token token, Rectangle bounds) {
+    remove(token);
+    var entry = new Entry(token, token.getLayer(), new Rectangle(bounds));
+    entryMap.put(token.getId(), entry);
+
+    var layerIndex = layerMap.computeIfAbsent(entry.layer, l -> new LayerIndex());
+    int minCol = cell(bounds.getMinX());
+    int maxCol = cell(bounds.getMaxX());
+    int minRow = cell(bounds.getMinY());
+    int maxRow = cell(bounds.getMaxY());
+    if ((long) (maxCol - minCol + 1) * (maxRow - minRow + 1) > MAX_CELLS_PER_TOKEN) {
+      layerIndex.oversizedSet.add(entry);
+      return;
+    }
+    for (int row = minRow; row <= maxRow; row++) {
+      for (int col = minCol; col <= maxCol; col++) {
+        layerIndex.cellMap.computeIfAbsent(key(col, row), k -> new ArrayList<>()).add(entry);
+      }
+    }
+  }
+
+  /**
+   * Removes a token from the index.
+   *
+   * @param token the token.
+   */
+  public synchronized void remove(Token token) {
+    var entry = entryMap.remove(token.getId());
+    if (entry == null) {
+      return;
+    }
+    var layerIndex = layerMap.get(entry.layer);
+    if (layerIndex.oversizedSet.remove(entry)) {
+      return;
+    }
+    int minCol = cell(entry.bounds.getMinX());
+    int maxCol = cell(entry.bounds.getMaxX());
+    int minRow = cell(entry.bounds.getMinY());
+    int maxRow = cell(entry.bounds.getMaxY());
+    for (int row = minRow; row <= maxRow; row++) {
+      for (int col = minCol; col <= maxCol; col++) {
+        long key = key(col, row);
+        List<Entry> entries = layerIndex.cellMap.get(key);
+        if (entries != null) {
+          entries.remove(entry);
+          if (entries.isEmpty()) {
+            layerIndex.cellMap.remove(key);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the tokens of a layer whose bounds intersect an area.
+   *
+   * @param layer the layer, or {@code null} for all layers.
+   * @param area the area in map units.
+   * @return the intersecting tokens.
+   */
+  public synchronized List<Token> query(Zone.Layer layer, Rectangle2D area) {
+    Set<Entry> found = new HashSet<>();
+    for (var entry : layerMap.entrySet()) {
+      if (layer != null && entry.getKey() != layer) {
+        continue;
+      }
+      var layerIndex = entry.getValue();
+      for (Entry oversized : layerIndex.oversizedSet) {
+        if (oversized.bounds.intersects(area)) {
+          found.add(oversized);
+        }
+      }
+      int minCol = cell(area.getMinX());
+      int maxCol = cell(area.getMaxX());
+      int minRow = cell(area.getMinY());
+      int maxRow = cell(area.getMaxY());
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int col = minCol; col <= maxCol; col++) {
+          List<Entry> entries = layerIndex.cellMap.get(key(col, row));
+          if (entries == null) {
+            continue;
+          }
+          for (Entry cellEntry : entries) {
+            if (cellEntry.bounds.intersects(area)) {
+              found.add(cellEntry);
+            }
+          }
+        }
+      }
+    }
+    List<Token> result = new ArrayList<>(found.size());
+    for (Entry entry : found) {
+      result.add(entry.token);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the tokens of a layer whose bounds contain a point.
+   *
+   * @param layer the layer, or {@code null} for all layers.
+   * @param x the x coordinate in map units.
+   * @param y the y coordinate in map units.
+   * @return the tokens containing the point.
+   */
+  public synchronized List<Token> query(Zone.Layer layer, double x, double y) {
+    List<Token> result = new ArrayList<>();
+    long key = key(cell(x), cell(y));
+    for (var entry : layerMap.entrySet()) {
+      if (layer != null && entry.getKey() != layer) {
+        continue;
+      }
+      var layerIndex = entry.getValue();
+      for (Entry oversized : layerIndex.oversizedSet) {
+        if (oversized.bounds.contains(x, y)) {
+          result.add(oversized.token);
+        }
+      }
+      List<Entry> entries = layerIndex.cellMap.get(key);
+      if (entries != null) {
+        for (Entry cellEntry : entries) {
+          if (cellEntry.bounds.contains(x, y)) {
+            result.add(cellEntry.token);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static int cell(double coordinate) {
+    return (int) Math.floor(coordinate / CELL_SIZE);
+  }
+
+  private static long key(int col, int row) {
+    return ((long) col << 32) | (row & 0xffffffffL);
+  }
+}
@@ -19,6 +19,7 @@
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
 import java.util.*;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
@@ -48,6 +49,7 @@
 import net.rptools.maptool.model.tokens.TokenPanelChanged;
 import net.rptools.maptool.model.zones.BoardChanged;
 import net.rptools.maptool.model.zones.DrawableAdded;
+import net.rptools.maptool.model.zones.DrawableChanged;
 import net.rptools.maptool.model.zones.DrawableRemoved;
 import net.rptools.maptool.model.zones.FogChanged;
 import net.rptools.maptool.model.zones.GridChanged;
@@ -60,10 +62,10 @@
 import net.rptools.maptool.model.zones.TokensChanged;
 import net.rptools.maptool.model.zones.TokensRemoved;
 import net.rptools.maptool.model.zones.TopologyChanged;
+import net.rptools.maptool.model.zones.ZoneSettingsChanged;
 import net.rptools.maptool.server.Mapper;
 import net.rptools.maptool.server.proto.TopologyTypeDto;
 import net.rptools.maptool.server.proto.ZoneDto;
-import net.rptools.maptool.util.StringUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -249,13 +251,33 @@ public String toString() {
   private Map<GUID, ExposedAreaMetaData> exposedAreaMeta = new HashMap<GUID, ExposedAreaMetaData>();
 
   /** Token list ordered by Z. */
-  private final List<Token> tokenOrderedList = new LinkedList<Token>();
+  private final List<Token> tokenOrderedList = new ArrayList<Token>();
+
+  /** Spatial index of the token footprints, built on demand. */
+  private transient TokenSpatialIndex tokenIndex;
+
+  /** The grid settings the token footprints in {@link #tokenIndex} were computed with. */
+  private transient TokenIndexKey tokenIndexKey;
+
+  private record TokenIndexKey(Grid grid, int size, int offsetX, int offsetY) {}
+
+  /** Index of the tokens by case-folded name, built on demand. */
+  private transient TokenLookupIndex tokenNameIndex;
+
+  /** Index of the tokens by case-folded GM name, built on demand. */
+  private transient TokenLookupIndex tokenGMNameIndex;
+
+  /** Indexes of the tokens by property value, keyed by the case-folded property name. */
+  private transient Map<String, TokenLookupIndex> tokenPropertyIndexMap;
 
   private InitiativeList initiativeList = new InitiativeList(this);
 
   /** The global exposed area. */
   private Area exposedArea = new Area();
 
+  /** Rasterized copy of {@link #exposedArea}, created on demand and kept up to date afterwards. */
+  private transient ExposureMask exposedAreaMask;
+
   private boolean hasFog;
   private DrawablePaint fogPaint;
   private transient UndoPerZone undo;
@@ -317,6 +339,7 @@ public Zone() {
 
   public void setBackgroundPaint(DrawablePaint paint) {
     backgroundPaint = paint;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   public void setBackgroundAsset(MD5Key id) {}
@@ -328,10 +351,12 @@ public MD5Key getBackgroundAsset() {
   public void setMapAsset(MD5Key id) {
     mapAsset = id;
     boardChanged = true;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   public void setTokenVisionDistance(int units) {
     tokenVisionDistance = units;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   public int getTokenVisionDistance() {
@@ -344,6 +369,7 @@ public VisionType getVisionType() {
 
   public void setVisionType(VisionType visionType) {
     this.visionType = visionType;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   public TokenSelection getTokenSelection() {
@@ -352,6 +378,7 @@ public TokenSelection getTokenSelection() {
 
   public void setTokenSelection(TokenSelection tokenSelection) {
     this.tokenSelection = tokenSelection;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   /** @return the distance in map pixels at a 1:1 zoom */
@@ -365,6 +392,7 @@ public int getTokenVisionInPixels() {
 
   public void setFogPaint(DrawablePaint paint) {
     fogPaint = paint;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   /** @return name of the zone */
@@ -378,6 +406,7 @@ public String getPlayerAlias() {
 
   public void setName(String name) {
     this.name = name;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   public boolean setPlayerAlias(String playerAlias) {
@@ -393,6 +422,7 @@ public boolean setPlayerAlias(String playerAlias) {
         playerAlias == null || playerAlias.equals("") || playerAlias.equals(name)
             ? null
             : playerAlias;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
     return true;
   }
 
@@ -620,6 +650,7 @@ public boolean isVisible() {
 
   public void setVisible(boolean isVisible) {
     this.isVisible = isVisible;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   public void setGrid(Grid grid) {
@@ -638,6 +669,7 @@ public int getGridColor() {
 
   public void setGridColor(int color) {
     gridColor = color;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   /**
@@ -887,7 +919,7 @@ public void addTopology(Area area, TopologyType topologyType) {
         };
     topology.add(area);
 
-    new MapToolEventBus().getMainEventBus().post(new TopologyChanged(this));
+    new MapToolEventBus().getMainEventBus().post(new TopologyChanged(this, area.getBounds2D()));
   }
 
   public void addTopology(Area area) {
@@ -912,7 +944,7 @@ public void removeTopology(Area area, TopologyType topologyType) {
         };
     topology.subtract(area);
 
-    new MapToolEventBus().getMainEventBus().post(new TopologyChanged(this));
+    new MapToolEventBus().getMainEventBus().post(new TopologyChanged(this, area.getBounds2D()));
   }
 
   public void removeTopology(Area area) {
@@ -933,6 +965,9 @@ public void tokenTopologyChanged() {
    * @param token the token that changed
    */
   public void tokenChanged(Token token) {
+    if (tokenMap.containsKey(token.getId())) {
+      indexToken(token);
+    }
     new MapToolEventBus()
         .getMainEventBus()
         .post(new TokensChanged(this, Collections.singletonList(token)));
@@ -963,6 +998,7 @@ public void tokenPanelChanged(Token token) {
    */
   public void clearExposedArea(boolean globalOnly) {
     exposedArea = new Area();
+    exposedAreaMask = null;
     if (!globalOnly) {
       exposedAreaMeta.clear();
     }
@@ -1026,7 +1062,7 @@ public void exposeArea(Area area, Token tok) {
         return; // FJE Added so that TEA isn't added to the GEA, below.
       }
     }
-    exposedArea.add(area);
+    addExposedArea(area);
     new MapToolEventBus().getMainEventBus().post(new FogChanged(this));
   }
 
@@ -1045,7 +1081,7 @@ public void exposeArea(Area area, Set<GUID> selectedToks) {
       // Why is this done here and then again below???
       // And just because Vision==Off doesn't mean we aren't doing IF...
       // Jamz: if this exposedArea isn't done then it breaks getExposedTokens when vision is off...
-      exposedArea.add(area);
+      addExposedArea(area);
     }
     if (selectedToks != null
         && !selectedToks.isEmpty()
@@ -1076,7 +1112,7 @@ public void exposeArea(Area area, Set<GUID> selectedToks) {
       }
     } else {
       // Not using IF so add the EA to the GEA instead of a TEA.
-      exposedArea.add(area);
+      addExposedArea(area);
     }
     new MapToolEventBus().getMainEventBus().post(new FogChanged(this));
   }
@@ -1114,7 +1150,8 @@ public void setFogArea(Area area, Set<GUID> selectedToks) {
       }
     } else {
       exposedArea.reset();
-      exposedArea.add(area);
+      exposedAreaMask = null;
+      addExposedArea(area);
     }
     new MapToolEventBus().getMainEventBus().post(new FogChanged(this));
   }
@@ -1124,7 +1161,7 @@ public void hideArea(Area area, Set<GUID> selectedToks) {
       return;
     }
     if (getVisionType() == VisionType.OFF) {
-      exposedArea.subtract(area);
+      subtractExposedArea(area);
     }
     if (selectedToks != null
         && !selectedToks.isEmpty()
@@ -1151,7 +1188,7 @@ public void hideArea(Area area, Set<GUID> selectedToks) {
         putToken(tok);
       }
     } else {
-      exposedArea.subtract(area);
+      subtractExposedArea(area);
     }
     new MapToolEventBus().getMainEventBus().post(new FogChanged(this));
   }
@@ -1196,6 +1233,67 @@ public Area getExposedArea(PlayerView view) {
     return combined;
   }
 
+  /**
+   * Returns the rasterized exposed fog for the current tokens, the same area as {@link
+   * #getExposedArea(PlayerView)} at the resolution of {@link #getExposureMaskResolution()}.
+   *
+   * @param view holds whether or not tokens are selected
+   * @return a new mask of the exposed area
+   */
+  public ExposureMask getExposedAreaMask(PlayerView view) {
+    int resolution = getExposureMaskResolution();
+    ExposureMask combined = new ExposureMask(getExposedAreaMask());
+    if (!view.isUsingTokenView()) {
+      return combined;
+    }
+    for (Token tok : view.getTokens()) {
+      ExposedAreaMetaData meta = exposedAreaMeta.get(tok.getExposedAreaGUID());
+      if (meta != null) {
+        combined.add(meta.getExposureMask(resolution));
+      }
+    }
+    return combined;
+  }
+
+  /**
+   * Returns the global exposed area rasterized at the resolution of {@link
+   * #getExposureMaskResolution()}. The mask is built the first time and then updated along with
+   * the area.
+   *
+   * @return the mask of the global exposed area. It must not be modified.
+   */
+  public ExposureMask getExposedAreaMask() {
+    int resolution = getExposureMaskResolution();
+    if (exposedAreaMask == null || exposedAreaMask.getResolution() != resolution) {
+      exposedAreaMask = ExposureMask.fromArea(exposedArea, resolution);
+    }
+    return exposedAreaMask;
+  }
+
+  /**
+   * The side of the square covered by one bit of the exposure masks, a fraction of a grid cell as
+   * set by {@link AppPreferences#getRasterFogSubdivisions()}.
+   *
+   * @return the resolution of the exposure masks, in map units.
+   */
+  public int getExposureMaskResolution() {
+    return Math.max(1, grid.getSize() / AppPreferences.getRasterFogSubdivisions());
+  }
+
+  private void addExposedArea(Area area) {
+    exposedArea.add(area);
+    if (exposedAreaMask != null) {
+      exposedAreaMask.add(area);
+    }
+  }
+
+  private void subtractExposedArea(Area area) {
+    exposedArea.subtract(area);
+    if (exposedAreaMask != null) {
+      exposedAreaMask.subtract(area);
+    }
+  }
+
   /**
    * This is the Global Exposed Area (GEA) discussed so much on the dev-team mailing list. :)
    *
@@ -1211,6 +1309,7 @@ public double getUnitsPerCell() {
 
   public void setUnitsPerCell(double unitsPerCell) {
     this.unitsPerCell = unitsPerCell;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   public AStarRoundingOptions getAStarRounding() {
@@ -1223,6 +1322,7 @@ public AStarRoundingOptions getAStarRounding() {
 
   public void setAStarRounding(AStarRoundingOptions aStarRounding) {
     this.aStarRounding = aStarRounding;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   public TopologyTypeSet getTopologyTypes() {
@@ -1235,6 +1335,7 @@ public TopologyTypeSet getTopologyTypes() {
 
   public void setTopologyTypes(TopologyTypeSet topologyTypes) {
     this.topologyTypes = topologyTypes;
+    new MapToolEventBus().getMainEventBus().post(new ZoneSettingsChanged(this));
   }
 
   public int getLargestZOrder() {
@@ -1308,7 +1409,7 @@ public void updateDrawable(DrawnElement drawnElement, Pen pen) {
     } else {
       updatePen(drawables, drawnElement, pen);
     }
-    new MapToolEventBus().getMainEventBus().post(new DrawableAdded(this, drawnElement));
+    new MapToolEventBus().getMainEventBus().post(new DrawableChanged(this, drawnElement));
   }
 
   private void updatePen(List<DrawnElement> elementList, DrawnElement drawnElement, Pen pen) {
@@ -1442,6 +1543,7 @@ public void putToken(Token token) {
     tokenOrderedList.remove(token);
     tokenOrderedList.add(token);
     tokenOrderedList.sort(TOKEN_Z_ORDER_COMPARATOR);
+    indexToken(token);
 
     if (newToken) {
       new MapToolEventBus()
@@ -1488,6 +1590,7 @@ public void putTokens(List<Token> tokens) {
 
     for (Token t : tokens) {
       tokenMap.put(t.getId(), t);
+      indexToken(t);
     }
     tokenOrderedList.removeAll(tokens);
     tokenOrderedList.addAll(tokens);
@@ -1510,6 +1613,7 @@ public void removeToken(GUID id) {
     Token token = tokenMap.remove(id);
     if (token != null) {
       tokenOrderedList.remove(token);
+      unindexToken(token);
       new MapToolEventBus()
           .getMainEventBus()
           .post(new TokensRemoved(this, Collections.singletonList(token)));
@@ -1528,6 +1632,7 @@ public void removeTokens(List<GUID> ids) {
         Token token = tokenMap.remove(id);
         if (token != null) {
           tokenOrderedList.remove(token);
+          unindexToken(token);
           removedTokens.add(token);
         }
       }
@@ -1541,17 +1646,186 @@ public Token getToken(GUID id) {
     return tokenMap.get(id);
   }
 
+  /**
+   * Returns the tokens on a layer whose footprint intersects an area. The footprint covers both the
+   * drawn bounds and the occupied cells of a token, grown to cover any rotation.
+   *
+   * @param layer the layer, or {@code null} for all layers
+   * @param bounds the area in map units
+   * @return the intersecting tokens, sorted by z-order
+   */
+  public List<Token> getTokensInBounds(Layer layer, Rectangle2D bounds) {
+    List<Token> tokens = getTokenIndex().query(layer, bounds);
+    tokens.sort(TOKEN_Z_ORDER_COMPARATOR);
+    return tokens;
+  }
+
+  /**
+   * Returns the tokens on a layer whose footprint contains a point. The footprint covers both the
+   * drawn bounds and the occupied cells of a token, grown to cover any rotation.
+   *
+   * @param layer the layer, or {@code null} for all layers
+   * @param x the x coordinate in map units
+   * @param y the y coordinate in map units
+   * @return the tokens containing the point, sorted by z-order
+   */
+  public List<Token> getTokensAt(Layer layer, int x, int y) {
+    List<Token> tokens = getTokenIndex().query(layer, x, y);
+    tokens.sort(TOKEN_Z_ORDER_COMPARATOR);
+    return tokens;
+  }
+
+  /**
+   * Returns the tokens with a property set to a value. The first lookup of a property builds an
+   * index of its values that is kept up to date as tokens change, so later lookups of the same
+   * property do not test every token. Only the stored value of the property is matched, not its
+   * default or evaluated value.
+   *
+   * @param property the name of the property, matched case-insensitively
+   * @param value the value of the property
+   * @return the tokens with the property set to the value, sorted by z-order
+   */
+  public List<Token> getTokensWithProperty(String property, String value) {
+    if (tokenPropertyIndexMap == null) {
+      tokenPropertyIndexMap = new HashMap<>();
+    }
+    var index =
+        tokenPropertyIndexMap.computeIfAbsent(
+            TokenLookupIndex.foldCase(property),
+            p -> {
+              var newIndex = new TokenLookupIndex(t -> Objects.toString(t.getProperty(p), null));
+              tokenOrderedList.forEach(newIndex::put);
+              return newIndex;
+            });
+    List<Token> tokens = new ArrayList<>();
+    for (Token token : index.get(value)) {
+      if (value.equals(index.getKey(token))) {
+        tokens.add(token);
+      }
+    }
+    tokens.sort(TOKEN_Z_ORDER_COMPARATOR);
+    return tokens;
+  }
+
+  /** Adds a token to the lookup indexes, or updates it there after it has changed. */
+  private void indexToken(Token token) {
+    getTokenIndex().put(token, getTokenIndexBounds(token));
+    getTokenNameIndex().put(token);
+    getTokenGMNameIndex().put(token);
+    if (tokenPropertyIndexMap != null) {
+      tokenPropertyIndexMap.values().forEach(index -> index.put(token));
+    }
+  }
+
+  /** Removes a token from the lookup indexes. */
+  private void unindexToken(Token token) {
+    getTokenIndex().remove(token);
+    getTokenNameIndex().remove(token);
+    getTokenGMNameIndex().remove(token);
+    if (tokenPropertyIndexMap != null) {
+      tokenPropertyIndexMap.values().forEach(index -> index.remove(token));
+    }
+  }
+
+  private TokenLookupIndex getTokenNameIndex() {
+    if (tokenNameIndex == null) {
+      tokenNameIndex = new TokenLookupIndex(t -> TokenLookupIndex.foldCase(t.getName()));
+      tokenOrderedList.forEach(tokenNameIndex::put);
+    }
+    return tokenNameIndex;
+  }
+
+  private TokenLookupIndex getTokenGMNameIndex() {
+    if (tokenGMNameIndex == null) {
+      tokenGMNameIndex = new TokenLookupIndex(t -> TokenLookupIndex.foldCase(t.getGMName()));
+      tokenOrderedList.forEach(tokenGMNameIndex::put);
+    }
+    return tokenGMNameIndex;
+  }
+
+  /**
+   * Returns the first token in z-order indexed under a key, skipping tokens whose key has changed
+   * since they were indexed.
+   */
+  private static Token getFirstToken(TokenLookupIndex index, String key) {
+    Token first = null;
+    for (Token token : index.get(key)) {
+      if (key.equals(index.getKey(token))
+          && (first == null || TOKEN_Z_ORDER_COMPARATOR.compare(token, first) < 0)) {
+        first = token;
+      }
+    }
+    return first;
+  }
+
+  /**
+   * Returns the spatial index of the tokens, rebuilding it if it does not exist yet or if the grid
+   * has changed since the footprints were computed.
+   */
+  private TokenSpatialIndex getTokenIndex() {
+    var key = new TokenIndexKey(grid, grid.getSize(), grid.getOffsetX(), grid.getOffsetY());
+    if (tokenIndex == null || !key.equals(tokenIndexKey)) {
+      if (tokenIndex == null) {
+        tokenIndex = new TokenSpatialIndex();
+      }
+      tokenIndexKey = key;
+      tokenIndex.clear();
+      for (Token token : tokenOrderedList) {
+        tokenIndex.put(token, getTokenIndexBounds(token));
+      }
+    }
+    return tokenIndex;
+  }
+
+  private Rectangle getTokenIndexBounds(Token token) {
+    // Native size tokens can be drawn smaller than the cells they occupy, so cover both.
+    Rectangle bounds = token.getBounds(this);
+    bounds.add(
+        token
+            .getFootprint(grid)
+            .getBounds(grid, grid.convert(new ZonePoint(token.getX(), token.getY()))));
+    if (token.hasFacing()) {
+      // Rotation is around the anchored center, so the circle through the farthest corner covers
+      // every facing.
+      Point anchor = token.getAnchor();
+      double radius =
+          Math.hypot(bounds.width, bounds.height) / 2 + Math.hypot(anchor.x, anchor.y);
+      double centerX = bounds.getCenterX();
+      double centerY = bounds.getCenterY();
+      bounds =
+          new Rectangle(
+              (int) Math.floor(centerX - radius),
+              (int) Math.floor(centerY - radius),
+              (int) Math.ceil(2 * radius) + 1,
+              (int) Math.ceil(2 * radius) + 1);
+    }
+    return bounds;
+  }
+
   /**
    * @param name the name of the token.
    * @return the first token with a given name. The name is matched case-insensitively.
    */
   public Token getTokenByName(String name) {
-    for (Token token : getAllTokens()) {
-      if (name.equalsIgnoreCase(token.getName())) {
-        return token;
+    return getFirstToken(getTokenNameIndex(), TokenLookupIndex.foldCase(name));
+  }
+
+  /**
+   * @param name the name of the tokens.
+   * @return all tokens with a given name, sorted by z-order. The name is matched
+   *     case-insensitively.
+   */
+  public List<Token> getTokensByName(String name) {
+    var index = getTokenNameIndex();
+    String key = TokenLookupIndex.foldCase(name);
+    List<Token> tokens = new ArrayList<>();
+    for (Token token : index.get(key)) {
+      if (key.equals(index.getKey(token))) {
+        tokens.add(token);
       }
     }
-    return null;
+    tokens.sort(TOKEN_Z_ORDER_COMPARATOR);
+    return tokens;
   }
 
   /**
@@ -1584,15 +1858,7 @@ public Token resolveToken(String identifier) {
    * @return the first token with a given GM name. The name is matched case-insensitively.
    */
   public Token getTokenByGMName(String name) {
-    for (Token token : getAllTokens()) {
-      if (StringUtil.isEmpty(token.getGMName())) {
-        continue;
-      }
-      if (token.getGMName().equalsIgnoreCase(name)) {
-        return token;
-      }
-    }
-    return null;
+    return getFirstToken(getTokenGMNameIndex(), TokenLookupIndex.foldCase(name));
   }
 
   public List<DrawnElement> getAllDrawnElements() {
@@ -2327,4 +2593,72 @@ public ZoneDto toDto() {
     dto.setWidth(width);
     return dto.build();
   }
+
+  /**
+   * Returns the fog of war of the zone, i.e. the global and the token exposed areas, as a zone DTO
+   * that only has these fields and the id set.
+   *
+   * @return the fog of war of the zone.
+   */
+  public ZoneDto toFogDto() {
+    var dto = ZoneDto.newBuilder();
+    dto.setId(id.toString());
+    getExposedAreaMetaData()
+        .forEach(
+            (id, area) -> {
+              if (id == null) {
+                return;
+              }
+              dto.putExposedAreaMeta(id.toString(), Mapper.map(area.getExposedAreaHistory()));
+            });
+    dto.setExposedArea(Mapper.map(exposedArea));
+    dto.setHasFog(hasFog);
+    return dto.build();
+  }
+
+  /**
+   * Replaces the fog of war of the zone with the one of a DTO created by {@link #toFogDto()}. This
+   * is meant for restoring a zone that isn't shown yet, so no events are posted.
+   *
+   * @param dto the fog of war of the zone.
+   */
+  public void setFogFromDto(ZoneDto dto) {
+    Map<GUID, ExposedAreaMetaData> meta = getExposedAreaMetaData();
+    meta.clear();
+    dto.getExposedAreaMetaMap()
+        .forEach(
+            (id, area) -> meta.put(GUID.valueOf(id), new ExposedAreaMetaData(Mapper.map(area))));
+    exposedArea = Mapper.map(dto.getExposedArea());
+    exposedAreaMask = null;
+    hasFog = dto.getHasFog();
+  }
+
+  /**
+   * Returns the topology of the zone as a zone DTO that only has the topology fields and the id
+   * set.
+   *
+   * @return the topology of the zone.
+   */
+  public ZoneDto toTopologyDto() {
+    var dto = ZoneDto.newBuilder();
+    dto.setId(id.toString());
+    dto.setTopology(Mapper.map(topology));
+    dto.setHillVbl(Mapper.map(hillVbl));
+    dto.setPitVbl(Mapper.map(pitVbl));
+    dto.setTopologyTerrain(Mapper.map(topologyTerrain));
+    return dto.build();
+  }
+
+  /**
+   * Replaces the topology of the zone with the one of a DTO created by {@link #toTopologyDto()}.
+   * This is meant for restoring a zone that isn't shown yet, so no events are posted.
+   *
+   * @param dto the topology of the zone.
+   */
+  public void setTopologyFromDto(ZoneDto dto) {
+    topology = Mapper.map(dto.getTopology());
+    hillVbl = Mapper.map(dto.getHillVbl());
+    pitVbl = Mapper.map(dto.getPitVbl());
+    topologyTerrain = Mapper.map(dto.getTopologyTerrain());
+  }
 }
@@ -14,6 +14,19 @@
  */
 package net.rptools.maptool.model.zones;
 
+import java.awt.geom.Rectangle2D;
+import javax.annotation.Nullable;
 import net.rptools.maptool.model.Zone;
 
-public record TopologyChanged(Zone zone) {}
+/**
+ * Posted when the topology of a zone changes.
+ *
+ * @param zone the zone whose topology changed.
+ * @param bounds the bounds of the changed region, or {@code null} if the whole zone may have
+ *     changed.
+ */
+public record TopologyChanged(Zone zone, @Nullable Rectangle2D bounds) {
+  public TopologyChanged(Zone zone) {
+    this(zone, null);
+  }
+}
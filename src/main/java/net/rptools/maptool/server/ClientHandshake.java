@@ -35,7 +35,9 @@
 import javax.swing.SwingUtilities;
 import net.rptools.clientserver.simple.MessageHandler;
 import net.rptools.clientserver.simple.client.ClientConnection;
+import net.rptools.clientserver.simple.codec.MessageCodecs;
 import net.rptools.lib.MD5Key;
+import net.rptools.maptool.client.AppUtil;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.Asset;
@@ -51,6 +53,7 @@
 import net.rptools.maptool.model.player.Player.Role;
 import net.rptools.maptool.model.player.PlayerDatabaseFactory;
 import net.rptools.maptool.model.player.PlayerDatabaseFactory.PlayerDatabaseType;
+import net.rptools.maptool.server.proto.AssetCacheManifestDto;
 import net.rptools.maptool.server.proto.AuthTypeEnum;
 import net.rptools.maptool.server.proto.ClientAuthMsg;
 import net.rptools.maptool.server.proto.ClientInitMsg;
@@ -63,6 +66,7 @@
 import net.rptools.maptool.server.proto.RequestPublicKeyMsg;
 import net.rptools.maptool.server.proto.RoleDto;
 import net.rptools.maptool.server.proto.UseAuthTypeMsg;
+import net.rptools.maptool.transfer.AssetConsumer;
 import net.rptools.maptool.util.cipher.CipherUtil;
 import net.rptools.maptool.util.cipher.CipherUtil.Key;
 import net.rptools.maptool.util.cipher.PublicPrivateKeyStore;
@@ -79,6 +83,8 @@ public class ClientHandshake implements Handshake, MessageHandler {
   private static final int GM_CHALLENGE = 0;
   /** The index in the array for the Player handshake challenge, only used for role based auth */
   private static final int PLAYER_CHALLENGE = 1;
+  /** The maximum number of cached assets listed in the manifest, about 300KB of asset ids. */
+  private static final int MAX_MANIFEST_ASSETS = 8192;
 
   /** The connection for the handshake. */
   private final ClientConnection connection;
@@ -133,13 +139,33 @@ public void startHandshake() throws ExecutionException, InterruptedException {
         ClientInitMsg.newBuilder()
             .setPlayerName(player.getName())
             .setVersion(MapTool.getVersion())
-            .setPublicKeyMd5(md5key.toString());
+            .setPublicKeyMd5(md5key.toString())
+            .addAllSupportedCodecs(MessageCodecs.getSupportedCodecNames())
+            .setAssetCacheManifest(getAssetCacheManifest());
     var handshakeMsg = HandshakeMsg.newBuilder().setClientInitMsg(clientInitMsg).build();
 
     sendMessage(handshakeMsg);
     currentState = State.AwaitingUseAuthType;
   }
 
+  /**
+   * Returns the manifest of the assets we already have, so the server only sends us the campaign
+   * assets that are missing and resumes those that were partially received. Only the most recently
+   * used assets are listed, so the manifest stays small however large the cache grows; the server
+   * pushes any others again.
+   *
+   * @return the asset cache manifest.
+   */
+  private AssetCacheManifestDto getAssetCacheManifest() {
+    var manifest = AssetCacheManifestDto.newBuilder();
+    for (MD5Key id : AssetManager.getCachedAssetIds(MAX_MANIFEST_ASSETS)) {
+      manifest.addAssetIds(id.toString());
+    }
+    AssetConsumer.findPartialTransfers(AppUtil.getTmpDir())
+        .forEach((id, size) -> manifest.putPartialAssets(id.toString(), size));
+    return manifest.build();
+  }
+
   private void sendMessage(HandshakeMsg message) {
     var msgType = message.getMessageTypeCase();
     log.info(connection.getId() + " sent: " + msgType);
@@ -310,6 +336,7 @@ private void handle(UseAuthTypeMsg useAuthTypeMsg)
   }
 
   private void handle(ConnectionSuccessfulMsg connectionSuccessfulMsg) throws IOException {
+    MessageCodecs.forName(connectionSuccessfulMsg.getCodec()).ifPresent(connection::setCodec);
     var policy = ServerPolicy.fromDto(connectionSuccessfulMsg.getServerPolicyDto());
     MapTool.setServerPolicy(policy);
     player.setRole(connectionSuccessfulMsg.getRoleDto() == RoleDto.GM ? Role.GM : Role.PLAYER);
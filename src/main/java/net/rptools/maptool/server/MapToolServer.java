@@ -19,22 +19,31 @@
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.swing.SwingUtilities;
+import net.rptools.clientserver.simple.MessagePriority;
 import net.rptools.clientserver.simple.client.ClientConnection;
 import net.rptools.clientserver.simple.server.ServerObserver;
+import net.rptools.lib.MD5Key;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.MapToolRegistry;
 import net.rptools.maptool.client.ui.connectioninfodialog.ConnectionInfoDialog;
 import net.rptools.maptool.common.MapToolConstants;
 import net.rptools.maptool.language.I18N;
+import net.rptools.maptool.model.AssetManager;
 import net.rptools.maptool.model.Campaign;
 import net.rptools.maptool.model.TextMessage;
+import net.rptools.maptool.model.player.Player;
 import net.rptools.maptool.model.player.PlayerDatabase;
 import net.rptools.maptool.model.player.PlayerDatabaseFactory;
+import net.rptools.maptool.server.proto.AssetCacheManifestDto;
 import net.rptools.maptool.server.proto.Message;
+import net.rptools.maptool.server.proto.StartAssetTransferMsg;
 import net.rptools.maptool.server.proto.UpdateAssetTransferMsg;
 import net.rptools.maptool.transfer.AssetProducer;
 import net.rptools.maptool.transfer.AssetTransferManager;
@@ -44,15 +53,17 @@
 /** @author drice */
 public class MapToolServer {
   private static final Logger log = LogManager.getLogger(MapToolServer.class);
-  private static final int ASSET_CHUNK_SIZE = 5 * 1024;
+  /** Asset chunks waiting to be sent to a client at which no more are produced for it. */
+  private static final int MAX_QUEUED_ASSET_CHUNKS = 4;
+  /** How long to wait before retrying when all clients have a backlog of asset chunks. */
+  private static final long ASSET_BACKLOG_WAIT_MILLIS = 20;
 
   private final MapToolServerConnection conn;
   private final ServerMessageHandler handler;
   private final ServerConfig config;
   private final PlayerDatabase playerDatabase;
 
-  private final Map<String, AssetTransferManager> assetManagerMap =
-      Collections.synchronizedMap(new HashMap<String, AssetTransferManager>());
+  private final Map<String, AssetTransferManager> assetManagerMap = new ConcurrentHashMap<>();
   private final Map<String, ClientConnection> connectionMap =
       Collections.synchronizedMap(new HashMap<String, ClientConnection>());
   private final AssetProducerThread assetProducerThread;
@@ -106,13 +117,93 @@ public void releaseClientConnection(String id) {
     if (connection != null) {
       connection.close();
     }
-    assetManagerMap.remove(id);
+    AssetTransferManager manager = assetManagerMap.remove(id);
+    if (manager != null) {
+      manager.flush();
+    }
     connectionMap.remove(id);
   }
 
-  public void addAssetProducer(String connectionId, AssetProducer producer) {
+  /**
+   * Starts sending an asset to a client, unless it is already being sent. Assets that the client
+   * requested are sent ahead of those that are being pushed to it.
+   *
+   * @param connectionId the id of the client connection.
+   * @param assetId the id of the asset.
+   * @param offset the amount of the asset the client already has.
+   * @param requested whether the client requested the asset.
+   * @return {@code false} if the asset is not available to be sent.
+   */
+  public boolean sendAsset(String connectionId, MD5Key assetId, long offset, boolean requested) {
+    AssetTransferManager manager = assetManagerMap.get(connectionId);
+    if (manager == null) {
+      // Disconnected
+      return true;
+    }
+    // Hold the manager so that no chunks are produced before the client has the header
+    synchronized (manager) {
+      if (!manager.hasProducer(assetId)) {
+        AssetProducer producer;
+        try {
+          producer =
+              new AssetProducer(
+                  assetId,
+                  AssetManager.getAssetInfo(assetId).getProperty(AssetManager.NAME),
+                  AssetManager.getAssetCacheFile(assetId),
+                  offset);
+        } catch (IllegalArgumentException iae) {
+          return false;
+        }
+        var msg = StartAssetTransferMsg.newBuilder().setHeader(producer.getHeader().toDto());
+        conn.sendMessage(connectionId, Message.newBuilder().setStartAssetTransferMsg(msg).build());
+        manager.addProducer(producer);
+      }
+      if (requested) {
+        manager.prioritizeProducer(assetId);
+      }
+    }
+    assetProducerThread.wakeUp();
+    return true;
+  }
+
+  /**
+   * Moves an asset that is already being sent to a client ahead of the other assets being sent to
+   * it, e.g. because the client needs it for the map it is showing.
+   *
+   * @param connectionId the id of the client connection.
+   * @param assetId the id of the asset.
+   */
+  public void prioritizeAsset(String connectionId, MD5Key assetId) {
     AssetTransferManager manager = assetManagerMap.get(connectionId);
-    manager.addProducer(producer);
+    if (manager != null) {
+      manager.prioritizeProducer(assetId);
+      assetProducerThread.wakeUp();
+    }
+  }
+
+  /**
+   * Pushes the campaign assets that a client is missing to it, resuming those that it has partially
+   * received. Players are not sent the assets of hidden maps.
+   *
+   * @param connectionId the id of the client connection.
+   * @param player the player on the client.
+   * @param manifest the manifest of the assets the client already has.
+   */
+  public void sendMissingAssets(
+      String connectionId, Player player, AssetCacheManifestDto manifest) {
+    Set<String> cachedIds = new HashSet<>(manifest.getAssetIdsList());
+    int count = 0;
+    for (MD5Key assetId : campaign.getAllAssetIds(player.isGM())) {
+      if (assetId == null || cachedIds.contains(assetId.toString())) {
+        continue;
+      }
+      long offset = manifest.getPartialAssetsOrDefault(assetId.toString(), 0L);
+      // Assets that aren't in our cache are left for the client to request
+      if (sendAsset(connectionId, assetId, offset, false)) {
+        count++;
+      }
+    }
+    log.debug("Pushing " + count + " missing assets to " + connectionId);
   }
 
   public void addObserver(ServerObserver observer) {
@@ -261,22 +352,54 @@ public void shutdown() {
 
   ////
   // CLASSES
+  /**
+   * Sends the chunks of the assets being transferred, taking turns between the clients. The thread
+   * sleeps until a new transfer is added and stops producing chunks for clients whose connection
+   * has not yet sent the previous ones.
+   */
   private class AssetProducerThread extends Thread {
-    private boolean stop = false;
+    private volatile boolean stop = false;
+    private boolean workPending = false;
 
     public AssetProducerThread() {
       setName("AssetProducerThread");
     }
 
+    /** Wakes the thread up as there are new chunks to be sent. */
+    public void wakeUp() {
+      synchronized (this) {
+        workPending = true;
+        notify();
+      }
+    }
+
     @Override
     public void run() {
       while (!stop) {
         Entry<String, AssetTransferManager> entryForException = null;
         try {
+          synchronized (this) {
+            workPending = false;
+          }
           boolean lookForMore = false;
+          boolean backlogged = false;
           for (Entry<String, AssetTransferManager> entry : assetManagerMap.entrySet()) {
             entryForException = entry;
-            var chunk = entry.getValue().nextChunk(ASSET_CHUNK_SIZE);
+            var manager = entry.getValue();
+            if (!manager.hasProducers()) {
+              continue;
+            }
+
+            ClientConnection connection = connectionMap.get(entry.getKey());
+            int queued =
+                connection == null ? 0 : connection.getQueueDepth(MessagePriority.ASSET);
+            int chunkSize = manager.adaptChunkSize(queued, MAX_QUEUED_ASSET_CHUNKS);
+            if (queued >= MAX_QUEUED_ASSET_CHUNKS) {
+              backlogged = true;
+              continue;
+            }
+
+            var chunk = manager.nextChunk(chunkSize);
             if (chunk != null) {
               lookForMore = true;
               var msg = UpdateAssetTransferMsg.newBuilder().setChunk(chunk);
@@ -290,10 +413,18 @@ public void run() {
           if (lookForMore) {
             continue;
           }
-          // Sleep for a bit
           synchronized (this) {
-            Thread.sleep(500);
+            if (stop || workPending) {
+              continue;
+            }
+            if (backlogged) {
+              wait(ASSET_BACKLOG_WAIT_MILLIS);
+            } else {
+              wait();
+            }
           }
+        } catch (InterruptedException e) {
+          // check if we have been asked to stop
         } catch (Exception e) {
           log.warn("Couldn't retrieve AssetChunk for " + entryForException.getKey(), e);
           // keep on going
@@ -303,6 +434,7 @@ public void run() {
 
     public void shutdown() {
       stop = true;
+      wakeUp();
     }
   }
 
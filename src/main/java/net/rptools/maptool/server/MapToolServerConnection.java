@@ -15,6 +15,7 @@
 package net.rptools.maptool.server;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import net.rptools.clientserver.ConnectionFactory;
@@ -24,6 +25,7 @@
 import net.rptools.clientserver.simple.server.ServerObserver;
 import net.rptools.maptool.model.player.Player;
 import net.rptools.maptool.model.player.PlayerDatabase;
+import net.rptools.maptool.server.proto.AssetCacheManifestDto;
 import net.rptools.maptool.server.proto.Message;
 import net.rptools.maptool.server.proto.PlayerConnectedMsg;
 import net.rptools.maptool.server.proto.PlayerDisconnectedMsg;
@@ -37,6 +39,7 @@
   private static final Logger log = LogManager.getLogger(MapToolServerConnection.class);
   private final Map<String, Player> playerMap = new ConcurrentHashMap<>();
   private final Map<ClientConnection, ServerHandshake> handshakeMap = new ConcurrentHashMap<>();
+  private final Map<String, AssetCacheManifestDto> assetManifestMap = new ConcurrentHashMap<>();
   private final MapToolServer server;
   private final ServerConnection connection;
   private final PlayerDatabase playerDatabase;
@@ -114,6 +117,11 @@ public void connectionAdded(ClientConnection conn) {
     server
         .getConnection()
         .sendMessage(conn.getId(), Message.newBuilder().setSetCampaignMsg(msg2).build());
+
+    var manifest = assetManifestMap.remove(conn.getId().toUpperCase());
+    if (manifest != null) {
+      server.sendMissingAssets(conn.getId(), connectedPlayer, manifest);
+    }
   }
 
   public void connectionRemoved(ClientConnection conn) {
@@ -126,6 +134,7 @@ public void connectionRemoved(ClientConnection conn) {
             new String[] {conn.getId()},
             Message.newBuilder().setPlayerDisconnectedMsg(msg).build());
     playerMap.remove(conn.getId().toUpperCase());
+    assetManifestMap.remove(conn.getId().toUpperCase());
   }
 
   public void addMessageHandler(ServerMessageHandler handler) {
@@ -157,7 +166,7 @@ public void sendMessage(String id, Object channel, Message message) {
 
   public void broadcastMessage(Message message) {
     log.info(server.getConfig().getServerName() + " broadcast: " + message.getMessageTypeCase());
-    connection.broadcastMessage(message.toByteArray());
+    connection.broadcastMessage(new String[0], getCoalesceKey(message), message.toByteArray());
   }
 
   public void broadcastMessage(String[] exclude, Message message) {
@@ -167,7 +176,28 @@ public void broadcastMessage(String[] exclude, Message message) {
             + message.getMessageTypeCase()
             + " except to "
             + String.join(",", exclude));
-    connection.broadcastMessage(exclude, message.toByteArray());
+    connection.broadcastMessage(exclude, getCoalesceKey(message), message.toByteArray());
+  }
+
+  /**
+   * Returns the key for messages that are superseded by newer messages of the same kind, so that
+   * only the latest one is sent to clients that have not received the earlier one yet.
+   *
+   * @param message the message.
+   * @return the coalesce key, or {@code null} if the message must always be sent.
+   */
+  private static Object getCoalesceKey(Message message) {
+    return switch (message.getMessageTypeCase()) {
+      case UPDATE_TOKEN_MOVE_MSG -> {
+        var msg = message.getUpdateTokenMoveMsg();
+        yield List.of(message.getMessageTypeCase(), msg.getZoneGuid(), msg.getKeyTokenId());
+      }
+      case MOVE_POINTER_MSG -> {
+        var msg = message.getMovePointerMsg();
+        yield List.of(message.getMessageTypeCase(), msg.getPlayer());
+      }
+      default -> null;
+    };
   }
 
   public void open() throws IOException {
@@ -195,6 +225,12 @@ public void onCompleted(Handshake handshake) {
       if (player != null) {
         playerMap.put(handshake.getConnection().getId().toUpperCase(), player);
       }
+      if (handshake instanceof ServerHandshake serverHandshake
+          && serverHandshake.getAssetCacheManifest() != null) {
+        assetManifestMap.put(
+            handshake.getConnection().getId().toUpperCase(),
+            serverHandshake.getAssetCacheManifest());
+      }
     } else {
       var exception = handshake.getException();
       if (exception != null) log.error("Handshake failure: " + exception, exception);
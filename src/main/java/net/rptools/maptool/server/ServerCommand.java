@@ -168,6 +168,9 @@ default void removeTopology(GUID zoneGUID, Area area, Zone.TopologyTypeSet topol
 
   void updateExposedAreaMeta(GUID zoneGUID, GUID tokenExposedAreaGUID, ExposedAreaMetaData meta);
 
+  void addExposedAreaMeta(
+      GUID zoneGUID, GUID tokenExposedAreaGUID, ExposedAreaMetaData meta, Area addedArea);
+
   void clearExposedArea(GUID zoneGUID, boolean globalOnly);
 
   void addAddOnLibrary(List<TransferableAddOnLibrary> addOnLibraries);
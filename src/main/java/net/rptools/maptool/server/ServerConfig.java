@@ -50,6 +50,7 @@ public class ServerConfig {
   private String hostName;
   private final boolean useEasyConnect;
   private final boolean useWebRTC;
+  private boolean useNioTransport;
 
   public static String getPersonalServerGMPassword() {
     return personalServerGMPassword;
@@ -153,6 +154,20 @@ public boolean getUseWebRTC() {
     return useWebRTC;
   }
 
+  /**
+   * Returns if the server should use the non-blocking selector based transport instead of two
+   * threads per client. Only applies to socket connections.
+   *
+   * @return {@code true} if the non-blocking transport should be used.
+   */
+  public boolean getUseNioTransport() {
+    return useNioTransport;
+  }
+
+  public void setUseNioTransport(boolean useNioTransport) {
+    this.useNioTransport = useNioTransport;
+  }
+
   private static Random r = new Random();
 
   private static int findOpenPort(int rangeLow, int rangeHigh) {
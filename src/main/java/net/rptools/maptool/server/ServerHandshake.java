@@ -31,6 +31,7 @@
 import javax.swing.SwingUtilities;
 import net.rptools.clientserver.simple.MessageHandler;
 import net.rptools.clientserver.simple.client.ClientConnection;
+import net.rptools.clientserver.simple.codec.MessageCodecs;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.language.I18N;
@@ -43,6 +44,7 @@
 import net.rptools.maptool.model.player.PlayerAwaitingApproval;
 import net.rptools.maptool.model.player.PlayerDatabase;
 import net.rptools.maptool.model.player.PlayerDatabase.AuthMethod;
+import net.rptools.maptool.server.proto.AssetCacheManifestDto;
 import net.rptools.maptool.server.proto.AuthTypeEnum;
 import net.rptools.maptool.server.proto.ClientAuthMsg;
 import net.rptools.maptool.server.proto.ClientInitMsg;
@@ -106,6 +108,12 @@ public class ServerHandshake implements Handshake, MessageHandler {
 
   private MD5Key playerPublicKeyMD5;
 
+  /** The message codecs supported by the client. */
+  private List<String> clientCodecs = List.of();
+
+  /** The assets the client already has, {@code null} if the client did not send a manifest. */
+  private AssetCacheManifestDto assetCacheManifest;
+
   private final boolean useEasyConnect;
 
   /**
@@ -147,10 +155,23 @@ public synchronized Player getPlayer() {
     return player;
   }
 
+  /**
+   * Returns the manifest of the assets the client already has.
+   *
+   * @return the asset cache manifest, or {@code null} if the client did not send one.
+   */
+  public synchronized AssetCacheManifestDto getAssetCacheManifest() {
+    return assetCacheManifest;
+  }
+
   private synchronized void setPlayer(Player player) {
     this.player = player;
   }
 
+  private synchronized void setAssetCacheManifest(AssetCacheManifestDto assetCacheManifest) {
+    this.assetCacheManifest = assetCacheManifest;
+  }
+
   private synchronized void setErrorMessage(String errorMessage) {
     this.errorMessage = errorMessage;
   }
@@ -348,15 +369,19 @@ private void handle(ClientAuthMsg clientAuthMessage)
 
   private void sendConnectionSuccessful() throws ExecutionException, InterruptedException {
     var server = MapTool.getServer();
+    var codec = MessageCodecs.negotiate(clientCodecs);
     var connectionSuccessfulMsg =
         ConnectionSuccessfulMsg.newBuilder()
             .setRoleDto(getPlayer().isGM() ? RoleDto.GM : RoleDto.PLAYER)
             .setServerPolicyDto(server.getPolicy().toDto())
             .setGameDataDto(new DataStoreManager().toDto().get())
-            .setAddOnLibraryListDto(new LibraryManager().addOnLibrariesToDto().get());
+            .setAddOnLibraryListDto(new LibraryManager().addOnLibrariesToDto().get())
+            .setCodec(codec.getName());
     var handshakeMsg =
         HandshakeMsg.newBuilder().setConnectionSuccessfulMsg(connectionSuccessfulMsg).build();
     sendMessage(handshakeMsg);
+    // Frames carry the id of their codec so it is safe to switch once the message is queued.
+    connection.setCodec(codec);
     setCurrentState(State.Success);
     notifyObservers();
   }
@@ -390,6 +415,10 @@ private void handle(ClientInitMsg clientInitMsg)
     }
 
     playerPublicKeyMD5 = new MD5Key(clientInitMsg.getPublicKeyMd5());
+    clientCodecs = List.copyOf(clientInitMsg.getSupportedCodecsList());
+    if (clientInitMsg.hasAssetCacheManifest()) {
+      setAssetCacheManifest(clientInitMsg.getAssetCacheManifest());
+    }
 
     try {
       setPlayer(playerDatabase.getPlayer(clientInitMsg.getPlayerName()));
@@ -36,7 +36,6 @@
 import net.rptools.maptool.model.zones.TokensRemoved;
 import net.rptools.maptool.model.zones.ZoneRemoved;
 import net.rptools.maptool.server.proto.*;
-import net.rptools.maptool.transfer.AssetProducer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tika.utils.ExceptionUtils;
@@ -261,9 +260,16 @@ public void handleMessage(String id, byte[] message) {
 
   private void handle(UpdateExposedAreaMetaMsg msg) {
     Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
-    zone.setExposedAreaMetaData(
-        msg.hasTokenGuid() ? GUID.valueOf(msg.getTokenGuid().getValue()) : null,
-        new ExposedAreaMetaData(Mapper.map(msg.getArea()))); // update the server
+    var tokenGUID = msg.hasTokenGuid() ? GUID.valueOf(msg.getTokenGuid().getValue()) : null;
+    ExposedAreaMetaData meta;
+    if (msg.hasAddedArea()) {
+      meta =
+          zone.getExposedAreaMetaData().computeIfAbsent(tokenGUID, g -> new ExposedAreaMetaData());
+      meta.addToExposedAreaHistory(Mapper.map(msg.getAddedArea()));
+    } else {
+      meta = new ExposedAreaMetaData(Mapper.map(msg.getArea()));
+    }
+    zone.setExposedAreaMetaData(tokenGUID, meta); // update the server
   }
 
   private void handle(UpdateGmMacrosMsg msg) {
@@ -486,7 +492,11 @@ private void handle(String id, GetZoneMsg msg) {
   }
 
   private void handle(String id, GetAssetMsg msg) {
-    getAsset(id, new MD5Key(msg.getAssetId()));
+    if (msg.getPriorityOnly()) {
+      server.prioritizeAsset(id, new MD5Key(msg.getAssetId()));
+    } else {
+      getAsset(id, new MD5Key(msg.getAssetId()), msg.getOffset());
+    }
   }
 
   private void handle(ExposePcAreaMsg msg) {
@@ -506,14 +516,40 @@ private void handle(ExposeFowMsg msg) {
 
   private void handle(String clientId, PutTokenMsg putTokenMsg) {
     var zoneGUID = GUID.valueOf(putTokenMsg.getZoneGuid());
-    var token = Token.fromDto(putTokenMsg.getToken());
-    putToken(clientId, zoneGUID, token);
+    if (putTokenMsg.hasTokenDelta()) {
+      putToken(zoneGUID, putTokenMsg.getTokenDelta());
+    } else {
+      var token = Token.fromDto(putTokenMsg.getToken());
+      putToken(clientId, zoneGUID, token);
+    }
   }
 
   private void handle(String clientId, EditTokenMsg editTokenMsg) {
     var zoneGUID = GUID.valueOf(editTokenMsg.getZoneGuid());
-    var token = Token.fromDto(editTokenMsg.getToken());
-    putToken(clientId, zoneGUID, token);
+    if (editTokenMsg.hasTokenDelta()) {
+      putToken(zoneGUID, editTokenMsg.getTokenDelta());
+    } else {
+      var token = Token.fromDto(editTokenMsg.getToken());
+      putToken(clientId, zoneGUID, token);
+    }
+  }
+
+  /**
+   * Apply the changes to an existing token. Deltas are only sent for tokens the server already has.
+   *
+   * @param zoneGUID the id of the zone of the token.
+   * @param delta the changes to the token.
+   */
+  private void putToken(GUID zoneGUID, TokenDeltaDto delta) {
+    Zone zone = server.getCampaign().getZone(zoneGUID);
+    synchronized (MUTEX) {
+      var token = TokenDelta.apply(zone, delta);
+      if (token == null) {
+        log.warn("Ignoring changes to unknown token " + delta.getTokenGuid());
+        return;
+      }
+      zone.putToken(token);
+    }
   }
 
   private void handle(DrawMsg drawMsg) {
@@ -610,23 +646,11 @@ private void bringTokensToFront(GUID zoneGUID, Set<GUID> tokenSet) {
     }
   }
 
-  private void getAsset(String id, MD5Key assetID) {
+  private void getAsset(String id, MD5Key assetID, long offset) {
     if (assetID == null) {
       return;
     }
-    try {
-      AssetProducer producer =
-          new AssetProducer(
-              assetID,
-              AssetManager.getAssetInfo(assetID).getProperty(AssetManager.NAME),
-              AssetManager.getAssetCacheFile(assetID));
-      var msg = StartAssetTransferMsg.newBuilder().setHeader(producer.getHeader().toDto());
-      server
-          .getConnection()
-          .sendMessage(id, Message.newBuilder().setStartAssetTransferMsg(msg).build());
-      server.addAssetProducer(id, producer);
-
-    } catch (IllegalArgumentException iae) {
+    if (!server.sendAsset(id, assetID, offset, true)) {
       // Sending an empty asset will cause a failure of the image to load on the client side,
       // showing a broken
       // image instead of blowing up
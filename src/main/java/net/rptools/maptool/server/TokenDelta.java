@@ -0,0 +1,178 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.server.proto.TokenDeltaDto;
+import net.rptools.maptool.server.proto.TokenDeltaRemovedKeysDto;
+import net.rptools.maptool.server.proto.TokenDto;
+
+/**
+ * Creates and applies the field level differences between two versions of a {@link TokenDto}, so
+ * that a small edit of a token does not require sending its macros, properties and topology again.
+ *
+ * <p>Map fields are compared entry by entry, all other fields as a whole.
+ */
+public class TokenDelta {
+  private TokenDelta() {}
+
+  /**
+   * Get the changes that turn one version of a token into another.
+   *
+   * @param base the version the receiver is known to have.
+   * @param current the new version.
+   * @return the delta.
+   */
+  public static TokenDeltaDto diff(TokenDto base, TokenDto current) {
+    var delta = TokenDeltaDto.newBuilder().setTokenGuid(current.getId());
+    var changed = TokenDto.newBuilder();
+
+    for (var field : TokenDto.getDescriptor().getFields()) {
+      if (field.isMapField()) {
+        var baseEntries = getEntries(base, field);
+        var currentEntries = getEntries(current, field);
+        var removed = TokenDeltaRemovedKeysDto.newBuilder().setField(field.getNumber());
+        for (var key : baseEntries.keySet()) {
+          if (!currentEntries.containsKey(key)) {
+            if (key instanceof Integer intKey) {
+              removed.addIntKeys(intKey);
+            } else {
+              removed.addStringKeys((String) key);
+            }
+          }
+        }
+        for (var entry : currentEntries.entrySet()) {
+          if (!entry.getValue().equals(baseEntries.get(entry.getKey()))) {
+            changed.addRepeatedField(field, entry.getValue());
+          }
+        }
+        if (removed.getIntKeysCount() > 0 || removed.getStringKeysCount() > 0) {
+          delta.addRemovedKeys(removed);
+        }
+      } else if (field.isRepeated()) {
+        if (!base.getField(field).equals(current.getField(field))) {
+          if (current.getRepeatedFieldCount(field) == 0) {
+            delta.addClearedFields(field.getNumber());
+          } else {
+            changed.setField(field, current.getField(field));
+          }
+        }
+      } else if (base.hasField(field) != current.hasField(field)
+          || !base.getField(field).equals(current.getField(field))) {
+        if (current.hasField(field)) {
+          changed.setField(field, current.getField(field));
+        } else {
+          delta.addClearedFields(field.getNumber());
+        }
+      }
+    }
+
+    return delta.setChanged(changed).build();
+  }
+
+  /**
+   * Apply a delta to a version of a token.
+   *
+   * @param base the version to apply the delta to.
+   * @param delta the delta.
+   * @return the new version.
+   */
+  public static TokenDto apply(TokenDto base, TokenDeltaDto delta) {
+    var descriptor = TokenDto.getDescriptor();
+    var builder = base.toBuilder();
+
+    for (var number : delta.getClearedFieldsList()) {
+      var field = descriptor.findFieldByNumber(number);
+      if (field != null) {
+        builder.clearField(field);
+      }
+    }
+
+    Map<FieldDescriptor, Map<Object, Message>> maps = new LinkedHashMap<>();
+    for (var removed : delta.getRemovedKeysList()) {
+      var field = descriptor.findFieldByNumber(removed.getField());
+      if (field == null || !field.isMapField()) {
+        continue;
+      }
+      var entries = maps.computeIfAbsent(field, f -> getEntries(base, f));
+      entries.keySet().removeAll(removed.getStringKeysList());
+      entries.keySet().removeAll(removed.getIntKeysList());
+    }
+
+    for (var changedField : delta.getChanged().getAllFields().entrySet()) {
+      var field = changedField.getKey();
+      if (field.isMapField()) {
+        var entries = maps.computeIfAbsent(field, f -> getEntries(base, f));
+        for (var entry : (List<?>) changedField.getValue()) {
+          var message = (Message) entry;
+          entries.put(getKey(message), message);
+        }
+      } else {
+        builder.setField(field, changedField.getValue());
+      }
+    }
+
+    for (var map : maps.entrySet()) {
+      builder.clearField(map.getKey());
+      for (var entry : map.getValue().values()) {
+        builder.addRepeatedField(map.getKey(), entry);
+      }
+    }
+
+    return builder.build();
+  }
+
+  /**
+   * Apply a delta to a token of a zone.
+   *
+   * @param zone the zone holding the token.
+   * @param delta the delta.
+   * @return a new token with the delta applied, or {@code null} if the zone has no such token.
+   */
+  public static @Nullable Token apply(Zone zone, TokenDeltaDto delta) {
+    var token = zone.getToken(GUID.valueOf(delta.getTokenGuid()));
+    if (token == null) {
+      return null;
+    }
+    return Token.fromDto(apply(token.toDto(), delta));
+  }
+
+  /**
+   * Get the entries of a map field by key, in their original order.
+   *
+   * @param message the message holding the map.
+   * @param field the map field.
+   * @return the entries by key.
+   */
+  private static Map<Object, Message> getEntries(TokenDto message, FieldDescriptor field) {
+    Map<Object, Message> entries = new LinkedHashMap<>();
+    for (var entry : (List<?>) message.getField(field)) {
+      entries.put(getKey((Message) entry), (Message) entry);
+    }
+    return entries;
+  }
+
+  private static Object getKey(Message entry) {
+    return entry.getField(entry.getDescriptorForType().findFieldByName("key"));
+  }
+}
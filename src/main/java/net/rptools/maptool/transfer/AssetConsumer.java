@@ -15,8 +15,13 @@
 package net.rptools.maptool.transfer;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.server.proto.AssetChunkDto;
 
@@ -26,6 +31,12 @@
  * @author trevor
  */
 public class AssetConsumer {
+  /** The extension of the files the data is received into. */
+  private static final String PART_EXTENSION = ".part";
+
+  /** Matches the names of the files the data is received into. */
+  private static final Pattern PART_FILE_PATTERN = Pattern.compile("([0-9a-f]{32})\\.part");
+
   private File destinationDir;
   private AssetHeader header;
   private long currentPosition;
@@ -34,6 +45,9 @@ public class AssetConsumer {
    * Create a new asset consumer, it will prepare a place to receive the incoming data chunks. When
    * complete the resulting file can be found at getFilename()
    *
+   * <p>If the header has a non zero offset the data already received into the file by an earlier
+   * transfer of the asset is kept and the transfer resumes from the offset.
+   *
    * @param destinationDir - location to store the incoming file
    * @param header - from the corresponding AssetProducer
    */
@@ -51,9 +65,32 @@ public AssetConsumer(File destinationDir, AssetHeader header) {
       destinationDir.mkdirs();
     }
     // Cleanup
-    if (getFilename().exists()) {
+    if (header.getOffset() == 0 && getFilename().exists()) {
       getFilename().delete();
     }
+    currentPosition = header.getOffset();
+  }
+
+  /**
+   * Finds the assets that were partially received into a directory by transfers that did not
+   * complete, so they can be resumed.
+   *
+   * @param destinationDir the directory the data was received into.
+   * @return the size of the data received for each partially received asset.
+   */
+  public static Map<MD5Key, Long> findPartialTransfers(File destinationDir) {
+    Map<MD5Key, Long> partialMap = new HashMap<>();
+    File[] files = destinationDir.listFiles();
+    if (files == null) {
+      return partialMap;
+    }
+    for (File file : files) {
+      var matcher = PART_FILE_PATTERN.matcher(file.getName());
+      if (matcher.matches() && file.length() > 0) {
+        partialMap.put(new MD5Key(matcher.group(1)), file.length());
+      }
+    }
+    return partialMap;
   }
 
   /** @return the ID of the incoming asset */
@@ -66,19 +103,34 @@ public String getName() {
   }
 
   /**
-   * Add the next chunk of data to this consumer
+   * Add the next chunk of data to this consumer. Chunks that do not start where the data received
+   * so far ends are duplicates from a superseded transfer of the asset and are ignored.
    *
    * @param chunk produced from the corresponding AssetProducer
+   * @return true if the chunk was written, false if it was ignored
    * @throws IOException if the file exists but is a directory rather than a regular file, does not
    *     exist but cannot be created, or cannot be opened for any other reason
    */
-  public void update(AssetChunkDto chunk) throws IOException {
+  public boolean update(AssetChunkDto chunk) throws IOException {
+    if (chunk.getOffset() != currentPosition) {
+      return false;
+    }
     File file = getFilename();
-    byte[] data = chunk.getData().toByteArray();
-    try (FileOutputStream out = new FileOutputStream(file, true)) {
-      out.write(data);
+    try (FileChannel channel =
+        FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      long position = currentPosition;
+      for (ByteBuffer data : chunk.getData().asReadOnlyByteBufferList()) {
+        while (data.hasRemaining()) {
+          position += channel.write(data, position);
+        }
+      }
+      currentPosition = position;
+      if (isComplete()) {
+        // Drop anything left over in the file from an earlier transfer
+        channel.truncate(header.getSize());
+      }
     }
-    currentPosition += data.length;
+    return true;
   }
 
   /**
@@ -104,6 +156,17 @@ public long getSize() {
    * @return the file with the data
    */
   public File getFilename() {
-    return new File(destinationDir.getAbsolutePath() + "/" + header.getId() + ".part");
+    return getPartFile(destinationDir, header.getId());
+  }
+
+  /**
+   * Returns the file the data of an asset is received into.
+   *
+   * @param destinationDir the directory the data is received into.
+   * @param id the id of the asset.
+   * @return the file with the data received so far.
+   */
+  public static File getPartFile(File destinationDir, MD5Key id) {
+    return new File(destinationDir.getAbsolutePath() + "/" + id + PART_EXTENSION);
   }
 }
@@ -22,15 +22,30 @@ public class AssetHeader implements Serializable {
   private MD5Key id;
   private String name;
   private long size;
+  private long offset;
 
   public AssetHeader(MD5Key id, String name, long size) {
+    this(id, name, size, 0);
+  }
+
+  /**
+   * Creates the header of a transfer that starts part way through the asset, because the consumer
+   * already has the data before {@code offset}.
+   *
+   * @param id the id of the asset.
+   * @param name the name of the asset.
+   * @param size the size of the asset.
+   * @param offset the position the transfer starts from.
+   */
+  public AssetHeader(MD5Key id, String name, long size, long offset) {
     this.id = id;
     this.size = size;
     this.name = name;
+    this.offset = offset;
   }
 
   public static AssetHeader fromDto(AssetTransferHeaderDto dto) {
-    return new AssetHeader(new MD5Key(dto.getId()), dto.getName(), dto.getSize());
+    return new AssetHeader(new MD5Key(dto.getId()), dto.getName(), dto.getSize(), dto.getOffset());
   }
 
   public MD5Key getId() {
@@ -45,11 +60,17 @@ public String getName() {
     return name;
   }
 
+  /** @return the position the transfer starts from */
+  public long getOffset() {
+    return offset;
+  }
+
   public AssetTransferHeaderDto toDto() {
     return AssetTransferHeaderDto.newBuilder()
         .setName(name)
         .setId(id.toString())
         .setSize(size)
+        .setOffset(offset)
         .build();
   }
 }
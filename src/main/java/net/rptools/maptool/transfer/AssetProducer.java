@@ -14,27 +14,56 @@
  */
 package net.rptools.maptool.transfer;
 
-import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.server.proto.AssetChunkDto;
 
 /**
  * Creates data chunks for transferring binary data. Assumes large datasets (otherwise it would be a
- * direct transfer) so expects the data to be streamed from a file
+ * direct transfer) so expects the data to be streamed from a file.
+ *
+ * <p>The file is memory mapped a window at a time and chunks wrap the mapped memory directly, so
+ * no copies are made until the chunk is serialized for sending.
  *
  * @author trevor
  */
-public class AssetProducer {
+public class AssetProducer implements Closeable {
+  /** The maximum size of the region of the file that is mapped at a time. */
+  private static final long MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+
   private MD5Key id;
   private String name;
   private File assetFile;
   private long length;
-  private long currentPosition = 0;
+  private long offset;
+  private long currentPosition;
+
+  private FileChannel channel;
+  private MappedByteBuffer window;
+  private long windowStart;
 
   public AssetProducer(MD5Key id, String name, File assetFile) {
+    this(id, name, assetFile, 0);
+  }
+
+  /**
+   * Creates a producer that resumes a transfer, only producing the data from {@code offset} on. If
+   * the offset is past the end of the file the whole file is produced.
+   *
+   * @param id the id of the asset.
+   * @param name the name of the asset.
+   * @param assetFile the file containing the asset.
+   * @param offset the amount of data the consumer already has.
+   */
+  public AssetProducer(MD5Key id, String name, File assetFile, long offset) {
     if (!assetFile.exists() || assetFile.isDirectory()) {
       throw new IllegalArgumentException(assetFile + " is an invalid asset path");
     }
@@ -42,15 +71,22 @@ public AssetProducer(MD5Key id, String name, File assetFile) {
     this.name = name;
     this.assetFile = assetFile;
     length = assetFile.length();
+    this.offset = offset > 0 && offset < length ? offset : 0;
+    currentPosition = this.offset;
+  }
+
+  /** @return the ID of the asset being produced */
+  public MD5Key getId() {
+    return id;
   }
 
   /** @return the header needed to create the corresponding AssetConsumer */
   public AssetHeader getHeader() {
-    return new AssetHeader(id, name, assetFile.length());
+    return new AssetHeader(id, name, length, offset);
   }
 
   /**
-   * Get the next chunk of data
+   * Get the next chunk of data. The file is closed once the last chunk has been produced.
    *
    * @param size how many bytes to grab, may end up being less if there isn't enough data
    * @throws IOException if an I/O error occurs or current position in the file is wrong
@@ -60,18 +96,42 @@ public AssetChunkDto nextChunk(int size) throws IOException {
     if (currentPosition + size > length) {
       size = (int) (length - currentPosition);
     }
-    byte[] data = new byte[size];
-    try (FileInputStream in = new FileInputStream(assetFile)) {
-      in.skip(currentPosition);
-      in.read(data, 0, size);
-    }
+    long position = currentPosition;
+    ByteBuffer data = map(position, size);
     currentPosition += size;
+    if (isComplete()) {
+      close();
+    }
     return AssetChunkDto.newBuilder()
         .setId(id.toString())
-        .setData(ByteString.copyFrom(data))
+        .setData(UnsafeByteOperations.unsafeWrap(data))
+        .setOffset(position)
         .build();
   }
 
+  /**
+   * Returns a read only view of a region of the file, mapping a new window of the file if the
+   * region is not inside the current one.
+   *
+   * @param position the start of the region.
+   * @param size the size of the region.
+   * @return the region of the file.
+   * @throws IOException if an error occurs mapping the file.
+   */
+  private ByteBuffer map(long position, int size) throws IOException {
+    if (window == null
+        || position < windowStart
+        || position + size > windowStart + window.capacity()) {
+      if (channel == null) {
+        channel = FileChannel.open(assetFile.toPath(), StandardOpenOption.READ);
+      }
+      long windowSize = Math.min(Math.max(MAP_WINDOW_SIZE, size), length - position);
+      window = channel.map(MapMode.READ_ONLY, position, windowSize);
+      windowStart = position;
+    }
+    return window.slice((int) (position - windowStart), size).asReadOnlyBuffer();
+  }
+
   /**
    * Whether all the data has been transferred
    *
@@ -80,4 +140,18 @@ public AssetChunkDto nextChunk(int size) throws IOException {
   public boolean isComplete() {
     return currentPosition >= length;
   }
+
+  /**
+   * Closes the file. The mapped memory is released once all chunks referring to it are gone.
+   *
+   * @throws IOException if an error occurs closing the file.
+   */
+  @Override
+  public void close() throws IOException {
+    window = null;
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
 }
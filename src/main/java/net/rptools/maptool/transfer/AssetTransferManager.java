@@ -23,18 +23,76 @@
 import java.util.concurrent.CopyOnWriteArrayList;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.server.proto.AssetChunkDto;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 public class AssetTransferManager {
+  /** The smallest chunk size used when adapting the chunk size. */
+  public static final int MIN_CHUNK_SIZE = 16 * 1024;
+  /** The largest chunk size used when adapting the chunk size. */
+  public static final int MAX_CHUNK_SIZE = 1024 * 1024;
+  /**
+   * The number of producers that chunks are taken from in turn. Producers behind them wait, so a
+   * large batch of assets completes one after another rather than all at the end.
+   */
+  public static final int MAX_ACTIVE_PRODUCERS = 4;
+
+  private static final Logger log = LogManager.getLogger(AssetTransferManager.class);
+
   private final Map<MD5Key, AssetConsumer> consumerMap = new HashMap<>();
   private final List<ConsumerListener> consumerListenerList = new CopyOnWriteArrayList<>();
   private final List<AssetProducer> producerList = new LinkedList<>();
+  private int chunkSize = MIN_CHUNK_SIZE;
 
   /** Clear out all existing consumers and producers */
   public synchronized void flush() {
     consumerMap.clear();
+    for (AssetProducer producer : producerList) {
+      try {
+        producer.close();
+      } catch (IOException e) {
+        log.warn("Error closing asset producer", e);
+      }
+    }
     producerList.clear();
   }
 
+  /**
+   * Returns if there are producers with chunks waiting to be sent.
+   *
+   * @return {@code true} if there are chunks waiting to be sent.
+   */
+  public synchronized boolean hasProducers() {
+    return !producerList.isEmpty();
+  }
+
+  /**
+   * Returns the size of the chunks to send next.
+   *
+   * @return the chunk size.
+   */
+  public synchronized int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Adapts the chunk size to how quickly the chunks are being sent. If the previously sent chunks
+   * have all gone out the connection is keeping up so the chunk size is doubled, if they are piling
+   * up it is halved.
+   *
+   * @param queuedChunks the number of chunks still waiting to be sent.
+   * @param maxQueuedChunks the number of queued chunks at which no more chunks are produced.
+   * @return the new chunk size.
+   */
+  public synchronized int adaptChunkSize(int queuedChunks, int maxQueuedChunks) {
+    if (queuedChunks == 0) {
+      chunkSize = Math.min(chunkSize * 2, MAX_CHUNK_SIZE);
+    } else if (queuedChunks * 2 >= maxQueuedChunks) {
+      chunkSize = Math.max(chunkSize / 2, MIN_CHUNK_SIZE);
+    }
+    return chunkSize;
+  }
+
   /**
    * Add a new producer to the chunk queue. Assumes that the header has already been transferred to
    * the consumer. Producer chunks can then be retrieved via nextChunk()
@@ -45,6 +103,39 @@ public synchronized void addProducer(AssetProducer producer) {
     producerList.add(producer);
   }
 
+  /**
+   * Returns if there is a producer for the asset in the chunk queue.
+   *
+   * @param id the id of the asset.
+   * @return {@code true} if the asset is still being produced.
+   */
+  public synchronized boolean hasProducer(MD5Key id) {
+    for (AssetProducer producer : producerList) {
+      if (producer.getId().equals(id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Moves the producer for the asset to the front of the chunk queue, so that its chunks are sent
+   * ahead of those of the assets queued before it.
+   *
+   * @param id the id of the asset.
+   */
+  public synchronized void prioritizeProducer(MD5Key id) {
+    var iterator = producerList.iterator();
+    while (iterator.hasNext()) {
+      AssetProducer producer = iterator.next();
+      if (producer.getId().equals(id)) {
+        iterator.remove();
+        producerList.add(0, producer);
+        return;
+      }
+    }
+  }
+
   /**
    * Get the next chunk from the available producers
    *
@@ -59,7 +150,7 @@ public synchronized AssetChunkDto nextChunk(int size) throws IOException {
     AssetProducer producer = producerList.remove(0);
     AssetChunkDto chunk = producer.nextChunk(size);
     if (!producer.isComplete()) {
-      producerList.add(producer);
+      producerList.add(Math.min(MAX_ACTIVE_PRODUCERS - 1, producerList.size()), producer);
     }
     return chunk;
   }
@@ -68,11 +159,15 @@ public synchronized AssetChunkDto nextChunk(int size) throws IOException {
    * Add the corresponding consumer that is expecting to receive chunks. Add a ConsumerListener to
    * know when the asset is complete
    *
+   * <p>If the asset is already being received the existing consumer is kept, it ignores any chunks
+   * of the new transfer that it already has.
+   *
    * @param consumer the consumer which will receive the chunks
    */
   public synchronized void addConsumer(AssetConsumer consumer) {
     if (consumerMap.get(consumer.getId()) != null) {
-      throw new IllegalArgumentException("Asset is already being downloaded: " + consumer.getId());
+      log.debug("Asset is already being downloaded: " + consumer.getId());
+      return;
     }
     consumerMap.put(consumer.getId(), consumer);
     for (ConsumerListener listener : consumerListenerList) {
@@ -82,7 +177,8 @@ public synchronized void addConsumer(AssetConsumer consumer) {
 
   /**
    * Update the appropriate asset. To be notified when the asset is complete add a ConsumerListener.
-   * When the asset is complete it will be removed from the internal map automatically
+   * When the asset is complete it will be removed from the internal map automatically. Chunks of
+   * assets that have already been received are ignored.
    *
    * @param chunk the chunk to with the data of the update
    * @throws IOException if the file exists but is a directory rather than a regular file, does not
@@ -91,9 +187,12 @@ public synchronized void addConsumer(AssetConsumer consumer) {
   public synchronized void update(AssetChunkDto chunk) throws IOException {
     AssetConsumer consumer = consumerMap.get(new MD5Key(chunk.getId()));
     if (consumer == null) {
-      throw new IllegalArgumentException("Not expecting chunk: " + chunk.getId());
+      log.debug("Not expecting chunk: " + chunk.getId());
+      return;
+    }
+    if (!consumer.update(chunk)) {
+      return;
     }
-    consumer.update(chunk);
     if (consumer.isComplete()) {
       consumerMap.remove(consumer.getId());
       for (ConsumerListener listener : consumerListenerList) {
@@ -106,6 +205,16 @@ public synchronized void update(AssetChunkDto chunk) throws IOException {
     }
   }
 
+  /**
+   * Returns if the asset is being received.
+   *
+   * @param id the id of the asset.
+   * @return {@code true} if there is a consumer for the asset.
+   */
+  public synchronized boolean hasConsumer(MD5Key id) {
+    return consumerMap.containsKey(id);
+  }
+
   /**
    * Get a list of current asset consumers, this is a good way to know what's going on in the system
    *
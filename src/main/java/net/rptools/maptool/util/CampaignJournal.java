@@ -0,0 +1,263 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.ListIterator;
+import net.rptools.maptool.model.Campaign;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.drawing.AbstractTemplate;
+import net.rptools.maptool.model.drawing.DrawnElement;
+import net.rptools.maptool.server.proto.TokenDto;
+import net.rptools.maptool.server.proto.ZoneDto;
+import net.rptools.maptool.server.proto.drawing.DrawnElementDto;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Append-only journal of the changes made to a campaign since it was last saved in full. The
+ * journal belongs to one saved campaign file, identified by a base version (e.g. the last modified
+ * time of that file), and is only replayed onto a campaign loaded from that exact file.
+ *
+ * <p>Entries hold the protobuf form of the changed tokens, drawables and zones, so they are
+ * snapshots that can be created on the thread that owns the campaign and written later in the
+ * background. Changes to the fog of war or the topology only hold those parts of the zone.
+ */
+public class CampaignJournal {
+
+  private static final Logger log = LogManager.getLogger(CampaignJournal.class);
+
+  /** Marks the start of a journal file, "MTJ1". */
+  private static final int MAGIC = 0x4d544a31;
+
+  private static final byte PUT_TOKEN = 1;
+  private static final byte REMOVE_TOKEN = 2;
+  private static final byte PUT_ZONE = 3;
+  private static final byte REMOVE_ZONE = 4;
+  private static final byte PUT_DRAWABLE = 5;
+  private static final byte PUT_DRAWABLE_AT_BACK = 6;
+  private static final byte REMOVE_DRAWABLE = 7;
+  private static final byte PUT_FOG = 8;
+  private static final byte PUT_TOPOLOGY = 9;
+
+  /**
+   * A single change to a campaign.
+   *
+   * @param type the kind of change.
+   * @param zoneId the id of the changed zone, or of the zone of the changed token or drawable.
+   * @param itemId the id of the changed token or drawable, null for changes to the zone.
+   * @param data the protobuf form of what changed.
+   */
+  public record Entry(byte type, GUID zoneId, GUID itemId, byte[] data) {
+
+    public static Entry putToken(Zone zone, Token token) {
+      return new Entry(PUT_TOKEN, zone.getId(), token.getId(), token.toDto().toByteArray());
+    }
+
+    public static Entry removeToken(Zone zone, GUID tokenId) {
+      return new Entry(REMOVE_TOKEN, zone.getId(), tokenId, new byte[0]);
+    }
+
+    public static Entry putZone(Zone zone) {
+      return new Entry(PUT_ZONE, zone.getId(), null, zone.toDto().toByteArray());
+    }
+
+    public static Entry removeZone(GUID zoneId) {
+      return new Entry(REMOVE_ZONE, zoneId, null, new byte[0]);
+    }
+
+    /**
+     * Creates an entry that adds a drawable or replaces it in place.
+     *
+     * @param zone the zone of the drawable.
+     * @param element the drawable.
+     * @param atBack true if a new drawable goes before all others of its layer.
+     * @return the entry.
+     */
+    public static Entry putDrawable(Zone zone, DrawnElement element, boolean atBack) {
+      return new Entry(
+          atBack ? PUT_DRAWABLE_AT_BACK : PUT_DRAWABLE,
+          zone.getId(),
+          element.getDrawable().getId(),
+          element.toDto().toByteArray());
+    }
+
+    public static Entry removeDrawable(Zone zone, GUID drawableId) {
+      return new Entry(REMOVE_DRAWABLE, zone.getId(), drawableId, new byte[0]);
+    }
+
+    public static Entry putFog(Zone zone) {
+      return new Entry(PUT_FOG, zone.getId(), null, zone.toFogDto().toByteArray());
+    }
+
+    public static Entry putTopology(Zone zone) {
+      return new Entry(PUT_TOPOLOGY, zone.getId(), null, zone.toTopologyDto().toByteArray());
+    }
+  }
+
+  private final File file;
+
+  public CampaignJournal(File file) {
+    this.file = file;
+  }
+
+  /** @return the size of the journal in bytes, 0 if there is none. */
+  public long length() {
+    return file.length();
+  }
+
+  /** Removes the journal, e.g. once its changes have been saved in full. */
+  public void delete() {
+    if (file.exists() && !file.delete()) {
+      log.warn("Could not delete campaign journal " + file);
+    }
+  }
+
+  /**
+   * Appends entries to the journal and forces them to disk. The journal is created if it does not
+   * exist yet.
+   *
+   * @param baseVersion the version of the saved campaign file the journal belongs to.
+   * @param entries the entries to append, in the order they are to be replayed.
+   * @throws IOException if the journal could not be written.
+   */
+  public void append(long baseVersion, List<Entry> entries) throws IOException {
+    boolean create = file.length() == 0;
+    try (FileOutputStream fos = new FileOutputStream(file, true);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+      if (create) {
+        out.writeInt(MAGIC);
+        out.writeLong(baseVersion);
+      }
+      for (Entry entry : entries) {
+        out.writeByte(entry.type());
+        out.writeUTF(entry.zoneId().toString());
+        out.writeUTF(entry.itemId() == null ? "" : entry.itemId().toString());
+        out.writeInt(entry.data().length);
+        out.write(entry.data());
+      }
+      out.flush();
+      fos.getFD().sync();
+    }
+  }
+
+  /**
+   * Applies the journal to a campaign that was loaded from the saved campaign file. A journal that
+   * belongs to another version of the file is ignored, and an entry that was cut short by a crash
+   * ends the replay.
+   *
+   * @param campaign the campaign loaded from the saved campaign file.
+   * @param baseVersion the version of the saved campaign file.
+   * @return the number of entries applied.
+   * @throws IOException if the journal could not be read.
+   */
+  public int replay(Campaign campaign, long baseVersion) throws IOException {
+    if (!file.exists()) {
+      return 0;
+    }
+    int applied = 0;
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readLong() != baseVersion) {
+        log.info("Ignoring campaign journal " + file + " written for another campaign file");
+        return 0;
+      }
+      while (true) {
+        int type = in.read();
+        if (type < 0) {
+          break;
+        }
+        GUID zoneId = GUID.valueOf(in.readUTF());
+        String itemId = in.readUTF();
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        apply(campaign, (byte) type, zoneId, itemId, data);
+        applied++;
+      }
+    } catch (EOFException e) {
+      log.warn("Campaign journal " + file + " ends with an incomplete entry, it is skipped");
+    }
+    return applied;
+  }
+
+  private void apply(Campaign campaign, byte type, GUID zoneId, String itemId, byte[] data)
+      throws IOException {
+    if (type == PUT_ZONE) {
+      Zone zone = Zone.fromDto(ZoneDto.parseFrom(data));
+      zone.optimize();
+      campaign.putZone(zone);
+      return;
+    }
+    if (type == REMOVE_ZONE) {
+      campaign.removeZone(zoneId);
+      return;
+    }
+    Zone zone = campaign.getZone(zoneId);
+    if (zone == null) {
+      log.warn("Skipping campaign journal entry for missing zone " + zoneId);
+    } else if (type == PUT_TOKEN) {
+      zone.putToken(Token.fromDto(TokenDto.parseFrom(data)));
+    } else if (type == REMOVE_TOKEN) {
+      zone.removeToken(GUID.valueOf(itemId));
+    } else if (type == PUT_DRAWABLE || type == PUT_DRAWABLE_AT_BACK) {
+      putDrawable(zone, DrawnElement.fromDto(DrawnElementDto.parseFrom(data)), type);
+    } else if (type == REMOVE_DRAWABLE) {
+      zone.removeDrawable(GUID.valueOf(itemId));
+    } else if (type == PUT_FOG) {
+      zone.setFogFromDto(ZoneDto.parseFrom(data));
+    } else if (type == PUT_TOPOLOGY) {
+      zone.setTopologyFromDto(ZoneDto.parseFrom(data));
+    } else {
+      throw new IOException("Unknown campaign journal entry type " + type);
+    }
+  }
+
+  /**
+   * Replaces a drawable in place, keeping its position in the draw order, or adds it if its layer
+   * does not hold it yet.
+   */
+  private void putDrawable(Zone zone, DrawnElement element, byte type) {
+    if (element.getDrawable() instanceof AbstractTemplate template) {
+      template.setZoneId(zone.getId());
+    }
+    GUID id = element.getDrawable().getId();
+    ListIterator<DrawnElement> iterator =
+        zone.getDrawnElements(element.getDrawable().getLayer()).listIterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().getDrawable().getId().equals(id)) {
+        iterator.set(element);
+        return;
+      }
+    }
+    // Moved from another layer
+    zone.removeDrawable(id);
+    if (type == PUT_DRAWABLE_AT_BACK) {
+      zone.addDrawableRear(element);
+    } else {
+      zone.addDrawable(element);
+    }
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import net.rptools.lib.MD5Key;
+
+/**
+ * A cache of decoded images that is bounded by the memory the images use rather than by their
+ * count. Each image is weighed as width x height x bytes per pixel, and the least recently used
+ * images are evicted once the budget is exceeded.
+ *
+ * <p>Images that are pinned, i.e. those used by the current zone, are kept outside of the budget
+ * so that switching to a large map never evicts the images being drawn. Lookups do not lock;
+ * adding and pinning images are rare and synchronized on the cache.
+ */
+public final class ImageCache {
+
+  /** The weigher works in kilobytes so that images of up to 2TB fit into its int weight. */
+  private static final int WEIGHT_UNIT = 1024;
+
+  /**
+   * A snapshot of the cache usage.
+   *
+   * @param usedBytes the bytes used by the evictable images.
+   * @param pinnedBytes the bytes used by the pinned images.
+   * @param budgetBytes the maximum bytes the evictable images may use.
+   * @param hitCount the number of lookups that found their image.
+   * @param missCount the number of lookups that did not find their image.
+   * @param evictionCount the number of images evicted to stay within the budget.
+   */
+  public record Stats(
+      long usedBytes,
+      long pinnedBytes,
+      long budgetBytes,
+      long hitCount,
+      long missCount,
+      long evictionCount) {}
+
+  private final long budgetBytes;
+  private final Cache<MD5Key, BufferedImage> cache;
+  private final Map<MD5Key, BufferedImage> pinnedImages = new ConcurrentHashMap<>();
+  private final LongAdder pinnedHitCount = new LongAdder();
+  private volatile Set<MD5Key> pinnedIds = Collections.emptySet();
+
+  /**
+   * Creates a cache that keeps its evictable images within the given budget.
+   *
+   * @param budgetBytes the maximum number of bytes the evictable images may use.
+   */
+  ImageCache(long budgetBytes) {
+    this.budgetBytes = budgetBytes;
+    // A single segment, otherwise Guava splits the budget and evicts any map larger than a part
+    cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumWeight(Math.max(1, budgetBytes / WEIGHT_UNIT))
+            .weigher((MD5Key id, BufferedImage image) -> getWeight(image))
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Returns the cached image, counting the lookup as a hit or miss.
+   *
+   * @param id the asset id of the image.
+   * @return the image, or null if it is not cached.
+   */
+  BufferedImage get(MD5Key id) {
+    BufferedImage image = pinnedImages.get(id);
+    if (image != null) {
+      pinnedHitCount.increment();
+      return image;
+    }
+    return cache.getIfPresent(id);
+  }
+
+  /**
+   * Returns the cached image without counting the lookup in the statistics.
+   *
+   * @param id the asset id of the image.
+   * @return the image, or null if it is not cached.
+   */
+  BufferedImage peek(MD5Key id) {
+    BufferedImage image = pinnedImages.get(id);
+    return image != null ? image : cache.asMap().get(id);
+  }
+
+  /**
+   * Adds an image to the cache. Images that are larger than the whole budget are kept with the
+   * pinned images until the next {@link #pin(Set)}, as they would otherwise be evicted at once and
+   * decoded again on every paint.
+   *
+   * @param id the asset id of the image.
+   * @param image the decoded image.
+   */
+  synchronized void put(MD5Key id, BufferedImage image) {
+    if (pinnedIds.contains(id) || getBytes(image) > budgetBytes) {
+      cache.invalidate(id);
+      pinnedImages.put(id, image);
+    } else {
+      pinnedImages.remove(id);
+      cache.put(id, image);
+    }
+  }
+
+  /**
+   * Removes an image from the cache.
+   *
+   * @param id the asset id of the image.
+   */
+  synchronized void remove(MD5Key id) {
+    pinnedImages.remove(id);
+    cache.invalidate(id);
+  }
+
+  /** Removes all images from the cache. The pinned ids are kept. */
+  synchronized void clear() {
+    pinnedImages.clear();
+    cache.invalidateAll();
+  }
+
+  /**
+   * Pins the images with the given ids, and makes all other images evictable again. Images that
+   * are not loaded yet are pinned as soon as they are added.
+   *
+   * @param ids the asset ids of the images to pin.
+   */
+  synchronized void pin(Set<MD5Key> ids) {
+    pinnedIds = Collections.unmodifiableSet(new HashSet<>(ids));
+
+    Iterator<Map.Entry<MD5Key, BufferedImage>> iterator = pinnedImages.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<MD5Key, BufferedImage> entry = iterator.next();
+      if (!pinnedIds.contains(entry.getKey())) {
+        iterator.remove();
+        cache.put(entry.getKey(), entry.getValue());
+      }
+    }
+    for (MD5Key id : pinnedIds) {
+      BufferedImage image = id == null ? null : cache.asMap().remove(id);
+      if (image != null) {
+        pinnedImages.put(id, image);
+      }
+    }
+  }
+
+  /**
+   * Unpins a single image, making it evictable even if it is larger than the whole budget. This is
+   * used for images that are no longer drawn directly, such as map images drawn from their tiles.
+   *
+   * @param id the asset id of the image.
+   */
+  synchronized void unpin(MD5Key id) {
+    if (pinnedIds.contains(id)) {
+      Set<MD5Key> ids = new HashSet<>(pinnedIds);
+      ids.remove(id);
+      pinnedIds = Collections.unmodifiableSet(ids);
+    }
+    BufferedImage image = pinnedImages.remove(id);
+    if (image != null) {
+      cache.put(id, image);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the cache usage. This walks the cached images, so it is meant for
+   * occasional reporting rather than for every paint.
+   *
+   * @return the cache statistics.
+   */
+  public Stats getStats() {
+    long usedBytes = 0;
+    for (BufferedImage image : cache.asMap().values()) {
+      usedBytes += getBytes(image);
+    }
+    long pinnedBytes = 0;
+    for (BufferedImage image : pinnedImages.values()) {
+      pinnedBytes += getBytes(image);
+    }
+    CacheStats stats = cache.stats();
+    return new Stats(
+        usedBytes,
+        pinnedBytes,
+        budgetBytes,
+        stats.hitCount() + pinnedHitCount.sum(),
+        stats.missCount(),
+        stats.evictionCount());
+  }
+
+  /**
+   * Returns the memory used by the pixels of the image.
+   *
+   * @param image the image to weigh.
+   * @return the width x height x bytes per pixel of the image.
+   */
+  static long getBytes(BufferedImage image) {
+    SampleModel sampleModel = image.getSampleModel();
+    int bitsPerPixel =
+        sampleModel.getNumDataElements() * DataBuffer.getDataTypeSize(sampleModel.getDataType());
+    return (long) image.getWidth() * image.getHeight() * ((bitsPerPixel + 7) / 8);
+  }
+
+  private static int getWeight(BufferedImage image) {
+    return (int) Math.max(1, Math.min(Integer.MAX_VALUE, getBytes(image) / WEIGHT_UNIT));
+  }
+}
@@ -29,8 +29,6 @@
 import net.rptools.maptool.model.Asset;
 import net.rptools.maptool.model.AssetAvailableListener;
 import net.rptools.maptool.model.AssetManager;
-import org.apache.commons.collections4.map.AbstractReferenceMap;
-import org.apache.commons.collections4.map.ReferenceMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -40,20 +38,20 @@
  * background by one of two threads. The ImageManager will return a "?" (UNKNOWN_IMAGE) if the asset
  * is still downloading or the asset image is still being loaded, and a "X" (BROKEN_IMAGE) if the
  * asset or image is invalid. Small images are loaded using a different thread pool from large
- * images, and allows small images to load quicker.
+ * images, and allows small images to load quicker. The cache is bounded by the memory the images
+ * use, see {@link ImageCache}, and the images of the current zone are pinned in it.
  *
  * @author RPTools Team.
  */
 public class ImageManager {
   private static final Logger log = LogManager.getLogger(ImageManager.class);
 
-  /** Cache of images loaded for assets. */
-  private static final Map<MD5Key, BufferedImage> imageMap = new HashMap<MD5Key, BufferedImage>();
+  /** The share of the maximum heap that the evictable images may use. */
+  private static final int IMAGE_CACHE_HEAP_DIVISOR = 4;
 
-  /** Additional Soft-reference Cache of images that allows best . */
-  private static final Map<MD5Key, BufferedImage> backupImageMap =
-      new ReferenceMap(
-          AbstractReferenceMap.ReferenceStrength.HARD, AbstractReferenceMap.ReferenceStrength.SOFT);
+  /** Cache of images loaded for assets. */
+  private static final ImageCache imageCache =
+      new ImageCache(Runtime.getRuntime().maxMemory() / IMAGE_CACHE_HEAP_DIVISOR);
 
   /**
    * The unknown image, a "?" is used for all situations where the image will eventually appear e.g.
@@ -72,6 +70,9 @@ public class ImageManager {
 
   private static final Object imageLoaderMutex = new Object();
 
+  /** The ids of the images that are being loaded, guarded by {@link #imageLoaderMutex}. */
+  private static final Set<MD5Key> loadingImages = new HashSet<>();
+
   /**
    * A Map containing sets of observers for each asset id. Observers are notified when the image is
    * done loading.
@@ -90,7 +91,10 @@ public class ImageManager {
    * loading.
    */
   public static void flush() {
-    imageMap.clear();
+    synchronized (imageLoaderMutex) {
+      imageCache.clear();
+      loadingImages.clear();
+    }
   }
 
   /**
@@ -104,19 +108,32 @@ public static BufferedImage getImageAndWait(MD5Key assetId) {
   }
 
   /**
-   * Flush all images that are <b>not</b> in the provided set. This presumes that the images in the
-   * exception set will still be in use after the flush.
+   * Pin the images in the provided set so that they are never evicted from the cache, and allow
+   * all other images to be evicted once the cache is full. This presumes that the pinned images
+   * will be in use until the next call, e.g. because they are used by the current zone.
    *
-   * @param exceptionSet a set of images not to be flushed
+   * @param assetIds a set of images to keep in the cache
    */
-  public static void flush(Set<MD5Key> exceptionSet) {
-    synchronized (imageLoaderMutex) {
-      for (MD5Key id : new HashSet<MD5Key>(imageMap.keySet())) {
-        if (!exceptionSet.contains(id)) {
-          imageMap.remove(id);
-        }
-      }
-    }
+  public static void pinImages(Set<MD5Key> assetIds) {
+    imageCache.pin(assetIds);
+  }
+
+  /**
+   * Allow a pinned image to be evicted from the cache, e.g. because it is now drawn from tiles.
+   *
+   * @param assetId the image to unpin
+   */
+  public static void unpinImage(MD5Key assetId) {
+    imageCache.unpin(assetId);
+  }
+
+  /**
+   * Returns the hit, miss and eviction counts and the memory used by the image cache.
+   *
+   * @return the image cache statistics
+   */
+  public static ImageCache.Stats getCacheStats() {
+    return imageCache.getStats();
   }
 
   /**
@@ -172,7 +189,7 @@ public static BufferedImage getImage(MD5Key assetId, ImageObserver... observers)
    * Return the image corresponding to the assetId.
    *
    * @param assetId Load image data from this asset.
-   * @param hints hints used when loading image data, if it isn't in the imageMap already.
+   * @param hints hints used when loading image data, if it isn't in the cache already.
    * @param observers the observers to be notified when the image loads, if it hasn't already.
    * @return the image, or BROKEN_IMAGE if assetId null, or TRANSFERING_IMAGE if loading.
    */
@@ -181,24 +198,23 @@ public static BufferedImage getImage(
     if (assetId == null) {
       return BROKEN_IMAGE;
     }
+    BufferedImage image = imageCache.get(assetId);
+    if (image != null) {
+      return image;
+    }
     synchronized (imageLoaderMutex) {
-      BufferedImage image = imageMap.get(assetId);
-      if (image != null && image != TRANSFERING_IMAGE) {
-        return image;
-      }
-
-      // check if the soft reference still resolves image
-      image = backupImageMap.get(assetId);
+      // The image may have finished loading since the lookup above
+      image = imageCache.peek(assetId);
       if (image != null) {
-        imageMap.put(assetId, image);
         return image;
       }
 
-      // Make note that we're currently processing it
-      imageMap.put(assetId, TRANSFERING_IMAGE);
-
       // Make sure we are informed when it's done loading
       addObservers(assetId, observers);
+      if (!loadingImages.add(assetId)) {
+        // Already being loaded, the observers will be notified by that load
+        return TRANSFERING_IMAGE;
+      }
 
       // Force a load of the asset, this will trigger a transfer if the
       // asset is not available locally
@@ -341,7 +357,7 @@ public static void flushImage(Asset asset) {
    */
   public static void flushImage(MD5Key assetId) {
     // LATER: investigate how this effects images that are already in progress
-    imageMap.remove(assetId);
+    imageCache.remove(assetId);
   }
 
   /**
@@ -383,11 +399,15 @@ public BackgroundImageLoader(Asset asset, Map<String, Object> hints) {
     /** Load the asset raw image data and notify observers that the image is loaded. */
     public void run() {
       log.debug("Loading asset: " + asset.getMD5Key());
-      BufferedImage image = imageMap.get(asset.getMD5Key());
+      BufferedImage image = imageCache.peek(asset.getMD5Key());
 
-      if (image != null && image != TRANSFERING_IMAGE) {
+      if (image != null) {
         // We've somehow already loaded this image
         log.debug("Image wasn't in transit: " + asset.getMD5Key());
+        synchronized (imageLoaderMutex) {
+          loadingImages.remove(asset.getMD5Key());
+          notifyObservers(asset, image);
+        }
         return;
       }
 
@@ -426,9 +446,8 @@ public void run() {
       }
 
       synchronized (imageLoaderMutex) {
-        // Replace placeholder with actual image
-        imageMap.put(asset.getMD5Key(), image);
-        backupImageMap.put(asset.getMD5Key(), image);
+        imageCache.put(asset.getMD5Key(), image);
+        loadingImages.remove(asset.getMD5Key());
         notifyObservers(asset, image);
       }
     }
@@ -485,7 +504,15 @@ public void assetAvailable(MD5Key key) {
 
       // Image is now available for loading
       log.debug("Asset available: " + id);
-      backgroundLoadImage(AssetManager.getAsset(id), hints);
+      Asset asset = AssetManager.getAsset(id);
+      if (asset == null) {
+        // Allow the next request to try again
+        synchronized (imageLoaderMutex) {
+          loadingImages.remove(id);
+        }
+        return;
+      }
+      backgroundLoadImage(asset, hints);
     }
 
     @Override
@@ -14,27 +14,43 @@
  */
 package net.rptools.maptool.util;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.StringValue;
 import com.google.protobuf.util.JsonFormat;
 import com.thoughtworks.xstream.converters.ConversionException;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import javax.imageio.ImageIO;
 import net.rptools.lib.CodeTimer;
 import net.rptools.lib.FileUtil;
@@ -73,6 +89,9 @@
 import net.rptools.maptool.model.transform.campaign.ExportInfoTransform;
 import net.rptools.maptool.model.transform.campaign.PCVisionTransform;
 import net.rptools.maptool.model.transform.campaign.TokenPropertyMapTransform;
+import net.rptools.maptool.server.proto.PersistedCampaignDto;
+import net.rptools.maptool.server.proto.ScaleDto;
+import net.rptools.maptool.server.proto.ZoneDto;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
@@ -98,6 +117,20 @@ public class PersistenceUtil {
 
   private static final String CAMPAIGN_VERSION = "1.11.0";
 
+  /** Binary alternative to the XML content of a campaign file, read in its place when present. */
+  private static final String BINARY_CONTENT_FILE = "content.bin";
+
+  /** Fewer assets than this are read on the calling thread, e.g. when importing a token. */
+  private static final int MIN_PARALLEL_ASSETS = 8;
+
+  private static final int ASSET_READER_THREADS = Runtime.getRuntime().availableProcessors();
+
+  /** Shared by all loads, so that each load doesn't start and stop threads of its own. */
+  private static final ExecutorService assetReader =
+      Executors.newFixedThreadPool(
+          ASSET_READER_THREADS,
+          new ThreadFactoryBuilder().setNameFormat("asset-reader-%d").setDaemon(true).build());
+
   // Please add a single note regarding why the campaign version number has been updated:
   // 1.3.70 ownerOnly added to model.Light (not backward compatible)
   // 1.3.75 model.Token.visibleOnlyToOwner (actually added to b74 but I didn't catch it before
@@ -328,7 +361,11 @@ public static void saveCampaign(Campaign campaign, File campaignFile, String cam
         if (campaignVersion != null) {
           pakFile = CampaignExport.stripContent(pakFile, persistedCampaign, campaignVersion);
         } else {
-          pakFile.setContent(persistedCampaign);
+          if (AppPreferences.getSaveBinaryCampaignContent()) {
+            saveBinaryContent(persistedCampaign, pakFile);
+          } else {
+            pakFile.setContent(persistedCampaign);
+          }
           pakFile.setProperty(PROP_CAMPAIGN_VERSION, CAMPAIGN_VERSION);
           pakFile.setProperty(PROP_VERSION, MapTool.getVersion());
         }
@@ -435,7 +472,30 @@ public static File getCampaignThumbnailFile(String fileName) {
     return new File(AppUtil.getAppHome("campaignthumbs"), fileName + ".jpg");
   }
 
+  /** Receives the progress of loading the assets of a campaign. */
+  @FunctionalInterface
+  public interface LoadProgressListener {
+    /**
+     * @param loadedBytes the size in bytes of the assets loaded so far.
+     * @param totalBytes the size in bytes of all assets to load.
+     */
+    void progress(long loadedBytes, long totalBytes);
+  }
+
   public static PersistedCampaign loadCampaign(File campaignFile) throws IOException {
+    return loadCampaign(campaignFile, (loaded, total) -> {});
+  }
+
+  /**
+   * Loads a campaign file.
+   *
+   * @param campaignFile the campaign file.
+   * @param progressListener told about the progress of loading the assets.
+   * @return the campaign, or null if it could not be loaded.
+   * @throws IOException if the campaign file could not be read.
+   */
+  public static PersistedCampaign loadCampaign(
+      File campaignFile, LoadProgressListener progressListener) throws IOException {
     PersistedCampaign persistedCampaign = null;
 
     // Try the new way first
@@ -453,7 +513,11 @@ public static PersistedCampaign loadCampaign(File campaignFile) throws IOExcepti
       campaignVersion = campaignVersion == null ? "1.3.50" : campaignVersion;
 
       try {
-        persistedCampaign = (PersistedCampaign) pakFile.getContent(campaignVersion);
+        if (pakFile.hasFile(BINARY_CONTENT_FILE)) {
+          persistedCampaign = loadBinaryContent(pakFile);
+        } else {
+          persistedCampaign = (PersistedCampaign) pakFile.getContent(campaignVersion);
+        }
       } catch (ConversionException ce) {
         // Ignore the exception and check for "campaign == null" below...
         MapTool.showError("PersistenceUtil.error.campaignVersion", ce);
@@ -462,7 +526,7 @@ public static PersistedCampaign loadCampaign(File campaignFile) throws IOExcepti
         // Now load up any images that we need
         // Note that the values are all placeholders
         Set<MD5Key> allAssetIds = persistedCampaign.assetMap.keySet();
-        loadAssets(allAssetIds, pakFile);
+        loadAssets(allAssetIds, pakFile, progressListener);
         for (Zone zone : persistedCampaign.campaign.getZones()) {
           zone.optimize();
         }
@@ -507,6 +571,85 @@ public static PersistedCampaign loadCampaign(File campaignFile) throws IOExcepti
     return persistedCampaign;
   }
 
+  /**
+   * Writes the campaign as a stream of protobuf messages: a header holding the campaign without its
+   * zones, followed by the zones. Only one zone is converted at a time, so saving needs far less
+   * memory than building the XML document of the whole campaign.
+   *
+   * @param persistedCampaign the campaign to write.
+   * @param pakFile the campaign file to write to.
+   * @throws IOException if the content could not be written.
+   */
+  @VisibleForTesting
+  static void saveBinaryContent(PersistedCampaign persistedCampaign, PackedFile pakFile)
+      throws IOException {
+    List<Zone> zones = persistedCampaign.campaign.getZones();
+    var header =
+        PersistedCampaignDto.newBuilder()
+            .setCampaign(persistedCampaign.campaign.toDtoWithoutZones())
+            .setZoneCount(zones.size());
+    persistedCampaign.assetMap.keySet().forEach(key -> header.addAssetIds(key.toString()));
+    if (persistedCampaign.currentZoneId != null) {
+      header.setCurrentZoneId(StringValue.of(persistedCampaign.currentZoneId.toString()));
+    }
+    Scale view = persistedCampaign.currentView;
+    if (view != null) {
+      header.setCurrentView(
+          ScaleDto.newBuilder()
+              .setOffsetX(view.getOffsetX())
+              .setOffsetY(view.getOffsetY())
+              .setScale(view.getScale()));
+    }
+
+    try (OutputStream out =
+        new BufferedOutputStream(pakFile.getOutputStream(BINARY_CONTENT_FILE))) {
+      header.build().writeDelimitedTo(out);
+      for (Zone zone : zones) {
+        zone.toDto().writeDelimitedTo(out);
+      }
+    }
+  }
+
+  /**
+   * Reads the campaign written by {@link #saveBinaryContent(PersistedCampaign, PackedFile)}.
+   *
+   * @param pakFile the campaign file to read from.
+   * @return the campaign.
+   * @throws IOException if the content could not be read or is incomplete.
+   */
+  @VisibleForTesting
+  static PersistedCampaign loadBinaryContent(PackedFile pakFile) throws IOException {
+    PersistedCampaign persistedCampaign = new PersistedCampaign();
+    try (InputStream in =
+        new BufferedInputStream(pakFile.getFileAsInputStream(BINARY_CONTENT_FILE))) {
+      PersistedCampaignDto header = PersistedCampaignDto.parseDelimitedFrom(in);
+      if (header == null) {
+        throw new EOFException(BINARY_CONTENT_FILE + " is empty");
+      }
+      persistedCampaign.campaign = Campaign.fromDto(header.getCampaign());
+      for (int i = 0; i < header.getZoneCount(); i++) {
+        ZoneDto zone = ZoneDto.parseDelimitedFrom(in);
+        if (zone == null) {
+          throw new EOFException(BINARY_CONTENT_FILE + " ends after " + i + " zones");
+        }
+        persistedCampaign.campaign.putZone(Zone.fromDto(zone));
+      }
+      for (String assetId : header.getAssetIdsList()) {
+        persistedCampaign.assetMap.put(new MD5Key(assetId), null);
+      }
+      if (header.hasCurrentZoneId()) {
+        persistedCampaign.currentZoneId = GUID.valueOf(header.getCurrentZoneId().getValue());
+      }
+      if (header.hasCurrentView()) {
+        Scale view = new Scale();
+        view.setOffset(header.getCurrentView().getOffsetX(), header.getCurrentView().getOffsetY());
+        view.setScale(header.getCurrentView().getScale());
+        persistedCampaign.currentView = view;
+      }
+    }
+    return persistedCampaign;
+  }
+
   private static String getThumbFilename(PackedFile pakFile) throws IOException {
     if ((MapTool.getThumbnailSize().width > 50 || MapTool.getThumbnailSize().height > 50)
         && pakFile.hasFile(Token.FILE_THUMBNAIL_LARGE)) return Token.FILE_THUMBNAIL_LARGE;
@@ -601,72 +744,38 @@ public static Token loadToken(URL url) throws IOException {
 
   private static void loadAssets(Collection<MD5Key> assetIds, PackedFile pakFile)
       throws IOException {
-    // Special handling of assets: XML file to describe the Asset, but binary file for the image
-    // data
-    pakFile.getXStream().processAnnotations(Asset.class);
-
-    String campaignVersion = (String) pakFile.getProperty(PROP_CAMPAIGN_VERSION);
-    String progVersion = (String) pakFile.getProperty(PROP_VERSION);
-    List<Asset> addToServer = new ArrayList<Asset>(assetIds.size());
-
-    // FJE: Ugly fix for a bug I introduced in b64. :(
-    boolean fixRequired = "1.3.b64".equals(progVersion);
+    loadAssets(assetIds, pakFile, (loaded, total) -> {});
+  }
 
+  /**
+   * Loads the assets that are not known yet from a packed file and registers them with the {@link
+   * AssetManager}.
+   *
+   * @param assetIds the ids of the assets to load.
+   * @param pakFile the packed file holding the assets.
+   * @param progressListener told about the progress in bytes after each asset.
+   * @throws IOException if the packed file could not be read, or loading was interrupted.
+   */
+  private static void loadAssets(
+      Collection<MD5Key> assetIds, PackedFile pakFile, LoadProgressListener progressListener)
+      throws IOException {
+    List<MD5Key> keysToLoad = new ArrayList<>();
     for (MD5Key key : assetIds) {
-      if (key == null) continue;
-
-      if (!AssetManager.hasAsset(key)) {
-        String pathname = ASSET_DIR + key;
-        Asset asset = null;
-        if (fixRequired) {
-          try (InputStream is = pakFile.getFileAsInputStream(pathname)) {
-            asset =
-                Asset.createAssetDetectType(
-                    key.toString(), IOUtils.toByteArray(is)); // Ugly bug fix :(
-          } catch (FileNotFoundException fnf) {
-            // Doesn't need to be reported, since that's handled below.
-          } catch (Exception e) {
-            log.error("Could not load asset from 1.3.b64 file in compatibility mode", e);
-          }
-        } else {
-          try {
-            asset = pakFile.getAsset(pathname);
-          } catch (Exception e) {
-            // Do nothing. The asset will be 'null' and it'll be handled below.
-            log.info("Exception while handling asset '" + pathname + "'", e);
-          }
-        }
-        if (asset == null) { // Referenced asset not included in PackedFile??
-          log.error("Referenced asset '" + pathname + "' not found while loading?!");
-          continue;
-        }
-        // If the asset was marked as "broken" then ignore it completely. The end
-        // result is that MT will attempt to load it from a repository again, as normal.
-        if ("broken".equals(asset.getName())) {
-          log.warn("Reference to 'broken' asset '" + pathname + "' not restored.");
-          ImageManager.flushImage(asset);
-          continue;
-        }
-        // pre 1.3b52 campaign files stored the image data directly in the asset serialization.
-        // New XStreamConverter creates empty byte[] for image.
-        if (asset.getData() == null || asset.getData().length < 4) {
-          String ext = asset.getExtension();
-          pathname = pathname + "." + (StringUtil.isEmpty(ext) ? "dat" : ext);
-          pathname = assetnameVersionManager.transform(pathname, campaignVersion);
-          try (InputStream is = pakFile.getFileAsInputStream(pathname)) {
-            asset = asset.setData(IOUtils.toByteArray(is), false);
-          } catch (FileNotFoundException fnf) {
-            log.error("Image data for '" + pathname + "' not found?!", fnf);
-            continue;
-          } catch (Exception e) {
-            log.error("While reading image data for '" + pathname + "'", e);
-            continue;
-          }
-        }
-        AssetManager.putAsset(asset);
-        addToServer.add(asset);
+      if (key != null && !AssetManager.hasAsset(key)) {
+        keysToLoad.add(key);
       }
     }
+
+    List<Asset> addToServer = new ArrayList<Asset>(keysToLoad.size());
+    readAssets(
+        keysToLoad,
+        pakFile,
+        progressListener,
+        asset -> {
+          AssetManager.putAsset(asset);
+          addToServer.add(asset);
+        });
+
     if (!addToServer.isEmpty()) {
       // Isn't this the same as (MapTool.getServer() == null) ? And won't there always
       // be a server? Even if we don't start one explicitly, MapTool keeps a server
@@ -687,6 +796,152 @@ private static void loadAssets(Collection<MD5Key> assetIds, PackedFile pakFile)
     }
   }
 
+  /**
+   * Reads assets from a packed file. Reading, type detection and MD5 verification of the assets
+   * run in parallel on the shared asset reader threads, or on the calling thread if there are only
+   * a few of them, while the assets read so far are handed to the consumer on the calling thread.
+   *
+   * @param keys the ids of the assets to read.
+   * @param pakFile the packed file holding the assets.
+   * @param progressListener told about the progress in bytes after each asset.
+   * @param assetConsumer given each asset that could be read, in the order they were read.
+   * @throws IOException if the packed file could not be read, or reading was interrupted.
+   */
+  @VisibleForTesting
+  static void readAssets(
+      List<MD5Key> keys,
+      PackedFile pakFile,
+      LoadProgressListener progressListener,
+      Consumer<Asset> assetConsumer)
+      throws IOException {
+    // Special handling of assets: XML file to describe the Asset, but binary file for the image
+    // data
+    pakFile.getXStream().processAnnotations(Asset.class);
+
+    String campaignVersion = (String) pakFile.getProperty(PROP_CAMPAIGN_VERSION);
+    String progVersion = (String) pakFile.getProperty(PROP_VERSION);
+
+    // FJE: Ugly fix for a bug I introduced in b64. :(
+    boolean fixRequired = "1.3.b64".equals(progVersion);
+
+    // Size in bytes of the descriptor and data entries of each asset
+    Map<String, Long> assetSizes = new HashMap<>();
+    for (String path : pakFile.getPaths()) {
+      if (path.startsWith(ASSET_DIR)) {
+        String name = path.substring(ASSET_DIR.length());
+        int dot = name.indexOf('.');
+        assetSizes.merge(
+            dot < 0 ? name : name.substring(0, dot), pakFile.getFileSize(path), Long::sum);
+      }
+    }
+    long totalBytes = 0;
+    for (MD5Key key : keys) {
+      totalBytes += assetSizes.getOrDefault(key.toString(), 0L);
+    }
+    long loadedBytes = 0;
+
+    ExecutorService executor =
+        keys.size() < MIN_PARALLEL_ASSETS ? MoreExecutors.newDirectExecutorService() : assetReader;
+    CompletionService<LoadedAsset> completionService = new ExecutorCompletionService<>(executor);
+    // Limit the assets in flight, so that reading doesn't run too far ahead of registering them
+    int maxInFlight = ASSET_READER_THREADS * 4;
+    int inFlight = 0;
+    List<Future<LoadedAsset>> futures = new ArrayList<>(keys.size());
+    Iterator<MD5Key> keyIterator = keys.iterator();
+    try {
+      while (keyIterator.hasNext() || inFlight > 0) {
+        while (inFlight < maxInFlight && keyIterator.hasNext()) {
+          MD5Key key = keyIterator.next();
+          futures.add(
+              completionService.submit(
+                  () ->
+                      new LoadedAsset(
+                          key, readAsset(key, pakFile, fixRequired, campaignVersion))));
+          inFlight++;
+        }
+        LoadedAsset loaded = completionService.take().get();
+        inFlight--;
+        if (loaded.asset() != null) {
+          assetConsumer.accept(loaded.asset());
+        }
+        loadedBytes += assetSizes.getOrDefault(loaded.key().toString(), 0L);
+        progressListener.progress(loadedBytes, totalBytes);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while loading assets");
+    } catch (ExecutionException e) {
+      throw new IOException("Could not load assets", e.getCause());
+    } finally {
+      // The reader threads are shared, so only stop the reads of this load if it failed
+      for (Future<LoadedAsset> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private record LoadedAsset(MD5Key key, Asset asset) {}
+
+  /**
+   * Reads a single asset from a packed file. Called from several threads at once.
+   *
+   * @return the asset, or null if it could not be read or was marked as broken.
+   */
+  private static Asset readAsset(
+      MD5Key key, PackedFile pakFile, boolean fixRequired, String campaignVersion) {
+    String pathname = ASSET_DIR + key;
+    Asset asset = null;
+    if (fixRequired) {
+      try (InputStream is = pakFile.getFileAsInputStream(pathname)) {
+        asset =
+            Asset.createAssetDetectType(key.toString(), IOUtils.toByteArray(is)); // Ugly bug fix :(
+      } catch (FileNotFoundException fnf) {
+        // Doesn't need to be reported, since that's handled below.
+      } catch (Exception e) {
+        log.error("Could not load asset from 1.3.b64 file in compatibility mode", e);
+      }
+    } else {
+      try {
+        asset = pakFile.getAsset(pathname);
+      } catch (Exception e) {
+        // Do nothing. The asset will be 'null' and it'll be handled below.
+        log.info("Exception while handling asset '" + pathname + "'", e);
+      }
+    }
+    if (asset == null) { // Referenced asset not included in PackedFile??
+      log.error("Referenced asset '" + pathname + "' not found while loading?!");
+      return null;
+    }
+    // If the asset was marked as "broken" then ignore it completely. The end
+    // result is that MT will attempt to load it from a repository again, as normal.
+    if ("broken".equals(asset.getName())) {
+      log.warn("Reference to 'broken' asset '" + pathname + "' not restored.");
+      ImageManager.flushImage(asset);
+      return null;
+    }
+    // pre 1.3b52 campaign files stored the image data directly in the asset serialization.
+    // New XStreamConverter creates empty byte[] for image.
+    if (asset.getData() == null || asset.getData().length < 4) {
+      String ext = asset.getExtension();
+      pathname = pathname + "." + (StringUtil.isEmpty(ext) ? "dat" : ext);
+      pathname = assetnameVersionManager.transform(pathname, campaignVersion);
+      try (InputStream is = pakFile.getFileAsInputStream(pathname)) {
+        asset = asset.setData(IOUtils.toByteArray(is), false);
+      } catch (FileNotFoundException fnf) {
+        log.error("Image data for '" + pathname + "' not found?!", fnf);
+        return null;
+      } catch (Exception e) {
+        log.error("While reading image data for '" + pathname + "'", e);
+        return null;
+      }
+    }
+    if (!key.equals(new MD5Key(asset.getData()))) {
+      // Still load it as before, the asset is registered under the MD5 of the data it has now
+      log.warn("Data of asset '" + pathname + "' does not match its MD5 key");
+    }
+    return asset;
+  }
+
   /**
    * Loads the add-on libraries from the campaign file.
    *
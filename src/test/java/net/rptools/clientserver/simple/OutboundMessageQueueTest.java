@@ -0,0 +1,108 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class OutboundMessageQueueTest {
+
+  private enum TestChannel implements PrioritizedChannel {
+    ASSETS(MessagePriority.ASSET);
+
+    private final MessagePriority priority;
+
+    TestChannel(MessagePriority priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public MessagePriority getPriority() {
+      return priority;
+    }
+  }
+
+  private static byte[] msg(int value) {
+    return new byte[] {(byte) value};
+  }
+
+  @Test
+  @DisplayName("Interactive messages are sent before queued asset and bulk messages")
+  void testPriority() {
+    var queue = new OutboundMessageQueue();
+    queue.add("bulk", null, msg(1));
+    queue.add(TestChannel.ASSETS, null, msg(2));
+    queue.add(TestChannel.ASSETS, null, msg(3));
+    queue.add(null, null, msg(4));
+
+    assertEquals(1, queue.getDepth(MessagePriority.INTERACTIVE));
+    assertEquals(2, queue.getDepth(MessagePriority.ASSET));
+    assertEquals(1, queue.getDepth(MessagePriority.BULK));
+
+    assertArrayEquals(msg(4), queue.nextMessage());
+    assertArrayEquals(msg(2), queue.nextMessage());
+    queue.add(null, null, msg(5));
+    assertArrayEquals(msg(5), queue.nextMessage());
+    assertArrayEquals(msg(3), queue.nextMessage());
+    assertArrayEquals(msg(1), queue.nextMessage());
+    assertFalse(queue.hasMoreMessages());
+    assertNull(queue.nextMessage());
+  }
+
+  @Test
+  @DisplayName("Superseded messages are dropped and the latest is sent in its own position")
+  void testCoalescing() {
+    var queue = new OutboundMessageQueue();
+    queue.add(null, "token-a", msg(1));
+    queue.add(null, null, msg(2));
+    queue.add(null, "token-b", msg(3));
+    queue.add(null, "token-a", msg(4));
+
+    assertEquals(3, queue.getDepth());
+    assertEquals(1, queue.getCoalescedCount());
+
+    assertArrayEquals(msg(2), queue.nextMessage());
+    assertArrayEquals(msg(3), queue.nextMessage());
+    assertArrayEquals(msg(4), queue.nextMessage());
+    assertFalse(queue.hasMoreMessages());
+
+    // Once sent a message can no longer be superseded.
+    queue.add(null, "token-a", msg(5));
+    assertEquals(1, queue.getCoalescedCount());
+    assertArrayEquals(msg(5), queue.nextMessage());
+  }
+
+  @Test
+  @DisplayName("A message superseded on another channel is taken off that priority's depth")
+  void testCoalescingAcrossPriorities() {
+    var queue = new OutboundMessageQueue();
+    queue.add("bulk", "token-a", msg(1));
+    queue.add(TestChannel.ASSETS, null, msg(2));
+    queue.add(null, "token-a", msg(3));
+
+    assertEquals(1, queue.getDepth(MessagePriority.INTERACTIVE));
+    assertEquals(1, queue.getDepth(MessagePriority.ASSET));
+    assertEquals(0, queue.getDepth(MessagePriority.BULK));
+    assertEquals(2, queue.getDepth());
+
+    assertArrayEquals(msg(3), queue.nextMessage());
+    assertArrayEquals(msg(2), queue.nextMessage());
+    assertNull(queue.nextMessage());
+    assertEquals(0, queue.getDepth(MessagePriority.BULK));
+    assertFalse(queue.hasMoreMessages());
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MessageCodecsTest {
+
+  private static byte[] createMessage(int size) {
+    byte[] message = new byte[size];
+    new Random(7).nextBytes(message);
+    for (int i = size / 2; i < size; i++) {
+      message[i] = (byte) (i % 32);
+    }
+    return message;
+  }
+
+  @Test
+  @DisplayName("All codecs round trip messages")
+  void testRoundTrip() throws IOException {
+    byte[] message = createMessage(64 * 1024);
+    for (String name : MessageCodecs.getSupportedCodecNames()) {
+      var codec = MessageCodecs.forName(name).orElseThrow();
+      var statistics = new MessageCodecStatistics();
+      byte[] frame = MessageCodecs.encode(codec, message, statistics);
+      assertEquals(codec.getId(), frame[0]);
+      assertArrayEquals(message, MessageCodecs.decode(frame, statistics));
+
+      var counters = statistics.getCounters(name);
+      assertEquals(1, counters.getEncodedMessages());
+      assertEquals(1, counters.getDecodedMessages());
+      assertEquals(message.length, counters.getEncodeInputBytes());
+      assertEquals(frame.length, counters.getEncodeOutputBytes());
+    }
+  }
+
+  @Test
+  @DisplayName("Small messages are not compressed")
+  void testThreshold() throws IOException {
+    byte[] message = createMessage(MessageCodecs.COMPRESSION_THRESHOLD - 1);
+    var statistics = new MessageCodecStatistics();
+    byte[] frame =
+        MessageCodecs.encode(
+            MessageCodecs.forName(LzmaMessageCodec.NAME).orElseThrow(), message, statistics);
+    assertEquals(new NoneMessageCodec().getId(), frame[0]);
+    assertEquals(message.length + 1, frame.length);
+    assertArrayEquals(message, MessageCodecs.decode(frame, statistics));
+    assertEquals(1, statistics.getCounters(NoneMessageCodec.NAME).getEncodedMessages());
+  }
+
+  @Test
+  @DisplayName("Negotiation picks the preferred codec supported by both sides")
+  void testNegotiate() {
+    assertEquals(
+        DeflateMessageCodec.NAME,
+        MessageCodecs.negotiate(List.of(LzmaMessageCodec.NAME, DeflateMessageCodec.NAME))
+            .getName());
+    assertEquals(
+        Lz4MessageCodec.NAME,
+        MessageCodecs.negotiate(MessageCodecs.getSupportedCodecNames()).getName());
+    assertEquals(
+        MessageCodecs.getDefaultCodec(), MessageCodecs.negotiate(List.of("does-not-exist")));
+  }
+
+  @Test
+  @DisplayName("Messages are sent in the legacy encoding until a codec is negotiated")
+  void testLegacy() throws IOException {
+    byte[] message = createMessage(64);
+    var statistics = new MessageCodecStatistics();
+    byte[] frame = MessageCodecs.encode(MessageCodecs.getDefaultCodec(), message, statistics);
+    // Plain LZMA as written by older versions, starting with its properties byte
+    assertArrayEquals(new LzmaMessageCodec().encode(message), frame);
+    assertEquals(0x5D, frame[0]);
+    assertArrayEquals(message, MessageCodecs.decode(frame, statistics));
+  }
+
+  @Test
+  @DisplayName("Frames without a codec id that are not valid LZMA are rejected")
+  void testUnknownCodec() {
+    assertThrows(
+        IOException.class,
+        () -> MessageCodecs.decode(new byte[] {(byte) 0x7f, 1, 2}, new MessageCodecStatistics()));
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.rptools.clientserver.simple.AbstractConnection;
+import net.rptools.clientserver.simple.client.ClientConnection;
+import net.rptools.maptool.server.Handshake;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class AbstractServerConnectionTest {
+
+  /** Server connection that is never opened, clients are added directly via the handshake. */
+  private static class TestServerConnection extends AbstractServerConnection {
+    TestServerConnection() {
+      super(Mockito.mock(HandshakeProvider.class));
+    }
+
+    void addClient(ClientConnection conn) {
+      Handshake handshake = Mockito.mock(Handshake.class);
+      Mockito.when(handshake.isSuccessful()).thenReturn(true);
+      Mockito.when(handshake.getConnection()).thenReturn(conn);
+      onCompleted(handshake);
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public String getError() {
+      return null;
+    }
+  }
+
+  /** Client connection that only queues messages and never writes them anywhere. */
+  private static class QueueingClientConnection extends AbstractConnection
+      implements ClientConnection {
+    private final String id;
+
+    QueueingClientConnection(String id) {
+      this.id = id;
+    }
+
+    @Override
+    public void sendMessage(byte[] message) {
+      sendMessage(null, message);
+    }
+
+    @Override
+    public void sendMessage(Object channel, byte[] message) {
+      addMessage(channel, message);
+    }
+
+    @Override
+    public void sendCompressedMessage(
+        Object channel, Object coalesceKey, byte[] compressedMessage) {
+      addCompressedMessage(channel, coalesceKey, compressedMessage);
+    }
+
+    @Override
+    public boolean isAlive() {
+      return true;
+    }
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public String getError() {
+      return null;
+    }
+
+    void drain() {
+      while (hasMoreMessages()) {
+        nextMessage();
+      }
+    }
+  }
+
+  private static List<QueueingClientConnection> addClients(
+      TestServerConnection server, int count) {
+    List<QueueingClientConnection> clients = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      var conn = new QueueingClientConnection("client-" + i);
+      server.addClient(conn);
+      clients.add(conn);
+    }
+    return clients;
+  }
+
+  private static byte[] createMessage(int size) {
+    // Half random, half repeating so the compressor has something to do.
+    byte[] message = new byte[size];
+    new Random(42).nextBytes(message);
+    for (int i = size / 2; i < size; i++) {
+      message[i] = (byte) (i % 16);
+    }
+    return message;
+  }
+
+  @Test
+  @DisplayName("Broadcast shares one compressed payload between all clients")
+  void testBroadcastSharesPayload() {
+    var server = new TestServerConnection();
+    var clients = addClients(server, 5);
+
+    server.broadcastMessage(new String[] {"client-2"}, createMessage(4096));
+
+    byte[] first = clients.get(0).nextMessage();
+    assertNotNull(first);
+    for (var conn : clients) {
+      if (conn.getId().equals("client-2")) {
+        assertFalse(conn.hasMoreMessages());
+      } else if (conn != clients.get(0)) {
+        assertSame(first, conn.nextMessage());
+      }
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  @DisplayName("Benchmark CPU time per broadcast against number of clients")
+  void benchmarkBroadcast() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (!threadBean.isCurrentThreadCpuTimeSupported()) {
+      return;
+    }
+    byte[] message = createMessage(16 * 1024);
+    int iterations = 20;
+
+    for (int clientCount : new int[] {1, 4, 8, 12}) {
+      var server = new TestServerConnection();
+      var clients = addClients(server, clientCount);
+
+      long start = threadBean.getCurrentThreadCpuTime();
+      for (int i = 0; i < iterations; i++) {
+        for (var conn : clients) {
+          conn.sendMessage(message);
+        }
+      }
+      long perClient = (threadBean.getCurrentThreadCpuTime() - start) / iterations;
+      clients.forEach(QueueingClientConnection::drain);
+
+      start = threadBean.getCurrentThreadCpuTime();
+      for (int i = 0; i < iterations; i++) {
+        server.broadcastMessage(message);
+      }
+      long shared = (threadBean.getCurrentThreadCpuTime() - start) / iterations;
+      clients.forEach(QueueingClientConnection::drain);
+
+      System.out.printf(
+          "broadcast to %2d clients: compress per client %,d us, compress once %,d us%n",
+          clientCount, perClient / 1000, shared / 1000);
+    }
+  }
+}
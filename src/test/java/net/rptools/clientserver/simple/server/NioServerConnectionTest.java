@@ -0,0 +1,120 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import net.rptools.clientserver.simple.client.ClientConnection;
+import net.rptools.clientserver.simple.client.SocketClientConnection;
+import net.rptools.maptool.server.Handshake;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class NioServerConnectionTest {
+
+  /** Handshake provider that accepts every connection straight away. */
+  private static HandshakeProvider acceptAll(NioServerConnection[] server) {
+    HandshakeProvider provider = Mockito.mock(HandshakeProvider.class);
+    Mockito.when(provider.getConnectionHandshake(Mockito.any()))
+        .thenAnswer(
+            invocation -> {
+              ClientConnection conn = invocation.getArgument(0);
+              Handshake handshake = Mockito.mock(Handshake.class);
+              Mockito.when(handshake.isSuccessful()).thenReturn(true);
+              Mockito.when(handshake.getConnection()).thenReturn(conn);
+              Mockito.doAnswer(
+                      i -> {
+                        server[0].onCompleted(handshake);
+                        return null;
+                      })
+                  .when(handshake)
+                  .startHandshake();
+              return handshake;
+            });
+    return provider;
+  }
+
+  private static byte[] createMessage(int size, int seed) {
+    byte[] message = new byte[size];
+    new Random(seed).nextBytes(message);
+    return message;
+  }
+
+  @Test
+  @DisplayName("Messages are exchanged in order with socket clients")
+  void testRoundTrip() throws Exception {
+    var holder = new NioServerConnection[1];
+    var server = new NioServerConnection(0, acceptAll(holder));
+    holder[0] = server;
+    BlockingQueue<byte[]> serverReceived = new LinkedBlockingQueue<>();
+    server.addMessageHandler((id, message) -> serverReceived.add(message));
+    server.open();
+
+    var client = new SocketClientConnection("client", "localhost", server.getLocalPort());
+    BlockingQueue<byte[]> clientReceived = new LinkedBlockingQueue<>();
+    client.addMessageHandler((id, message) -> clientReceived.add(message));
+    try {
+      client.open();
+
+      // Mix of messages below the compression threshold and ones larger than the read buffer.
+      List<byte[]> messages =
+          List.of(createMessage(10, 1), createMessage(200 * 1024, 2), createMessage(3000, 3));
+      for (byte[] message : messages) {
+        client.sendMessage(message);
+      }
+      for (byte[] message : messages) {
+        assertArrayEquals(message, serverReceived.poll(10, TimeUnit.SECONDS));
+      }
+
+      for (byte[] message : messages) {
+        server.broadcastMessage(message);
+      }
+      for (byte[] message : messages) {
+        assertArrayEquals(message, clientReceived.poll(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      client.close();
+      server.close();
+    }
+  }
+
+  @Test
+  @DisplayName("Clients announcing a message larger than the maximum are disconnected")
+  void testOversizedMessage() throws Exception {
+    var holder = new NioServerConnection[1];
+    var server = new NioServerConnection(0, acceptAll(holder));
+    holder[0] = server;
+    server.open();
+    try (Socket socket = new Socket("localhost", server.getLocalPort())) {
+      socket.setSoTimeout(10000);
+      var out = new DataOutputStream(socket.getOutputStream());
+      out.writeInt(NioClientConnection.MAX_MESSAGE_LENGTH + 1);
+      out.flush();
+
+      // The server closes the connection instead of allocating the message
+      assertEquals(-1, socket.getInputStream().read());
+    } finally {
+      server.close();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class GeometryUtilTest {
+
+  @Test
+  @DisplayName("The cascaded union equals adding the areas one at a time.")
+  void testUnion() {
+    List<Area> areas = new ArrayList<>();
+    Area expected = new Area();
+    for (int i = 0; i < 37; i++) {
+      var area = new Area(new Ellipse2D.Double(i * 15, (i % 5) * 20, 40, 40));
+      areas.add(area);
+      expected.add(area);
+    }
+    areas.add(new Area());
+
+    Area union = GeometryUtil.union(areas);
+
+    assertEquals(expected.getBounds2D(), union.getBounds2D());
+    for (double x = -5.5; x < 600; x += 3) {
+      for (double y = -5.5; y < 130; y += 3) {
+        assertEquals(expected.contains(x, y), union.contains(x, y));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("The union does not modify its inputs.")
+  void testUnionKeepsInputs() {
+    var first = new Area(new Rectangle(0, 0, 10, 10));
+    var second = new Area(new Rectangle(5, 5, 10, 10));
+
+    Area union = GeometryUtil.union(List.of(first, second));
+
+    assertEquals(new Rectangle(0, 0, 10, 10), first.getBounds());
+    assertEquals(new Rectangle(5, 5, 10, 10), second.getBounds());
+    assertEquals(new Rectangle(0, 0, 15, 15), union.getBounds());
+    assertTrue(GeometryUtil.union(List.of()).isEmpty());
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.image;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+class LargeImageTest {
+
+  @Test
+  void testLevelCount() {
+    assertEquals(1, LargeImage.getLevelCount(256, 100));
+    assertEquals(2, LargeImage.getLevelCount(257, 100));
+    assertEquals(3, LargeImage.getLevelCount(1024, 1000));
+    assertEquals(7, LargeImage.getLevelCount(16384, 8000));
+  }
+
+  @Test
+  void testLevelSize() {
+    assertEquals(1000, LargeImage.getLevelSize(1000, 0));
+    assertEquals(500, LargeImage.getLevelSize(1000, 1));
+    assertEquals(3, LargeImage.getLevelSize(9, 2));
+  }
+
+  @Test
+  void testLevelForScale() {
+    assertEquals(0, LargeImage.getLevel(2.0, 5));
+    assertEquals(0, LargeImage.getLevel(1.0, 5));
+    assertEquals(0, LargeImage.getLevel(0.6, 5));
+    assertEquals(1, LargeImage.getLevel(0.5, 5));
+    assertEquals(2, LargeImage.getLevel(0.2, 5));
+    assertEquals(4, LargeImage.getLevel(0.001, 5));
+  }
+
+  @Test
+  void testTilesMatchImage() throws Exception {
+    BufferedImage image = new BufferedImage(1000, 600, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    g.setColor(Color.RED);
+    g.fillRect(0, 0, 500, 600);
+    g.setColor(Color.BLUE);
+    g.fillRect(500, 0, 500, 600);
+    g.dispose();
+
+    File cacheDir = Files.createTempDirectory("tiles").toFile();
+    CountDownLatch latch = new CountDownLatch(1);
+    LargeImage large = new LargeImage(image, cacheDir, latch::countDown);
+    assertTrue(latch.await(30, TimeUnit.SECONDS));
+    assertTrue(large.isReady());
+    assertTrue(new File(cacheDir, "0/3_2.png").exists());
+
+    // Drawn at half size, the coarser levels are used and must keep the colours in place
+    BufferedImage screen = new BufferedImage(500, 300, BufferedImage.TYPE_INT_RGB);
+    Graphics2D sg = screen.createGraphics();
+    large.draw(sg, 0, 0, 0.5);
+    sg.dispose();
+    assertEquals(Color.RED.getRGB(), screen.getRGB(100, 150));
+    assertEquals(Color.BLUE.getRGB(), screen.getRGB(400, 150));
+
+    // Reopening the same cache directory does not need to build the tiles again
+    CountDownLatch reopened = new CountDownLatch(1);
+    LargeImage cached = new LargeImage(image, cacheDir, reopened::countDown);
+    assertTrue(reopened.await(30, TimeUnit.SECONDS));
+    assertTrue(cached.isReady());
+  }
+
+  @Test
+  void testUnreadableTilesAreRebuilt() throws Exception {
+    BufferedImage image = new BufferedImage(600, 300, BufferedImage.TYPE_INT_RGB);
+    File cacheDir = Files.createTempDirectory("tiles").toFile();
+    CountDownLatch latch = new CountDownLatch(1);
+    new LargeImage(image, cacheDir, latch::countDown);
+    assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+    // A tile that ImageIO does not recognize reads as null rather than throwing
+    File coarsest = new File(cacheDir, "2/0_0.png");
+    Files.write(coarsest.toPath(), new byte[] {1, 2, 3});
+
+    CountDownLatch reopened = new CountDownLatch(1);
+    LargeImage rebuilt = new LargeImage(image, cacheDir, reopened::countDown);
+    assertTrue(reopened.await(30, TimeUnit.SECONDS));
+    assertTrue(rebuilt.isReady());
+    assertNotNull(ImageIO.read(coarsest));
+  }
+
+  @Test
+  void testPruneCache() throws Exception {
+    File rootDir = Files.createTempDirectory("tilecache").toFile();
+    File oldest = createCacheDir(rootDir, "oldest", 1000);
+    File newest = createCacheDir(rootDir, "newest", 3000);
+    File partial = new File(rootDir, "partial");
+    assertTrue(partial.mkdir());
+    Files.write(new File(partial, "0_0.png").toPath(), new byte[100]);
+    File inUse = createCacheDir(rootDir, "inuse", 0);
+
+    // Everything fits
+    LargeImage.pruneCache(rootDir, inUse, 10000);
+    assertTrue(oldest.exists());
+    assertTrue(partial.exists());
+
+    // The partial and the least recently opened tiles go first, the tiles in use are kept
+    LargeImage.pruneCache(rootDir, inUse, 700);
+    assertFalse(partial.exists());
+    assertFalse(oldest.exists());
+    assertTrue(newest.exists());
+    assertTrue(inUse.exists());
+  }
+
+  private static File createCacheDir(File rootDir, String name, long lastUsed) throws Exception {
+    File dir = new File(rootDir, name);
+    assertTrue(dir.mkdir());
+    Files.write(new File(dir, "0_0.png").toPath(), new byte[300]);
+    File info = new File(dir, "tiles.properties");
+    Files.write(info.toPath(), new byte[0]);
+    assertTrue(info.setLastModified(lastUsed));
+    return dir;
+  }
+}
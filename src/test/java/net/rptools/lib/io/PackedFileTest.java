@@ -0,0 +1,187 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.io;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class PackedFileTest {
+
+  private File dir;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    dir = Files.createTempDirectory("packedfile").toFile();
+    dir.deleteOnExit();
+  }
+
+  private static byte[] randomBytes(Random random, int length) {
+    byte[] data = new byte[length];
+    random.nextBytes(data);
+    return data;
+  }
+
+  private static String descriptor(int i) {
+    return "<asset>\n  <name>Asset " + i + "</name>\n"
+        + "  <tag>value</tag>\n".repeat(50)
+        + "</asset>";
+  }
+
+  private static byte[] read(PackedFile pakFile, String path) throws Exception {
+    try (InputStream is = pakFile.getFileAsInputStream(path)) {
+      return is.readAllBytes();
+    }
+  }
+
+  @Test
+  @DisplayName("Media is stored, text is deflated")
+  void testCompressionMethods() throws Exception {
+    var random = new Random(1);
+    byte[] image = randomBytes(random, 10000);
+    File file = new File(dir, "methods.cmpgn");
+    try (var pakFile = new PackedFile(file)) {
+      pakFile.putFile("assets/1.png", image);
+      pakFile.putFile("assets/1", descriptor(1).getBytes(StandardCharsets.UTF_8));
+      pakFile.setContent("content");
+      pakFile.setProperty("version", "1");
+      pakFile.save();
+    }
+
+    try (var zipFile = new ZipFile(file)) {
+      assertEquals(ZipEntry.STORED, zipFile.getEntry("assets/1.png").getMethod());
+      assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("assets/1").getMethod());
+      assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("content.xml").getMethod());
+      assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("properties.xml").getMethod());
+    }
+    try (var pakFile = new PackedFile(file)) {
+      assertArrayEquals(image, read(pakFile, "assets/1.png"));
+      assertEquals(descriptor(1), new String(read(pakFile, "assets/1"), StandardCharsets.UTF_8));
+      assertEquals("content", pakFile.getContent());
+      assertEquals("1", pakFile.getProperty("version"));
+    }
+  }
+
+  @Test
+  @DisplayName("Unchanged entries survive a save that only replaces the content")
+  void testUnchangedEntriesAreCopied() throws Exception {
+    var random = new Random(2);
+    byte[] image = randomBytes(random, 10000);
+    File file = new File(dir, "copy.cmpgn");
+    try (var pakFile = new PackedFile(file)) {
+      pakFile.putFile("assets/1.png", image);
+      pakFile.putFile("assets/1", descriptor(1).getBytes(StandardCharsets.UTF_8));
+      pakFile.putFile("assets/2", descriptor(2).getBytes(StandardCharsets.UTF_8));
+      pakFile.setContent("old");
+      pakFile.save();
+    }
+    try (var pakFile = new PackedFile(file)) {
+      pakFile.setContent("new");
+      pakFile.removeFile("assets/2");
+      pakFile.save();
+    }
+
+    try (var pakFile = new PackedFile(file)) {
+      assertEquals("new", pakFile.getContent());
+      assertArrayEquals(image, read(pakFile, "assets/1.png"));
+      assertEquals(descriptor(1), new String(read(pakFile, "assets/1"), StandardCharsets.UTF_8));
+      assertFalse(pakFile.hasFile("assets/2"));
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  @DisplayName("Benchmark saving a campaign with 500 assets against a single deflating stream")
+  void benchmarkSave() throws Exception {
+    var random = new Random(42);
+    List<byte[]> images = new ArrayList<>();
+    List<byte[]> descriptors = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      images.add(randomBytes(random, 64 * 1024));
+      descriptors.add(descriptor(i).getBytes(StandardCharsets.UTF_8));
+    }
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      content.append("<token id=\"").append(i).append("\"><x>").append(random.nextInt(5000));
+      content.append("</x><y>").append(random.nextInt(5000)).append("</y></token>\n");
+    }
+
+    // The previous way: every entry through one stream at the best compression
+    File sequentialFile = new File(dir, "sequential.zip");
+    long start = System.nanoTime();
+    try (var zout =
+        new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(sequentialFile)))) {
+      zout.setLevel(Deflater.BEST_COMPRESSION);
+      zout.putNextEntry(new ZipEntry("content.xml"));
+      zout.write(content.toString().getBytes(StandardCharsets.UTF_8));
+      zout.closeEntry();
+      for (int i = 0; i < images.size(); i++) {
+        zout.putNextEntry(new ZipEntry("assets/" + i + ".png"));
+        zout.write(images.get(i));
+        zout.closeEntry();
+        zout.putNextEntry(new ZipEntry("assets/" + i));
+        zout.write(descriptors.get(i));
+        zout.closeEntry();
+      }
+    }
+    long sequentialTime = System.nanoTime() - start;
+
+    File file = new File(dir, "benchmark.cmpgn");
+    long putTime;
+    long saveTime;
+    try (var pakFile = new PackedFile(file)) {
+      start = System.nanoTime();
+      pakFile.putFile("content.xml", content.toString().getBytes(StandardCharsets.UTF_8));
+      for (int i = 0; i < images.size(); i++) {
+        pakFile.putFile("assets/" + i + ".png", images.get(i));
+        pakFile.putFile("assets/" + i, descriptors.get(i));
+      }
+      putTime = System.nanoTime() - start;
+      start = System.nanoTime();
+      pakFile.save();
+      saveTime = System.nanoTime() - start;
+    }
+
+    long resaveTime;
+    try (var pakFile = new PackedFile(file)) {
+      pakFile.putFile("content.xml", content.toString().getBytes(StandardCharsets.UTF_8));
+      start = System.nanoTime();
+      pakFile.save();
+      resaveTime = System.nanoTime() - start;
+      assertArrayEquals(images.get(499), read(pakFile, "assets/499.png"));
+    }
+
+    System.out.printf(
+        "500 assets: single stream %.1f ms, save %.1f ms (after %.1f ms of puts),"
+            + " save with only content changed %.1f ms%n",
+        sequentialTime / 1e6, saveTime / 1e6, putTime / 1e6, resaveTime / 1e6);
+  }
+}
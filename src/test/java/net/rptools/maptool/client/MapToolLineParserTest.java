@@ -271,4 +271,22 @@ public void testExpression() throws ParserException {
     assertEquals(resolver.getVariable("a"), BigDecimal.TEN);
     assertEquals(result.getDetailExpression(), "a = (a * 10)");
   }
+
+  @Test
+  public void testRepeatedMacrosUseCachedParse() throws ParserException {
+    // The same lines are run several times so later runs reuse the cached roll positions, options
+    // and branch patterns, while the results still follow the variables of each run.
+    for (int i = 0; i < 4; i++) {
+      MapToolVariableResolver resolver = new MapToolVariableResolver(null);
+      resolver.setVariable("n", BigDecimal.valueOf(i));
+      assertEquals(
+          "switched is " + Math.min(i, 2),
+          parseLine("switched is [r,switch(n): case 0: 0; case 1: 1; default: 2]", null, resolver));
+      assertEquals(
+          "n is " + (i % 2 == 0 ? "even" : "odd"),
+          parseLine("n is [r,if(n % 2 == 0): \"even\"; \"odd\"]", null, resolver));
+      assertEquals(
+          "a loop yields hit, hit", parseLine("a loop yields [r, count(2): \"hit\" ]", null, null));
+    }
+  }
 }
@@ -0,0 +1,61 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.functions.json;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+class JsonParseCacheTest {
+
+  @Test
+  void parseSharesValues() {
+    String json = "{\"name\": \"Goblin\", \"stats\": {\"hp\": 7}}";
+    var first = JsonParseCache.parse(json);
+    assertTrue(first.isPresent());
+    assertEquals(JsonParser.parseString(json), first.get());
+    // An equal string with a different identity finds the same parsed value
+    assertSame(first.get(), JsonParseCache.parse(new String(json)).get());
+
+    assertTrue(JsonParseCache.parse("[1, 2").isEmpty());
+    assertTrue(JsonParseCache.parse("[1, 2").isEmpty());
+  }
+
+  @Test
+  void parseStrictObject() {
+    assertEquals(
+        JsonParser.parseString("{\"a\": 1}"), JsonParseCache.parseStrictObject("{\"a\": 1}").get());
+    assertTrue(JsonParseCache.parseStrictObject("{a: 1}").isEmpty());
+    assertTrue(JsonParseCache.parseStrictObject("{\"a\": 1}{\"b\": 2}").isEmpty());
+    // Lenient parsing still accepts what strict parsing rejects
+    assertTrue(JsonParseCache.parse("{a: 1}").isPresent());
+  }
+
+  @Test
+  void clonedElementsDoNotChangeTheCache() {
+    var typeConversion = new JsonMTSTypeConversion(new JsonParser());
+    String json = "{\"stats\": {\"hp\": 7}}";
+    JsonObject shared = typeConversion.asJsonElement(json).getAsJsonObject();
+    JsonObject copy = typeConversion.asClonedJsonElement(json).getAsJsonObject();
+    assertNotSame(shared, copy);
+
+    copy.getAsJsonObject("stats").addProperty("hp", 3);
+    JsonObject stats =
+        typeConversion.asJsonElement(json).getAsJsonObject().getAsJsonObject("stats");
+    assertEquals(7, stats.get("hp").getAsInt());
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.rptools.maptool.model.drawing.DrawnElement;
+import net.rptools.maptool.model.drawing.Pen;
+import net.rptools.maptool.model.drawing.ShapeDrawable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DrawableSpatialIndexTest {
+
+  private static DrawnElement createElement(int x, int y, int width, int height, float thickness) {
+    var pen = new Pen();
+    pen.setThickness(thickness);
+    return new DrawnElement(new ShapeDrawable(new Rectangle(x, y, width, height)), pen);
+  }
+
+  private static List<DrawnElement> bruteForce(List<DrawnElement> list, Rectangle area) {
+    List<DrawnElement> result = new ArrayList<>();
+    for (DrawnElement element : list) {
+      if (DrawableSpatialIndex.getDrawnBounds(element).intersects(area)) {
+        result.add(element);
+      }
+    }
+    return result;
+  }
+
+  @Test
+  @DisplayName("Queries find the intersecting drawables in draw order")
+  void testQuery() {
+    var back = createElement(0, 0, 100, 100, 2);
+    var front = createElement(50, 50, 100, 100, 2);
+    var far = createElement(5000, 5000, 10, 10, 2);
+    var huge = createElement(-100000, -100000, 200000, 200000, 2);
+
+    var index = new DrawableSpatialIndex();
+    index.add(front, false);
+    index.add(far, false);
+    index.add(back, true);
+    index.add(huge, false);
+    assertEquals(4, index.size());
+
+    assertEquals(List.of(back, front, huge), index.query(new Rectangle(60, 60, 10, 10)));
+    assertEquals(List.of(far, huge), index.query(new Rectangle(4990, 4990, 20, 20)));
+    // The pen grows the bounds
+    assertEquals(List.of(front, huge), index.query(new Rectangle(48, 120, 1, 1)));
+
+    index.remove(huge);
+    assertEquals(List.of(back, front), index.query(new Rectangle(60, 60, 10, 10)));
+    assertEquals(List.of(), index.query(new Rectangle(-5000, -5000, 10, 10)));
+  }
+
+  @Test
+  @DisplayName("Changed drawables keep their place in the draw order")
+  void testUpdate() {
+    var first = createElement(0, 0, 10, 10, 1);
+    var second = createElement(0, 0, 10, 10, 1);
+    var index = new DrawableSpatialIndex();
+    index.rebuild(List.of(first, second));
+
+    assertEquals(List.of(), index.query(new Rectangle(30, 30, 1, 1)));
+    first.getPen().setThickness(100);
+    index.update(first);
+    assertEquals(List.of(first), index.query(new Rectangle(30, 30, 1, 1)));
+    assertEquals(List.of(first, second), index.query(new Rectangle(5, 5, 1, 1)));
+  }
+
+  @Test
+  @DisplayName("Queries match scanning all drawables")
+  void testQueryMatchesScan() {
+    var random = new Random(42);
+    List<DrawnElement> list = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      list.add(
+          createElement(
+              random.nextInt(4000) - 2000,
+              random.nextInt(4000) - 2000,
+              1 + random.nextInt(800),
+              1 + random.nextInt(800),
+              1 + random.nextInt(10)));
+    }
+    var index = new DrawableSpatialIndex();
+    index.rebuild(list);
+
+    for (int y = -2048; y < 2048; y += 256) {
+      for (int x = -2048; x < 2048; x += 256) {
+        var chunk = new Rectangle(x, y, 256, 256);
+        assertEquals(bruteForce(list, chunk), index.query(chunk));
+      }
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import net.rptools.maptool.model.drawing.ConeTemplate;
+import net.rptools.maptool.model.drawing.DrawablesGroup;
+import net.rptools.maptool.model.drawing.DrawnElement;
+import net.rptools.maptool.model.drawing.Pen;
+import net.rptools.maptool.model.drawing.Rectangle;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PartitionedDrawableRendererTest {
+
+  @Test
+  @DisplayName("Tile keys are unique per column, row and scale.")
+  void testTileKeys() {
+    Set<Long> keys = new HashSet<>();
+    double[] scales = {0.25, 0.5, 1.0, 1.1, 2.0, 4.0};
+    for (int col = -20; col <= 20; col++) {
+      for (int row = -20; row <= 20; row++) {
+        for (double scale : scales) {
+          assertTrue(keys.add(PartitionedDrawableRenderer.getKey(col, row, scale)));
+        }
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Nearby scales share a tile key bucket.")
+  void testScaleBucket() {
+    assertEquals(
+        PartitionedDrawableRenderer.getKey(3, -4, 1.0),
+        PartitionedDrawableRenderer.getKey(3, -4, 1.001));
+    assertNotEquals(
+        PartitionedDrawableRenderer.getKey(3, -4, 1.0),
+        PartitionedDrawableRenderer.getKey(-4, 3, 1.0));
+  }
+
+  @Test
+  @DisplayName("Templates, also inside groups, are not drawn by the workers.")
+  void testWorkerSafe() {
+    var rectangle = new DrawnElement(new Rectangle(0, 0, 10, 10), new Pen());
+    var template = new DrawnElement(new ConeTemplate(), new Pen());
+    var group = new DrawnElement(new DrawablesGroup(List.of(rectangle, template)), new Pen());
+
+    assertTrue(PartitionedDrawableRenderer.isWorkerSafe(List.of(rectangle)));
+    assertFalse(PartitionedDrawableRenderer.isWorkerSafe(List.of(rectangle, template)));
+    assertFalse(PartitionedDrawableRenderer.isWorkerSafe(List.of(group)));
+  }
+}
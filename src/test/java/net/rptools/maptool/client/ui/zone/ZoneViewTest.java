@@ -0,0 +1,132 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import net.rptools.maptool.client.MapTool;
+import net.rptools.maptool.model.Grid;
+import net.rptools.maptool.model.Light;
+import net.rptools.maptool.model.LightSource;
+import net.rptools.maptool.model.ShapeType;
+import net.rptools.maptool.model.SquareGrid;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ZoneViewTest {
+
+  private static final double LIGHT_RADIUS = 20;
+
+  private Zone zone;
+  private ZoneView zoneView;
+  private LightSource lightSource;
+
+  @BeforeEach
+  void setUp() {
+    zone = new Zone();
+    Grid grid = new SquareGrid();
+    grid.setSize(50);
+    zone.setGrid(grid);
+    zoneView = new ZoneView(zone);
+
+    lightSource = new LightSource("Test");
+    lightSource.add(new Light(ShapeType.CIRCLE, 0, LIGHT_RADIUS, 0, null));
+    MapTool.getCampaign()
+        .getLightSourcesMap()
+        .computeIfAbsent("ZoneViewTest", k -> new LinkedHashMap<>())
+        .put(lightSource.getId(), lightSource);
+  }
+
+  private Token createToken(int x, int y, boolean withLight) {
+    var token = new Token();
+    token.setX(x);
+    token.setY(y);
+    if (withLight) {
+      token.addLightSource(lightSource);
+    }
+    return token;
+  }
+
+  private void addLightEnvelope(Token token) {
+    zoneView.addEnvelope(token.getId(), zoneView.getLightEnvelope(token));
+  }
+
+  private long getInvalidations() {
+    return zoneView.getVisionCacheStatistics().invalidations();
+  }
+
+  @Test
+  @DisplayName("The light envelope covers the light around the token and follows it")
+  void testLightEnvelope() {
+    var token = createToken(1000, 2000, false);
+    assertNull(zoneView.getLightEnvelope(token));
+
+    token.addLightSource(lightSource);
+    var envelope = zoneView.getLightEnvelope(token);
+    assertNotNull(envelope);
+    var center = FogUtil.calculateVisionCenter(token, zone);
+    double range = LIGHT_RADIUS * zone.getGrid().getSize() / zone.getUnitsPerCell();
+    assertTrue(envelope.contains(center));
+    assertTrue(envelope.contains(center.x - range + 1, center.y));
+    assertTrue(envelope.contains(center.x + range - 1, center.y));
+    assertTrue(envelope.contains(center.x, center.y - range + 1));
+    assertTrue(envelope.contains(center.x, center.y + range - 1));
+
+    token.setX(100000);
+    assertFalse(zoneView.getLightEnvelope(token).intersects(envelope));
+  }
+
+  @Test
+  @DisplayName("A topology change invalidates only the tokens and lights it can affect")
+  void testInvalidateRegion() {
+    var near = createToken(0, 0, false);
+    var nearLight = createToken(200, 0, true);
+    var far = createToken(100000, 100000, false);
+    var farLight = createToken(100200, 100000, true);
+    zoneView.addEnvelope(near.getId(), new Rectangle2D.Double(-500, -500, 1000, 1000));
+    addLightEnvelope(nearLight);
+    zoneView.addEnvelope(far.getId(), new Rectangle2D.Double(99500, 99500, 1000, 1000));
+    addLightEnvelope(farLight);
+    assertEquals(0, getInvalidations());
+
+    // Outside of all envelopes
+    zone.addTopology(new Area(new Rectangle(50000, 50000, 50, 50)), Zone.TopologyType.WALL_VBL);
+    assertEquals(0, getInvalidations());
+
+    zone.addTopology(new Area(new Rectangle(100, 100, 50, 50)), Zone.TopologyType.WALL_VBL);
+    assertEquals(2, getInvalidations());
+
+    // The near tokens were discarded, so another change there has nothing left to invalidate
+    zone.removeTopology(new Area(new Rectangle(100, 100, 50, 50)), Zone.TopologyType.WALL_VBL);
+    assertEquals(2, getInvalidations());
+
+    zone.addTopology(new Area(new Rectangle(100100, 100100, 50, 50)), Zone.TopologyType.HILL_VBL);
+    assertEquals(4, getInvalidations());
+  }
+
+  @Test
+  @DisplayName("The hit rate is the share of lookups answered from a cache")
+  void testHitRate() {
+    assertEquals(0.75, new ZoneView.VisionCacheStatistics(3, 1, 0).hitRate());
+    assertEquals(0, new ZoneView.VisionCacheStatistics(0, 0, 2).hitRate());
+  }
+}
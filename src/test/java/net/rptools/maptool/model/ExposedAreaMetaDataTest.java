@@ -0,0 +1,106 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Polygon;
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+import net.rptools.lib.GeometryUtil;
+import net.rptools.maptool.server.Mapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ExposedAreaMetaDataTest {
+
+  /** A rough vision polygon around a point, jittered like vision blocked by nearby walls. */
+  private static Area createVision(Random random, int x, int y) {
+    var polygon = new Polygon();
+    for (int i = 0; i < 90; i++) {
+      double angle = 2 * Math.PI * i / 90;
+      double radius = 250 + random.nextInt(100);
+      polygon.addPoint(
+          x + (int) Math.round(radius * Math.cos(angle)),
+          y + (int) Math.round(radius * Math.sin(angle)));
+    }
+    return new Area(polygon);
+  }
+
+  @Test
+  @DisplayName("Simplified history stays close to the exact union")
+  void testCompactKeepsShape() {
+    var random = new Random(7);
+    var exact = new Area();
+    var meta = new ExposedAreaMetaData();
+    for (int i = 0; i < 40; i++) {
+      var vision = createVision(random, i * 50, (i % 7) * 40);
+      exact.add(vision);
+      meta.addToExposedAreaHistory(vision);
+    }
+    meta.compact();
+
+    Rectangle2D exactBounds = exact.getBounds2D();
+    Rectangle2D historyBounds = meta.getExposedAreaHistory().getBounds2D();
+    double tolerance = ExposedAreaMetaData.SIMPLIFY_TOLERANCE + 0.001;
+    assertEquals(exactBounds.getMinX(), historyBounds.getMinX(), tolerance);
+    assertEquals(exactBounds.getMinY(), historyBounds.getMinY(), tolerance);
+    assertEquals(exactBounds.getMaxX(), historyBounds.getMaxX(), tolerance);
+    assertEquals(exactBounds.getMaxY(), historyBounds.getMaxY(), tolerance);
+    assertTrue(
+        GeometryUtil.countSegments(meta.getExposedAreaHistory())
+            <= GeometryUtil.countSegments(exact));
+  }
+
+  @Test
+  @DisplayName("Adding nothing leaves the history unchanged")
+  void testAddEmpty() {
+    var meta = new ExposedAreaMetaData(new Area(new Rectangle2D.Double(0, 0, 10, 10)));
+    meta.addToExposedAreaHistory(new Area());
+    meta.addToExposedAreaHistory(null);
+    assertEquals(4, GeometryUtil.countSegments(meta.getExposedAreaHistory()));
+  }
+
+  @Test
+  @DisplayName("History stays bounded and deltas are smaller than snapshots")
+  void testHistoryBounded() {
+    var random = new Random(42);
+    var exact = new Area();
+    var meta = new ExposedAreaMetaData();
+    long snapshotBytes = 0;
+    long deltaBytes = 0;
+    int x = 0;
+    int y = 0;
+    for (int move = 0; move < 200; move++) {
+      var added = new Area();
+      for (int step = 0; step < 4; step++) {
+        x += 50 * (random.nextInt(3) - 1) + 25;
+        y += 50 * (random.nextInt(3) - 1);
+        var vision = createVision(random, x, y);
+        added.add(vision);
+        exact.add(vision);
+        meta.addToExposedAreaHistory(vision);
+      }
+      snapshotBytes += Mapper.map(exact).toByteArray().length;
+      deltaBytes += Mapper.map(added).toByteArray().length;
+    }
+
+    int exactSegments = GeometryUtil.countSegments(exact);
+    int historySegments = GeometryUtil.countSegments(meta.getExposedAreaHistory());
+    assertTrue(historySegments <= Math.max(ExposedAreaMetaData.MAX_SEGMENTS, exactSegments));
+    assertTrue(deltaBytes < snapshotBytes);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ExposureMaskTest {
+
+  @Test
+  @DisplayName("Rectangle probes match the rasterized squares")
+  void testRectangleQueries() {
+    var mask = ExposureMask.fromArea(new Area(new Rectangle(0, 0, 100, 100)), 10);
+
+    assertTrue(mask.contains(new Rectangle(10, 10, 50, 50)));
+    assertTrue(mask.contains(new Rectangle(0, 0, 100, 100)));
+    assertFalse(mask.contains(new Rectangle(0, 0, 101, 100)));
+    assertFalse(mask.contains(new Rectangle(10, 10, 0, 0)));
+    assertTrue(mask.intersects(new Rectangle(95, 95, 50, 50)));
+    assertFalse(mask.intersects(new Rectangle(100, 100, 50, 50)));
+    assertTrue(mask.contains(5, 5));
+    assertFalse(mask.contains(-1, 5));
+  }
+
+  @Test
+  @DisplayName("Masks spanning several tiles convert back to the same area")
+  void testToArea() {
+    var ellipse = new Ellipse2D.Double(-2000, -1500, 5000, 3000);
+    var mask = ExposureMask.fromArea(new Area(ellipse), 7);
+    Area area = mask.toArea();
+
+    var random = new Random(1);
+    for (int i = 0; i < 10000; i++) {
+      double x = -2100 + random.nextDouble() * 5200;
+      double y = -1600 + random.nextDouble() * 3200;
+      assertEquals(mask.contains(x, y), area.contains(x, y));
+
+      // Away from the outline, the mask agrees with the ellipse.
+      var around = new Rectangle2D.Double(x - 10, y - 10, 20, 20);
+      if (ellipse.contains(around)) {
+        assertTrue(mask.contains(x, y));
+      } else if (!ellipse.intersects(around)) {
+        assertFalse(mask.contains(x, y));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Shapes are contained only when all their squares are exposed")
+  void testContainsShape() {
+    var mask = ExposureMask.fromArea(new Area(new Ellipse2D.Double(-500, -500, 1000, 1000)), 5);
+
+    assertTrue(mask.contains(new Area(new Rectangle(-100, -100, 200, 200))));
+    assertFalse(mask.contains(new Area(new Rectangle(400, 400, 200, 200))));
+  }
+
+  @Test
+  @DisplayName("Subtracting and copying masks")
+  void testSubtractAndCopy() {
+    var mask = ExposureMask.fromArea(new Area(new Rectangle(0, 0, 100, 100)), 10);
+    var copy = new ExposureMask(mask);
+    copy.add(ExposureMask.fromArea(new Area(new Rectangle(200, 0, 10, 10)), 10));
+
+    assertTrue(copy.contains(205, 5));
+    assertFalse(mask.contains(205, 5));
+
+    copy.subtract(new Rectangle(-1000, -1000, 2000, 2000));
+    assertTrue(copy.isEmpty());
+    assertFalse(mask.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Masks of different resolutions cannot be combined")
+  void testResolutionMismatch() {
+    var mask = new ExposureMask(10);
+    assertThrows(IllegalArgumentException.class, () -> mask.add(new ExposureMask(5)));
+  }
+}
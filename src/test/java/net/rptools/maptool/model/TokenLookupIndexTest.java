@@ -0,0 +1,131 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class TokenLookupIndexTest {
+
+  private static Token createToken(String name) {
+    var token = new Token();
+    token.setName(name);
+    return token;
+  }
+
+  private static TokenLookupIndex createNameIndex() {
+    return new TokenLookupIndex(t -> TokenLookupIndex.foldCase(t.getName()));
+  }
+
+  @Test
+  @DisplayName("Folded strings are equal exactly when the strings are equal ignoring case")
+  void testFoldCase() {
+    String[] values = {"Goblin", "GOBLIN", "goblin", "Gob lin", "İstanbul", "istanbul", "ß"};
+    for (String a : values) {
+      for (String b : values) {
+        assertEquals(
+            a.equalsIgnoreCase(b),
+            TokenLookupIndex.foldCase(a).equals(TokenLookupIndex.foldCase(b)),
+            a + " / " + b);
+      }
+    }
+    assertNull(TokenLookupIndex.foldCase(null));
+  }
+
+  @Test
+  @DisplayName("Tokens are found by key and follow key changes when put again")
+  void testLookup() {
+    var goblin = createToken("Goblin");
+    var otherGoblin = createToken("GOBLIN");
+    var unnamed = createToken("");
+    var index = createNameIndex();
+    index.put(goblin);
+    index.put(otherGoblin);
+    index.put(unnamed);
+    assertEquals(2, index.size());
+
+    assertEquals(Set.of(goblin, otherGoblin), Set.copyOf(index.get("goblin")));
+    assertEquals(List.of(), index.get(""));
+
+    otherGoblin.setName("Orc");
+    index.put(otherGoblin);
+    assertEquals(List.of(goblin), index.get("goblin"));
+    assertEquals(List.of(otherGoblin), index.get("orc"));
+
+    // A copy with the same id replaces the indexed token
+    var copy = new Token(goblin, true);
+    copy.setName("Goblin Chief");
+    index.put(copy);
+    assertEquals(List.of(), index.get("goblin"));
+    assertEquals(List.of(copy), index.get("goblin chief"));
+
+    index.remove(goblin);
+    assertEquals(List.of(), index.get("goblin chief"));
+    assertEquals(1, index.size());
+    index.clear();
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  @Tag("benchmark")
+  @DisplayName("Benchmark name lookups against scanning all tokens")
+  void benchmarkLookups() {
+    var random = new Random(42);
+    List<Token> tokens = new ArrayList<>();
+    var index = createNameIndex();
+    for (int i = 0; i < 5000; i++) {
+      var token = createToken("Token " + i);
+      tokens.add(token);
+      index.put(token);
+    }
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 20000; i++) {
+      names.add("TOKEN " + random.nextInt(6000));
+    }
+
+    long start = System.nanoTime();
+    int scanned = 0;
+    for (String name : names) {
+      for (Token token : List.copyOf(tokens)) {
+        if (name.equalsIgnoreCase(token.getName())) {
+          scanned++;
+          break;
+        }
+      }
+    }
+    long scanTime = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    int found = 0;
+    for (String name : names) {
+      if (!index.get(TokenLookupIndex.foldCase(name)).isEmpty()) {
+        found++;
+      }
+    }
+    long lookupTime = System.nanoTime() - start;
+
+    assertEquals(scanned, found);
+    System.out.printf(
+        "%d lookups over %d tokens: scan %.1f ms, index %.1f ms%n",
+        names.size(), tokens.size(), scanTime / 1e6, lookupTime / 1e6);
+  }
+}
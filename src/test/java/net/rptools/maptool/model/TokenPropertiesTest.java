@@ -119,4 +119,23 @@ public void testUnknownProperty() {
   public void testBadJsonReturnsAsString() {
     assertEquals("{\"a\": 1}{\"b\": 2}", testToken.getEvaluatedProperty("badJson"));
   }
+
+  @Test
+  public void testConstantValueFollowsPropertyChanges() {
+    testToken.setProperty("plainStr1", "  first ");
+    assertEquals("first", testToken.getEvaluatedProperty("plainStr1"));
+    testToken.setProperty("plainStr1", "second");
+    assertEquals("second", testToken.getEvaluatedProperty("plainStr1"));
+    testToken.resetProperty("plainStr1");
+    assertEquals("justAString", testToken.getEvaluatedProperty("plainStr1"));
+  }
+
+  @Test
+  public void testCalculatedValueIsEvaluatedOnEveryRead() {
+    testToken.setProperty("prop1", "3");
+    testToken.setProperty("calc", "[r: prop1 * 2]");
+    assertEquals("6", testToken.getEvaluatedProperty("calc"));
+    testToken.setProperty("prop1", "4");
+    assertEquals("8", testToken.getEvaluatedProperty("calc"));
+  }
 }
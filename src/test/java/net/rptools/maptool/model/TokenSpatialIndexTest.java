@@ -0,0 +1,122 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TokenSpatialIndexTest {
+
+  private static Token createToken(Zone.Layer layer) {
+    var token = new Token();
+    token.setLayer(layer);
+    return token;
+  }
+
+  private static Set<Token> bruteForce(
+      Map<Token, Rectangle> boundsMap, Zone.Layer layer, Rectangle area) {
+    Set<Token> result = new HashSet<>();
+    for (var entry : boundsMap.entrySet()) {
+      if ((layer == null || entry.getKey().getLayer() == layer)
+          && entry.getValue().intersects(area)) {
+        result.add(entry.getKey());
+      }
+    }
+    return result;
+  }
+
+  @Test
+  @DisplayName("Queries find the intersecting tokens of a layer")
+  void testQuery() {
+    var near = createToken(Zone.Layer.TOKEN);
+    var far = createToken(Zone.Layer.TOKEN);
+    var stamp = createToken(Zone.Layer.OBJECT);
+    var huge = createToken(Zone.Layer.BACKGROUND);
+
+    var index = new TokenSpatialIndex();
+    index.put(near, new Rectangle(0, 0, 50, 50));
+    index.put(far, new Rectangle(5000, 5000, 50, 50));
+    index.put(stamp, new Rectangle(25, 25, 600, 600));
+    index.put(huge, new Rectangle(-100000, -100000, 200000, 200000));
+    assertEquals(4, index.size());
+
+    assertEquals(Set.of(near), Set.copyOf(index.query(Zone.Layer.TOKEN, new Rectangle(10, 10))));
+    assertEquals(
+        Set.of(near, stamp, huge), Set.copyOf(index.query(null, new Rectangle(30, 30, 1, 1))));
+    assertEquals(List.of(stamp), index.query(Zone.Layer.OBJECT, 600, 600));
+    assertEquals(List.of(huge), index.query(Zone.Layer.BACKGROUND, -90000, 90000));
+    assertEquals(List.of(), index.query(Zone.Layer.TOKEN, 1000, 1000));
+
+    // Moving and changing layers replace the old entry
+    index.put(near, new Rectangle(1000, 1000, 50, 50));
+    assertEquals(List.of(near), index.query(Zone.Layer.TOKEN, 1010, 1010));
+    assertEquals(List.of(), index.query(Zone.Layer.TOKEN, 10, 10));
+    near.setLayer(Zone.Layer.GM);
+    index.put(near, new Rectangle(1000, 1000, 50, 50));
+    assertEquals(List.of(), index.query(Zone.Layer.TOKEN, 1010, 1010));
+    assertEquals(List.of(near), index.query(Zone.Layer.GM, 1010, 1010));
+    assertEquals(4, index.size());
+
+    index.remove(huge);
+    index.remove(far);
+    assertEquals(2, index.size());
+    assertEquals(List.of(), index.query(null, new Rectangle(4990, 4990, 20, 20)));
+    index.clear();
+    assertEquals(0, index.size());
+    assertEquals(List.of(), index.query(null, 10, 10));
+  }
+
+  @Test
+  @DisplayName("Queries match scanning all tokens after moves")
+  void testQueryMatchesScan() {
+    var random = new Random(42);
+    var layers = Zone.Layer.values();
+    Map<Token, Rectangle> boundsMap = new HashMap<>();
+    var index = new TokenSpatialIndex();
+    for (int i = 0; i < 500; i++) {
+      var token = createToken(layers[random.nextInt(layers.length)]);
+      int size = 50 * (1 + random.nextInt(4));
+      var bounds = new Rectangle(random.nextInt(5000), random.nextInt(5000), size, size);
+      boundsMap.put(token, bounds);
+      index.put(token, bounds);
+    }
+    // Move a share of the tokens to exercise removal from the cells
+    List<Token> tokens = new ArrayList<>(boundsMap.keySet());
+    for (int i = 0; i < 100; i++) {
+      var token = tokens.get(random.nextInt(tokens.size()));
+      var bounds = boundsMap.get(token);
+      bounds.translate(random.nextInt(1000) - 500, random.nextInt(1000) - 500);
+      index.put(token, bounds);
+    }
+
+    for (int i = 0; i < 50; i++) {
+      var view = new Rectangle(random.nextInt(4000), random.nextInt(4000), 1920, 1080);
+      assertEquals(
+          bruteForce(boundsMap, Zone.Layer.OBJECT, view),
+          Set.copyOf(index.query(Zone.Layer.OBJECT, view)));
+      assertEquals(bruteForce(boundsMap, null, view), Set.copyOf(index.query(null, view)));
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.protobuf.StringValue;
+import net.rptools.maptool.server.proto.MacroButtonPropertiesDto;
+import net.rptools.maptool.server.proto.TokenDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TokenDeltaTest {
+
+  private static TokenDto createToken() {
+    var token =
+        TokenDto.newBuilder()
+            .setId("token")
+            .setName("Goblin")
+            .setX(10)
+            .setY(20)
+            .setIsVisible(true)
+            .setGmName(StringValue.of("Goblin 1"))
+            .addOwnerList("gm");
+    for (int i = 0; i < 50; i++) {
+      token.putProperties("prop" + i, "value" + i);
+      token.putMacroProperties(
+          i,
+          MacroButtonPropertiesDto.newBuilder()
+              .setIndex(i)
+              .setLabel("Macro " + i)
+              .setCommand(("[h: x = " + i + "]").repeat(20))
+              .build());
+    }
+    return token.build();
+  }
+
+  @Test
+  @DisplayName("Applying the delta of two versions to the first yields the second.")
+  void testRoundTrip() {
+    var base = createToken();
+    var current =
+        base.toBuilder()
+            .setName("Hobgoblin")
+            .setX(0)
+            .setIsVisible(false)
+            .clearGmName()
+            .clearOwnerList()
+            .putProperties("prop3", "changed")
+            .putProperties("added", "new")
+            .removeProperties("prop7")
+            .removeMacroProperties(5)
+            .build();
+
+    var delta = TokenDelta.diff(base, current);
+
+    assertEquals(current, TokenDelta.apply(base, delta));
+    assertEquals("token", delta.getTokenGuid());
+  }
+
+  @Test
+  @DisplayName("Only the changed fields and map entries are part of the delta.")
+  void testDeltaSize() {
+    var base = createToken();
+    var current = base.toBuilder().putProperties("prop3", "changed").build();
+
+    var delta = TokenDelta.diff(base, current);
+
+    assertEquals(1, delta.getChanged().getPropertiesCount());
+    assertEquals(0, delta.getChanged().getMacroPropertiesCount());
+    assertEquals(0, delta.getClearedFieldsCount());
+    assertEquals(0, delta.getRemovedKeysCount());
+    assertTrue(delta.getSerializedSize() * 20 < current.getSerializedSize());
+    assertEquals(current, TokenDelta.apply(base, delta));
+  }
+
+  @Test
+  @DisplayName("A delta leaves fields it does not mention alone.")
+  void testApplyToNewerVersion() {
+    var base = createToken();
+    var renamed = base.toBuilder().setName("Hobgoblin").build();
+    var moved = base.toBuilder().setX(42).build();
+
+    var result = TokenDelta.apply(moved, TokenDelta.diff(base, renamed));
+
+    assertEquals("Hobgoblin", result.getName());
+    assertEquals(42, result.getX());
+  }
+}
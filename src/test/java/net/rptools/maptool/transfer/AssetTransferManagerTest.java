@@ -16,10 +16,13 @@
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.server.proto.AssetChunkDto;
 import org.junit.jupiter.api.DisplayName;
@@ -78,6 +81,77 @@ void testBasicTransfer() throws Exception {
     consumer.getFilename().delete();
   }
 
+  @Test
+  @DisplayName("Producers are worked through a few at a time and can be prioritized")
+  void testProducerOrder() throws Exception {
+    File tmpFile = createTempFile(new byte[100]);
+    var manager = new AssetTransferManager();
+    int producers = AssetTransferManager.MAX_ACTIVE_PRODUCERS + 2;
+    for (int i = 0; i < producers; i++) {
+      manager.addProducer(new AssetProducer(new MD5Key("Asset" + i), "asset", tmpFile));
+    }
+    MD5Key last = new MD5Key("Asset" + (producers - 1));
+    assertTrue(manager.hasProducer(last));
+
+    // Only the active producers take turns
+    for (int i = 0; i < AssetTransferManager.MAX_ACTIVE_PRODUCERS * 2; i++) {
+      String expected = "Asset" + (i % AssetTransferManager.MAX_ACTIVE_PRODUCERS);
+      assertEquals(expected, manager.nextChunk(10).getId());
+    }
+
+    manager.prioritizeProducer(last);
+    assertEquals(last.toString(), manager.nextChunk(10).getId());
+
+    manager.flush();
+    assertFalse(manager.hasProducers());
+    tmpFile.delete();
+  }
+
+  @Test
+  @DisplayName("Chunk size adapts to the backlog of queued chunks")
+  void testAdaptChunkSize() {
+    var manager = new AssetTransferManager();
+    assertEquals(AssetTransferManager.MIN_CHUNK_SIZE, manager.getChunkSize());
+    assertEquals(AssetTransferManager.MIN_CHUNK_SIZE * 2, manager.adaptChunkSize(0, 4));
+    assertEquals(AssetTransferManager.MIN_CHUNK_SIZE * 2, manager.adaptChunkSize(1, 4));
+    assertEquals(AssetTransferManager.MIN_CHUNK_SIZE, manager.adaptChunkSize(2, 4));
+    assertEquals(AssetTransferManager.MIN_CHUNK_SIZE, manager.adaptChunkSize(4, 4));
+    for (int i = 0; i < 20; i++) {
+      manager.adaptChunkSize(0, 4);
+    }
+    assertEquals(AssetTransferManager.MAX_CHUNK_SIZE, manager.getChunkSize());
+  }
+
+  @Test
+  @DisplayName("An asset larger than a chunk is sent whole and in order")
+  void testMultipleChunks() throws Exception {
+    byte[] data = new byte[AssetTransferManager.MIN_CHUNK_SIZE * 3 + 123];
+    new Random(42).nextBytes(data);
+    File tmpFile = File.createTempFile("asset", ".dat");
+    tmpFile.deleteOnExit();
+    Files.write(tmpFile.toPath(), data);
+
+    try {
+      var manager = new AssetTransferManager();
+      manager.addProducer(new AssetProducer(new MD5Key("Chunked"), "chunked", tmpFile));
+
+      var received = new ByteArrayOutputStream();
+      int chunks = 0;
+      AssetChunkDto chunk;
+      while ((chunk = manager.nextChunk(AssetTransferManager.MIN_CHUNK_SIZE)) != null) {
+        assertEquals(received.size(), chunk.getOffset());
+        assertTrue(chunk.getData().size() <= AssetTransferManager.MIN_CHUNK_SIZE);
+        chunk.getData().writeTo(received);
+        chunks++;
+      }
+
+      assertEquals(4, chunks);
+      assertArrayEquals(data, received.toByteArray());
+    } finally {
+      tmpFile.delete();
+    }
+  }
+
   @Test
   @DisplayName("Test Create Temporary File.")
   File createTempFile(byte[] data) throws IOException {
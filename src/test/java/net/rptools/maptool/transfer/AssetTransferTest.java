@@ -20,6 +20,7 @@
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.server.proto.AssetChunkDto;
 import org.junit.jupiter.api.DisplayName;
@@ -78,6 +79,47 @@ void testBasicTransfer() throws Exception {
     consumer.getFilename().delete();
   }
 
+  @Test
+  @DisplayName("Test resuming an interrupted transfer.")
+  void testResumeTransfer() throws Exception {
+    byte[] data = new byte[1024];
+    for (int i = 0; i < 1024; i++) {
+      data[i] = (byte) i;
+    }
+    File tmpFile = createTempFile(data);
+
+    // Interrupted after part of the asset was received
+    AssetProducer producer = new AssetProducer(new MD5Key("Testing"), "onetwo", tmpFile);
+    AssetConsumer consumer = new AssetConsumer(new File("."), producer.getHeader());
+    for (int i = 0; i < 3; i++) {
+      assertTrue(consumer.update(producer.nextChunk(100)));
+    }
+    AssetChunkDto staleChunk = producer.nextChunk(100);
+    assertEquals(300, consumer.getFilename().length());
+
+    // Resumed from what was received
+    AssetProducer resumed =
+        new AssetProducer(
+            new MD5Key("Testing"), "onetwo", tmpFile, consumer.getFilename().length());
+    AssetHeader header = resumed.getHeader();
+    assertEquals(300, header.getOffset());
+    consumer = new AssetConsumer(new File("."), header);
+    assertFalse(consumer.isComplete());
+
+    while (!resumed.isComplete()) {
+      assertTrue(consumer.update(resumed.nextChunk(100)));
+    }
+    assertFalse(consumer.update(staleChunk));
+
+    assertTrue(consumer.isComplete());
+    assertArrayEquals(data, Files.readAllBytes(consumer.getFilename().toPath()));
+
+    // CLEANUP
+    producer.close();
+    tmpFile.delete();
+    consumer.getFilename().delete();
+  }
+
   @Test
   @DisplayName("Test Creating a temporary file.")
   File createTempFile(byte[] data) throws IOException {
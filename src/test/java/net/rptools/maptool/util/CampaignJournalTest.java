@@ -0,0 +1,163 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import net.rptools.maptool.model.Campaign;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.drawing.DrawnElement;
+import net.rptools.maptool.model.drawing.Pen;
+import net.rptools.maptool.model.drawing.Rectangle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CampaignJournalTest {
+
+  private static final long BASE_VERSION = 42;
+
+  private Zone zone;
+  private Token kept;
+  private Token removed;
+  private Campaign saved;
+  private File file;
+  private CampaignJournal journal;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    zone = new Zone();
+    kept = new Token();
+    kept.setName("Kept");
+    removed = new Token();
+    removed.setName("Removed");
+    zone.putToken(kept);
+    zone.putToken(removed);
+
+    // The campaign as it was saved in full, before the journaled changes
+    saved = new Campaign();
+    saved.putZone(Zone.fromDto(zone.toDto()));
+
+    file = Files.createTempFile("campaign", ".journal").toFile();
+    file.delete();
+    file.deleteOnExit();
+    journal = new CampaignJournal(file);
+  }
+
+  @Test
+  @DisplayName("Replaying the journal applies the token changes in order")
+  void testReplay() throws Exception {
+    kept.setName("Renamed");
+    zone.putToken(kept);
+    zone.removeToken(removed.getId());
+    journal.append(BASE_VERSION, List.of(CampaignJournal.Entry.putToken(zone, kept)));
+    journal.append(
+        BASE_VERSION, List.of(CampaignJournal.Entry.removeToken(zone, removed.getId())));
+
+    assertEquals(2, journal.replay(saved, BASE_VERSION));
+    Zone replayed = saved.getZone(zone.getId());
+    assertEquals("Renamed", replayed.getToken(kept.getId()).getName());
+    assertNull(replayed.getToken(removed.getId()));
+  }
+
+  @Test
+  @DisplayName("Replaying a zone entry replaces the whole zone")
+  void testReplayZone() throws Exception {
+    zone.setName("Changed");
+    journal.append(BASE_VERSION, List.of(CampaignJournal.Entry.putZone(zone)));
+
+    assertEquals(1, journal.replay(saved, BASE_VERSION));
+    assertEquals("Changed", saved.getZone(zone.getId()).getName());
+  }
+
+  @Test
+  @DisplayName("Replaying drawable entries keeps the draw order")
+  void testReplayDrawables() throws Exception {
+    var front = new DrawnElement(new Rectangle(0, 0, 10, 10), new Pen(Pen.DEFAULT));
+    var back = new DrawnElement(new Rectangle(5, 5, 20, 20), new Pen(Pen.DEFAULT));
+    zone.addDrawable(front);
+    zone.addDrawableRear(back);
+    journal.append(
+        BASE_VERSION,
+        List.of(
+            CampaignJournal.Entry.putDrawable(zone, front, false),
+            CampaignJournal.Entry.putDrawable(zone, back, true)));
+
+    front.getPen().setThickness(7);
+    zone.removeDrawable(back.getDrawable().getId());
+    journal.append(
+        BASE_VERSION,
+        List.of(
+            CampaignJournal.Entry.putDrawable(zone, front, false),
+            CampaignJournal.Entry.removeDrawable(zone, back.getDrawable().getId())));
+
+    assertEquals(4, journal.replay(saved, BASE_VERSION));
+    List<DrawnElement> layer =
+        saved.getZone(zone.getId()).getDrawnElements(front.getDrawable().getLayer());
+    assertEquals(1, layer.size());
+    assertEquals(front.getDrawable().getId(), layer.get(0).getDrawable().getId());
+    assertEquals(7, layer.get(0).getPen().getThickness());
+  }
+
+  @Test
+  @DisplayName("Replaying fog and topology entries keeps the rest of the zone")
+  void testReplayFogAndTopology() throws Exception {
+    zone.getExposedArea().add(new Area(new Rectangle2D.Double(0, 0, 100, 50)));
+    zone.addTopology(new Area(new Rectangle2D.Double(10, 10, 5, 5)), Zone.TopologyType.WALL_VBL);
+    journal.append(
+        BASE_VERSION,
+        List.of(CampaignJournal.Entry.putFog(zone), CampaignJournal.Entry.putTopology(zone)));
+
+    assertEquals(2, journal.replay(saved, BASE_VERSION));
+    Zone replayed = saved.getZone(zone.getId());
+    assertEquals(new java.awt.Rectangle(0, 0, 100, 50), replayed.getExposedArea().getBounds());
+    assertEquals(
+        new java.awt.Rectangle(10, 10, 5, 5),
+        replayed.getTopology(Zone.TopologyType.WALL_VBL).getBounds());
+    assertNotNull(replayed.getToken(kept.getId()));
+  }
+
+  @Test
+  @DisplayName("A journal written for another version of the campaign file is ignored")
+  void testOtherVersionIgnored() throws Exception {
+    journal.append(BASE_VERSION, List.of(CampaignJournal.Entry.removeToken(zone, kept.getId())));
+
+    assertEquals(0, journal.replay(saved, BASE_VERSION + 1));
+    assertNotNull(saved.getZone(zone.getId()).getToken(kept.getId()));
+  }
+
+  @Test
+  @DisplayName("An entry cut short by a crash ends the replay")
+  void testTruncatedEntry() throws Exception {
+    journal.append(BASE_VERSION, List.of(CampaignJournal.Entry.removeToken(zone, kept.getId())));
+    long complete = journal.length();
+    journal.append(
+        BASE_VERSION, List.of(CampaignJournal.Entry.removeToken(zone, removed.getId())));
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(complete + 5);
+    }
+
+    assertEquals(1, journal.replay(saved, BASE_VERSION));
+    assertNull(saved.getZone(zone.getId()).getToken(kept.getId()));
+    assertNotNull(saved.getZone(zone.getId()).getToken(removed.getId()));
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.util.Set;
+import net.rptools.lib.MD5Key;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ImageCacheTest {
+
+  /** A 256 x 256 ARGB image uses 256KB. */
+  private static final long IMAGE_BYTES = 256 * 256 * 4;
+
+  private static BufferedImage createImage() {
+    return new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+  }
+
+  @Test
+  @DisplayName("Images are weighed by width x height x bytes per pixel.")
+  void testGetBytes() {
+    assertEquals(IMAGE_BYTES, ImageCache.getBytes(createImage()));
+    assertEquals(
+        IMAGE_BYTES, ImageCache.getBytes(new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB)));
+    assertEquals(
+        256 * 256 * 4,
+        ImageCache.getBytes(new BufferedImage(256, 256, BufferedImage.TYPE_4BYTE_ABGR)));
+    assertEquals(
+        256 * 256, ImageCache.getBytes(new BufferedImage(256, 256, BufferedImage.TYPE_BYTE_GRAY)));
+  }
+
+  @Test
+  @DisplayName("Least recently used images are evicted to stay within the budget.")
+  void testEviction() {
+    ImageCache cache = new ImageCache(IMAGE_BYTES * 2);
+    MD5Key first = new MD5Key("first");
+    MD5Key second = new MD5Key("second");
+    MD5Key third = new MD5Key("third");
+
+    cache.put(first, createImage());
+    cache.put(second, createImage());
+    assertNotNull(cache.get(first));
+    cache.put(third, createImage());
+
+    assertNotNull(cache.get(first));
+    assertNull(cache.get(second));
+    assertNotNull(cache.get(third));
+
+    ImageCache.Stats stats = cache.getStats();
+    assertEquals(IMAGE_BYTES * 2, stats.usedBytes());
+    assertEquals(1, stats.evictionCount());
+    assertEquals(3, stats.hitCount());
+    assertEquals(1, stats.missCount());
+  }
+
+  @Test
+  @DisplayName("Pinned images are not evicted and do not count against the budget.")
+  void testPin() {
+    ImageCache cache = new ImageCache(IMAGE_BYTES);
+    MD5Key map = new MD5Key("map");
+    MD5Key token = new MD5Key("token");
+    MD5Key other = new MD5Key("other");
+
+    cache.put(map, createImage());
+    cache.pin(Set.of(map, token));
+    cache.put(token, createImage());
+    cache.put(other, createImage());
+
+    assertNotNull(cache.get(map));
+    assertNotNull(cache.get(token));
+    assertNotNull(cache.get(other));
+    assertEquals(IMAGE_BYTES * 2, cache.getStats().pinnedBytes());
+    assertEquals(IMAGE_BYTES, cache.getStats().usedBytes());
+
+    // Unpinned images become evictable again
+    cache.pin(Set.of());
+    assertEquals(0, cache.getStats().pinnedBytes());
+    assertTrue(cache.getStats().usedBytes() <= IMAGE_BYTES);
+  }
+
+  @Test
+  @DisplayName("Unpinned images can be evicted even if they are larger than the budget.")
+  void testUnpin() {
+    ImageCache cache = new ImageCache(IMAGE_BYTES / 2);
+    MD5Key map = new MD5Key("map");
+
+    cache.pin(Set.of(map));
+    cache.put(map, createImage());
+    assertNotNull(cache.get(map));
+
+    cache.unpin(map);
+    assertNull(cache.peek(map));
+    assertEquals(0, cache.getStats().pinnedBytes());
+  }
+
+  @Test
+  @DisplayName("Images larger than the budget are kept until the next pin.")
+  void testOversizedImage() {
+    ImageCache cache = new ImageCache(IMAGE_BYTES / 2);
+    MD5Key map = new MD5Key("map");
+
+    cache.put(map, createImage());
+    assertNotNull(cache.get(map));
+
+    cache.pin(Set.of());
+    assertNull(cache.peek(map));
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import net.rptools.lib.MD5Key;
+import net.rptools.lib.io.PackedFile;
+import net.rptools.maptool.model.Asset;
+import net.rptools.maptool.client.ui.Scale;
+import net.rptools.maptool.model.Campaign;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.server.proto.PersistedCampaignDto;
+import net.rptools.maptool.server.proto.ZoneDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PersistenceUtilTest {
+
+  private static final String CONTENT_FILE = "content.bin";
+
+  private File dir;
+  private Zone first;
+  private Zone second;
+  private MD5Key assetId;
+  private PersistenceUtil.PersistedCampaign persistedCampaign;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    dir = Files.createTempDirectory("persistence").toFile();
+    dir.deleteOnExit();
+
+    first = new Zone();
+    first.setName("First");
+    second = new Zone();
+    second.setName("Second");
+    Campaign campaign = new Campaign();
+    campaign.putZone(first);
+    campaign.putZone(second);
+
+    assetId = new MD5Key(new byte[] {1, 2, 3});
+    Scale view = new Scale();
+    view.setOffset(12, -34);
+    view.setScale(1.5);
+
+    persistedCampaign = new PersistenceUtil.PersistedCampaign();
+    persistedCampaign.campaign = campaign;
+    persistedCampaign.assetMap.put(assetId, null);
+    persistedCampaign.currentZoneId = second.getId();
+    persistedCampaign.currentView = view;
+  }
+
+  private static Asset putAsset(PackedFile pakFile, String text) throws Exception {
+    Asset asset = Asset.createTextAsset(text, text.getBytes(StandardCharsets.UTF_8));
+    pakFile.getXStream().processAnnotations(Asset.class);
+    pakFile.putFile("assets/" + asset.getMD5Key() + "." + asset.getExtension(), asset.getData());
+    pakFile.putFile("assets/" + asset.getMD5Key(), asset);
+    return asset;
+  }
+
+  private static byte[] read(PackedFile pakFile) throws Exception {
+    try (InputStream is = pakFile.getFileAsInputStream(CONTENT_FILE)) {
+      return is.readAllBytes();
+    }
+  }
+
+  @Test
+  @DisplayName("Binary content keeps the zones, assets, current zone and view")
+  void testRoundTrip() throws Exception {
+    File file = new File(dir, "roundtrip.cmpgn");
+    try (var pakFile = new PackedFile(file)) {
+      PersistenceUtil.saveBinaryContent(persistedCampaign, pakFile);
+      pakFile.save();
+    }
+
+    PersistenceUtil.PersistedCampaign loaded;
+    try (var pakFile = new PackedFile(file)) {
+      assertTrue(pakFile.hasFile(CONTENT_FILE));
+      loaded = PersistenceUtil.loadBinaryContent(pakFile);
+    }
+
+    assertEquals(2, loaded.campaign.getZones().size());
+    assertEquals("First", loaded.campaign.getZone(first.getId()).getName());
+    assertEquals("Second", loaded.campaign.getZone(second.getId()).getName());
+    assertEquals(1, loaded.assetMap.size());
+    assertTrue(loaded.assetMap.containsKey(assetId));
+    assertEquals(second.getId(), loaded.currentZoneId);
+    assertEquals(12, loaded.currentView.getOffsetX());
+    assertEquals(-34, loaded.currentView.getOffsetY());
+    assertEquals(1.5, loaded.currentView.getScale());
+  }
+
+  @Test
+  @DisplayName("A campaign without current zone or view loads without them")
+  void testNoCurrentZone() throws Exception {
+    persistedCampaign.currentZoneId = null;
+    persistedCampaign.currentView = null;
+    try (var pakFile = new PackedFile(new File(dir, "nozone.cmpgn"))) {
+      PersistenceUtil.saveBinaryContent(persistedCampaign, pakFile);
+      var loaded = PersistenceUtil.loadBinaryContent(pakFile);
+      assertNull(loaded.currentZoneId);
+      assertNull(loaded.currentView);
+      assertEquals(2, loaded.campaign.getZones().size());
+    }
+  }
+
+  @Test
+  @DisplayName("Empty binary content is reported as EOF")
+  void testEmpty() throws Exception {
+    try (var pakFile = new PackedFile(new File(dir, "empty.cmpgn"))) {
+      pakFile.putFile(CONTENT_FILE, new byte[0]);
+      assertThrows(EOFException.class, () -> PersistenceUtil.loadBinaryContent(pakFile));
+    }
+  }
+
+  @Test
+  @DisplayName("Binary content missing zones is reported as EOF")
+  void testTruncated() throws Exception {
+    try (var pakFile = new PackedFile(new File(dir, "truncated.cmpgn"))) {
+      PersistenceUtil.saveBinaryContent(persistedCampaign, pakFile);
+      byte[] content = read(pakFile);
+
+      // Keep the header and the first zone only
+      var in = new ByteArrayInputStream(content);
+      assertEquals(2, PersistedCampaignDto.parseDelimitedFrom(in).getZoneCount());
+      assertNotNull(ZoneDto.parseDelimitedFrom(in));
+      pakFile.putFile(CONTENT_FILE, Arrays.copyOf(content, content.length - in.available()));
+
+      var e = assertThrows(EOFException.class, () -> PersistenceUtil.loadBinaryContent(pakFile));
+      assertTrue(e.getMessage().contains("1 zones"));
+    }
+  }
+
+  @Test
+  @DisplayName("Assets are read in parallel and progress reaches the total size")
+  void testReadAssets() throws Exception {
+    File file = new File(dir, "assets.cmpgn");
+    List<Asset> saved = new ArrayList<>();
+    try (var pakFile = new PackedFile(file)) {
+      for (int i = 0; i < 50; i++) {
+        saved.add(putAsset(pakFile, "Asset " + i));
+      }
+      pakFile.save();
+    }
+
+    List<MD5Key> keys = saved.stream().map(Asset::getMD5Key).collect(Collectors.toList());
+    keys.add(new MD5Key("missing"));
+    List<Asset> read = new ArrayList<>();
+    long[] progress = new long[3];
+    try (var pakFile = new PackedFile(file)) {
+      PersistenceUtil.readAssets(
+          keys,
+          pakFile,
+          (loaded, total) -> {
+            assertTrue(loaded >= progress[0]);
+            progress[0] = loaded;
+            progress[1] = total;
+            progress[2]++;
+          },
+          read::add);
+    }
+
+    assertEquals(keys.size(), progress[2]);
+    assertTrue(progress[1] > 0);
+    assertEquals(progress[1], progress[0]);
+    Map<MD5Key, Asset> readMap =
+        read.stream().collect(Collectors.toMap(Asset::getMD5Key, Function.identity()));
+    assertEquals(saved.size(), readMap.size());
+    for (Asset asset : saved) {
+      assertArrayEquals(asset.getData(), readMap.get(asset.getMD5Key()).getData());
+    }
+  }
+
+  @Test
+  @DisplayName("Assets whose data no longer matches their key are still read")
+  void testReadAssetsMd5Mismatch() throws Exception {
+    try (var pakFile = new PackedFile(new File(dir, "mismatch.cmpgn"))) {
+      Asset asset = putAsset(pakFile, "Original");
+      byte[] changed = "Changed".getBytes(StandardCharsets.UTF_8);
+      pakFile.putFile("assets/" + asset.getMD5Key() + "." + asset.getExtension(), changed);
+
+      List<Asset> read = new ArrayList<>();
+      PersistenceUtil.readAssets(
+          List.of(asset.getMD5Key()), pakFile, (loaded, total) -> {}, read::add);
+
+      assertEquals(1, read.size());
+      assertArrayEquals(changed, read.get(0).getData());
+      assertEquals(new MD5Key(changed), read.get(0).getMD5Key());
+    }
+  }
+}